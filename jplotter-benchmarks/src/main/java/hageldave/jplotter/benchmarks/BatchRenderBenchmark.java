@@ -0,0 +1,145 @@
+package hageldave.jplotter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.jplotter.canvas.BatchRenderService;
+import hageldave.jplotter.canvas.BatchRenderService.OutputFormat;
+import hageldave.jplotter.canvas.BatchRenderService.RenderJob;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+/**
+ * Benchmarks the throughput of the {@link BatchRenderService} for a batch of report charts
+ * (coordinate system with a scatter plot and a line chart) with different numbers of worker threads.
+ * The score is the number of batches per second, multiply with {@link #jobsPerBatch} for charts per second.
+ * Comparing the scores of the {@link #threads} parameters shows how the throughput scales with the cores.
+ * <p>
+ * The data of the charts is generated once (seeded) and shared by all jobs, every job creates
+ * its own scene from it on the worker thread.
+ * <p>
+ * This benchmark is not included in the default run of {@link FallbackBenchmarkRunner}, run it with
+ * <pre>
+ * java -jar target/benchmarks.jar BatchRender
+ * java -jar target/benchmarks.jar BatchRender -p threads=1,2,4,8,16 -p format=SVG
+ * </pre>
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 4, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djava.awt.headless=true"})
+public class BatchRenderBenchmark {
+
+	/** number of worker threads of the service */
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	/** number of charts in a batch */
+	@Param({"64"})
+	public int jobsPerBatch;
+
+	/** number of points and line vertices of a chart */
+	@Param({"10000"})
+	public int numElements;
+
+	/** output format of the charts */
+	@Param({"PNG"})
+	public OutputFormat format;
+
+	/** width of a chart in pixels */
+	@Param({"400"})
+	public int width;
+
+	/** height of a chart in pixels */
+	@Param({"300"})
+	public int height;
+
+	protected BatchRenderService service;
+	protected List<RenderJob> jobs;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		service = new BatchRenderService(threads);
+		jobs = new ArrayList<>(jobsPerBatch);
+		Random rnd = new Random(0xc0ffee);
+		for(int j=0; j<jobsPerBatch; j++){
+			// immutable chart data, shared with the worker thread creating the scene
+			double[] xs = new double[numElements];
+			double[] ys = new double[numElements];
+			double walk = 0;
+			for(int i=0; i<numElements; i++){
+				xs[i] = i/(double)numElements;
+				walk += rnd.nextGaussian()*0.01;
+				ys[i] = walk;
+			}
+			int chart = j;
+			jobs.add(new RenderJob(()->createChart(chart, xs, ys), width, height, format));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		service.close();
+		service = null;
+	}
+
+	/**
+	 * Renders one batch of charts.
+	 * @return the encoded charts (returned to prevent dead code elimination)
+	 * @throws InterruptedException when interrupted
+	 * @throws ExecutionException when rendering failed
+	 */
+	@Benchmark
+	public List<byte[]> renderBatch() throws InterruptedException, ExecutionException {
+		return service.renderAll(jobs);
+	}
+
+	/**
+	 * Creates the scene of a chart, called on the worker thread of the job.
+	 * @param chart index of the chart
+	 * @param xs x-coordinates of the data
+	 * @param ys y-coordinates of the data
+	 * @return coordinate system containing the chart
+	 */
+	protected static CoordSysRenderer createChart(int chart, double[] xs, double[] ys) {
+		Points points = new Points(DefaultGlyph.CROSS);
+		Lines lines = new Lines();
+		for(int i=0; i<xs.length; i++){
+			points.addPoint(xs[i], ys[i]*0.5).setColor(0xff4363d8);
+		}
+		lines.addLineStrip(xs, ys).forEach(segment->segment.setColor(0xffe6194b));
+		CompleteRenderer content = new CompleteRenderer();
+		content.addItemToRender(points).addItemToRender(lines);
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setxAxisLabel("time");
+		coordsys.setyAxisLabel("chart " + chart);
+		coordsys.setCoordinateView(0, -1, 1, 1);
+		return coordsys;
+	}
+
+}
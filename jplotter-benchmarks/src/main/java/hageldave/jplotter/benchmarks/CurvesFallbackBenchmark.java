@@ -0,0 +1,37 @@
+package hageldave.jplotter.benchmarks;
+
+import java.util.Random;
+
+import hageldave.jplotter.renderables.Curves;
+import hageldave.jplotter.renderers.CurvesRenderer;
+import hageldave.jplotter.renderers.Renderer;
+
+/**
+ * Benchmarks {@link CurvesRenderer#renderFallback(java.awt.Graphics2D, java.awt.Graphics2D, int, int)}
+ * with short cubic Bézier curves between random points.
+ * 
+ * @author hageldave
+ */
+public class CurvesFallbackBenchmark extends FallbackBenchmark {
+
+	@Override
+	protected Renderer createScene(int numElements, Random rnd) {
+		Curves curves = new Curves();
+		double size = 4.0/Math.sqrt(numElements);
+		for(int i=0; i<numElements; i++){
+			double x = rnd.nextDouble();
+			double y = rnd.nextDouble();
+			curves.addCurve(
+					x, y,
+					x+rnd.nextDouble()*size, y+rnd.nextDouble()*size,
+					x+rnd.nextDouble()*size, y-rnd.nextDouble()*size,
+					x+size, y)
+			.setColor(randomColor(rnd))
+			.setPickColor(i+1);
+		}
+		CurvesRenderer renderer = new CurvesRenderer();
+		renderer.addItemToRender(curves);
+		return renderer;
+	}
+
+}
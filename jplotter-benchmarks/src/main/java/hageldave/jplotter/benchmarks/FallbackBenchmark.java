@@ -0,0 +1,201 @@
+package hageldave.jplotter.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.renderers.AdaptableView;
+import hageldave.jplotter.renderers.Renderer;
+import hageldave.jplotter.util.DirectRaster;
+
+/**
+ * Base class of the fallback rendering benchmarks.
+ * Each subclass generates a scene of {@link #numElements} elements for
+ * a specific {@link Renderer} in {@link #createScene(int, Random)}.
+ * The benchmark method renders a single frame of that scene into an {@link Img}
+ * the same way as {@link BlankCanvasFallback} does (including the picking buffer),
+ * so the measured time per operation is the time per frame.
+ * <p>
+ * Scenes are generated inside the unit square which is also used as view
+ * for the renderer, so that all elements are inside the viewport.
+ * The random generator is seeded, every run renders the same scene.
+ * <p>
+ * Use {@link FallbackBenchmarkRunner} to get the results normalized
+ * to nanoseconds per element and to get the allocations per frame.
+ * 
+ * @author hageldave
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djava.awt.headless=true"})
+public abstract class FallbackBenchmark {
+	
+	/** number of elements (points, segments, triangles, curves or texts) of the scene */
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int numElements;
+	
+	/** width of the frame in pixels */
+	@Param({"800"})
+	public int width;
+	
+	/** height of the frame in pixels */
+	@Param({"600"})
+	public int height;
+	
+	/** 
+	 * tile size in pixels for parallel tiled rendering like {@link BlankCanvasFallback#enableTiledRendering(boolean)},
+	 * 0 for rendering the whole frame at once on the benchmark thread (e.g. run with {@code -p tileSize=0,128,256})
+	 */
+	@Param({"0"})
+	public int tileSize;
+	
+	protected Img mainRenderBuffer;
+	protected Img pickingRenderBuffer;
+	protected Renderer renderer;
+	
+	/**
+	 * Creates the renderer containing the scene to be rendered.
+	 * Elements are supposed to be located in the unit square.
+	 * @param numElements number of elements of the scene
+	 * @param rnd seeded random generator to use for scene generation
+	 * @return renderer of the scene
+	 */
+	protected abstract Renderer createScene(int numElements, Random rnd);
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		mainRenderBuffer = new Img(width, height);
+		pickingRenderBuffer = new Img(width, height);
+		renderer = createScene(numElements, new Random(0xc0ffee));
+		if(renderer instanceof AdaptableView){
+			((AdaptableView) renderer).setView(createView());
+		}
+	}
+	
+	/**
+	 * Creates the view to be used for the renderer.
+	 * @return the unit square, subclasses may return a smaller region to benchmark zoomed in frames
+	 */
+	protected Rectangle2D createView() {
+		return new Rectangle2D.Double(0, 0, 1, 1);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		renderer.close();
+		renderer = null;
+	}
+	
+	/**
+	 * Renders one frame of the scene.
+	 * @return the rendered image (returned to prevent dead code elimination)
+	 */
+	@Benchmark
+	public Img renderFrame() {
+		renderFallback(renderer, mainRenderBuffer, pickingRenderBuffer, 0xffffffff, tileSize);
+		return mainRenderBuffer;
+	}
+	
+	/**
+	 * Renders the specified renderer into the specified images using the
+	 * same graphics setup as {@link BlankCanvasFallback}.
+	 * @param renderer to render
+	 * @param mainRenderBuffer image for the visible output
+	 * @param pickingRenderBuffer image for the picking output (same size as main buffer)
+	 * @param background color to clear the main buffer with
+	 */
+	public static void renderFallback(Renderer renderer, Img mainRenderBuffer, Img pickingRenderBuffer, int background) {
+		renderFallback(renderer, mainRenderBuffer, pickingRenderBuffer, background, 0);
+	}
+	
+	/**
+	 * Renders the specified renderer into the specified images using the
+	 * same graphics setup as {@link BlankCanvasFallback}, optionally split
+	 * into tiles that are rendered in parallel (the first tile is rendered before the others).
+	 * @param renderer to render
+	 * @param mainRenderBuffer image for the visible output
+	 * @param pickingRenderBuffer image for the picking output (same size as main buffer)
+	 * @param background color to clear the main buffer with
+	 * @param tileSize size of the tiles in pixels, 0 for rendering without tiles
+	 */
+	public static void renderFallback(Renderer renderer, Img mainRenderBuffer, Img pickingRenderBuffer, int background, int tileSize) {
+		int w = mainRenderBuffer.getWidth();
+		int h = mainRenderBuffer.getHeight();
+		mainRenderBuffer.fill(background);
+		pickingRenderBuffer.fill(0x00000000);
+		if(tileSize < 1){
+			renderTile(renderer, mainRenderBuffer, pickingRenderBuffer, 0, 0, w, h);
+			return;
+		}
+		int tilesX = (w+tileSize-1)/tileSize;
+		int tilesY = (h+tileSize-1)/tileSize;
+		renderTile(renderer, mainRenderBuffer, pickingRenderBuffer, 0, 0, Math.min(tileSize, w), Math.min(tileSize, h));
+		IntStream.range(1, tilesX*tilesY).parallel().forEach(tile->{
+			int x = (tile%tilesX)*tileSize;
+			int y = (tile/tilesX)*tileSize;
+			renderTile(renderer, mainRenderBuffer, pickingRenderBuffer, x, y, Math.min(tileSize, w-x), Math.min(tileSize, h-y));
+		});
+	}
+	
+	protected static void renderTile(Renderer renderer, Img mainRenderBuffer, Img pickingRenderBuffer, int x, int y, int tileW, int tileH) {
+		int w = mainRenderBuffer.getWidth();
+		int h = mainRenderBuffer.getHeight();
+		Graphics2D g=null,p=null;
+		try {
+			g=mainRenderBuffer.createGraphics();
+			g.clipRect(x, y, tileW, tileH);
+			p=pickingRenderBuffer.createGraphics();
+			p.clipRect(x, y, tileW, tileH);
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
+			
+			p.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+			p.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
+			p.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+			// allow renderers to draw directly into the render buffers
+			DirectRaster.attach(g, mainRenderBuffer);
+			DirectRaster.attach(p, pickingRenderBuffer);
+			
+			g.translate(0, h);
+			g.scale(1.0, -1.0);
+			p.translate(0, h);
+			p.scale(1.0, -1.0);
+			renderer.renderFallback(g, p, w, h);
+		} finally {
+			if(g!=null)g.dispose();
+			if(p!=null)p.dispose();
+		}
+	}
+	
+	/**
+	 * @param rnd random generator
+	 * @return random opaque color with pleasant saturation
+	 */
+	protected static int randomColor(Random rnd) {
+		return 0xff000000 | (rnd.nextInt(0xd0)<<16) | (rnd.nextInt(0xd0)<<8) | rnd.nextInt(0xd0);
+	}
+	
+}
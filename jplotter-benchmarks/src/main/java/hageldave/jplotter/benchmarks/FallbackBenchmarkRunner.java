@@ -0,0 +1,112 @@
+package hageldave.jplotter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * Runs the {@link FallbackBenchmark}s with the {@link GCProfiler} attached
+ * and prints a summary table with nanoseconds per element and bytes allocated
+ * per frame after the regular JMH output.
+ * <p>
+ * All regular JMH command line options are supported, e.g.
+ * <pre>
+ * java -jar target/benchmarks.jar Points -p numElements=1000,100000
+ * java -jar target/benchmarks.jar -rf json -rff fallback.json
+ * </pre>
+ * When no benchmark pattern is specified, all fallback benchmarks are run.
+ * 
+ * @author hageldave
+ */
+public class FallbackBenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(cmdOptions)
+				.addProfiler(GCProfiler.class);
+		if(cmdOptions.getIncludes().isEmpty()){
+			options.include(FallbackBenchmark.class.getPackage().getName()+".*FallbackBenchmark");
+		}
+		Collection<RunResult> results = new Runner(options.build()).run();
+		printSummary(results);
+	}
+	
+	/**
+	 * Prints the time per frame, time per element and allocated bytes per frame
+	 * for each of the specified results.
+	 * @param results of the benchmark run
+	 */
+	public static void printSummary(Collection<RunResult> results) {
+		List<RunResult> sorted = new ArrayList<>(results);
+		sorted.sort(Comparator
+				.comparing((RunResult r)->r.getParams().getBenchmark())
+				.thenComparingInt(r->numElements(r.getParams())));
+		
+		System.out.println();
+		System.out.println("Fallback rendering summary");
+		System.out.println(String.format(Locale.US, "%-45s %-22s %10s %16s %12s %16s", 
+				"Benchmark", "Params", "Elements", "ns/frame", "ns/element", "bytes/frame"));
+		for(RunResult result : sorted){
+			BenchmarkParams params = result.getParams();
+			int numElements = numElements(params);
+			double nsPerFrame = result.getPrimaryResult().getScore();
+			double bytesPerFrame = allocatedBytesPerOp(result.getSecondaryResults());
+			System.out.println(String.format(Locale.US, "%-45s %-22s %10d %16.1f %12.3f %16.0f", 
+					simpleName(params.getBenchmark()),
+					otherParams(params),
+					numElements,
+					nsPerFrame,
+					nsPerFrame/Math.max(1, numElements),
+					bytesPerFrame));
+		}
+	}
+	
+	private static int numElements(BenchmarkParams params) {
+		String n = params.getParam("numElements");
+		return n == null ? 1:Integer.parseInt(n);
+	}
+	
+	private static String otherParams(BenchmarkParams params) {
+		StringBuilder sb = new StringBuilder();
+		for(String key : params.getParamsKeys()){
+			if(key.equals("numElements"))
+				continue;
+			if(sb.length() > 0)
+				sb.append(',');
+			sb.append(key).append('=').append(params.getParam(key));
+		}
+		return sb.toString();
+	}
+	
+	private static String simpleName(String benchmark) {
+		String[] parts = benchmark.split("\\.");
+		return parts.length < 2 ? benchmark : parts[parts.length-2]+"."+parts[parts.length-1];
+	}
+	
+	private static double allocatedBytesPerOp(Map<String, Result> secondaryResults) {
+		for(Map.Entry<String, Result> entry : secondaryResults.entrySet()){
+			// key is prefixed with a middle dot by the GC profiler
+			if(entry.getKey().endsWith("gc.alloc.rate.norm")){
+				return entry.getValue().getScore();
+			}
+		}
+		return Double.NaN;
+	}
+
+}
@@ -0,0 +1,49 @@
+package hageldave.jplotter.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderers.LinesRenderer;
+import hageldave.jplotter.renderers.Renderer;
+
+/**
+ * Benchmarks {@link LinesRenderer#renderFallback(java.awt.Graphics2D, java.awt.Graphics2D, int, int)}
+ * with a random walk line strip (x sorted, like a time series).
+ * The {@link #thickness} parameter switches between the constant and
+ * the varying thickness code path.
+ * 
+ * @author hageldave
+ */
+public class LinesFallbackBenchmark extends FallbackBenchmark {
+	
+	/** "constant" for segments of constant thickness, "varying" for thickness changing along the strip */
+	@Param({"constant", "varying"})
+	public String thickness;
+
+	@Override
+	protected Renderer createScene(int numElements, Random rnd) {
+		double[] xs = new double[numElements+1];
+		double[] ys = new double[numElements+1];
+		double y = 0.5;
+		for(int i=0; i<xs.length; i++){
+			xs[i] = i*1.0/numElements;
+			y = Math.max(0, Math.min(1, y+(rnd.nextDouble()-0.5)*0.05));
+			ys[i] = y;
+		}
+		Lines lines = new Lines();
+		boolean varying = "varying".equals(this.thickness);
+		int i=0;
+		for(Lines.SegmentDetails seg : lines.addLineStrip(xs, ys)){
+			seg.setColor(randomColor(rnd)).setPickColor(++i);
+			if(varying){
+				seg.setThickness(1+rnd.nextDouble()*3, 1+rnd.nextDouble()*3);
+			}
+		}
+		LinesRenderer renderer = new LinesRenderer();
+		renderer.addItemToRender(lines);
+		return renderer;
+	}
+
+}
@@ -0,0 +1,46 @@
+package hageldave.jplotter.benchmarks;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.PointsRenderer;
+import hageldave.jplotter.renderers.Renderer;
+
+/**
+ * Benchmarks {@link PointsRenderer#renderFallback(java.awt.Graphics2D, java.awt.Graphics2D, int, int)}
+ * with uniformly distributed circle glyphs of random color.
+ * The {@link #viewArea} parameter controls the fraction of the unit square that is
+ * visible, which shows how the cost of a zoomed in frame relates to the cost of a full frame.
+ * 
+ * @author hageldave
+ */
+public class PointsFallbackBenchmark extends FallbackBenchmark {
+	
+	/** fraction of the scene's area that is visible (view centered in unit square) */
+	@Param({"1.0", "0.01"})
+	public double viewArea;
+	
+	@Override
+	protected Rectangle2D createView() {
+		double size = Math.sqrt(viewArea);
+		return new Rectangle2D.Double(0.5-size/2, 0.5-size/2, size, size);
+	}
+
+	@Override
+	protected Renderer createScene(int numElements, Random rnd) {
+		Points points = new Points(DefaultGlyph.CIRCLE_F);
+		for(int i=0; i<numElements; i++){
+			points.addPoint(rnd.nextDouble(), rnd.nextDouble())
+			.setColor(randomColor(rnd))
+			.setPickColor(i+1);
+		}
+		PointsRenderer renderer = new PointsRenderer();
+		renderer.addItemToRender(points);
+		return renderer;
+	}
+
+}
@@ -0,0 +1,33 @@
+package hageldave.jplotter.benchmarks;
+
+import java.awt.Font;
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.renderers.Renderer;
+import hageldave.jplotter.renderers.TextRenderer;
+
+/**
+ * Benchmarks {@link TextRenderer#renderFallback(java.awt.Graphics2D, java.awt.Graphics2D, int, int)}
+ * with short labels at random locations, every fourth label is rotated.
+ * 
+ * @author hageldave
+ */
+public class TextFallbackBenchmark extends FallbackBenchmark {
+
+	@Override
+	protected Renderer createScene(int numElements, Random rnd) {
+		TextRenderer renderer = new TextRenderer();
+		for(int i=0; i<numElements; i++){
+			Text txt = new Text("#"+(i%1000), 10, Font.PLAIN, randomColor(rnd));
+			txt.setOrigin(new Point2D.Double(rnd.nextDouble(), rnd.nextDouble()));
+			if(i%4 == 0)
+				txt.setAngle(rnd.nextDouble()*Math.PI);
+			txt.setPickColor(i+1);
+			renderer.addItemToRender(txt);
+		}
+		return renderer;
+	}
+
+}
@@ -0,0 +1,40 @@
+package hageldave.jplotter.benchmarks;
+
+import java.util.Random;
+
+import hageldave.jplotter.renderables.Triangles;
+import hageldave.jplotter.renderers.Renderer;
+import hageldave.jplotter.renderers.TrianglesRenderer;
+
+/**
+ * Benchmarks {@link TrianglesRenderer#renderFallback(java.awt.Graphics2D, java.awt.Graphics2D, int, int)}
+ * with small randomly placed triangles of random vertex colors (Gouraud shaded).
+ * The triangle size shrinks with the number of triangles so that the covered
+ * area stays roughly constant.
+ * 
+ * @author hageldave
+ */
+public class TrianglesFallbackBenchmark extends FallbackBenchmark {
+
+	@Override
+	protected Renderer createScene(int numElements, Random rnd) {
+		Triangles tris = new Triangles();
+		double size = 2.0/Math.sqrt(numElements);
+		for(int i=0; i<numElements; i++){
+			double x = rnd.nextDouble();
+			double y = rnd.nextDouble();
+			tris.addTriangle(
+					x, y,
+					x+rnd.nextDouble()*size, y+rnd.nextDouble()*size*0.5,
+					x+rnd.nextDouble()*size*0.5, y+rnd.nextDouble()*size)
+			.setColor0(randomColor(rnd))
+			.setColor1(randomColor(rnd))
+			.setColor2(randomColor(rnd))
+			.setPickColor(i+1);
+		}
+		TrianglesRenderer renderer = new TrianglesRenderer();
+		renderer.addItemToRender(tris);
+		return renderer;
+	}
+
+}
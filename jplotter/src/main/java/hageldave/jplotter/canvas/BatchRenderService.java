@@ -0,0 +1,223 @@
+package hageldave.jplotter.canvas;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.renderers.Renderer;
+import hageldave.jplotter.svg.SVGUtils;
+
+/**
+ * The BatchRenderService renders many independent scenes in parallel into encoded
+ * PNG, SVG or PDF files (as byte arrays) using a fixed pool of worker threads and the {@link OffscreenCanvas}.
+ * <p>
+ * <b>Thread confinement:</b>
+ * Renderers and renderables are not thread-safe, they keep mutable state such as the view of a
+ * renderer or the layout of a {@link hageldave.jplotter.renderers.CoordSysRenderer}.
+ * A {@link RenderJob} therefore does not contain a scene but a factory for it, which is called
+ * on the worker thread that renders the job.
+ * The created scene is only accessed by that thread and discarded afterwards.
+ * Scene factories must create new renderers and renderables for every call, they may share
+ * immutable data (e.g. the data arrays a scene is created from) with other jobs.
+ * <p>
+ * The static state used by the library during fallback, SVG and PDF rendering is safe for
+ * concurrent use: text is measured without shared graphics objects, SVG definition ids are
+ * unique per document ({@link SVGUtils#newDefId(org.w3c.dom.Document)}), glyph sprites are cached in a
+ * concurrent map and PDF fonts are loaded per document.
+ * <p>
+ * Example:
+ * <pre>
+ * try(BatchRenderService service = new BatchRenderService()){
+ *    List&lt;RenderJob&gt; jobs = reports.stream()
+ *       .map(report -&gt; new RenderJob(()-&gt;createChart(report), 800, 600, OutputFormat.PNG))
+ *       .collect(Collectors.toList());
+ *    List&lt;byte[]&gt; pngs = service.renderAll(jobs);
+ * }
+ * </pre>
+ *
+ * @author hageldave
+ */
+public class BatchRenderService implements AutoCloseable {
+
+	/**
+	 * Output formats of a {@link RenderJob}
+	 */
+	public static enum OutputFormat {
+		/** fallback rendering encoded as PNG image */
+		PNG,
+		/** SVG document as UTF-8 encoded XML */
+		SVG,
+		/** PDF document with a single page */
+		PDF,
+		;
+	}
+
+	/**
+	 * Description of a scene to be rendered by the {@link BatchRenderService}.
+	 */
+	public static class RenderJob {
+		/** creates the scene, called on the worker thread rendering the job */
+		public final Supplier<? extends Renderer> sceneFactory;
+		public final int width;
+		public final int height;
+		public final OutputFormat format;
+		public final Color background;
+
+		/**
+		 * Creates a job for the specified scene with white background.
+		 * @param sceneFactory creates the renderer of the scene (new instances for every call)
+		 * @param width of the output
+		 * @param height of the output
+		 * @param format of the output
+		 * @throws IllegalArgumentException when width or height are negative
+		 */
+		public RenderJob(Supplier<? extends Renderer> sceneFactory, int width, int height, OutputFormat format) {
+			this(sceneFactory, width, height, format, Color.WHITE);
+		}
+
+		/**
+		 * Creates a job for the specified scene.
+		 * @param sceneFactory creates the renderer of the scene (new instances for every call)
+		 * @param width of the output
+		 * @param height of the output
+		 * @param format of the output
+		 * @param background color of the output
+		 * @throws IllegalArgumentException when width or height are negative
+		 */
+		public RenderJob(Supplier<? extends Renderer> sceneFactory, int width, int height, OutputFormat format, Color background) {
+			if(width < 0 || height < 0){
+				throw new IllegalArgumentException("Size cannot be negative, but got " + width + "x" + height);
+			}
+			this.sceneFactory = Objects.requireNonNull(sceneFactory);
+			this.width = width;
+			this.height = height;
+			this.format = Objects.requireNonNull(format);
+			this.background = Objects.requireNonNull(background);
+		}
+	}
+
+	protected final ExecutorService executor;
+	protected final int numThreads;
+
+	/**
+	 * Creates a new service with one worker thread per available processor.
+	 */
+	public BatchRenderService() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new service with the specified number of worker threads.
+	 * @param numThreads number of jobs that are rendered in parallel
+	 * @throws IllegalArgumentException when numThreads is less than 1
+	 */
+	public BatchRenderService(int numThreads) {
+		if(numThreads < 1){
+			throw new IllegalArgumentException("Number of threads has to be positive, but got " + numThreads);
+		}
+		this.numThreads = numThreads;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(numThreads, runnable->{
+			Thread thread = new Thread(runnable, "BatchRenderService worker " + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return number of worker threads
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Submits the specified job for rendering on a worker thread.
+	 * @param job to render
+	 * @return future of the encoded output, see {@link #render(RenderJob)}
+	 */
+	public Future<byte[]> submit(RenderJob job) {
+		Objects.requireNonNull(job);
+		return executor.submit(()->render(job));
+	}
+
+	/**
+	 * Renders the specified jobs in parallel and waits for all of them to finish.
+	 * @param jobs to render
+	 * @return encoded outputs in the order of the jobs
+	 * @throws InterruptedException when interrupted while waiting
+	 * @throws ExecutionException when rendering of a job failed (the remaining jobs are still rendered)
+	 */
+	public List<byte[]> renderAll(Collection<RenderJob> jobs) throws InterruptedException, ExecutionException {
+		List<Future<byte[]>> futures = new ArrayList<>(jobs.size());
+		for(RenderJob job : jobs){
+			futures.add(submit(job));
+		}
+		List<byte[]> outputs = new ArrayList<>(jobs.size());
+		for(Future<byte[]> future : futures){
+			outputs.add(future.get());
+		}
+		return outputs;
+	}
+
+	/**
+	 * Renders the specified job on the calling thread.
+	 * A new scene is created by the job's scene factory and rendered through an {@link OffscreenCanvas}.
+	 * @param job to render
+	 * @return the encoded output (PNG image, UTF-8 encoded SVG document or PDF document)
+	 * @throws IOException when encoding fails
+	 */
+	public static byte[] render(RenderJob job) throws IOException {
+		Renderer scene = job.sceneFactory.get();
+		OffscreenCanvas canvas = new OffscreenCanvas(scene, job.width, job.height)
+				.setBackground(job.background)
+				.enablePicking(false);
+		switch (job.format) {
+		case PNG: {
+			Img img = canvas.render().first;
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			if(img.numValues() > 0){
+				ImageIO.write(img.getRemoteBufferedImage(), "png", out);
+			}
+			return out.toByteArray();
+		}
+		case SVG: {
+			return SVGUtils.documentToXMLString(canvas.paintSVG()).getBytes(StandardCharsets.UTF_8);
+		}
+		case PDF: {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try(PDDocument document = canvas.paintPDF()){
+				document.save(out);
+			}
+			return out.toByteArray();
+		}
+		default:
+			throw new IllegalArgumentException("Unsupported output format " + job.format);
+		}
+	}
+
+	/**
+	 * Shuts down the worker threads after the already submitted jobs were rendered.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+}
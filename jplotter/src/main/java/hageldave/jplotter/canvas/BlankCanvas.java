@@ -2,6 +2,7 @@ package hageldave.jplotter.canvas;
 
 import java.util.Objects;
 
+import hageldave.jplotter.renderables.UpdateQueue;
 import hageldave.jplotter.renderers.CoordSysRenderer;
 import hageldave.jplotter.renderers.Renderer;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
@@ -18,6 +19,8 @@ public class BlankCanvas extends FBOCanvas implements JPlotterCanvas {
 	private static final long serialVersionUID = 1L;
 
 	protected Renderer renderer;
+	/** updates of the scene, drained at the start of each frame */
+	protected final UpdateQueue updateQueue = new UpdateQueue(this::scheduleRepaint);
 	
 	/**
 	 * Creates a new {@link BlankCanvas} with the specified {@link FBOCanvas}
@@ -40,6 +43,7 @@ public class BlankCanvas extends FBOCanvas implements JPlotterCanvas {
 	@Override
 	@GLContextRequired
 	protected void paintToFBO(int width, int height) {
+		updateQueue.drain();
 		if(Objects.nonNull(renderer) && width > 0 && height > 0){
 			renderer.glInit();
 			renderer.render(0, 0, width, height);
@@ -74,6 +78,11 @@ public class BlankCanvas extends FBOCanvas implements JPlotterCanvas {
 		return renderer;
 	}
 	
+	@Override
+	public UpdateQueue getUpdateQueue() {
+		return updateQueue;
+	}
+	
 	@Override
 	public BlankCanvas asComponent() {
 		return this;
@@ -2,6 +2,7 @@ package hageldave.jplotter.canvas;
 
 import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D;
 import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.renderables.UpdateQueue;
 import hageldave.jplotter.renderers.Renderer;
 import hageldave.jplotter.util.Utils;
 import org.apache.batik.svggen.SVGGraphics2D;
@@ -10,20 +11,95 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.ImageObserver;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Fallback implementation for {@link BlankCanvas} for systems that do not support OpenGL 3
  * through {@link org.lwjgl.opengl.awt.AWTGLCanvas} (e.g. macOS).
  * <p>
  * This {@link JComponent} uses a single {@link Renderer} to draw its contents.
+ * For rendering into images without a component (e.g. headless), use the {@link OffscreenCanvas} instead.
+ * <p>
+ * On machines with many cores, tiled rendering can be enabled ({@link #enableTiledRendering(boolean)}).
+ * The canvas is then split into tiles of {@link #getTileSize()} pixels which are rendered in parallel
+ * by the workers of the common {@link java.util.concurrent.ForkJoinPool}.
+ * Each tile is rendered with its own pair of {@link Graphics2D} objects that are clipped to the tile
+ * but draw into the same render buffers.
+ * The first tile is always rendered before the others on the calling thread, so that renderers
+ * can perform their lazy layout (e.g. {@link hageldave.jplotter.renderers.CoordSysRenderer}) 
+ * before the remaining tiles are rendered concurrently.
+ * <p>
+ * Lazy picking can be enabled ({@link #enableLazyPicking(boolean)}) to skip the picking colors
+ * when rendering a frame. The picking buffer is then only rendered when a picking color is
+ * queried ({@link #getPixel(int, int, boolean, int)}) after the scene was rendered, and only for the
+ * neighborhood of the queried location ({@link #getLazyPickingMargin()}).
+ * The neighborhood is rendered a second time into a scratch buffer for this.
+ * <p>
+ * Asynchronous rendering can be enabled ({@link #enableAsyncRendering(boolean)}) to keep the
+ * event dispatch thread responsive when rendering a frame takes long.
+ * Frames are then rendered into back buffers by a dedicated render thread and swapped with the
+ * front buffers when finished, {@link #paint(Graphics)} always shows the latest finished frame.
+ * When a newer repaint is requested while a frame is being rendered, the rest of the outdated frame is skipped
+ * (unless the previous frame was skipped as well, so that continuous repaint requests still produce frames).
+ * With tiled rendering enabled the remaining tiles are skipped, otherwise the outdated frame is only cancelled
+ * between the renderers of composite renderers (e.g. {@link hageldave.jplotter.renderers.CompleteRenderer},
+ * see {@link #isCancelled(Graphics2D)}), a single long running renderer always finishes.
+ * Note that the scene may be modified by the event dispatch thread while a frame is rendered,
+ * which can result in an inconsistent frame that is replaced by the frame of the subsequent repaint.
+ * Updates enqueued to the {@link #getUpdateQueue()} or passed to {@link #updateScene(Runnable)} do not have
+ * this problem, they are applied by the render thread between frames.
+ * Picking queries ({@link #getPixel(int, int, boolean, int)}) never wait for the render thread,
+ * while a frame is in flight they are answered from the last finished frame when its picking colors are
+ * available and with no picking color otherwise.
+ * <p>
+ * Progressive rendering can be enabled ({@link #enableProgressiveRendering(boolean)}) to render
+ * frames of lower {@link RenderQuality} during interaction ({@link #scheduleInteractiveRepaint()}).
+ * Once no interaction happened for the idle delay ({@link #getIdleDelay()}), the frame is refined by
+ * subsequent passes of increasing quality. Each pass is a separate event on the event dispatch thread,
+ * so remaining passes are dropped when new interaction happens in between.
+ * Without asynchronous rendering, a pass is itself split into bands of tiles that are rendered as
+ * separate events into the back buffers, so that input is handled between bands and interrupts the pass.
+ * <p>
+ * Pan acceleration can be enabled ({@link #enablePanAcceleration(boolean)}) to reuse the pixels of the
+ * previous frame for repaints that translate the contents of an area ({@link #scheduleTranslatedRepaint(Supplier, int, int)}).
+ * The pixels inside the area are shifted by the translation and only the remaining parts of the canvas
+ * (the newly exposed strips of the area and everything outside of it) are rendered with clipped graphics.
+ * Any other repaint request in between results in a completely rendered frame.
+ * When an overlay is drawn on top of the translated area ({@link #scheduleTranslatedRepaintBelowOverlay(Supplier, int, int)}),
+ * the previous pixels cannot be shifted since the overlay stays in place. The frame is then rendered completely,
+ * but the translation is passed on to the renderers ({@link #KEY_LAYER_TRANSLATION}) which shift the layer they cache
+ * below the overlay and only draw the overlay and the newly exposed strips.
+ * Pan acceleration is not used with asynchronous rendering since the scene can change while a frame is rendered.
+ * <p>
+ * Every repaint request except for {@link #scheduleOverlayRepaint()} increments the scene version,
+ * which is passed on to renderers through the {@link #KEY_SCENE_VERSION} rendering hint (see {@link #getSceneVersion(Graphics2D)}).
+ * Renderers can keep raster layers of everything that only changes with the scene and composite them
+ * as long as the version stays the same, e.g. the {@link hageldave.jplotter.renderers.CoordSysRenderer}
+ * only draws its overlay on top of the cached contents below it for overlay repaints.
  * 
  * @author hageldave
  */
 public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	private static final long serialVersionUID = 1L;
 	private static final ImageObserver obs_allbits = Utils.imageObserver(ImageObserver.ALLBITS);
+	
+	/** rendering hint key for the scene version (a Long) of the frame a {@link Graphics2D} draws, see {@link #getSceneVersion(Graphics2D)} */
+	public static final RenderingHints.Key KEY_SCENE_VERSION = new SceneVersionKey();
+	/** rendering hint key for the cancellation test (a {@link BooleanSupplier}) of the frame a {@link Graphics2D} draws, see {@link #isCancelled(Graphics2D)} */
+	public static final RenderingHints.Key KEY_CANCELLATION = new CancellationKey();
+	/** rendering hint key for the {@link LayerTranslation} of the frame a {@link Graphics2D} draws, see {@link #getLayerTranslation(Graphics2D)} */
+	public static final RenderingHints.Key KEY_LAYER_TRANSLATION = new LayerTranslationKey();
 
 	protected AtomicBoolean repaintIsSheduled = new AtomicBoolean(false);
 	protected Img mainRenderBuffer = new Img(0,0);
@@ -32,6 +108,51 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	protected Renderer renderer;
 	protected boolean isRenderSvgAsImage = false;
 	protected boolean isRenderPDFAsImage = false;
+	protected boolean isTiledRenderingEnabled = false;
+	protected int tileSize = 256;
+	protected boolean isLazyPickingEnabled = false;
+	protected int lazyPickingMargin = 32;
+	/** area of the picking buffer that is up to date with the last rendered frame (lazy picking) */
+	protected Rectangle pickingValidArea = new Rectangle();
+	/** receives the main colors when rendering the picking buffer lazily */
+	protected Img pickingScratchBuffer = new Img(0,0);
+	protected boolean isAsyncRenderingEnabled = false;
+	protected ExecutorService renderExecutor;
+	/** back buffers for asynchronous rendering (and refinement passes of synchronous rendering) */
+	protected Img mainBackBuffer = new Img(0,0);
+	protected Img pickingBackBuffer = new Img(0,0);
+	/** incremented with every requested frame, frames of older generations are outdated */
+	protected final AtomicLong renderGeneration = new AtomicLong();
+	protected boolean isPreviousFrameCancelled = false;
+	/** held while the renderer is used (asynchronous rendering) */
+	protected final ReentrantLock renderLock = new ReentrantLock();
+	/** held while accessing or swapping the front buffers (asynchronous rendering) */
+	protected final Object bufferLock = new Object();
+	protected boolean isProgressiveRenderingEnabled = false;
+	/** quality of the next frame (progressive rendering) */
+	protected volatile RenderQuality renderQuality = RenderQuality.FULL;
+	/** passes rendered after interaction stopped (progressive rendering) */
+	protected RenderQuality[] refinementPasses = {RenderQuality.PREVIEW, RenderQuality.FULL};
+	protected final AtomicLong interactionCount = new AtomicLong();
+	protected Timer idleTimer;
+	/** number of frames rendered by {@link #render()}, confined to the event dispatch thread */
+	protected long numRenderedFrames = 0;
+	protected int idleDelay = 300;
+	protected boolean isPanAccelerationEnabled = false;
+	/** translation of the previous frame requested for the next frame (pan acceleration), guarded by this */
+	protected FrameTranslation pendingTranslation;
+	/** true when the next frame cannot reuse the previous one (pan acceleration), guarded by this */
+	protected boolean isFrameInvalidated = true;
+	/** quality of the frame in the render buffers, null when unknown */
+	protected RenderQuality renderedQuality;
+	/** scene version of the frame in the render buffers (synchronous rendering) */
+	protected long renderedSceneVersion = -1;
+	/** width of the border of a translated area that is rendered instead of shifted (e.g. axes lines on the border) */
+	protected int translationBorder = 2;
+	/** incremented with every repaint request that is not overlay-only, see {@link #scheduleOverlayRepaint()} */
+	protected final AtomicLong sceneVersion = new AtomicLong();
+	/** updates of the scene, drained at the start of each frame (by the render thread in asynchronous mode) */
+	protected final UpdateQueue updateQueue = new UpdateQueue(this::scheduleRepaint);
 	
 	/**
 	 * Creates a new {@link BlankCanvasFallback} instance.
@@ -48,6 +169,7 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	@Override
 	public BlankCanvasFallback setRenderer(Renderer renderer) {
 		this.renderer = renderer;
+		sceneVersion.incrementAndGet();
 		return this;
 	}
 
@@ -55,59 +177,453 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	public Renderer getRenderer() {
 		return renderer;
 	}
+	
+	@Override
+	public UpdateQueue getUpdateQueue() {
+		return updateQueue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * With asynchronous rendering enabled, the update is executed by the render thread between frames
+	 * (while no picking colors are rendered), otherwise it is run immediately.
+	 * No repaint is scheduled.
+	 */
+	@Override
+	public void updateScene(Runnable update) {
+		if(!isAsyncRenderingEnabled()){
+			update.run();
+			return;
+		}
+		getRenderExecutor().execute(()->{
+			renderLock.lock();
+			try {
+				update.run();
+			} finally {
+				renderLock.unlock();
+			}
+		});
+	}
 
 	@Override
 	public void scheduleRepaint() {
+		invalidateFrame();
+		scheduleFrame();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The next frame is rendered with the same scene version as the previous one
+	 * (unless other repaints are requested in between), see {@link #KEY_SCENE_VERSION}.
+	 */
+	@Override
+	public void scheduleOverlayRepaint() {
+		scheduleFrame();
+	}
+	
+	/**
+	 * Schedules a call to {@link #paintFrame()} on the event dispatch thread unless it is already scheduled.
+	 * In contrast to {@link #scheduleRepaint()} this does not prevent reusing the previous frame (pan acceleration).
+	 */
+	protected void scheduleFrame() {
 		if(repaintIsSheduled.compareAndSet(false, true)){
-			SwingUtilities.invokeLater(this::repaint);
+			SwingUtilities.invokeLater(this::paintFrame);
 		}
 	}
 
 	@Override
 	public void repaint() {
 		if(SwingUtilities.isEventDispatchThread()){
-			repaintIsSheduled.set(false);
-			render();
-			super.repaint();
+			invalidateFrame();
+			paintFrame();
 		} else {
 			scheduleRepaint();
 		}
 	}
+	
+	/**
+	 * Renders and displays a frame, has to be called on the event dispatch thread.
+	 */
+	protected void paintFrame() {
+		repaintIsSheduled.set(false);
+		if(isAsyncRenderingEnabled()){
+			renderAsync();
+		} else {
+			render();
+			super.repaint();
+		}
+	}
 
 	protected void render() {
+		drainUpdateQueue();
 		int w=getWidth(); int h=getHeight();
 		if(mainRenderBuffer.getWidth()!=w || mainRenderBuffer.getHeight()!=h) {
 			mainRenderBuffer = new Img(w, h);
 			pickingRenderBuffer = new Img(w, h);
+			renderedQuality = null;
 		}
+		FrameTranslation translation = takeFrameTranslation();
 		if(w==0 && h==0)
 			return;
+		RenderQuality quality = renderQuality;
+		int background = getBackground().getRGB();
+		long version = sceneVersion.get();
+		// reuse the previous frame when possible
+		if(Objects.isNull(translation) || quality != renderedQuality 
+				|| !renderTranslatedFrame(translation, w, h, background, quality))
+		{
+			renderFrame(mainRenderBuffer, pickingRenderBuffer, w, h, background, quality, ()->false);
+		}
+		renderedQuality = quality;
+		renderedSceneVersion = version;
+		pickingValidArea = isPickingRendered(quality) ? new Rectangle(0, 0, w, h) : new Rectangle();
+		numRenderedFrames++;
+	}
+	
+	/**
+	 * Applies the updates of the {@link #getUpdateQueue()} and invalidates the previous frame when
+	 * the scene changed.
+	 * An exception thrown by an update is passed on to the uncaught exception handler of the current thread,
+	 * so that it is reported on the render thread as well and the frame is still rendered
+	 * (with the remaining updates applied).
+	 */
+	protected void drainUpdateQueue() {
+		int numUpdates;
+		try {
+			numUpdates = updateQueue.drain();
+		} catch (RuntimeException e) {
+			numUpdates = 1;
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+		if(numUpdates > 0){
+			// scene changed, previous frame cannot be reused
+			invalidateFrame();
+		}
+	}
+	
+	/**
+	 * Renders a frame into the render buffers by translating the previous frame (pan acceleration).
+	 * The pixels of the translated area (except for its border) are shifted and all other parts
+	 * of the canvas are rendered.
+	 * @param translation of the previous frame
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 * @param background integer packed ARGB background color
+	 * @param quality of the frame
+	 * @return true when the frame was rendered, false when the previous frame could not be reused
+	 * (requires the frame to be rendered completely)
+	 */
+	protected boolean renderTranslatedFrame(FrameTranslation translation, int w, int h, int background, RenderQuality quality) {
+		Rectangle2D area = translation.area;
+		if(translation.isBelowOverlay){
+			// the overlay stays in place, renderers translate the layers they cache below it
+			Rectangle imageArea = new Rectangle(
+					(int)Math.round(area.getMinX()), h-(int)Math.round(area.getMaxY()), 
+					(int)Math.round(area.getWidth()), (int)Math.round(area.getHeight()));
+			LayerTranslation layerTranslation = new LayerTranslation(imageArea, translationBorder, translation.dx, -translation.dy, renderedSceneVersion);
+			renderFrame(mainRenderBuffer, pickingRenderBuffer, w, h, background, quality, ()->false, layerTranslation);
+			return true;
+		}
+		Rectangle canvasRect = new Rectangle(0, 0, w, h);
+		boolean drawPicking = isPickingRendered(quality);
+		if(drawPicking && !pickingValidArea.contains(canvasRect)){
+			// picking colors of the previous frame are incomplete
+			return false;
+		}
+		// whole pixels of the area in image coordinates (from top), without border
+		int x0 = (int)Math.ceil(area.getMinX()) + translationBorder;
+		int x1 = (int)Math.floor(area.getMaxX()) - translationBorder;
+		int y0 = h-(int)Math.floor(area.getMaxY()) + translationBorder;
+		int y1 = h-(int)Math.ceil(area.getMinY()) - translationBorder;
+		Rectangle inner = new Rectangle(x0, y0, x1-x0, y1-y0).intersection(canvasRect);
+		int dx = translation.dx, dy = -translation.dy;
+		Rectangle target = inner.intersection(new Rectangle(inner.x+dx, inner.y+dy, inner.width, inner.height));
+		if(target.isEmpty()){
+			return false;
+		}
+		copyTranslated(mainRenderBuffer, target, dx, dy);
+		if(drawPicking){
+			copyTranslated(pickingRenderBuffer, target, dx, dy);
+		}
+		// render everything around the shifted pixels
+		Rectangle[] regions = {
+				new Rectangle(0, 0, w, target.y),
+				new Rectangle(0, target.y+target.height, w, h-target.y-target.height),
+				new Rectangle(0, target.y, target.x, target.height),
+				new Rectangle(target.x+target.width, target.y, w-target.x-target.width, target.height)
+		};
+		for(Rectangle region : regions){
+			if(region.isEmpty()){
+				continue;
+			}
+			fillRect(mainRenderBuffer, region, background);
+			if(drawPicking){
+				fillRect(pickingRenderBuffer, region, 0x00000000);
+			}
+			renderTile(mainRenderBuffer, pickingRenderBuffer, drawPicking, quality, region.x, region.y, region.width, region.height, w, h);
+		}
+		// the layout may have changed when rendering the frame
+		return area.equals(translation.areaSupplier.get());
+	}
+	
+	/**
+	 * Copies the pixels of an image that end up in the target rectangle when the image is translated.
+	 * @param img to translate in place
+	 * @param target rectangle of the translated pixels (source pixels need to be inside the image)
+	 * @param dx translation along x-axis
+	 * @param dy translation along y-axis (downwards)
+	 */
+	protected static void copyTranslated(Img img, Rectangle target, int dx, int dy) {
+		int[] data = img.getData();
+		int w = img.getWidth();
+		// copy rows in an order that does not overwrite source rows before they are copied
+		for(int r=0; r<target.height; r++){
+			int y = dy > 0 ? target.y+target.height-1-r : target.y+r;
+			System.arraycopy(data, (y-dy)*w+target.x-dx, data, y*w+target.x, target.width);
+		}
+	}
+	
+	/**
+	 * Fills the specified rectangle of an image.
+	 * @param img to fill
+	 * @param rect to fill (needs to be inside the image)
+	 * @param value integer packed ARGB value
+	 */
+	protected static void fillRect(Img img, Rectangle rect, int value) {
+		int[] data = img.getData();
+		int w = img.getWidth();
+		for(int y=rect.y; y<rect.y+rect.height; y++){
+			Arrays.fill(data, y*w+rect.x, y*w+rect.x+rect.width, value);
+		}
+	}
+	
+	/**
+	 * Discards a pending translation, so that the next frame is rendered completely (pan acceleration),
+	 * and increments the scene version.
+	 */
+	protected synchronized void invalidateFrame() {
+		sceneVersion.incrementAndGet();
+		pendingTranslation = null;
+		isFrameInvalidated = true;
+	}
+	
+	/**
+	 * Adds the specified translation to the pending translation of the next frame (pan acceleration).
+	 * Nothing happens when the next frame is already invalidated.
+	 * The next frame is invalidated when the translations are of different areas.
+	 * @param area supplier of the translated area
+	 * @param dx translation along x-axis
+	 * @param dy translation along y-axis (upwards)
+	 * @param isBelowOverlay true when only the contents below an overlay are translated
+	 */
+	protected synchronized void requestFrameTranslation(Supplier<Rectangle2D> area, int dx, int dy, boolean isBelowOverlay) {
+		sceneVersion.incrementAndGet();
+		if(isFrameInvalidated){
+			return;
+		}
+		Rectangle2D currentArea = area.get();
+		if(Objects.isNull(pendingTranslation)){
+			pendingTranslation = new FrameTranslation(currentArea, area, dx, dy, isBelowOverlay);
+		} else if(pendingTranslation.area.equals(currentArea) && pendingTranslation.isBelowOverlay == isBelowOverlay){
+			pendingTranslation.dx += dx;
+			pendingTranslation.dy += dy;
+		} else {
+			invalidateFrame();
+		}
+	}
+	
+	/**
+	 * Returns the pending translation for the frame that is about to be rendered and resets the 
+	 * state for the subsequent frame (pan acceleration).
+	 * @return translation or null when the frame has to be rendered completely
+	 */
+	protected synchronized FrameTranslation takeFrameTranslation() {
+		FrameTranslation translation = isFrameInvalidated ? null : pendingTranslation;
+		pendingTranslation = null;
+		isFrameInvalidated = false;
+		return translation;
+	}
+	
+	/**
+	 * Renders a frame into the specified buffers.
+	 * The specified cancellation test is passed on to the renderers through the {@link #KEY_CANCELLATION}
+	 * rendering hint, so that composite renderers can skip their remaining renderers once it returns true
+	 * (see {@link #isCancelled(Graphics2D)}).
+	 * When tiled rendering is enabled, it is also checked before each tile and remaining tiles are skipped.
+	 * The test has to keep returning true once it returned true.
+	 * @param mainBuffer image receiving the main colors
+	 * @param pickingBuffer image receiving the picking colors
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 * @param background integer packed ARGB background color
+	 * @param quality of the frame
+	 * @param isCancelled cancellation test
+	 * @return true when the frame was completely rendered, false when cancelled
+	 */
+	protected boolean renderFrame(Img mainBuffer, Img pickingBuffer, int w, int h, int background, RenderQuality quality, BooleanSupplier isCancelled) {
+		return renderFrame(mainBuffer, pickingBuffer, w, h, background, quality, isCancelled, null);
+	}
+	
+	/**
+	 * Renders a frame into the specified buffers, 
+	 * see {@link #renderFrame(Img, Img, int, int, int, RenderQuality, BooleanSupplier)}.
+	 * The specified layer translation is passed on to the renderers through the {@link #KEY_LAYER_TRANSLATION} rendering hint.
+	 * @param layerTranslation translation of the contents below an overlay since the previous frame, may be null
+	 */
+	protected boolean renderFrame(Img mainBuffer, Img pickingBuffer, int w, int h, int background, RenderQuality quality, BooleanSupplier isCancelled, LayerTranslation layerTranslation) {
+		boolean drawPicking = isPickingRendered(quality);
 		// clear / fill with clear color
-		mainRenderBuffer.fill(getBackground().getRGB());
-		pickingRenderBuffer.fill(0x00000000);
-		// setup render graphics
-		Graphics2D g=null,p=null;
+		mainBuffer.fill(background);
+		if(drawPicking){
+			pickingBuffer.fill(0x00000000);
+		}
+		if(isTiledRenderingEnabled()){
+			int tilesX = (w+tileSize-1)/tileSize;
+			int tilesY = (h+tileSize-1)/tileSize;
+			// first tile on this thread to let renderers do their lazy layout before going parallel
+			renderTile(mainBuffer, pickingBuffer, drawPicking, quality, isCancelled, layerTranslation, 0, 0, Math.min(tileSize, w), Math.min(tileSize, h), w, h);
+			AtomicBoolean cancelled = new AtomicBoolean(false);
+			IntStream.range(1, tilesX*tilesY).parallel().forEach(tile->{
+				if(cancelled.get() || isCancelled.getAsBoolean()){
+					cancelled.set(true);
+					return;
+				}
+				int x = (tile%tilesX)*tileSize;
+				int y = (tile/tilesX)*tileSize;
+				renderTile(mainBuffer, pickingBuffer, drawPicking, quality, isCancelled, layerTranslation, x, y, Math.min(tileSize, w-x), Math.min(tileSize, h-y), w, h);
+			});
+			return !cancelled.get() && !isCancelled.getAsBoolean();
+		} else {
+			renderTile(mainBuffer, pickingBuffer, drawPicking, quality, isCancelled, layerTranslation, 0, 0, w, h, w, h);
+			return !isCancelled.getAsBoolean();
+		}
+	}
+	
+	/**
+	 * Requests a frame to be rendered by the render thread (asynchronous rendering).
+	 * Has to be called on the event dispatch thread.
+	 */
+	protected void renderAsync() {
+		int w=getWidth(); int h=getHeight();
+		int background = getBackground().getRGB();
+		RenderQuality quality = renderQuality;
+		long generation = renderGeneration.incrementAndGet();
+		getRenderExecutor().execute(()->renderAsync(generation, w, h, background, quality));
+	}
+	
+	/**
+	 * Renders a frame into the back buffers and swaps them with the front buffers (on the render thread).
+	 * Nothing happens when the frame is already outdated.
+	 * @param generation of the frame
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 * @param background integer packed ARGB background color
+	 * @param quality of the frame
+	 */
+	protected void renderAsync(long generation, int w, int h, int background, RenderQuality quality) {
+		BooleanSupplier isOutdated = ()->generation != renderGeneration.get();
+		if(isOutdated.getAsBoolean()){
+			// a newer frame is already requested
+			return;
+		}
+		renderLock.lock();
 		try {
-			g=mainRenderBuffer.createGraphics();
-			
-			p=pickingRenderBuffer.createGraphics();
-			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
-			
-			p.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-			p.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
-			p.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
-			
-			g.translate(0, h);
-			g.scale(1.0, -1.0);
-			p.translate(0, h);
-			p.scale(1.0, -1.0);
-			render(g,p, w,h);
+			drainUpdateQueue();
+			if(mainBackBuffer.getWidth()!=w || mainBackBuffer.getHeight()!=h) {
+				mainBackBuffer = new Img(w, h);
+				pickingBackBuffer = new Img(w, h);
+			}
+			if(w > 0 && h > 0){
+				boolean allowCancel = !isPreviousFrameCancelled;
+				boolean finished = renderFrame(mainBackBuffer, pickingBackBuffer, w, h, background, quality, 
+						()->allowCancel && isOutdated.getAsBoolean());
+				isPreviousFrameCancelled = !finished;
+				if(!finished){
+					return;
+				}
+			}
+			synchronized (bufferLock) {
+				Img main = mainRenderBuffer, picking = pickingRenderBuffer;
+				mainRenderBuffer = mainBackBuffer;
+				pickingRenderBuffer = pickingBackBuffer;
+				mainBackBuffer = main;
+				pickingBackBuffer = picking;
+				pickingValidArea = isPickingRendered(quality) ? new Rectangle(0, 0, w, h) : new Rectangle();
+				renderedQuality = quality;
+			}
 		} finally {
-			if(g!=null)g.dispose();
-			if(p!=null)p.dispose();
+			renderLock.unlock();
+		}
+		SwingUtilities.invokeLater(super::repaint);
+	}
+	
+	/**
+	 * @return the executor of the render thread (asynchronous rendering), created on first call
+	 */
+	protected synchronized ExecutorService getRenderExecutor() {
+		if(Objects.isNull(renderExecutor)){
+			renderExecutor = Executors.newSingleThreadExecutor(runnable->{
+				Thread thread = new Thread(runnable, "BlankCanvasFallback render thread");
+				thread.setDaemon(true);
+				return thread;
+			});
 		}
+		return renderExecutor;
+	}
+	
+	/**
+	 * Renders the specified tile of the canvas into the render buffers.
+	 * The graphics passed on to the renderer are clipped to the tile.
+	 * @param x left of the tile (in image coordinates, i.e. from top)
+	 * @param y top of the tile (in image coordinates, i.e. from top)
+	 * @param tileW width of the tile
+	 * @param tileH height of the tile
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 */
+	protected void renderTile(int x, int y, int tileW, int tileH, int w, int h) {
+		RenderQuality quality = renderQuality;
+		renderTile(mainRenderBuffer, pickingRenderBuffer, isPickingRendered(quality), quality, x, y, tileW, tileH, w, h);
+	}
+	
+	/**
+	 * Renders the specified tile of the canvas into the specified buffers.
+	 * The graphics passed on to the renderer are clipped to the tile.
+	 * When picking is not drawn, the graphics for the picking buffer have an empty clip.
+	 * @param mainBuffer image receiving the main colors
+	 * @param pickingBuffer image receiving the picking colors
+	 * @param drawPicking whether to draw picking colors
+	 * @param quality of the frame
+	 * @param x left of the tile (in image coordinates, i.e. from top)
+	 * @param y top of the tile (in image coordinates, i.e. from top)
+	 * @param tileW width of the tile
+	 * @param tileH height of the tile
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 */
+	protected void renderTile(Img mainBuffer, Img pickingBuffer, boolean drawPicking, RenderQuality quality, int x, int y, int tileW, int tileH, int w, int h) {
+		OffscreenCanvas.renderTile(mainBuffer, pickingBuffer, drawPicking, quality, sceneVersion.get(), x, y, tileW, tileH, w, h, this::render);
+	}
+	
+	/**
+	 * Renders the specified tile of a frame that can be cancelled into the specified buffers,
+	 * see {@link #renderTile(Img, Img, boolean, RenderQuality, int, int, int, int, int, int)}.
+	 * The cancellation test and layer translation are passed on to the renderer through the 
+	 * {@link #KEY_CANCELLATION} and {@link #KEY_LAYER_TRANSLATION} rendering hints.
+	 * @param isCancelled cancellation test of the frame
+	 * @param layerTranslation translation of the contents below an overlay since the previous frame, may be null
+	 */
+	protected void renderTile(Img mainBuffer, Img pickingBuffer, boolean drawPicking, RenderQuality quality, BooleanSupplier isCancelled, LayerTranslation layerTranslation, int x, int y, int tileW, int tileH, int w, int h) {
+		OffscreenCanvas.renderTile(mainBuffer, pickingBuffer, drawPicking, quality, sceneVersion.get(), x, y, tileW, tileH, w, h, (g,p,w_,h_)->{
+			g.setRenderingHint(KEY_CANCELLATION, isCancelled);
+			p.setRenderingHint(KEY_CANCELLATION, isCancelled);
+			g.setRenderingHint(KEY_LAYER_TRANSLATION, layerTranslation);
+			p.setRenderingHint(KEY_LAYER_TRANSLATION, layerTranslation);
+			render(g, p, w_, h_);
+		});
 	}
 
 	protected void render(Graphics2D g, Graphics2D p, int w, int h) {
@@ -117,6 +633,405 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	
 	
 
+	/**
+	 * En/Disables tiled rendering.
+	 * When enabled the canvas is split into tiles that are rendered in parallel (see class description).
+	 * This requires the renderer to be safe for concurrent fallback rendering of disjoint clip regions,
+	 * which is the case for the renderers of this library.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback enableTiledRendering(boolean enable) {
+		this.isTiledRenderingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when tiled rendering is enabled, see {@link #enableTiledRendering(boolean)}
+	 */
+	public boolean isTiledRenderingEnabled() {
+		return isTiledRenderingEnabled;
+	}
+	
+	/**
+	 * Sets the size of the tiles used for tiled rendering (default is 256 pixels).
+	 * @param tileSize width and height of a tile in pixels
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when tile size is less than 1
+	 */
+	public BlankCanvasFallback setTileSize(int tileSize) {
+		if(tileSize < 1){
+			throw new IllegalArgumentException("Tile size needs to be positive, but was " + tileSize);
+		}
+		this.tileSize = tileSize;
+		return this;
+	}
+	
+	/**
+	 * @return the size of the tiles used for tiled rendering
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+	
+	/**
+	 * En/Disables lazy picking.
+	 * When enabled, picking colors are not rendered with each frame but on demand when
+	 * queried through {@link #getPixel(int, int, boolean, int)} (see class description).
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback enableLazyPicking(boolean enable) {
+		this.isLazyPickingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when lazy picking is enabled, see {@link #enableLazyPicking(boolean)}
+	 */
+	public boolean isLazyPickingEnabled() {
+		return isLazyPickingEnabled;
+	}
+	
+	/**
+	 * Sets the margin around a queried area that is rendered along with it when
+	 * picking colors are rendered lazily (default is 32 pixels).
+	 * A larger margin lets subsequent queries nearby (e.g. mouse movements) reuse the picking buffer.
+	 * @param margin in pixels
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when margin is negative
+	 */
+	public BlankCanvasFallback setLazyPickingMargin(int margin) {
+		if(margin < 0){
+			throw new IllegalArgumentException("Margin cannot be negative, but was " + margin);
+		}
+		this.lazyPickingMargin = margin;
+		return this;
+	}
+	
+	/**
+	 * @return the margin around a queried area that is rendered along with it, see {@link #setLazyPickingMargin(int)}
+	 */
+	public int getLazyPickingMargin() {
+		return lazyPickingMargin;
+	}
+	
+	/**
+	 * En/Disables asynchronous rendering.
+	 * When enabled, frames are rendered on a dedicated render thread into back buffers
+	 * which are swapped in when finished (see class description).
+	 * An outdated frame is cancelled between tiles when tiled rendering is enabled and otherwise only
+	 * between the renderers of composite renderers (see {@link #isCancelled(Graphics2D)}).
+	 * Modifications of the scene on the event dispatch thread (e.g. of the coordinate view by interactions)
+	 * should be applied through {@link #updateScene(Runnable)} while this is enabled.
+	 * When disabled, the render thread is shut down after finishing pending frames.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback enableAsyncRendering(boolean enable) {
+		this.isAsyncRenderingEnabled = enable;
+		if(!enable){
+			synchronized (this) {
+				if(Objects.nonNull(renderExecutor)){
+					renderExecutor.shutdown();
+					renderExecutor = null;
+				}
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * @return true when asynchronous rendering is enabled, see {@link #enableAsyncRendering(boolean)}
+	 */
+	public boolean isAsyncRenderingEnabled() {
+		return isAsyncRenderingEnabled;
+	}
+
+	/**
+	 * En/Disables progressive rendering.
+	 * When enabled, repaints scheduled through {@link #scheduleInteractiveRepaint()} are rendered
+	 * at {@link RenderQuality#INTERACTIVE} quality and the frame is refined once no interaction
+	 * happened for the idle delay (see class description).
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback enableProgressiveRendering(boolean enable) {
+		this.isProgressiveRenderingEnabled = enable;
+		if(!enable){
+			interactionCount.incrementAndGet();
+			if(Objects.nonNull(idleTimer)){
+				idleTimer.stop();
+			}
+			if(renderQuality != RenderQuality.FULL){
+				renderQuality = RenderQuality.FULL;
+				scheduleRepaint();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return true when progressive rendering is enabled, see {@link #enableProgressiveRendering(boolean)}
+	 */
+	public boolean isProgressiveRenderingEnabled() {
+		return isProgressiveRenderingEnabled;
+	}
+
+	/**
+	 * Sets the time without interaction after which the refinement of an interactive frame starts
+	 * when progressive rendering is enabled (default is 300ms).
+	 * @param millis delay in milliseconds
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when millis is negative
+	 */
+	public BlankCanvasFallback setIdleDelay(int millis) {
+		if(millis < 0){
+			throw new IllegalArgumentException("Delay cannot be negative, but was " + millis);
+		}
+		this.idleDelay = millis;
+		if(Objects.nonNull(idleTimer)){
+			idleTimer.setInitialDelay(millis);
+		}
+		return this;
+	}
+
+	/**
+	 * @return the idle delay in milliseconds, see {@link #setIdleDelay(int)}
+	 */
+	public int getIdleDelay() {
+		return idleDelay;
+	}
+
+	/**
+	 * En/Disables pan acceleration.
+	 * When enabled, repaints scheduled through {@link #scheduleTranslatedRepaint(Supplier, int, int)}
+	 * reuse the translated pixels of the previous frame (see class description).
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback enablePanAcceleration(boolean enable) {
+		this.isPanAccelerationEnabled = enable;
+		return this;
+	}
+
+	/**
+	 * @return true when pan acceleration is enabled, see {@link #enablePanAcceleration(boolean)}
+	 */
+	public boolean isPanAccelerationEnabled() {
+		return isPanAccelerationEnabled;
+	}
+
+	/**
+	 * @return the quality at which the next frame is rendered
+	 */
+	public RenderQuality getRenderQuality() {
+		return renderQuality;
+	}
+
+	@Override
+	public void scheduleInteractiveRepaint() {
+		invalidateFrame();
+		notifyInteraction();
+		scheduleFrame();
+	}
+
+	@Override
+	public void scheduleTranslatedRepaint(Supplier<Rectangle2D> area, int dx, int dy) {
+		if(!isPanAccelerationEnabled() || isAsyncRenderingEnabled()){
+			scheduleInteractiveRepaint();
+			return;
+		}
+		requestFrameTranslation(area, dx, dy, false);
+		notifyInteraction();
+		scheduleFrame();
+	}
+
+	@Override
+	public void scheduleTranslatedRepaintBelowOverlay(Supplier<Rectangle2D> area, int dx, int dy) {
+		if(!isPanAccelerationEnabled() || isAsyncRenderingEnabled()){
+			scheduleInteractiveRepaint();
+			return;
+		}
+		requestFrameTranslation(area, dx, dy, true);
+		notifyInteraction();
+		scheduleFrame();
+	}
+
+	/**
+	 * Lowers the quality of the next frames and (re)starts the idle timer for the refinement
+	 * when progressive rendering is enabled.
+	 */
+	protected void notifyInteraction() {
+		if(!isProgressiveRenderingEnabled()){
+			return;
+		}
+		interactionCount.incrementAndGet();
+		renderQuality = RenderQuality.INTERACTIVE;
+		if(Objects.isNull(idleTimer)){
+			idleTimer = new Timer(idleDelay, e->renderRefinementPass(0, interactionCount.get()));
+			idleTimer.setRepeats(false);
+		}
+		idleTimer.restart();
+	}
+
+	/**
+	 * Renders the specified refinement pass and schedules the next one,
+	 * unless interaction happened since the refinement started.
+	 * @param pass index into {@link #refinementPasses}
+	 * @param interaction value of {@link #interactionCount} when the refinement started
+	 */
+	protected void renderRefinementPass(int pass, long interaction) {
+		if(pass >= refinementPasses.length || interaction != interactionCount.get()){
+			return;
+		}
+		RenderQuality quality = refinementPasses[pass];
+		renderQuality = quality;
+		if(isAsyncRenderingEnabled()){
+			repaint();
+			// next pass as separate event so that pending input is handled in between
+			SwingUtilities.invokeLater(()->renderRefinementPass(pass+1, interaction));
+			return;
+		}
+		// a blocking repaint of the whole frame cannot be interrupted by input,
+		// the pass is rendered into the back buffers in bands of tiles instead (one event per band)
+		drainUpdateQueue();
+		int w=getWidth(); int h=getHeight();
+		if(w==0 || h==0){
+			return;
+		}
+		if(mainBackBuffer.getWidth()!=w || mainBackBuffer.getHeight()!=h) {
+			mainBackBuffer = new Img(w, h);
+			pickingBackBuffer = new Img(w, h);
+		}
+		mainBackBuffer.fill(getBackground().getRGB());
+		pickingBackBuffer.fill(0x00000000);
+		renderRefinementBand(pass, interaction, numRenderedFrames, 0);
+	}
+
+	/**
+	 * Renders a band of tiles of a refinement pass into the back buffers (synchronous rendering)
+	 * and schedules the next band as separate event, so that pending input is handled in between.
+	 * The back buffers are swapped with the render buffers once the last band is rendered.
+	 * The pass is dropped when interaction happened since the refinement started, and the next pass is
+	 * scheduled when a frame was rendered in between (which already used the quality of this pass).
+	 * @param pass index into {@link #refinementPasses}
+	 * @param interaction value of {@link #interactionCount} when the refinement started
+	 * @param frames value of {@link #numRenderedFrames} when the pass started
+	 * @param y top of the band (in image coordinates, i.e. from top)
+	 */
+	protected void renderRefinementBand(int pass, long interaction, long frames, int y) {
+		if(interaction != interactionCount.get()){
+			return;
+		}
+		int w=mainBackBuffer.getWidth(); int h=mainBackBuffer.getHeight();
+		if(frames != numRenderedFrames || w != getWidth() || h != getHeight()){
+			SwingUtilities.invokeLater(()->renderRefinementPass(pass+1, interaction));
+			return;
+		}
+		RenderQuality quality = refinementPasses[pass];
+		boolean drawPicking = isPickingRendered(quality);
+		int bandH = Math.min(tileSize, h-y);
+		if(isTiledRenderingEnabled()){
+			int tilesX = (w+tileSize-1)/tileSize;
+			// first tile on this thread to let renderers do their lazy layout before going parallel
+			int firstTile = y == 0 ? 1:0;
+			if(y == 0){
+				renderTile(mainBackBuffer, pickingBackBuffer, drawPicking, quality, 0, y, Math.min(tileSize, w), bandH, w, h);
+			}
+			IntStream.range(firstTile, tilesX).parallel().forEach(tile->{
+				int x = tile*tileSize;
+				renderTile(mainBackBuffer, pickingBackBuffer, drawPicking, quality, x, y, Math.min(tileSize, w-x), bandH, w, h);
+			});
+		} else {
+			renderTile(mainBackBuffer, pickingBackBuffer, drawPicking, quality, 0, y, w, bandH, w, h);
+		}
+		if(y+bandH < h){
+			SwingUtilities.invokeLater(()->renderRefinementBand(pass, interaction, frames, y+bandH));
+			return;
+		}
+		synchronized (bufferLock) {
+			Img main = mainRenderBuffer, picking = pickingRenderBuffer;
+			mainRenderBuffer = mainBackBuffer;
+			pickingRenderBuffer = pickingBackBuffer;
+			mainBackBuffer = main;
+			pickingBackBuffer = picking;
+			pickingValidArea = drawPicking ? new Rectangle(0, 0, w, h) : new Rectangle();
+			renderedQuality = quality;
+		}
+		super.repaint();
+		SwingUtilities.invokeLater(()->renderRefinementPass(pass+1, interaction));
+	}
+
+	/**
+	 * @param quality of a frame
+	 * @return true when picking colors are drawn with the frame
+	 */
+	protected boolean isPickingRendered(RenderQuality quality) {
+		return !isLazyPickingEnabled() && quality.isPickingEnabled();
+	}
+
+	/**
+	 * Makes sure that the specified area of the picking buffer is up to date with the last rendered frame.
+	 * When it is not, the area (including the lazy picking margin) is rendered.
+	 * This never waits for the render thread (asynchronous rendering): while a frame is in flight, 
+	 * the area is not rendered and false is returned.
+	 * @param area of the picking buffer (in image coordinates, i.e. from top)
+	 * @return true when the area of the picking buffer is up to date
+	 */
+	protected boolean ensurePickingArea(Rectangle area) {
+		synchronized (bufferLock) {
+			if(isPickingAreaValid(area)){
+				return true;
+			}
+		}
+		// the renderer must not be used by the render thread at the same time
+		if(!renderLock.tryLock()){
+			return false;
+		}
+		try {
+			ensurePickingAreaLocked(area);
+			return true;
+		} finally {
+			renderLock.unlock();
+		}
+	}
+	
+	/**
+	 * @param area of the picking buffer (in image coordinates, i.e. from top)
+	 * @return true when the area is empty or the picking buffer is up to date in the area
+	 */
+	protected boolean isPickingAreaValid(Rectangle area) {
+		Rectangle queried = area.intersection(new Rectangle(0, 0, pickingRenderBuffer.getWidth(), pickingRenderBuffer.getHeight()));
+		return queried.isEmpty() || pickingValidArea.contains(queried);
+	}
+	
+	private void ensurePickingAreaLocked(Rectangle area) {
+		if(isPickingAreaValid(area)){
+			return;
+		}
+		int w=mainRenderBuffer.getWidth(); int h=mainRenderBuffer.getHeight();
+		Rectangle queried = area.intersection(new Rectangle(0, 0, w, h));
+		Rectangle region = new Rectangle(queried);
+		region.grow(lazyPickingMargin, lazyPickingMargin);
+		region = region.intersection(new Rectangle(0, 0, w, h));
+		if(pickingScratchBuffer.getWidth()!=w || pickingScratchBuffer.getHeight()!=h){
+			pickingScratchBuffer = new Img(w, h);
+		}
+		Graphics2D p = pickingRenderBuffer.createGraphics();
+		try {
+			p.setComposite(AlphaComposite.Src);
+			p.setColor(new Color(0, true));
+			p.fill(region);
+		} finally {
+			p.dispose();
+		}
+		renderTile(pickingScratchBuffer, pickingRenderBuffer, true, RenderQuality.FULL, region.x, region.y, region.width, region.height, w, h);
+		synchronized (bufferLock) {
+			pickingValidArea = region;
+		}
+	}
+
 	@Override
 	public void paint(Graphics g) {
 		// test if this is SVG painting
@@ -128,13 +1043,15 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 		}
 		
 		g.clearRect(0, 0, getWidth(), getHeight());
-		int w=mainRenderBuffer.getWidth();
-		int h=mainRenderBuffer.getHeight();
-		if(w>0&&h>0) {
-			g.drawImage(mainRenderBuffer.getRemoteBufferedImage(), 
-					0, 0, getWidth(), getHeight(), 
-					0, 0, w, h, 
-					obs_allbits);
+		synchronized (bufferLock) {
+			int w=mainRenderBuffer.getWidth();
+			int h=mainRenderBuffer.getHeight();
+			if(w>0&&h>0) {
+				g.drawImage(mainRenderBuffer.getRemoteBufferedImage(), 
+						0, 0, getWidth(), getHeight(), 
+						0, 0, w, h, 
+						obs_allbits);
+			}
 		}
 	}
 
@@ -160,17 +1077,25 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 
 	@Override
 	public Img toImg() {
-		return mainRenderBuffer.copy();
+		synchronized (bufferLock) {
+			return mainRenderBuffer.copy();
+		}
 	}
 
 	@Override
 	public int getPixel(int x, int y, boolean picking, int areaSize) {
-		Img img = picking ? pickingRenderBuffer:mainRenderBuffer;
+		if(picking && !ensurePickingArea(new Rectangle(x-areaSize/2, y-areaSize/2, areaSize, areaSize))){
+			// picking colors of the area are not available while a frame is in flight
+			return 0;
+		}
 		Img area = new Img(areaSize, areaSize);
-		area.forEach(px->{
-			int v = img.getValue(x+px.getX()-areaSize/2, y+px.getY()-areaSize/2, 0);
-			px.setValue(v);
-		});
+		synchronized (bufferLock) {
+			Img img = picking ? pickingRenderBuffer:mainRenderBuffer;
+			area.forEach(px->{
+				int v = img.getValue(x+px.getX()-areaSize/2, y+px.getY()-areaSize/2, 0);
+				px.setValue(v);
+			});
+		}
 		int[] colors = area.getData();
 		return JPlotterCanvas.mostProminentColor(colors, areaSize);
 	}
@@ -179,5 +1104,121 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	public BlankCanvasFallback asComponent() {
 		return this;
 	}
+	
+	/**
+	 * Translation of the contents of an area of the canvas between two frames (pan acceleration).
+	 */
+	protected static class FrameTranslation {
+		/** translated area (in GL coordinates, i.e. from bottom) */
+		public final Rectangle2D area;
+		/** supplier of the area, to detect changes of the layout */
+		public final Supplier<Rectangle2D> areaSupplier;
+		/** translation in pixels along x-axis and y-axis (upwards) */
+		public int dx, dy;
+		/** true when only the contents below an overlay are translated, see {@link BlankCanvasFallback#scheduleTranslatedRepaintBelowOverlay(Supplier, int, int)} */
+		public final boolean isBelowOverlay;
+		
+		public FrameTranslation(Rectangle2D area, Supplier<Rectangle2D> areaSupplier, int dx, int dy, boolean isBelowOverlay) {
+			this.area = area;
+			this.areaSupplier = areaSupplier;
+			this.dx = dx;
+			this.dy = dy;
+			this.isBelowOverlay = isBelowOverlay;
+		}
+	}
+	
+	/**
+	 * Translation of the contents below an overlay between the previous and the current frame,
+	 * which is passed on to renderers through the {@link #KEY_LAYER_TRANSLATION} rendering hint
+	 * (see {@link #scheduleTranslatedRepaintBelowOverlay(Supplier, int, int)}).
+	 * Renderers that cache the layer below their overlay can translate the cached pixels of the area
+	 * instead of drawing them again (e.g. {@link hageldave.jplotter.renderers.CoordSysRenderer}).
+	 */
+	public static class LayerTranslation {
+		/** translated area (in image coordinates of the canvas, i.e. from top) */
+		public final Rectangle area;
+		/** width of the border of the area that is drawn again instead of translated (e.g. axes lines on the border) */
+		public final int border;
+		/** translation in pixels along x-axis and y-axis (downwards, image coordinates) */
+		public final int dx, dy;
+		/** scene version of the previous frame, see {@link BlankCanvasFallback#getSceneVersion(Graphics2D)} */
+		public final long previousSceneVersion;
+		
+		public LayerTranslation(Rectangle area, int border, int dx, int dy, long previousSceneVersion) {
+			this.area = area;
+			this.border = border;
+			this.dx = dx;
+			this.dy = dy;
+			this.previousSceneVersion = previousSceneVersion;
+		}
+	}
+	
+	/**
+	 * Returns the translation of the contents below the overlay since the previous frame, for the frame
+	 * drawn by the specified graphics object.
+	 * @param g graphics object
+	 * @return the translation, or null when the frame is not a translation of the previous frame
+	 */
+	public static LayerTranslation getLayerTranslation(Graphics2D g) {
+		Object translation = g.getRenderingHint(KEY_LAYER_TRANSLATION);
+		return translation instanceof LayerTranslation ? (LayerTranslation)translation : null;
+	}
+
+	private static class LayerTranslationKey extends RenderingHints.Key {
+		LayerTranslationKey() {
+			super(0x6a70746c);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object val) {
+			return val == null || val instanceof LayerTranslation;
+		}
+	}
+
+	/**
+	 * Returns the scene version of the frame drawn by the specified graphics object.
+	 * The version only stays the same for subsequent frames when the scene did not change
+	 * in between, i.e. when only {@link #scheduleOverlayRepaint()} was called.
+	 * @param g graphics object
+	 * @return the scene version, or -1 when not specified (e.g. when exporting to SVG or PDF)
+	 */
+	public static long getSceneVersion(Graphics2D g) {
+		Object version = g.getRenderingHint(KEY_SCENE_VERSION);
+		return version instanceof Long ? (Long)version : -1;
+	}
+
+	/**
+	 * Returns true when the frame drawn by the specified graphics object was cancelled, i.e. it is outdated
+	 * and will be discarded (asynchronous rendering).
+	 * Composite renderers check this between their renderers and skip the remaining ones once it returns true.
+	 * @param g graphics object
+	 * @return true when cancelled, false when not cancelled or not specified (see {@link #KEY_CANCELLATION})
+	 */
+	public static boolean isCancelled(Graphics2D g) {
+		Object isCancelled = g.getRenderingHint(KEY_CANCELLATION);
+		return isCancelled instanceof BooleanSupplier && ((BooleanSupplier)isCancelled).getAsBoolean();
+	}
+
+	private static class CancellationKey extends RenderingHints.Key {
+		CancellationKey() {
+			super(0x6a707363);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object val) {
+			return val == null || val instanceof BooleanSupplier;
+		}
+	}
+
+	private static class SceneVersionKey extends RenderingHints.Key {
+		SceneVersionKey() {
+			super(0x6a707376);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object val) {
+			return val == null || val instanceof Long;
+		}
+	}
 
 }
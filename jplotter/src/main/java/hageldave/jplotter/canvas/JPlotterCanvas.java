@@ -2,6 +2,7 @@ package hageldave.jplotter.canvas;
 
 import hageldave.imagingkit.core.Img;
 import hageldave.jplotter.pdf.FontCachedPDDocument;
+import hageldave.jplotter.renderables.UpdateQueue;
 import hageldave.jplotter.renderers.Renderer;
 import hageldave.jplotter.svg.SVGUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -16,6 +17,7 @@ import java.awt.event.WindowListener;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 /**
  * This interface defines the methods required by an implementation of a 
@@ -62,7 +64,95 @@ public interface JPlotterCanvas {
 	 * additional call until the render method within repaint is about to be executed.
 	 */
 	public void scheduleRepaint();
-	
+
+	/**
+	 * Schedules a repaint call due to user interaction (e.g. panning or zooming).
+	 * Implementations may render frames of lower {@link RenderQuality} in response
+	 * to keep up with the interaction and refine the display once the interaction
+	 * has stopped (see {@link BlankCanvasFallback#enableProgressiveRendering(boolean)}).
+	 * <p>
+	 * The default implementation calls {@link #scheduleRepaint()}.
+	 */
+	public default void scheduleInteractiveRepaint() {
+		scheduleRepaint();
+	}
+
+	/**
+	 * Schedules a repaint call due to user interaction that translates the contents
+	 * of the specified area by an integer number of pixels (e.g. panning).
+	 * Implementations may reuse the translated pixels of the previous frame and only render the parts
+	 * of the canvas that changed otherwise (see {@link BlankCanvasFallback#enablePanAcceleration(boolean)}).
+	 * This requires the area to only contain contents that are translated, i.e. nothing that stays in place.
+	 * <p>
+	 * The default implementation calls {@link #scheduleInteractiveRepaint()}.
+	 * @param area supplier of the translated area (in GL coordinates, i.e. from bottom).
+	 * It is queried again after the next frame was rendered to detect changes of the layout.
+	 * @param dx translation in pixels along x-axis
+	 * @param dy translation in pixels along y-axis (upwards)
+	 */
+	public default void scheduleTranslatedRepaint(Supplier<Rectangle2D> area, int dx, int dy) {
+		scheduleInteractiveRepaint();
+	}
+
+	/**
+	 * Schedules a repaint call due to user interaction that translates the contents of the specified area
+	 * by an integer number of pixels, while an overlay on top of it stays in place
+	 * (e.g. panning a {@link hageldave.jplotter.renderers.CoordSysRenderer} that has an overlay).
+	 * Implementations may pass the translation on to the renderers (see {@link BlankCanvasFallback#KEY_LAYER_TRANSLATION}),
+	 * so that they can reuse the translated pixels of the layer below their overlay
+	 * (see {@link BlankCanvasFallback#enablePanAcceleration(boolean)}).
+	 * <p>
+	 * The default implementation calls {@link #scheduleInteractiveRepaint()}.
+	 * @param area supplier of the translated area (in GL coordinates, i.e. from bottom)
+	 * @param dx translation in pixels along x-axis
+	 * @param dy translation in pixels along y-axis (upwards)
+	 */
+	public default void scheduleTranslatedRepaintBelowOverlay(Supplier<Rectangle2D> area, int dx, int dy) {
+		scheduleInteractiveRepaint();
+	}
+
+	/**
+	 * Schedules a repaint call when only the overlay of the scene changed
+	 * (e.g. a selection rectangle in the overlay of a {@link hageldave.jplotter.renderers.CoordSysRenderer}).
+	 * Implementations may keep the previously rendered contents below the overlay and only
+	 * render and composite the overlay (see {@link BlankCanvasFallback#KEY_SCENE_VERSION}).
+	 * Use {@link #scheduleRepaint()} when anything else changed as well.
+	 * <p>
+	 * The default implementation calls {@link #scheduleRepaint()}.
+	 */
+	public default void scheduleOverlayRepaint() {
+		scheduleRepaint();
+	}
+
+	/**
+	 * Returns the queue for updating the scene of this canvas from other threads.
+	 * The queue is drained on the rendering thread at the start of each frame
+	 * and enqueuing an update schedules a repaint.
+	 * <p>
+	 * The default implementation throws an {@link UnsupportedOperationException}, implementations
+	 * that support updates from other threads have to override this method.
+	 * @return the update queue of this canvas
+	 * @throws UnsupportedOperationException when this canvas does not provide an update queue
+	 */
+	public default UpdateQueue getUpdateQueue() {
+		throw new UnsupportedOperationException(getClass().getName() + " does not provide an update queue, modify the scene on the thread that renders it instead.");
+	}
+
+	/**
+	 * Applies a modification of the scene that is made on the event dispatch thread 
+	 * (e.g. setting the coordinate view of a {@link hageldave.jplotter.renderers.CoordSysRenderer} by an interaction)
+	 * in a way that does not interfere with rendering.
+	 * Canvases that render on a separate thread (see {@link BlankCanvasFallback#enableAsyncRendering(boolean)})
+	 * apply the update on that thread between frames, so the update must not rely on being run immediately.
+	 * No repaint is scheduled, the caller has to schedule the appropriate repaint after calling this.
+	 * <p>
+	 * The default implementation runs the update immediately.
+	 * @param update modification of the scene
+	 */
+	public default void updateScene(Runnable update) {
+		update.run();
+	}
+
 	/**
 	 * En/disables SVG rendering as image.
 	 * When rendering to SVG and this is enabled, instead of translating the 
@@ -0,0 +1,353 @@
+package hageldave.jplotter.canvas;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.pdf.FontCachedPDDocument;
+import hageldave.jplotter.renderers.Renderer;
+import hageldave.jplotter.svg.SVGUtils;
+import hageldave.jplotter.util.DirectRaster;
+import hageldave.jplotter.util.FallbackLayerCache.LayerPainter;
+import hageldave.jplotter.util.Pair;
+
+/**
+ * The OffscreenCanvas renders a {@link Renderer} in fallback mode into images of a specified size
+ * without any AWT component, i.e. without a native peer and without the event dispatch thread.
+ * This allows to render plots in headless environments (e.g. on a server) and to render many plots
+ * in parallel from a thread pool.
+ * <p>
+ * Each call to {@link #render()} creates a new main image and picking image
+ * which are rendered the same way as by the {@link BlankCanvasFallback}.
+ * The renderer can also be exported to SVG ({@link #paintSVG()}) and PDF ({@link #paintPDF()}).
+ * Rendering can happen concurrently from multiple threads.
+ * Renderers have mutable state (e.g. their layout), so rendering is synchronized on the renderer
+ * and concurrent calls for the same renderer (also from other OffscreenCanvas instances) are serialized,
+ * while different renderers render in parallel.
+ * The scene must not be modified during rendering.
+ * <p>
+ * Example for rendering a thumbnail:
+ * <pre>
+ * Img thumbnail = new OffscreenCanvas(coordsys, 200, 150).render().first;
+ * </pre>
+ *
+ * @author hageldave
+ */
+public class OffscreenCanvas {
+
+	protected Renderer renderer;
+	protected int width;
+	protected int height;
+	protected Color background = Color.WHITE;
+	protected RenderQuality renderQuality = RenderQuality.FULL;
+	protected boolean isPickingEnabled = true;
+
+	/**
+	 * Creates a new {@link OffscreenCanvas} for the specified renderer and size.
+	 * @param renderer to render (may be null for empty images)
+	 * @param width of the images
+	 * @param height of the images
+	 * @throws IllegalArgumentException when width or height are negative
+	 */
+	public OffscreenCanvas(Renderer renderer, int width, int height) {
+		this.renderer = renderer;
+		setSize(width, height);
+	}
+
+	/**
+	 * Renders the specified renderer into new images of the specified size with the default settings.
+	 * @param renderer to render
+	 * @param width of the images
+	 * @param height of the images
+	 * @return pair of main image ({@link Pair#first}) and picking image ({@link Pair#second})
+	 * @throws IllegalArgumentException when width or height are negative
+	 */
+	public static Pair<Img,Img> render(Renderer renderer, int width, int height) {
+		return new OffscreenCanvas(renderer, width, height).render();
+	}
+
+	/**
+	 * Sets the renderer of this canvas.
+	 * @param renderer to render (may be null for empty images)
+	 * @return this for chaining
+	 */
+	public synchronized OffscreenCanvas setRenderer(Renderer renderer) {
+		this.renderer = renderer;
+		return this;
+	}
+
+	/**
+	 * @return the renderer of this canvas
+	 */
+	public synchronized Renderer getRenderer() {
+		return renderer;
+	}
+
+	/**
+	 * Sets the size of the rendered images.
+	 * @param width of the images
+	 * @param height of the images
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when width or height are negative
+	 */
+	public synchronized OffscreenCanvas setSize(int width, int height) {
+		if(width < 0 || height < 0){
+			throw new IllegalArgumentException("Size cannot be negative, but got " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		return this;
+	}
+
+	/**
+	 * @return width of the rendered images
+	 */
+	public synchronized int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return height of the rendered images
+	 */
+	public synchronized int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Sets the background color the main image is filled with before rendering (default is white).
+	 * @param background color
+	 * @return this for chaining
+	 */
+	public synchronized OffscreenCanvas setBackground(Color background) {
+		this.background = Objects.requireNonNull(background);
+		return this;
+	}
+
+	/**
+	 * @return the background color, see {@link #setBackground(Color)}
+	 */
+	public synchronized Color getBackground() {
+		return background;
+	}
+
+	/**
+	 * Sets the quality at which images are rendered (default is {@link RenderQuality#FULL}).
+	 * @param quality of the rendered images
+	 * @return this for chaining
+	 */
+	public synchronized OffscreenCanvas setRenderQuality(RenderQuality quality) {
+		this.renderQuality = Objects.requireNonNull(quality);
+		return this;
+	}
+
+	/**
+	 * @return the quality at which images are rendered, see {@link #setRenderQuality(RenderQuality)}
+	 */
+	public synchronized RenderQuality getRenderQuality() {
+		return renderQuality;
+	}
+
+	/**
+	 * En/Disables rendering of the picking image (default is enabled).
+	 * When disabled or when the render quality does not use picking, the picking image stays empty.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public synchronized OffscreenCanvas enablePicking(boolean enable) {
+		this.isPickingEnabled = enable;
+		return this;
+	}
+
+	/**
+	 * @return true when picking is enabled, see {@link #enablePicking(boolean)}
+	 */
+	public synchronized boolean isPickingEnabled() {
+		return isPickingEnabled;
+	}
+
+	/**
+	 * Renders the renderer into new images.
+	 * The picking image contains the picking colors of the scene, see {@link JPlotterCanvas#getPixel(int, int, boolean, int)}.
+	 * @return pair of main image ({@link Pair#first}) and picking image ({@link Pair#second})
+	 */
+	public Pair<Img,Img> render() {
+		Renderer renderer;
+		int w, h, background;
+		RenderQuality quality;
+		boolean drawPicking;
+		synchronized (this) {
+			renderer = this.renderer;
+			w = this.width;
+			h = this.height;
+			background = this.background.getRGB();
+			quality = this.renderQuality;
+			drawPicking = this.isPickingEnabled && quality.isPickingEnabled();
+		}
+		Img mainImg = new Img(w, h);
+		Img pickingImg = new Img(w, h);
+		mainImg.fill(background);
+		if(Objects.nonNull(renderer) && w > 0 && h > 0){
+			// renderers have mutable state and must not render the same scene concurrently
+			synchronized (renderer) {
+				renderTile(mainImg, pickingImg, drawPicking, quality, null, 0, 0, w, h, w, h, renderer::renderFallback);
+			}
+		}
+		return Pair.of(mainImg, pickingImg);
+	}
+
+	/**
+	 * Creates a new SVG {@link Document} of the size of this canvas and renders the renderer as SVG elements
+	 * on top of a background rectangle (like {@link JPlotterCanvas#paintSVG()}).
+	 * @return the created document
+	 */
+	public Document paintSVG() {
+		Renderer renderer;
+		int w, h, background;
+		synchronized (this) {
+			renderer = this.renderer;
+			w = this.width;
+			h = this.height;
+			background = this.background.getRGB();
+		}
+		Document document = SVGUtils.createSVGDocument(w, h);
+		if(w > 0 && h > 0){
+			if(SVGUtils.getDefs(document) == null){
+				Element defs = SVGUtils.createSVGElement(document, "defs");
+				defs.setAttributeNS(null, "id", "JPlotterDefs");
+				document.getDocumentElement().appendChild(defs);
+			}
+
+			Element rootGroup = SVGUtils.createSVGElement(document, "g");
+			document.getDocumentElement().appendChild(rootGroup);
+			rootGroup.setAttributeNS(null, "transform", "scale(1,-1) translate(0,-"+h+")");
+
+			Element backgroundRect = SVGUtils.createSVGElement(document, "rect");
+			rootGroup.appendChild(backgroundRect);
+			backgroundRect.setAttributeNS(null, "id", "background");
+			backgroundRect.setAttributeNS(null, "width", ""+w);
+			backgroundRect.setAttributeNS(null, "height", ""+h);
+			backgroundRect.setAttributeNS(null, "fill", SVGUtils.svgRGBhex(background));
+
+			if(Objects.nonNull(renderer)){
+				synchronized (renderer) {
+					renderer.renderSVG(document, rootGroup, w, h);
+				}
+			}
+		}
+		return document;
+	}
+
+	/**
+	 * Creates a new PDF document with a single page of the size of this canvas and renders the renderer
+	 * on top of the background color (like {@link JPlotterCanvas#paintPDF()}).
+	 * @return the created document (has to be closed by the caller)
+	 * @throws IOException If there is an error while creating the document.
+	 */
+	public PDDocument paintPDF() throws IOException {
+		Renderer renderer;
+		int w, h;
+		Color background;
+		synchronized (this) {
+			renderer = this.renderer;
+			w = this.width;
+			h = this.height;
+			background = this.background;
+		}
+		PDDocument document = new FontCachedPDDocument();
+		PDPage page = new PDPage();
+		document.addPage(page);
+		if(w > 0 && h > 0){
+			page.setMediaBox(new PDRectangle(w, h));
+			try(PDPageContentStream contentStream = new PDPageContentStream(document, page,
+					PDPageContentStream.AppendMode.APPEND, false))
+			{
+				contentStream.addRect(0, 0, w, h);
+				contentStream.setNonStrokingColor(background);
+				contentStream.fill();
+			}
+			if(Objects.nonNull(renderer)){
+				synchronized (renderer) {
+					renderer.renderPDF(document, page, 0, 0, w, h);
+				}
+			}
+		}
+		return document;
+	}
+
+	/**
+	 * Renders the specified tile of a frame into the specified buffers in fallback mode.
+	 * The graphics passed on to the painter are clipped to the tile and use GL coordinates
+	 * (y-axis flipped), the rendering hints are set according to the quality.
+	 * When picking is not drawn, the graphics for the picking buffer have an empty clip.
+	 * @param mainBuffer image receiving the main colors
+	 * @param pickingBuffer image receiving the picking colors
+	 * @param drawPicking whether to draw picking colors
+	 * @param quality of the frame
+	 * @param sceneVersion of the frame (see {@link BlankCanvasFallback#KEY_SCENE_VERSION}), null when not tracked
+	 * @param x left of the tile (in image coordinates, i.e. from top)
+	 * @param y top of the tile (in image coordinates, i.e. from top)
+	 * @param tileW width of the tile
+	 * @param tileH height of the tile
+	 * @param w width of the frame
+	 * @param h height of the frame
+	 * @param painter draws the frame, e.g. {@link Renderer#renderFallback(Graphics2D, Graphics2D, int, int)}
+	 */
+	protected static void renderTile(
+			Img mainBuffer, Img pickingBuffer,
+			boolean drawPicking, RenderQuality quality, Long sceneVersion,
+			int x, int y, int tileW, int tileH, int w, int h,
+			LayerPainter painter)
+	{
+		// setup render graphics
+		Graphics2D g=null,p=null;
+		try {
+			g=mainBuffer.createGraphics();
+			g.clipRect(x, y, tileW, tileH);
+
+			p=pickingBuffer.createGraphics();
+			p.clipRect(x, y, drawPicking ? tileW:0, drawPicking ? tileH:0);
+			if(quality.isAntialiasingEnabled()){
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+				g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
+			} else {
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+				g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
+				g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+			}
+
+			p.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+			p.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
+			p.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+			// allow renderers to draw directly into the render buffers
+			DirectRaster.attach(g, mainBuffer);
+			DirectRaster.attach(p, pickingBuffer);
+			g.setRenderingHint(RenderQuality.KEY_RENDER_QUALITY, quality);
+			p.setRenderingHint(RenderQuality.KEY_RENDER_QUALITY, quality);
+			if(Objects.nonNull(sceneVersion)){
+				g.setRenderingHint(BlankCanvasFallback.KEY_SCENE_VERSION, sceneVersion);
+				p.setRenderingHint(BlankCanvasFallback.KEY_SCENE_VERSION, sceneVersion);
+			}
+
+			g.translate(0, h);
+			g.scale(1.0, -1.0);
+			p.translate(0, h);
+			p.scale(1.0, -1.0);
+			painter.paint(g, p, w, h);
+		} finally {
+			if(g!=null)g.dispose();
+			if(p!=null)p.dispose();
+		}
+	}
+
+}
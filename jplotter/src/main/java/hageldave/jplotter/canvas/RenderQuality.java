@@ -0,0 +1,98 @@
+package hageldave.jplotter.canvas;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+/**
+ * The RenderQuality enum defines quality tiers for rendering a frame of a {@link JPlotterCanvas}
+ * in fallback mode ({@link BlankCanvasFallback}).
+ * Lower tiers are used to keep the canvas responsive during interaction (e.g. panning or zooming),
+ * see {@link JPlotterCanvas#scheduleInteractiveRepaint()}.
+ * <p>
+ * The quality of a frame is passed on to renderers through the {@link #KEY_RENDER_QUALITY} rendering hint
+ * of the graphics objects and can be obtained with {@link #of(Graphics2D)}.
+ * Renderers of large numbers of elements (e.g. points or lines) should only draw every n-th element
+ * as determined by {@link #getDecimationStride(int)}.
+ * Anti-aliasing and picking are disabled by the canvas for tiers that do not use them.
+ *
+ * @author hageldave
+ */
+public enum RenderQuality {
+	/** decimated elements, no anti-aliasing, no picking colors. Used during interaction. */
+	INTERACTIVE(false, false, 10000),
+	/** all elements, no anti-aliasing, no picking colors. First refinement after interaction. */
+	PREVIEW(false, false, Integer.MAX_VALUE),
+	/** all elements, anti-aliasing and picking colors. This is the default. */
+	FULL(true, true, Integer.MAX_VALUE),
+	;
+
+	/** rendering hint key for the {@link RenderQuality} of the frame a {@link Graphics2D} draws */
+	public static final RenderingHints.Key KEY_RENDER_QUALITY = new RenderQualityKey();
+
+	private final boolean antialiasing;
+	private final boolean picking;
+	private final int elementBudget;
+
+	private RenderQuality(boolean antialiasing, boolean picking, int elementBudget) {
+		this.antialiasing = antialiasing;
+		this.picking = picking;
+		this.elementBudget = elementBudget;
+	}
+
+	/**
+	 * @return true when anti-aliasing is used at this quality
+	 */
+	public boolean isAntialiasingEnabled() {
+		return antialiasing;
+	}
+
+	/**
+	 * @return true when picking colors are drawn at this quality
+	 */
+	public boolean isPickingEnabled() {
+		return picking;
+	}
+
+	/**
+	 * @return the maximum number of elements of a single renderable that are drawn at this quality
+	 */
+	public int getElementBudget() {
+		return elementBudget;
+	}
+
+	/**
+	 * Returns the stride for drawing a renderable with the specified number of elements
+	 * so that the element budget of this quality is not exceeded, i.e. only elements with
+	 * {@code index % stride == 0} are drawn.
+	 * @param numElements number of elements of the renderable
+	 * @return stride (1 when all elements are drawn)
+	 */
+	public int getDecimationStride(int numElements) {
+		if(numElements <= elementBudget){
+			return 1;
+		}
+		return (int)((numElements + (long)elementBudget - 1)/elementBudget);
+	}
+
+	/**
+	 * Returns the quality of the frame drawn by the specified graphics object.
+	 * @param g graphics object
+	 * @return the render quality, {@link #FULL} when not specified
+	 */
+	public static RenderQuality of(Graphics2D g) {
+		Object quality = g.getRenderingHint(KEY_RENDER_QUALITY);
+		return quality instanceof RenderQuality ? (RenderQuality)quality : FULL;
+	}
+
+	private static class RenderQualityKey extends RenderingHints.Key {
+		RenderQualityKey() {
+			super(0x6a707271);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object val) {
+			return val == null || val instanceof RenderQuality;
+		}
+	}
+
+}
@@ -2,7 +2,7 @@ package hageldave.jplotter.font;
 
 import java.awt.Font;
 import java.awt.FontMetrics;
-import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.Rectangle2D;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -50,10 +50,15 @@ public class CharacterAtlas implements AutoCloseable {
 
 	protected static final Img FONTMETRIC_IMG = new Img(32, 32);
 
+	/** atlases per canvas, guarded by itself (canvases may render on different threads) */
 	protected static final HashMap<Integer, HashMap<GenericKey, CharacterAtlas>> ATLAS_COLLECTION = new HashMap<>();
 	
+	/** texture references per canvas, guarded by {@link #ATLAS_COLLECTION} */
 	protected static final HashMap<Integer, HashMap<Integer, int[]>> CONTEXT_2_STYLE_2_TEXTUREREF = new HashMap<>();
 	
+	/** font render context of graphics of an image without anti-aliasing (used for measuring text) */
+	protected static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, false, false);
+	
 	protected static final float leftPaddingFactor = 0.1f;
 	
 	protected static final float rightPaddingFactor = 0.3f;
@@ -86,23 +91,27 @@ public class CharacterAtlas implements AutoCloseable {
 
 		this.font = FontProvider.getUbuntuMono(fontSize, style);
 		this.sdChars = SignedDistanceCharacters.getUbuntuMonoSDC(style);
-		HashMap<Integer, int[]> textures = getOrAllocateTextureReferenceMap(canvasID);
-		if(!textures.containsKey(style)){
-			int texID = GLUtils.create2DTexture(sdChars.texImg, GL11.GL_LINEAR, GL12.GL_CLAMP_TO_EDGE);
-			textures.put(style, new int[]{texID,1});
-			this.texID = texID;
-		} else {
-			int[] texref = textures.get(style);
-			this.texID = texref[0];
-			texref[1]++;
+		synchronized (ATLAS_COLLECTION) {
+			HashMap<Integer, int[]> textures = getOrAllocateTextureReferenceMap(canvasID);
+			if(!textures.containsKey(style)){
+				int texID = GLUtils.create2DTexture(sdChars.texImg, GL11.GL_LINEAR, GL12.GL_CLAMP_TO_EDGE);
+				textures.put(style, new int[]{texID,1});
+				this.texID = texID;
+			} else {
+				int[] texref = textures.get(style);
+				this.texID = texref[0];
+				texref[1]++;
+			}
 		}
 		
 		int[] fontmetrics = {0,0};
-		FONTMETRIC_IMG.paint(g->{
-			FontMetrics metrics = g.getFontMetrics(this.font);
-			fontmetrics[0] = metrics.charWidth('K');
-			fontmetrics[1] = metrics.getHeight();
-		});
+		synchronized (FONTMETRIC_IMG) {
+			FONTMETRIC_IMG.paint(g->{
+				FontMetrics metrics = g.getFontMetrics(this.font);
+				fontmetrics[0] = metrics.charWidth('K');
+				fontmetrics[1] = metrics.getHeight();
+			});
+		}
 		this.charWidth = fontmetrics[0];
 		this.charHeigth = fontmetrics[1];
 	}
@@ -133,15 +142,17 @@ public class CharacterAtlas implements AutoCloseable {
 					"This indicates that there is likely no active GL context to execute GL methods in."
 			);
 		}
-		if(!ATLAS_COLLECTION.containsKey(canvasID)){
-			ATLAS_COLLECTION.put(canvasID, new HashMap<>());
-		}
-		HashMap<GenericKey, CharacterAtlas> contextCollection = ATLAS_COLLECTION.get(canvasID);
-		GenericKey key = new GenericKey(fontSize, style);
-		if(!contextCollection.containsKey(key)){
-			contextCollection.put(key, new CharacterAtlas(fontSize, style));
+		synchronized (ATLAS_COLLECTION) {
+			if(!ATLAS_COLLECTION.containsKey(canvasID)){
+				ATLAS_COLLECTION.put(canvasID, new HashMap<>());
+			}
+			HashMap<GenericKey, CharacterAtlas> contextCollection = ATLAS_COLLECTION.get(canvasID);
+			GenericKey key = new GenericKey(fontSize, style);
+			if(!contextCollection.containsKey(key)){
+				contextCollection.put(key, new CharacterAtlas(fontSize, style));
+			}
+			return contextCollection.get(key);
 		}
-		return contextCollection.get(key);
 	}
 
 	/**
@@ -153,12 +164,9 @@ public class CharacterAtlas implements AutoCloseable {
 	 * @return bounding rectangle for a text of specified length and font.
 	 */
 	public static Rectangle2D boundsForText(int textlength, Font font){
-		Graphics2D g2d = FONTMETRIC_IMG.createGraphics();
-		FontMetrics fontMetrics = g2d.getFontMetrics(font);
+		// measure without graphics object so that this can be called concurrently
 		char[] sampletext = new char[textlength]; Arrays.fill(sampletext, 'K');
-		Rectangle2D bounds = fontMetrics.getStringBounds(new String(sampletext), g2d);
-		g2d.dispose();
-		return bounds;
+		return font.getStringBounds(new String(sampletext), FONT_RENDER_CONTEXT);
 	}
 
 	/**
@@ -379,15 +387,17 @@ public class CharacterAtlas implements AutoCloseable {
 						"Currently active canvas:" + canvasID + " Owning canvas:" + this.owningCanvasID
 				);
 			}
-			HashMap<Integer, int[]> textures = CONTEXT_2_STYLE_2_TEXTUREREF.get(canvasID);
-			int[] texref = textures.get(style);
-			if(--texref[1] == 0){
-				GL11.glDeleteTextures(texID);
-				textures.remove(style);
+			synchronized (ATLAS_COLLECTION) {
+				HashMap<Integer, int[]> textures = CONTEXT_2_STYLE_2_TEXTUREREF.get(canvasID);
+				int[] texref = textures.get(style);
+				if(--texref[1] == 0){
+					GL11.glDeleteTextures(texID);
+					textures.remove(style);
+				}
+				texID = 0;
+				HashMap<GenericKey, CharacterAtlas> contextCollection = ATLAS_COLLECTION.get(this.owningCanvasID);
+				contextCollection.remove(new GenericKey(fontSize, style));
 			}
-			texID = 0;
-			HashMap<GenericKey, CharacterAtlas> contextCollection = ATLAS_COLLECTION.get(this.owningCanvasID);
-			contextCollection.remove(new GenericKey(fontSize, style));
 		}
 	}
 
@@ -403,18 +413,20 @@ public class CharacterAtlas implements AutoCloseable {
 		if(canvasID == 0){
 			return;
 		}
-		HashMap<GenericKey, CharacterAtlas> contextCollection = ATLAS_COLLECTION.get(canvasID);
-		if(contextCollection==null){
-			return;
-		}
-		LinkedList<GenericKey> keys = new LinkedList<>(contextCollection.keySet());
-		while(!keys.isEmpty()){
-			GenericKey key = keys.removeFirst();
-			CharacterAtlas atlas = contextCollection.get(key);
-			if(Objects.nonNull(atlas))
-				atlas.close();
+		synchronized (ATLAS_COLLECTION) {
+			HashMap<GenericKey, CharacterAtlas> contextCollection = ATLAS_COLLECTION.get(canvasID);
+			if(contextCollection==null){
+				return;
+			}
+			LinkedList<GenericKey> keys = new LinkedList<>(contextCollection.keySet());
+			while(!keys.isEmpty()){
+				GenericKey key = keys.removeFirst();
+				CharacterAtlas atlas = contextCollection.get(key);
+				if(Objects.nonNull(atlas))
+					atlas.close();
+			}
+			ATLAS_COLLECTION.remove(canvasID);
 		}
-		ATLAS_COLLECTION.remove(canvasID);
 	}
 
 }
@@ -5,10 +5,12 @@ import static org.lwjgl.opengl.GL11.GL_FLOAT;
 import static org.lwjgl.opengl.GL11.GL_INT;
 import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
 import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_DYNAMIC_DRAW;
 import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
 import static org.lwjgl.opengl.GL15.GL_STATIC_DRAW;
 import static org.lwjgl.opengl.GL15.glBindBuffer;
 import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glBufferSubData;
 import static org.lwjgl.opengl.GL15.glDeleteBuffers;
 import static org.lwjgl.opengl.GL15.glGenBuffers;
 import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
@@ -19,6 +21,7 @@ import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 import static org.lwjgl.opengl.GL30.glVertexAttribIPointer;
 
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.opengl.GL41;
 
 import hageldave.jplotter.util.Annotations.GLContextRequired;
@@ -28,6 +31,11 @@ import hageldave.jplotter.util.Annotations.GLContextRequired;
  * its corresponding GL vertex buffer objects.
  * A VertexArray is created with a fixed number of attributes and cannot
  * be extended afterwards.
+ * <p>
+ * The buffer of an attribute is specified as a whole using one of the setBuffer methods and can then
+ * be modified partially using the updateBuffer methods, e.g. to upload only the modified vertices.
+ * Updates beyond the end of a buffer grow it (by at least a factor of 1.5 to amortize repeated appends)
+ * while keeping its contents.
  * 
  * @author hageldave
  */
@@ -39,6 +47,9 @@ public class VertexArray implements AutoCloseable {
 	// for debugging
 	int dims[];
 	int numValues[];
+	// GL type and capacity (in values) of the buffers for growing them
+	int types[];
+	int capacities[];
 	public final int numAttributes;
 	int numIndices;
 
@@ -53,6 +64,8 @@ public class VertexArray implements AutoCloseable {
 		this.vbos = new int[n];
 		this.dims = new int[n];
 		this.numValues = new int[n];
+		this.types = new int[n];
+		this.capacities = new int[n];
 		glBindVertexArray(va);
 		glBindVertexArray(0);
 	}
@@ -82,7 +95,8 @@ public class VertexArray implements AutoCloseable {
 		}
 		glBindVertexArray(0);
 		dims[i] = dim;
-		numValues[i] = buffercontent.length;
+		numValues[i] = capacities[i] = buffercontent.length;
+		types[i] = GL_FLOAT;
 		return this;
 	}
 	
@@ -112,7 +126,8 @@ public class VertexArray implements AutoCloseable {
 		}
 		glBindVertexArray(0);
 		dims[i] = dim;
-		numValues[i] = buffercontent.length;
+		numValues[i] = capacities[i] = buffercontent.length;
+		types[i] = GL_DOUBLE;
 		return this;
 	}
 
@@ -145,10 +160,119 @@ public class VertexArray implements AutoCloseable {
 		}
 		glBindVertexArray(0);
 		dims[i] = dim;
-		numValues[i] = buffercontent.length;
+		numValues[i] = capacities[i] = buffercontent.length;
+		types[i] = signed ? GL_INT:GL_UNSIGNED_INT;
 		return this;
 	}
 	
+	/**
+	 * Overwrites a range of values of the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * without re-specifying the whole buffer (glBufferSubData).
+	 * When the range exceeds the end of the buffer, the buffer grows.
+	 * The buffer has to be set beforehand using {@link #setBuffer(int, int, float...)}.
+	 * @param i index of attribute
+	 * @param offset index of the first value to overwrite (not the vertex index)
+	 * @param buffercontent the new values
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set or the range starts beyond its end
+	 */
+	@GLContextRequired
+	public VertexArray updateBuffer(int i, int offset, float ... buffercontent){
+		prepareRange(i, offset, buffercontent.length);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*4L, buffercontent);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+
+	/**
+	 * Overwrites a range of values of the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * without re-specifying the whole buffer (glBufferSubData).
+	 * When the range exceeds the end of the buffer, the buffer grows.
+	 * The buffer has to be set beforehand using {@link #setBuffer(int, int, double[])}.
+	 * @param i index of attribute
+	 * @param offset index of the first value to overwrite (not the vertex index)
+	 * @param buffercontent the new values
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set or the range starts beyond its end
+	 */
+	@GLContextRequired
+	public VertexArray updateBuffer(int i, int offset, double[] buffercontent){
+		prepareRange(i, offset, buffercontent.length);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*8L, buffercontent);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+
+	/**
+	 * Overwrites a range of values of the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * without re-specifying the whole buffer (glBufferSubData).
+	 * When the range exceeds the end of the buffer, the buffer grows.
+	 * The buffer has to be set beforehand using {@link #setBuffer(int, int, boolean, int...)}.
+	 * @param i index of attribute
+	 * @param offset index of the first value to overwrite (not the vertex index)
+	 * @param buffercontent the new values
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set or the range starts beyond its end
+	 */
+	@GLContextRequired
+	public VertexArray updateBuffer(int i, int offset, int ... buffercontent){
+		prepareRange(i, offset, buffercontent.length);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*4L, buffercontent);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+
+	private void prepareRange(int i, int offset, int length) {
+		if(vbos[i] == 0 || offset < 0 || offset > numValues[i]){
+			throw new IllegalArgumentException("Range [" + offset + "," + (offset+length) + ") is not adjacent to buffer of attribute " + i + " with " + numValues[i] + " values");
+		}
+		int required = offset+length;
+		if(required > capacities[i]){
+			growBuffer(i, Math.max(required, capacities[i] + (capacities[i] >> 1)));
+		}
+		numValues[i] = Math.max(numValues[i], required);
+	}
+
+	/**
+	 * Replaces the buffer of the ith attribute by a larger one, copying its values on the GPU.
+	 */
+	private void growBuffer(int i, int capacity) {
+		long bytesPerValue = types[i] == GL_DOUBLE ? 8:4;
+		int vbo = glGenBuffers();
+		glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, vbo);
+		glBufferData(GL31.GL_COPY_WRITE_BUFFER, capacity*bytesPerValue, GL_DYNAMIC_DRAW);
+		glBindBuffer(GL31.GL_COPY_READ_BUFFER, vbos[i]);
+		GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, 0, 0, numValues[i]*bytesPerValue);
+		glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+		glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+		glDeleteBuffers(vbos[i]);
+		vbos[i] = vbo;
+		capacities[i] = capacity;
+		// point attribute to the new buffer
+		glBindVertexArray(va);
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		if(types[i] == GL_DOUBLE)
+			GL41.glVertexAttribLPointer(i, dims[i], GL_DOUBLE, 0, 0);
+		else if(types[i] == GL_FLOAT)
+			glVertexAttribPointer(i, dims[i], GL_FLOAT, false, 0, 0);
+		else
+			glVertexAttribIPointer(i, dims[i], types[i], 0, 0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindVertexArray(0);
+	}
+
+	/**
+	 * @param i index of attribute
+	 * @return number of values in the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * (values written so far, the allocated capacity may be larger)
+	 */
+	public int getNumValues(int i) {
+		return numValues[i];
+	}
+
 	/**
 	 * Sets the GL_ELEMENT_ARRAY_BUFFER of this vertex array, i.e. the vertex indices
 	 * that describe which vertices form a GL primitive.
@@ -2,6 +2,7 @@ package hageldave.jplotter.interaction;
 
 import java.awt.Component;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.InputEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -9,11 +10,13 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.geom.Rectangle2D;
 import java.util.Arrays;
+import java.util.Objects;
 
 import javax.swing.SwingUtilities;
 
 import hageldave.jplotter.canvas.JPlotterCanvas;
 import hageldave.jplotter.renderers.CoordSysRenderer;
+import hageldave.jplotter.util.Annotations.GLCoordinates;
 import hageldave.jplotter.util.Utils;
 
 /**
@@ -30,6 +33,13 @@ import hageldave.jplotter.util.Utils;
  * If this is undesired the {@link #extModifierMask} has to be overridden.<br>
  * For example to not need to press any key:
  * <pre>new CoordSysPanning(canvas){{extModifierMask=0;}}.register();</pre>
+ * <p>
+ * Repaints are scheduled as translations of the coordinate system's content area
+ * ({@link JPlotterCanvas#scheduleTranslatedRepaint(java.util.function.Supplier, int, int)}), 
+ * so that canvases with pan acceleration can reuse the pixels of the previous frame.
+ * When the coordinate system has an overlay (e.g. when a {@link CoordSysViewSelector} is registered),
+ * only the contents below the overlay are translated 
+ * ({@link JPlotterCanvas#scheduleTranslatedRepaintBelowOverlay(java.util.function.Supplier, int, int)}).
  * 
  * @author hageldave
  */
@@ -37,6 +47,7 @@ public class CoordSysPanning extends MouseAdapter implements InteractionConstant
 	
 	protected Point startPoint;
 	protected Component canvas;
+	protected JPlotterCanvas plotterCanvas;
 	protected CoordSysRenderer coordsys;
 	protected int extModifierMask = InputEvent.CTRL_DOWN_MASK;
 	protected int axes = X_AXIS | Y_AXIS;
@@ -48,6 +59,7 @@ public class CoordSysPanning extends MouseAdapter implements InteractionConstant
 	 */
 	public CoordSysPanning(JPlotterCanvas canvas, CoordSysRenderer coordsys) {
 		this.canvas = canvas.asComponent();
+		this.plotterCanvas = canvas;
 		this.coordsys = coordsys;
 	}
 
@@ -68,21 +80,40 @@ public class CoordSysPanning extends MouseAdapter implements InteractionConstant
 			if((axes & Y_AXIS) != 0)
 				mouseTy = dragPoint.getY()-startPoint.getY();
 			startPoint = dragPoint;
-			Rectangle2D coordSysFrame = coordsys.getCoordSysArea();
-			Rectangle2D coordinateArea = coordsys.getCoordinateView();
-			double relativeTx = mouseTx/coordSysFrame.getWidth();
-			double relativeTy = mouseTy/coordSysFrame.getHeight();
-			double areaTx = relativeTx*coordinateArea.getWidth();
-			double areaTy = relativeTy*coordinateArea.getHeight();
-			coordsys.setCoordinateView(
-					coordinateArea.getMinX()-areaTx, 
-					coordinateArea.getMinY()+areaTy,  
-					coordinateArea.getMaxX()-areaTx, 
-					coordinateArea.getMaxY()+areaTy
-			);
-			canvas.repaint();
+			// relative to the content viewport so that contents are translated by whole pixels
+			Rectangle2D contentArea = getContentArea();
+			double relativeTx = mouseTx/contentArea.getWidth();
+			double relativeTy = mouseTy/contentArea.getHeight();
+			// the view is read when the update is applied (may be deferred to the render thread)
+			plotterCanvas.updateScene(()->{
+				Rectangle2D coordinateArea = coordsys.getCoordinateView();
+				double areaTx = relativeTx*coordinateArea.getWidth();
+				double areaTy = relativeTy*coordinateArea.getHeight();
+				coordsys.setCoordinateView(
+						coordinateArea.getMinX()-areaTx, 
+						coordinateArea.getMinY()+areaTy,  
+						coordinateArea.getMaxX()-areaTx, 
+						coordinateArea.getMaxY()+areaTy
+				);
+			});
+			if(Objects.isNull(coordsys.getOverlay())){
+				plotterCanvas.scheduleTranslatedRepaint(this::getContentArea, (int)mouseTx, -(int)mouseTy);
+			} else {
+				// overlay may draw into the content area, it stays in place and is drawn again
+				plotterCanvas.scheduleTranslatedRepaintBelowOverlay(this::getContentArea, (int)mouseTx, -(int)mouseTy);
+			}
 		}
 	}
+	
+	/**
+	 * @return the pixel area of the coordinate system's content, i.e. the integer viewport
+	 * that the content renderer of the coordinate system draws into
+	 */
+	@GLCoordinates
+	protected Rectangle2D getContentArea() {
+		Rectangle2D area = coordsys.getCoordSysArea();
+		return new Rectangle((int)area.getX(), (int)area.getY(), (int)area.getWidth(), (int)area.getHeight());
+	}
 
 	@Override
 	public void mouseReleased(MouseEvent e) {
@@ -23,12 +23,14 @@ import hageldave.jplotter.util.Utils;
 public class CoordSysScrollZoom implements MouseWheelListener, InteractionConstants {
 
 	protected Component canvas;
+	protected JPlotterCanvas plotterCanvas;
 	protected CoordSysRenderer coordsys;
 	protected double zoomFactor = 2;
 	protected int axes = X_AXIS | Y_AXIS;
 	
 	public CoordSysScrollZoom(JPlotterCanvas canvas, CoordSysRenderer coordsys) {
 		this.canvas = canvas.asComponent();
+		this.plotterCanvas = canvas;
 		this.coordsys = coordsys;
 	}
 	
@@ -40,21 +42,24 @@ public class CoordSysScrollZoom implements MouseWheelListener, InteractionConsta
 		
 		int wheelRotation = e.getWheelRotation();
 		double zoom = Math.pow(zoomFactor, wheelRotation);
-		double centerX = coordsys.getCoordinateView().getCenterX();
-		double centerY = coordsys.getCoordinateView().getCenterY();
-		double width = coordsys.getCoordinateView().getWidth();
-		double height = coordsys.getCoordinateView().getHeight();
-		if((axes & X_AXIS) != 0) 
-			width *= zoom;
-		if((axes & Y_AXIS) != 0)
-			height *= zoom;
-		coordsys.setCoordinateView(
-				centerX-width/2,
-				centerY-height/2,
-				centerX+width/2,
-				centerY+height/2
-		);
-		canvas.repaint();
+		// the view is read when the update is applied (may be deferred to the render thread)
+		plotterCanvas.updateScene(()->{
+			double centerX = coordsys.getCoordinateView().getCenterX();
+			double centerY = coordsys.getCoordinateView().getCenterY();
+			double width = coordsys.getCoordinateView().getWidth();
+			double height = coordsys.getCoordinateView().getHeight();
+			if((axes & X_AXIS) != 0) 
+				width *= zoom;
+			if((axes & Y_AXIS) != 0)
+				height *= zoom;
+			coordsys.setCoordinateView(
+					centerX-width/2,
+					centerY-height/2,
+					centerX+width/2,
+					centerY+height/2
+			);
+		});
+		plotterCanvas.scheduleInteractiveRepaint();
 	}
 	
 	/**
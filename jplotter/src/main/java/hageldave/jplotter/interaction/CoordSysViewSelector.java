@@ -66,6 +66,7 @@ import hageldave.jplotter.util.Utils;
 public abstract class CoordSysViewSelector extends MouseAdapter {
 	
 	protected Component canvas;
+	protected JPlotterCanvas plotterCanvas;
 	protected CoordSysRenderer coordsys;
 	protected CompleteRenderer overlay;
 	protected Lines areaBorder = new Lines().setVertexRoundingEnabled(true);
@@ -76,6 +77,7 @@ public abstract class CoordSysViewSelector extends MouseAdapter {
 	
 	public CoordSysViewSelector(JPlotterCanvas canvas, CoordSysRenderer coordsys) {
 		this.canvas = canvas.asComponent();
+		this.plotterCanvas = canvas;
 		this.coordsys = coordsys;
 		Renderer presentRenderer;
 		if((presentRenderer = coordsys.getOverlay()) == null){
@@ -93,7 +95,7 @@ public abstract class CoordSysViewSelector extends MouseAdapter {
 	public void mousePressed(MouseEvent e) {
 		if(isTriggerMouseEvent(e, MouseEvent.MOUSE_PRESSED)){
 			start = e.getPoint();
-			overlay.addItemToRender(areaBorder);
+			plotterCanvas.updateScene(()->overlay.addItemToRender(areaBorder));
 		}
 	}
 	
@@ -120,10 +122,7 @@ public abstract class CoordSysViewSelector extends MouseAdapter {
 				Math.max(p1.getX(), p2.getX()),
 				Math.max(p1.getY(), p2.getY())
 		);
-		if(canvas instanceof JPlotterCanvas)
-			((JPlotterCanvas) canvas).scheduleRepaint();
-		else
-			canvas.repaint();
+		plotterCanvas.scheduleRepaint();
 	}
 	
 	protected void createSelectionAreaBorder() {
@@ -132,18 +131,23 @@ public abstract class CoordSysViewSelector extends MouseAdapter {
 		Rectangle vp = coordsys.getCurrentViewPort();
 		start_.setLocation(start_.getX()-vp.x, start_.getY()-vp.y);
 		end_.setLocation(end_.getX()-vp.x, end_.getY()-vp.y);
-		areaBorder.removeAllSegments();
-		int color = coordsys.getColorScheme().getColor2();
-		areaBorder.addSegment(start_.getX(), start_.getY(), start_.getX(), end_.getY()).setColor(color);
-		areaBorder.addSegment(end_.getX(), start_.getY(), end_.getX(), end_.getY()).setColor(color);
-		areaBorder.addSegment(start_.getX(), start_.getY(), end_.getX(), start_.getY()).setColor(color);
-		areaBorder.addSegment(start_.getX(), end_.getY(), end_.getX(), end_.getY()).setColor(color);
+		// the border is part of the scene (may be deferred to the render thread)
+		plotterCanvas.updateScene(()->{
+			areaBorder.removeAllSegments();
+			int color = coordsys.getColorScheme().getColor2();
+			areaBorder.addSegment(start_.getX(), start_.getY(), start_.getX(), end_.getY()).setColor(color);
+			areaBorder.addSegment(end_.getX(), start_.getY(), end_.getX(), end_.getY()).setColor(color);
+			areaBorder.addSegment(start_.getX(), start_.getY(), end_.getX(), start_.getY()).setColor(color);
+			areaBorder.addSegment(start_.getX(), end_.getY(), end_.getX(), end_.getY()).setColor(color);
+		});
 	}
 	
 	@Override
 	public void mouseReleased(MouseEvent e) {
-		areaBorder.removeAllSegments();
-		overlay.lines.removeItemToRender(areaBorder);
+		plotterCanvas.updateScene(()->{
+			areaBorder.removeAllSegments();
+			overlay.lines.removeItemToRender(areaBorder);
+		});
 		if(start != null && end != null){
 			Point2D p1 = coordsys.transformAWT2CoordSys(start, canvas.getHeight());
 			Point2D p2 = coordsys.transformAWT2CoordSys(end, canvas.getHeight());
@@ -0,0 +1,226 @@
+package hageldave.jplotter.misc;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hageldave.jplotter.renderers.PointsRenderer;
+import hageldave.jplotter.util.DirectRaster;
+
+/**
+ * The GlyphSpriteCache holds pre-rasterized {@link DefaultGlyph}s (sprites) for the
+ * fallback rendering of the {@link PointsRenderer}.
+ * Instead of rasterizing the glyph shape of every single point through Java2D, the glyph is
+ * rasterized once into a coverage mask which is then stamped onto the target image
+ * of a {@link DirectRaster} for every point using the point's color.
+ * <p>
+ * Sprites are independent of color, they are cached per glyph, quantized scaling
+ * (1/{@value #SCALE_STEPS}), quantized rotation (1/{@value #ROTATION_STEPS} turn),
+ * quantized subpixel position (1/{@value #SUBPIXEL_STEPS} pixel), axis flips and anti-aliasing.
+ * A sprite is rasterized the same way as {@link Glyph#drawFallback(Graphics2D, float)} would draw it,
+ * so the stamped result matches the Java2D result up to the quantization.
+ * Without anti-aliasing the coverage is binary, which is used for picking colors.
+ * <p>
+ * The cache is shared and thread safe. When it exceeds {@value #MAX_SPRITES} sprites it is cleared.
+ *
+ * @author hageldave
+ */
+public class GlyphSpriteCache {
+
+	/** number of subpixel positions per pixel */
+	public static final int SUBPIXEL_STEPS = 4;
+	/** number of rotations per full turn */
+	public static final int ROTATION_STEPS = 360;
+	/** number of scaling steps per unit scaling */
+	public static final int SCALE_STEPS = 16;
+	/** maximum number of cached sprites */
+	public static final int MAX_SPRITES = 8192;
+	/** maximum size of a glyph in pixels for which sprites are used */
+	public static final int MAX_GLYPH_SIZE = 128;
+
+	protected static final ConcurrentHashMap<SpriteKey, Sprite> cache = new ConcurrentHashMap<>();
+
+	private GlyphSpriteCache() {/* static utility */}
+
+	/**
+	 * Whether the specified glyph can be drawn using sprites at the specified scaling.
+	 * This is the case for {@link DefaultGlyph}s (whose fallback drawing only depends on the color of the graphics)
+	 * that are not larger than {@value #MAX_GLYPH_SIZE} pixels.
+	 * @param glyph to test
+	 * @param scaling of the glyph
+	 * @return true when supported
+	 */
+	public static boolean supports(Glyph glyph, float scaling) {
+		return glyph instanceof DefaultGlyph && glyph.pixelSize()*Math.abs(scaling) <= MAX_GLYPH_SIZE;
+	}
+
+	/**
+	 * Stamps the specified glyph onto the specified raster.
+	 * This has the same effect as drawing the glyph with {@link Glyph#drawFallback(Graphics2D, float)}
+	 * on the graphics object of the raster, translated to the specified location and rotated by the
+	 * specified angle, using the default {@link BasicStroke}.
+	 * @param raster to draw on
+	 * @param glyph to draw (needs to be supported, see {@link #supports(Glyph, float)})
+	 * @param x user space x coordinate of the glyph's center
+	 * @param y user space y coordinate of the glyph's center
+	 * @param scaling of the glyph
+	 * @param rotation of the glyph in radian
+	 * @param argb color of the glyph
+	 */
+	public static void stamp(DirectRaster raster, Glyph glyph, double x, double y, float scaling, double rotation, int argb) {
+		double devX = raster.toDeviceX(x);
+		double devY = raster.toDeviceY(y);
+		if(Double.isNaN(devX) || Double.isNaN(devY) || Math.abs(devX) > 1e7 || Math.abs(devY) > 1e7){
+			return;
+		}
+		int ix = (int)Math.floor(devX);
+		int iy = (int)Math.floor(devY);
+		int subX = (int)Math.round((devX-ix)*SUBPIXEL_STEPS);
+		int subY = (int)Math.round((devY-iy)*SUBPIXEL_STEPS);
+		if(subX == SUBPIXEL_STEPS){ subX=0; ix++; }
+		if(subY == SUBPIXEL_STEPS){ subY=0; iy++; }
+		int rot = 0;
+		if(rotation != 0){
+			rot = (int)Math.round(rotation*ROTATION_STEPS/(2*Math.PI)) % ROTATION_STEPS;
+			if(rot < 0) rot += ROTATION_STEPS;
+		}
+		SpriteKey key = new SpriteKey(glyph, Math.round(scaling*SCALE_STEPS), rot, subX, subY,
+				raster.scaleX < 0, raster.scaleY < 0, raster.antialiasing, raster.strokePure);
+		Sprite sprite = cache.get(key);
+		if(sprite == null){
+			if(cache.size() >= MAX_SPRITES){
+				cache.clear();
+			}
+			sprite = cache.computeIfAbsent(key, Sprite::new);
+		}
+		sprite.stamp(raster, ix, iy, argb);
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public static void clear() {
+		cache.clear();
+	}
+
+	protected static class SpriteKey {
+		final Glyph glyph;
+		final int scale, rotation, subX, subY;
+		final boolean flipX, flipY, antialiasing, strokePure;
+
+		SpriteKey(Glyph glyph, int scale, int rotation, int subX, int subY, boolean flipX, boolean flipY, boolean antialiasing, boolean strokePure) {
+			this.glyph = glyph;
+			this.scale = scale;
+			this.rotation = rotation;
+			this.subX = subX;
+			this.subY = subY;
+			this.flipX = flipX;
+			this.flipY = flipY;
+			this.antialiasing = antialiasing;
+			this.strokePure = strokePure;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = glyph.hashCode();
+			h = h*31 + scale;
+			h = h*31 + rotation;
+			h = h*31 + subX*SUBPIXEL_STEPS + subY;
+			h = h*31 + (flipX?1:0) + (flipY?2:0) + (antialiasing?4:0) + (strokePure?8:0);
+			return h;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof SpriteKey))
+				return false;
+			SpriteKey other = (SpriteKey) obj;
+			return glyph == other.glyph && scale == other.scale && rotation == other.rotation
+					&& subX == other.subX && subY == other.subY
+					&& flipX == other.flipX && flipY == other.flipY
+					&& antialiasing == other.antialiasing && strokePure == other.strokePure;
+		}
+	}
+
+	/**
+	 * Coverage mask of a rasterized glyph.
+	 * The mask's pixel (0,0) corresponds to the device pixel at
+	 * (offsetX, offsetY) relative to the integer part of the glyph's device location.
+	 */
+	protected static class Sprite {
+		final byte[] coverage;
+		final int offsetX, offsetY, width, height;
+
+		Sprite(SpriteKey key) {
+			float scaling = key.scale/(float)SCALE_STEPS;
+			int pad = (int)Math.ceil(0.75*key.glyph.pixelSize()*Math.abs(scaling))+2;
+			int size = 2*pad+1;
+			BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = img.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+						key.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON:RenderingHints.VALUE_ANTIALIAS_OFF);
+				g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+						key.strokePure ? RenderingHints.VALUE_STROKE_PURE:RenderingHints.VALUE_STROKE_NORMALIZE);
+				g.setComposite(AlphaComposite.Src);
+				g.setStroke(new BasicStroke());
+				g.setColor(Color.WHITE);
+				g.translate(pad+key.subX/(double)SUBPIXEL_STEPS, pad+key.subY/(double)SUBPIXEL_STEPS);
+				g.scale(key.flipX ? -1:1, key.flipY ? -1:1);
+				if(key.rotation != 0){
+					g.rotate(key.rotation*2*Math.PI/ROTATION_STEPS);
+				}
+				key.glyph.drawFallback(g, scaling);
+			} finally {
+				g.dispose();
+			}
+			// crop to covered area
+			int[] argb = img.getRGB(0, 0, size, size, null, 0, size);
+			int x0=size, y0=size, x1=-1, y1=-1;
+			for(int y=0; y<size; y++){
+				for(int x=0; x<size; x++){
+					if((argb[y*size+x]>>>24) != 0){
+						x0 = Math.min(x0, x); x1 = Math.max(x1, x);
+						y0 = Math.min(y0, y); y1 = Math.max(y1, y);
+					}
+				}
+			}
+			if(x1 < 0){
+				this.coverage = new byte[0];
+				this.offsetX = this.offsetY = this.width = this.height = 0;
+				return;
+			}
+			this.width = x1-x0+1;
+			this.height = y1-y0+1;
+			this.offsetX = x0-pad;
+			this.offsetY = y0-pad;
+			this.coverage = new byte[width*height];
+			for(int y=0; y<height; y++){
+				for(int x=0; x<width; x++){
+					coverage[y*width+x] = (byte)(argb[(y+y0)*size+x+x0]>>>24);
+				}
+			}
+		}
+
+		void stamp(DirectRaster raster, int ix, int iy, int argb) {
+			int sx0 = Math.max(0, raster.clipX0-(ix+offsetX));
+			int sy0 = Math.max(0, raster.clipY0-(iy+offsetY));
+			int sx1 = Math.min(width, raster.clipX1-(ix+offsetX));
+			int sy1 = Math.min(height, raster.clipY1-(iy+offsetY));
+			for(int y=sy0; y<sy1; y++){
+				int rowIdx = (iy+offsetY+y)*raster.width + ix+offsetX;
+				for(int x=sx0; x<sx1; x++){
+					int c = coverage[y*width+x] & 0xff;
+					if(c != 0){
+						raster.blendAt(rowIdx+x, argb, c);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,375 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.renderables.Lines.SegmentDetails;
+import hageldave.jplotter.renderers.GenericLinesRenderer;
+
+import java.util.Arrays;
+
+/**
+ * The ColumnarLines class is a collection of line segments that stores the segment
+ * attributes in primitive arrays (one array per attribute, i.e. column) instead of
+ * one {@link SegmentDetails} object per segment like {@link Lines}.
+ * This avoids the per segment object overhead (two point objects and four supplier lambdas)
+ * which dominates memory consumption and iteration cost for long line strips, e.g. time series
+ * with millions of samples.
+ * <p>
+ * Segments are appended from coordinate arrays, e.g. using {@link #appendLineStrip(double[], double[])}
+ * or {@link #appendSegments(double[], double[], double[], double[])}, and can be modified by index using
+ * the corresponding setters, e.g. {@link #setColor(int, int)}.
+ * Attributes are plain values, suppliers that are evaluated at rendering time are not available.
+ * <p>
+ * A ColumnarLines object can be rendered by a {@link GenericLinesRenderer}, e.g. chained to a
+ * {@link hageldave.jplotter.renderers.LinesRenderer} using a {@link hageldave.jplotter.renderers.ChainedRenderer}.
+ *
+ * @author hageldave
+ */
+public class ColumnarLines extends GenericLines<ColumnarLines> {
+
+	protected int size = 0;
+	protected double[] x0s = new double[0];
+	protected double[] y0s = new double[0];
+	protected double[] x1s = new double[0];
+	protected double[] y1s = new double[0];
+	protected int[] colors0 = new int[0];
+	protected int[] colors1 = new int[0];
+	protected float[] thicknesses0 = new float[0];
+	protected float[] thicknesses1 = new float[0];
+	protected int[] pickColors = new int[0];
+
+	/** color of segments for which no color was specified (same as default of {@link SegmentDetails}) */
+	public static final int DEFAULT_COLOR = 0xff555555;
+
+	/**
+	 * Makes sure that the attribute arrays can hold at least the specified number of segments.
+	 * Arrays grow at least by a factor of 1.5 to amortize repeated appends.
+	 * @param capacity number of segments
+	 * @return this for chaining
+	 */
+	public ColumnarLines ensureCapacity(int capacity) {
+		if(capacity <= x0s.length)
+			return this;
+		int newCapacity = Math.max(capacity, x0s.length + (x0s.length >> 1));
+		x0s = Arrays.copyOf(x0s, newCapacity);
+		y0s = Arrays.copyOf(y0s, newCapacity);
+		x1s = Arrays.copyOf(x1s, newCapacity);
+		y1s = Arrays.copyOf(y1s, newCapacity);
+		colors0 = Arrays.copyOf(colors0, newCapacity);
+		colors1 = Arrays.copyOf(colors1, newCapacity);
+		thicknesses0 = Arrays.copyOf(thicknesses0, newCapacity);
+		thicknesses1 = Arrays.copyOf(thicknesses1, newCapacity);
+		pickColors = Arrays.copyOf(pickColors, newCapacity);
+		return this;
+	}
+
+	/**
+	 * Appends a strip of line segments that connect the specified points.
+	 * The attribute arrays (except for the coordinates) are per point and may be null in which case
+	 * the default value is used (color {@link #DEFAULT_COLOR}, thickness 1).
+	 * Colors and thicknesses are interpolated along each segment between its two points.
+	 * The specified arrays are copied, so they can be reused by the caller.
+	 * This sets the {@link #isDirty()} state to true.
+	 *
+	 * @param xs x coordinates of the points on the line
+	 * @param ys y coordinates of the points on the line
+	 * @param colors integer packed ARGB colors of the points (may be null)
+	 * @param thicknesses thicknesses at the points (may be null)
+	 * @param pickColor picking color of all appended segments, see {@link GenericLines} for details
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the non null arrays differ in length
+	 */
+	public ColumnarLines appendLineStrip(double[] xs, double[] ys, int[] colors, float[] thicknesses, int pickColor) {
+		int n = xs.length;
+		if(ys.length != n
+				|| (colors != null && colors.length != n)
+				|| (thicknesses != null && thicknesses.length != n))
+		{
+			throw new IllegalArgumentException("Provided arrays have different lengths.");
+		}
+		if(n < 2)
+			return this;
+		int numSegs = n-1;
+		ensureCapacity(size+numSegs);
+		System.arraycopy(xs, 0, x0s, size, numSegs);
+		System.arraycopy(ys, 0, y0s, size, numSegs);
+		System.arraycopy(xs, 1, x1s, size, numSegs);
+		System.arraycopy(ys, 1, y1s, size, numSegs);
+		if(colors != null){
+			System.arraycopy(colors, 0, colors0, size, numSegs);
+			System.arraycopy(colors, 1, colors1, size, numSegs);
+		} else {
+			Arrays.fill(colors0, size, size+numSegs, DEFAULT_COLOR);
+			Arrays.fill(colors1, size, size+numSegs, DEFAULT_COLOR);
+		}
+		if(thicknesses != null){
+			System.arraycopy(thicknesses, 0, thicknesses0, size, numSegs);
+			System.arraycopy(thicknesses, 1, thicknesses1, size, numSegs);
+		} else {
+			Arrays.fill(thicknesses0, size, size+numSegs, 1f);
+			Arrays.fill(thicknesses1, size, size+numSegs, 1f);
+		}
+		if(pickColor != 0)
+			pickColor = pickColor | 0xff000000;
+		Arrays.fill(pickColors, size, size+numSegs, pickColor);
+		size += numSegs;
+		// spatial index stays valid, appended segments are scanned linearly until the next rebuild
+		isDirty = true;
+		modificationCount++;
+		dirtyRange.mark(size-numSegs, size);
+		return this;
+	}
+
+	/**
+	 * Appends a strip of line segments that connect the specified points using
+	 * the specified color for all of them.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates of the points on the line
+	 * @param ys y coordinates of the points on the line
+	 * @param color integer packed ARGB color of the line
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public ColumnarLines appendLineStrip(double[] xs, double[] ys, int color) {
+		int offset = size;
+		appendLineStrip(xs, ys, null, null, 0);
+		Arrays.fill(colors0, offset, size, color);
+		Arrays.fill(colors1, offset, size, color);
+		return this;
+	}
+
+	/**
+	 * Appends a strip of line segments that connect the specified points using default attributes.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates of the points on the line
+	 * @param ys y coordinates of the points on the line
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public ColumnarLines appendLineStrip(double[] xs, double[] ys) {
+		return appendLineStrip(xs, ys, null, null, 0);
+	}
+
+	/**
+	 * Appends independent line segments using default attributes.
+	 * Segment i goes from (x0s[i],y0s[i]) to (x1s[i],y1s[i]).
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param x0s x coordinates of the start points
+	 * @param y0s y coordinates of the start points
+	 * @param x1s x coordinates of the end points
+	 * @param y1s y coordinates of the end points
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public ColumnarLines appendSegments(double[] x0s, double[] y0s, double[] x1s, double[] y1s) {
+		int n = x0s.length;
+		if(y0s.length != n || x1s.length != n || y1s.length != n){
+			throw new IllegalArgumentException("Provided arrays have different lengths.");
+		}
+		ensureCapacity(size+n);
+		System.arraycopy(x0s, 0, this.x0s, size, n);
+		System.arraycopy(y0s, 0, this.y0s, size, n);
+		System.arraycopy(x1s, 0, this.x1s, size, n);
+		System.arraycopy(y1s, 0, this.y1s, size, n);
+		Arrays.fill(colors0, size, size+n, DEFAULT_COLOR);
+		Arrays.fill(colors1, size, size+n, DEFAULT_COLOR);
+		Arrays.fill(thicknesses0, size, size+n, 1f);
+		Arrays.fill(thicknesses1, size, size+n, 1f);
+		Arrays.fill(pickColors, size, size+n, 0);
+		size += n;
+		// spatial index stays valid, appended segments are scanned linearly until the next rebuild
+		isDirty = true;
+		modificationCount++;
+		dirtyRange.mark(size-n, size);
+		return this;
+	}
+
+	/**
+	 * Appends a single segment with the specified attributes.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @return this for chaining
+	 */
+	protected ColumnarLines appendSegment(double x0, double y0, double x1, double y1, int color0, int color1, double thickness0, double thickness1, int pickColor) {
+		ensureCapacity(size+1);
+		x0s[size] = x0;
+		y0s[size] = y0;
+		x1s[size] = x1;
+		y1s[size] = y1;
+		colors0[size] = color0;
+		colors1[size] = color1;
+		thicknesses0[size] = (float)thickness0;
+		thicknesses1[size] = (float)thickness1;
+		pickColors[size] = pickColor;
+		size++;
+		isDirty = true;
+		modificationCount++;
+		dirtyRange.mark(size-1, size);
+		return this;
+	}
+
+	/**
+	 * Removes all segments.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @return this for chaining
+	 */
+	public ColumnarLines removeAllSegments() {
+		size = 0;
+		setDirty();
+		return this;
+	}
+
+	@Override
+	public int numSegments() {
+		return size;
+	}
+
+	protected void checkIndex(int i) {
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+	}
+
+	@Override
+	public double getSegmentX0(int i) {
+		checkIndex(i);
+		return x0s[i];
+	}
+
+	@Override
+	public double getSegmentY0(int i) {
+		checkIndex(i);
+		return y0s[i];
+	}
+
+	@Override
+	public double getSegmentX1(int i) {
+		checkIndex(i);
+		return x1s[i];
+	}
+
+	@Override
+	public double getSegmentY1(int i) {
+		checkIndex(i);
+		return y1s[i];
+	}
+
+	@Override
+	public int getSegmentColor0(int i) {
+		checkIndex(i);
+		return colors0[i];
+	}
+
+	@Override
+	public int getSegmentColor1(int i) {
+		checkIndex(i);
+		return colors1[i];
+	}
+
+	@Override
+	public double getSegmentThickness0(int i) {
+		checkIndex(i);
+		return thicknesses0[i];
+	}
+
+	@Override
+	public double getSegmentThickness1(int i) {
+		checkIndex(i);
+		return thicknesses1[i];
+	}
+
+	@Override
+	public int getSegmentPickColor(int i) {
+		checkIndex(i);
+		return pickColors[i];
+	}
+
+	/**
+	 * Sets the start and end point of the i-th segment.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the segment
+	 * @param x0 x coordinate of start point
+	 * @param y0 y coordinate of start point
+	 * @param x1 x coordinate of end point
+	 * @param y1 y coordinate of end point
+	 * @return this for chaining
+	 */
+	public ColumnarLines setSegment(int i, double x0, double y0, double x1, double y1) {
+		checkIndex(i);
+		x0s[i] = x0;
+		y0s[i] = y0;
+		x1s[i] = x1;
+		y1s[i] = y1;
+		setDirty(i, i+1);
+		locationsChanged(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the color of the i-th segment (start and end point).
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the segment
+	 * @param color integer packed ARGB color value (e.g. 0xff00ff00 = opaque green)
+	 * @return this for chaining
+	 */
+	public ColumnarLines setColor(int i, int color) {
+		return setColor(i, color, color);
+	}
+
+	/**
+	 * Sets the colors at start and end point of the i-th segment.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the segment
+	 * @param color0 integer packed ARGB color value at the start point
+	 * @param color1 integer packed ARGB color value at the end point
+	 * @return this for chaining
+	 */
+	public ColumnarLines setColor(int i, int color0, int color1) {
+		checkIndex(i);
+		colors0[i] = color0;
+		colors1[i] = color1;
+		setDirty(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the thickness of the i-th segment (start and end point).
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the segment
+	 * @param t thickness
+	 * @return this for chaining
+	 */
+	public ColumnarLines setThickness(int i, double t) {
+		return setThickness(i, t, t);
+	}
+
+	/**
+	 * Sets the thicknesses at start and end point of the i-th segment.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the segment
+	 * @param t0 thickness at the start point
+	 * @param t1 thickness at the end point
+	 * @return this for chaining
+	 */
+	public ColumnarLines setThickness(int i, double t0, double t1) {
+		checkIndex(i);
+		thicknesses0[i] = (float)t0;
+		thicknesses1[i] = (float)t1;
+		setDirty(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the picking color of the i-th segment.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the segment
+	 * @param pickID picking color of the segment (see {@link GenericLines} for details)
+	 * @return this for chaining
+	 */
+	public ColumnarLines setPickColor(int i, int pickID) {
+		checkIndex(i);
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		pickColors[i] = pickID;
+		setDirty(i, i+1);
+		return this;
+	}
+
+}
@@ -0,0 +1,454 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.renderers.PointsRenderer;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * The ColumnarPoints class is a {@link Points} collection that stores its point
+ * attributes in primitive arrays (one array per attribute, i.e. column) instead of
+ * one {@link PointDetails} object per point.
+ * This avoids the per point object overhead (location object, supplier lambdas) which
+ * dominates memory consumption and iteration cost for millions of points.
+ * <p>
+ * Points are added in bulk through {@link #addPoints(double[], double[], float[], float[], int[], int[])}
+ * and can be modified by index using the corresponding setters, e.g. {@link #setColor(int, int)}.
+ * Attributes are plain values, suppliers that are evaluated at rendering time are not available.
+ * The {@link PointDetails} returned by {@link #addPoint(Point2D)}, {@link #getPointDetails()} and
+ * {@link #getIntersectingPoints(Rectangle2D)} are views of the stored points whose setters write
+ * through to the arrays (suppliers are evaluated once when set).
+ * <p>
+ * A ColumnarPoints object can be rendered by a {@link PointsRenderer} like any other {@link Points} object.
+ *
+ * @author hageldave
+ */
+public class ColumnarPoints extends Points {
+
+	protected int size = 0;
+	protected double[] xs = new double[0];
+	protected double[] ys = new double[0];
+	protected float[] rotations = new float[0];
+	protected float[] scalings = new float[0];
+	protected int[] colors = new int[0];
+	protected int[] pickColors = new int[0];
+
+	/** color of points for which no color was specified (same as default of {@link PointDetails}) */
+	public static final int DEFAULT_COLOR = 0xff555555;
+
+	/**
+	 * Creates a new {@link ColumnarPoints} object which uses {@link DefaultGlyph#CIRCLE_F} for displaying its points.
+	 */
+	public ColumnarPoints() {
+		this(DefaultGlyph.CIRCLE_F);
+	}
+
+	/**
+	 * Creates a new {@link ColumnarPoints} object which uses the specified {@link Glyph} for displaying its points.
+	 * @param glyph to be used for rendering single points
+	 */
+	public ColumnarPoints(Glyph glyph) {
+		super(glyph);
+	}
+
+	/**
+	 * Makes sure that the attribute arrays can hold at least the specified number of points.
+	 * Arrays grow at least by a factor of 1.5 to amortize repeated additions.
+	 * @param capacity number of points
+	 * @return this for chaining
+	 */
+	public ColumnarPoints ensureCapacity(int capacity) {
+		if(capacity <= xs.length)
+			return this;
+		int newCapacity = Math.max(capacity, xs.length + (xs.length >> 1));
+		xs = Arrays.copyOf(xs, newCapacity);
+		ys = Arrays.copyOf(ys, newCapacity);
+		rotations = Arrays.copyOf(rotations, newCapacity);
+		scalings = Arrays.copyOf(scalings, newCapacity);
+		colors = Arrays.copyOf(colors, newCapacity);
+		pickColors = Arrays.copyOf(pickColors, newCapacity);
+		return this;
+	}
+
+	/**
+	 * Adds the specified points to this collection.
+	 * The attribute arrays (except for the coordinates) may be null in which case
+	 * the default value is used (rotation 0, scaling 1, color {@link #DEFAULT_COLOR}, picking color 0).
+	 * The specified arrays are copied, so they can be reused by the caller.
+	 * This sets the {@link #isDirty()} state to true.
+	 *
+	 * @param xs x coordinates
+	 * @param ys y coordinates
+	 * @param rotations glyph rotations in radian (may be null)
+	 * @param scalings glyph scalings (may be null)
+	 * @param colors integer packed ARGB colors (may be null)
+	 * @param pickColors picking colors (may be null), see {@link Points} for details
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the non null arrays differ in length
+	 */
+	public ColumnarPoints addPoints(double[] xs, double[] ys, float[] rotations, float[] scalings, int[] colors, int[] pickColors) {
+		int n = xs.length;
+		if(ys.length != n
+				|| (rotations != null && rotations.length != n)
+				|| (scalings != null && scalings.length != n)
+				|| (colors != null && colors.length != n)
+				|| (pickColors != null && pickColors.length != n))
+		{
+			throw new IllegalArgumentException("Provided arrays have different lengths.");
+		}
+		ensureCapacity(size+n);
+		System.arraycopy(xs, 0, this.xs, size, n);
+		System.arraycopy(ys, 0, this.ys, size, n);
+		if(rotations != null)
+			System.arraycopy(rotations, 0, this.rotations, size, n);
+		else
+			Arrays.fill(this.rotations, size, size+n, 0f);
+		if(scalings != null)
+			System.arraycopy(scalings, 0, this.scalings, size, n);
+		else
+			Arrays.fill(this.scalings, size, size+n, 1f);
+		if(colors != null)
+			System.arraycopy(colors, 0, this.colors, size, n);
+		else
+			Arrays.fill(this.colors, size, size+n, DEFAULT_COLOR);
+		if(pickColors != null){
+			for(int i=0; i<n; i++){
+				int pickID = pickColors[i];
+				this.pickColors[size+i] = pickID != 0 ? pickID | 0xff000000 : 0;
+			}
+		} else {
+			Arrays.fill(this.pickColors, size, size+n, 0);
+		}
+		size += n;
+		// spatial index stays valid, appended points are scanned linearly until the next rebuild
+		isDirty = true;
+		modificationCount++;
+		dirtyRange.mark(size-n, size);
+		return this;
+	}
+
+	/**
+	 * Adds the specified points to this collection using the specified color for all of them.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates
+	 * @param ys y coordinates
+	 * @param color integer packed ARGB color of the points
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public ColumnarPoints addPoints(double[] xs, double[] ys, int color) {
+		int offset = size;
+		addPoints(xs, ys, null, null, null, null);
+		Arrays.fill(this.colors, offset, size, color);
+		return this;
+	}
+
+	/**
+	 * Adds the specified points to this collection using default attributes.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates
+	 * @param ys y coordinates
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public ColumnarPoints addPoints(double[] xs, double[] ys) {
+		return addPoints(xs, ys, null, null, null, null);
+	}
+
+	/**
+	 * Adds a point with default attributes to this collection.
+	 * This sets the {@link #isDirty()} state to true.
+	 * <p>
+	 * The returned {@link PointDetails} is a view of the stored point, see {@link PointView}.
+	 * For adding many points, {@link #addPoints(double[], double[], float[], float[], int[], int[])} is
+	 * considerably more efficient.
+	 * @param p point location (copied)
+	 * @return view of the added point
+	 */
+	@Override
+	public PointDetails addPoint(Point2D p) {
+		addPoints(new double[]{p.getX()}, new double[]{p.getY()});
+		return new PointView(size-1);
+	}
+
+	/**
+	 * Returns views of all points of this collection, see {@link PointView}.
+	 * The list is created on every call and not backed by this collection, i.e. adding or removing
+	 * elements of the list does not add or remove points.
+	 * Prefer the index based getters (e.g. {@link #getPointX(int)}) and setters (e.g. {@link #setColor(int, int)})
+	 * for large collections.
+	 * @return list of point views
+	 */
+	@Override
+	public ArrayList<PointDetails> getPointDetails() {
+		ArrayList<PointDetails> details = new ArrayList<>(size);
+		for(int i=0; i<size; i++){
+			details.add(new PointView(i));
+		}
+		return details;
+	}
+
+	@Override
+	public ColumnarPoints removeAllPoints() {
+		size = 0;
+		setDirty();
+		return this;
+	}
+
+	@Override
+	public int numPoints() {
+		return size;
+	}
+
+	@Override
+	public double getPointX(int i) {
+		checkIndex(i);
+		return xs[i];
+	}
+
+	@Override
+	public double getPointY(int i) {
+		checkIndex(i);
+		return ys[i];
+	}
+
+	@Override
+	public double getPointRotation(int i) {
+		checkIndex(i);
+		return rotations[i];
+	}
+
+	@Override
+	public double getPointScaling(int i) {
+		checkIndex(i);
+		return scalings[i];
+	}
+
+	@Override
+	public int getPointColor(int i) {
+		checkIndex(i);
+		return colors[i];
+	}
+
+	@Override
+	public int getPointPickColor(int i) {
+		checkIndex(i);
+		return pickColors[i];
+	}
+
+	/**
+	 * Sets the location of the i-th point.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the point
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setLocation(int i, double x, double y) {
+		checkIndex(i);
+		xs[i] = x;
+		ys[i] = y;
+		setDirty(i, i+1);
+		locationsChanged(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the glyph rotation of the i-th point.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the point
+	 * @param rot rotation in radian
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setRotation(int i, double rot) {
+		checkIndex(i);
+		rotations[i] = (float)rot;
+		setDirty(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the glyph scaling of the i-th point.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the point
+	 * @param scale scaling
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setScaling(int i, double scale) {
+		checkIndex(i);
+		scalings[i] = (float)scale;
+		setDirty(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the color of the i-th point.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the point
+	 * @param color integer packed ARGB color value (e.g. 0xff00ff00 = opaque green)
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setColor(int i, int color) {
+		checkIndex(i);
+		colors[i] = color;
+		setDirty(i, i+1);
+		return this;
+	}
+
+	/**
+	 * Sets the picking color of the i-th point.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param i index of the point
+	 * @param pickID picking color of the point (see {@link Points} for details)
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setPickColor(int i, int pickID) {
+		checkIndex(i);
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		pickColors[i] = pickID;
+		setDirty(i, i+1);
+		return this;
+	}
+
+	protected void checkIndex(int i) {
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+	}
+
+	@Override
+	public Rectangle2D getBounds() {
+		if(size < 1)
+			return new Rectangle2D.Double();
+		double minX=xs[0], maxX=xs[0], minY=ys[0], maxY=ys[0];
+		for(int i=1; i<size; i++){
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+	}
+
+	/**
+	 * Returns views of the points that are contained in the specified rectangle, see {@link PointView}.
+	 * @param rect rectangle to test intersection
+	 * @return list of contained points
+	 */
+	@Override
+	public List<PointDetails> getIntersectingPoints(Rectangle2D rect) {
+		ArrayList<PointDetails> intersecting = new ArrayList<>();
+		forEachPointInRect(rect, i->intersecting.add(new PointView(i)));
+		return intersecting;
+	}
+
+	/**
+	 * {@link PointDetails} view of a point stored in this collection.
+	 * Reading its attributes returns the current values of the point, its setters
+	 * (and the setLocation methods of its location) modify the point through the
+	 * index based setters of the collection, e.g. {@link ColumnarPoints#setColor(int, int)}.
+	 * Suppliers passed to the setters are evaluated once, since the collection stores plain values.
+	 * Assigning the public fields directly does not affect the collection.
+	 * <p>
+	 * A view refers to the point by its index and becomes invalid when the points are removed.
+	 */
+	public class PointView extends PointDetails {
+		protected final int index;
+
+		protected PointView(int index) {
+			super(new LocationView(index));
+			this.index = index;
+			this.rot = ()->getPointRotation(index);
+			this.scale = ()->getPointScaling(index);
+			this.color = ()->getPointColor(index);
+			this.pickColor = getPointPickColor(index);
+		}
+
+		/**
+		 * @return index of the viewed point
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		@Override
+		public PointDetails setRotation(DoubleSupplier rotation) {
+			ColumnarPoints.this.setRotation(index, rotation.getAsDouble());
+			return this;
+		}
+
+		@Override
+		public PointDetails setScaling(DoubleSupplier scale) {
+			ColumnarPoints.this.setScaling(index, scale.getAsDouble());
+			return this;
+		}
+
+		@Override
+		public PointDetails setColor(IntSupplier color) {
+			ColumnarPoints.this.setColor(index, color.getAsInt());
+			return this;
+		}
+
+		@Override
+		public PointDetails setPickColor(int pickID) {
+			ColumnarPoints.this.setPickColor(index, pickID);
+			this.pickColor = getPointPickColor(index);
+			return this;
+		}
+
+		/**
+		 * Returns a detached copy of the current attributes of the viewed point.
+		 * @return copy of this point that does not affect the collection
+		 */
+		@Override
+		public PointDetails copy() {
+			return new PointDetails(new Point2D.Double(getPointX(index), getPointY(index)))
+					.setRotation(getPointRotation(index))
+					.setScaling(getPointScaling(index))
+					.setColor(getPointColor(index))
+					.setPickColor(getPointPickColor(index));
+		}
+	}
+
+	/**
+	 * Location of a point stored in this collection, setting the location
+	 * calls {@link ColumnarPoints#setLocation(int, double, double)}.
+	 * Clones are detached {@link Point2D.Double} objects.
+	 */
+	protected class LocationView extends Point2D {
+		protected final int index;
+
+		protected LocationView(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public double getX() {
+			return getPointX(index);
+		}
+
+		@Override
+		public double getY() {
+			return getPointY(index);
+		}
+
+		@Override
+		public void setLocation(double x, double y) {
+			ColumnarPoints.this.setLocation(index, x, y);
+		}
+
+		@Override
+		public Object clone() {
+			return new Point2D.Double(getX(), getY());
+		}
+	}
+
+}
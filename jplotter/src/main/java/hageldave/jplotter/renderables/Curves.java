@@ -41,6 +41,8 @@ public class Curves implements Renderable {
 	protected short strokePattern = (short)0xffff;
 	protected float strokeLength = 16;
 	protected boolean isDirty = true;
+	/** incremented with every modification, see {@link #getModificationCount()} */
+	protected long modificationCount = 0;
 	protected boolean hidden = false;
 	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
 	protected DoubleSupplier globalAlphaMultiplier = () -> 1.0;
@@ -57,6 +59,11 @@ public class Curves implements Renderable {
 	public boolean isDirty() {
 		return isDirty;
 	}
+
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
 	
 	/**
 	 * Sets the {@link #isDirty()} state of this renderable to true.
@@ -65,6 +72,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setDirty() {
 		this.isDirty = true;
+		this.modificationCount++;
 		return this;
 	}
 	
@@ -580,6 +588,7 @@ public class Curves implements Renderable {
 			System.err.println("specified stroke pattern should only be 16 bits but is " + Integer.toBinaryString(strokePattern));
 		}
 		this.strokePattern = (short)strokePattern;
+		this.modificationCount++;
 		return this;
 	}
 
@@ -607,6 +616,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setStrokeLength(double strokeLength) {
 		this.strokeLength = (float) Math.max(0, strokeLength);
+		this.modificationCount++;
 		return this;
 	}
 	
@@ -0,0 +1,951 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.gl.FBO;
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderables.Lines.SegmentDetails;
+import hageldave.jplotter.renderers.GenericLinesRenderer;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.BoundingVolumeHierarchy;
+import hageldave.jplotter.util.DirtyRange;
+import hageldave.jplotter.util.Utils;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * The GenericLines class is the abstract base of collections of linear line segments
+ * that can be rendered by a {@link GenericLinesRenderer}.
+ * It defines the index based read access to the segments (e.g. {@link #getSegmentX0(int)})
+ * through which renderers, exporters and queries read them, while the storage of the segments
+ * is up to the implementation, e.g. {@link SegmentDetails} objects in {@link Lines} or
+ * primitive arrays in {@link ColumnarLines}.
+ * <p>
+ * Each segment is defined by a 2D start and end point and can be colored and have a thickness per point.
+ * Each segment has a single picking color.
+ * The picking color is the color with which the segment is rendered into the (invisible) picking color attachment
+ * of an {@link FBO}. This color may serve as an identifier of the object that can be queried from a location of the
+ * rendering canvas. It may take on a value in range of 0xff000001 to 0xffffffff (16.777.214 possible values) or 0.
+ * <p>
+ * The attributes that apply to all segments of a collection are handled by this class: the global alpha,
+ * saturation and thickness multipliers, the stroke pattern, vertex rounding, and whether it is hidden.
+ * So is the vertex array that is derived from the segments (including partial uploads of modified segments,
+ * see {@link #setDirty(int, int)}), the bounds and the optional spatial index ({@link #enableSpatialIndex(boolean)}).
+ *
+ * @author hageldave
+ * @param <L> the type of the implementation, returned by the methods for chaining
+ */
+public abstract class GenericLines<L extends GenericLines<L>> implements Renderable {
+
+	protected VertexArray va;
+
+	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
+
+	protected DoubleSupplier globalThicknessMultiplier = () -> 1.0;
+
+	protected boolean isDirty = true;
+	/** incremented with every modification, see {@link #getModificationCount()} */
+	protected long modificationCount = 0;
+
+	protected DoubleSupplier globalAlphaMultiplier = () -> 1.0;
+
+	protected boolean useVertexRounding=false;
+
+	protected short strokePattern = (short)0xffff;
+
+	protected float strokeLength = 16;
+
+	protected boolean hidden = false;
+
+	protected boolean isGLDoublePrecision = false;
+
+	protected boolean useSpatialIndex = false;
+
+	protected BoundingVolumeHierarchy spatialIndex;
+
+	protected boolean isSpatialIndexOutdated = false;
+
+	/** snapshot that was uploaded to the vertex array by the last {@link #updateGL(boolean, double, double)} */
+	protected GenericLines<?> glSnapshot;
+	/** segments that were modified since the last GL update */
+	protected final DirtyRange dirtyRange = new DirtyRange();
+	/** false when segments were uploaded partially, i.e. path lengths for the stroke pattern start over */
+	protected boolean isGLPathLengthContinuous = true;
+
+	/** number of segments from which on the spatial index is used (when enabled) */
+	public static final int SPATIAL_INDEX_THRESHOLD = 1024;
+
+	/**
+	 * Sets the {@link #isDirty()} state of this renderable to true.
+	 * This indicates that an {@link #updateGL(boolean, double, double)} call is necessary to sync GL resources.
+	 * This also marks the spatial index as outdated, so that it is updated on the next query.
+	 * All segments are uploaded on the next GL update.
+	 * @return this for chaining
+	 */
+	public L setDirty() {
+		this.isDirty = true;
+		this.modificationCount++;
+		this.isSpatialIndexOutdated = true;
+		this.dirtyRange.markAll();
+		return self();
+	}
+
+	/**
+	 * Sets the {@link #isDirty()} state of this renderable to true after the segments from (inclusive)
+	 * to (exclusive) were modified, e.g. after changing the color of a single segment.
+	 * Unlike {@link #setDirty()}, only the modified segments are uploaded on the next GL update
+	 * (unless a stroke pattern is used, which requires the path length along all segments).
+	 * Note that attributes of other segments are not re-evaluated then, i.e. their suppliers
+	 * (see {@link SegmentDetails#setColor(IntSupplier)}) are not called.
+	 * The spatial index is kept, use {@link #setDirty()} when the locations of segments were changed.
+	 * @param from index of the first modified segment
+	 * @param to index after the last modified segment
+	 * @return this for chaining
+	 */
+	public L setDirty(int from, int to) {
+		this.isDirty = true;
+		this.modificationCount++;
+		this.dirtyRange.mark(from, to);
+		return self();
+	}
+
+	/**
+	 * Marks the spatial index as outdated after the locations of the segments from (inclusive)
+	 * to (exclusive) were changed, so that it is updated on the next query.
+	 * This is called in addition to {@link #setDirty(int, int)} by setters that change locations,
+	 * e.g. {@link ColumnarLines#setSegment(int, double, double, double, double)}.
+	 * @param from index of the first moved segment
+	 * @param to index after the last moved segment
+	 */
+	protected void locationsChanged(int from, int to) {
+		this.isSpatialIndexOutdated = true;
+	}
+
+	@Override
+	public boolean isDirty() {
+		return isDirty;
+	}
+
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
+	/**
+	 * Returns an immutable state of this object that stays consistent while it is read,
+	 * e.g. by a renderer during a frame.
+	 * Renderers read the segments of a frame through the snapshot so that they cannot observe
+	 * partially applied modifications of a collection that is modified concurrently
+	 * (see {@link VersionedLines}).
+	 * <p>
+	 * Collections that are not safe for concurrent modification return themselves.
+	 * @return snapshot of this object
+	 */
+	public GenericLines<?> snapshot() {
+		return this;
+	}
+
+	/**
+	 * Copies the attributes that apply to all segments (multipliers, vertex rounding, stroke pattern,
+	 * hidden state) from the specified collection, e.g. to a snapshot.
+	 * Suppliers are shared, not evaluated.
+	 * @param other collection to copy the attributes from
+	 * @return this for chaining
+	 */
+	protected L copyGlobalAttributes(GenericLines<?> other) {
+		this.globalAlphaMultiplier = other.globalAlphaMultiplier;
+		this.globalSaturationMultiplier = other.globalSaturationMultiplier;
+		this.globalThicknessMultiplier = other.globalThicknessMultiplier;
+		this.useVertexRounding = other.useVertexRounding;
+		this.strokePattern = other.strokePattern;
+		this.strokeLength = other.strokeLength;
+		this.hidden = other.hidden;
+		return self();
+	}
+
+	/**
+	 * Returns the snapshot for rendering the specified view into a viewport of w x h pixels.
+	 * Lines that adapt their segments to the view (e.g. the level of detail of {@link TimeSeriesLines})
+	 * return the segments for that view, all others return {@link #snapshot()}.
+	 * @param view the rendered view, null when coordinates are in pixels
+	 * @param w width of the viewport in pixels
+	 * @param h height of the viewport in pixels
+	 * @return snapshot of this object for the view
+	 */
+	public GenericLines<?> snapshot(Rectangle2D view, int w, int h) {
+		return snapshot();
+	}
+
+	/**
+	 * Returns a decimated copy of the specified segments for frames of reduced quality.
+	 * <p>
+	 * Dropping every n-th segment would break line strips into dashes, so connected segments
+	 * (a segment that starts where its predecessor ends) are simplified instead:
+	 * each run of connected segments inside a block of {@code stride} consecutive segments is replaced
+	 * by a single segment from the first to the last vertex of the run,
+	 * i.e. a strip is drawn through every {@code stride}-th vertex.
+	 * Independent segments are kept when their index is a multiple of the stride.
+	 * Blocks are determined by absolute segment index and are always processed as a whole,
+	 * which keeps the result consistent when a frame is rendered in tiles.
+	 * @param indices of the segments to decimate in ascending order, or null for all segments
+	 * @param stride decimation stride
+	 * @return decimated copy with the global attributes of this object, or this when stride is 1
+	 */
+	public GenericLines<?> decimate(int[] indices, int stride) {
+		if(stride <= 1){
+			return this;
+		}
+		int n = numSegments();
+		ColumnarLines decimated = new ColumnarLines().copyGlobalAttributes(this);
+		int numIndices = Objects.isNull(indices) ? n : indices.length;
+		int prevBlock = -1;
+		for(int k = 0; k < numIndices; k++){
+			int block = (Objects.isNull(indices) ? k : indices[k]) / stride;
+			if(block == prevBlock){
+				continue;
+			}
+			prevBlock = block;
+			int from = block*stride;
+			int to = Math.min(from+stride, n);
+			int runStart = from;
+			for(int i = from+1; i <= to; i++){
+				if(i < to && isConnected(i)){
+					continue;
+				}
+				// run of connected segments [runStart, i)
+				if(i-runStart > 1 || runStart == from || (i < n && isConnected(i))){
+					decimated.appendSegment(
+							getSegmentX0(runStart), getSegmentY0(runStart), getSegmentX1(i-1), getSegmentY1(i-1),
+							getSegmentColor0(runStart), getSegmentColor1(i-1),
+							getSegmentThickness0(runStart), getSegmentThickness1(i-1),
+							getSegmentPickColor(runStart));
+				}
+				runStart = i;
+			}
+		}
+		return decimated;
+	}
+
+	/**
+	 * @param i index of the segment, in [1, numSegments)
+	 * @return true when segment i starts at the end of segment i-1
+	 */
+	protected boolean isConnected(int i) {
+		return getSegmentX0(i) == getSegmentX1(i-1) && getSegmentY0(i) == getSegmentY1(i-1);
+	}
+
+	/**
+	 * Sets the view and viewport size that the vertex array is rendered with.
+	 * This is called by the renderer before checking {@link #isDirty()} and allows lines that
+	 * adapt their segments to the view (see {@link #snapshot(Rectangle2D, int, int)}) to mark
+	 * themselves dirty when the view changed.
+	 * Does nothing by default.
+	 * @param view the rendered view, null when coordinates are in pixels
+	 * @param w width of the viewport in pixels
+	 * @param h height of the viewport in pixels
+	 */
+	public void setGLView(Rectangle2D view, int w, int h) {
+		// segments do not depend on the view
+	}
+
+	/**
+	 * @return this object as its implementation type for chaining
+	 */
+	@SuppressWarnings("unchecked")
+	protected L self() {
+		return (L) this;
+	}
+
+	/**
+	 * @return the number of line segments in this collection
+	 */
+	public abstract int numSegments();
+
+	/**
+	 * @param i index of the segment
+	 * @return x coordinate of the start point of the i-th segment
+	 */
+	public abstract double getSegmentX0(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return y coordinate of the start point of the i-th segment
+	 */
+	public abstract double getSegmentY0(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return x coordinate of the end point of the i-th segment
+	 */
+	public abstract double getSegmentX1(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return y coordinate of the end point of the i-th segment
+	 */
+	public abstract double getSegmentY1(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return integer packed ARGB color at the start point of the i-th segment
+	 */
+	public abstract int getSegmentColor0(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return integer packed ARGB color at the end point of the i-th segment
+	 */
+	public abstract int getSegmentColor1(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return thickness at the start point of the i-th segment
+	 */
+	public abstract double getSegmentThickness0(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return thickness at the end point of the i-th segment
+	 */
+	public abstract double getSegmentThickness1(int i);
+
+	/**
+	 * @param i index of the segment
+	 * @return picking color of the i-th segment
+	 */
+	public abstract int getSegmentPickColor(int i);
+
+	/**
+	 * Sets the global alpha multiplier parameter of this collection.
+	 * The value will be multiplied with each segment point's alpha color value when rendering.
+	 * The segment will then be rendered with the opacity {@code alpha = globalAlphaMultiplier * point.alpha}.
+	 * @param globalAlphaMultiplier of the segments in this collection
+	 * @return this for chaining
+	 */
+	public L setGlobalAlphaMultiplier(DoubleSupplier globalAlphaMultiplier) {
+		this.globalAlphaMultiplier = globalAlphaMultiplier;
+		return self();
+	}
+
+	/**
+	 * Sets the global alpha multiplier parameter of this collection.
+	 * The value will be multiplied with each segment point's alpha color value when rendering.
+	 * The segment will then be rendered with the opacity {@code alpha = globalAlphaMultiplier * point.alpha}.
+	 * @param globalAlphaMultiplier of the segments in this collection
+	 * @return this for chaining
+	 */
+	public L setGlobalAlphaMultiplier(double globalAlphaMultiplier) {
+		return setGlobalAlphaMultiplier(() -> globalAlphaMultiplier);
+	}
+
+	/**
+	 * @return the global alpha multiplier of the segments in this collection
+	 */
+	public float getGlobalAlphaMultiplier() {
+		return (float)globalAlphaMultiplier.getAsDouble();
+	}
+
+	/**
+	 * Sets the line thickness multiplier for this collection in pixels.
+	 * The effective thickness of a segment results from multiplication of its
+	 * thickness with this value.
+	 * @param thickness of the lines, default is 1.
+	 * @return this for chaining
+	 */
+	public L setGlobalThicknessMultiplier(DoubleSupplier thickness) {
+		this.globalThicknessMultiplier = thickness;
+		return self();
+	}
+
+	/**
+	 * Sets the line thickness multiplier for this collection in pixels.
+	 * The effective thickness of a segment results from multiplication of its
+	 * thickness with this value.
+	 * @param thickness of the lines, default is 1.
+	 * @return this for chaining
+	 */
+	public L setGlobalThicknessMultiplier(double thickness) {
+		return setGlobalThicknessMultiplier(() -> thickness);
+	}
+
+	/**
+	 * @return the line thickness multiplier of this collection
+	 */
+	public float getGlobalThicknessMultiplier() {
+		return (float)globalThicknessMultiplier.getAsDouble();
+	}
+
+	/**
+	 * Sets the saturation multiplier for this Renderable.
+	 * The effective saturation of the colors results form multiplication of
+	 * the respective color's saturation by this value.
+	 * @param saturation change of saturation, default is 1
+	 * @return this for chaining
+	 */
+	public L setGlobalSaturationMultiplier(DoubleSupplier saturation) {
+		this.globalSaturationMultiplier = saturation;
+		return self();
+	}
+
+	/**
+	 * Sets the saturation multiplier for this Renderable.
+	 * The effective saturation of the colors results form multiplication of
+	 * the respective color's saturation by this value.
+	 * @param saturation change of saturation, default is 1
+	 * @return this for chaining
+	 */
+	public L setGlobalSaturationMultiplier(double saturation) {
+		return setGlobalSaturationMultiplier(() -> saturation);
+	}
+
+	/** @return the saturation multiplier of this renderable */
+	public float getGlobalSaturationMultiplier() {
+		return (float)globalSaturationMultiplier.getAsDouble();
+	}
+
+	/**
+	 * @return whether vertex rounding is enabled. This indicates if
+	 * the {@link GenericLinesRenderer}'s shader will round vertex positions of
+	 * the quad vertices (that a segment is expanded to) to integer values.
+	 * <p>
+	 * This has the effect of sharpening horizontal and vertical lines, but
+	 * can affect differently oriented lines to shrink in thickness or even vanish.
+	 */
+	public boolean isVertexRoundingEnabled() {
+		return useVertexRounding;
+	}
+
+	/**
+	 * En/Disables vertex rounding for this collection. This indicates if
+	 * the {@link GenericLinesRenderer}'s shader will round vertex positions of
+	 * the quad vertices (that a segment is expanded to) to integer values.
+	 * <p>
+	 * This has the effect of sharpening horizontal and vertical lines, but
+	 * can affect differently oriented lines to shrink in thickness or even vanish.
+	 * <p>
+	 * Also this only makes sense when the collection is of integer valued thickness.
+	 * @param useVertexRounding will enable if true
+	 * @return this for chaining
+	 */
+	public L setVertexRoundingEnabled(boolean useVertexRounding) {
+		this.useVertexRounding = useVertexRounding;
+		return self();
+	}
+
+	/**
+	 * @return the bounding rectangle that encloses all line segments in this collection.
+	 */
+	public Rectangle2D getBounds(){
+		int n = numSegments();
+		if(n < 1)
+			return new Rectangle2D.Double();
+		double minX=getSegmentX0(0), maxX=minX, minY=getSegmentY0(0), maxY=minY;
+		for(int i=0; i<n; i++){
+			double x0 = getSegmentX0(i), y0 = getSegmentY0(i);
+			double x1 = getSegmentX1(i), y1 = getSegmentY1(i);
+			minX = Math.min(minX, Math.min(x0, x1));
+			maxX = Math.max(maxX, Math.max(x0, x1));
+			minY = Math.min(minY, Math.min(y0, y1));
+			maxY = Math.max(maxY, Math.max(y0, y1));
+		}
+		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+	}
+
+	/**
+	 * Enables or disables the spatial index of this collection.
+	 * When enabled, a {@link BoundingVolumeHierarchy} over the segments is maintained
+	 * (once there are at least {@link #SPATIAL_INDEX_THRESHOLD} segments) which makes
+	 * {@link #getIntersectingSegments(Rectangle2D)}, {@link #intersects(Rectangle2D)} and the
+	 * fallback, SVG and PDF rendering of a zoomed in view cost proportional to the visible segments.
+	 * <p>
+	 * The index is updated lazily on the next query. After {@link #setDirty()} (or {@link #locationsChanged(int, int)})
+	 * its boxes are refitted, appended segments are scanned linearly until they exceed a quarter of the
+	 * indexed segments, then the index is rebuilt.
+	 * Enabling is beneficial for large collections that are queried or rendered zoomed in
+	 * more often than they are modified.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public L enableSpatialIndex(boolean enable) {
+		this.useSpatialIndex = enable;
+		if(!enable)
+			this.spatialIndex = null;
+		return self();
+	}
+
+	/**
+	 * @return true when the spatial index is enabled, see {@link #enableSpatialIndex(boolean)}
+	 */
+	public boolean isSpatialIndexEnabled() {
+		return useSpatialIndex;
+	}
+
+	/**
+	 * Returns the spatial index of this collection, updating it when necessary.
+	 * @return the spatial index or null when disabled or there are less than {@link #SPATIAL_INDEX_THRESHOLD} segments
+	 */
+	protected synchronized BoundingVolumeHierarchy getSpatialIndex() {
+		int n = numSegments();
+		if(!useSpatialIndex || n < SPATIAL_INDEX_THRESHOLD)
+			return null;
+		BoundingVolumeHierarchy index = this.spatialIndex;
+		if(Objects.isNull(index) || index.size() > n || (n-index.size()) > index.size()/4){
+			index = new BoundingVolumeHierarchy(computeSegmentBounds(n), n);
+			this.spatialIndex = index;
+		} else if(isSpatialIndexOutdated){
+			index.refit(computeSegmentBounds(index.size()));
+		}
+		isSpatialIndexOutdated = false;
+		return index;
+	}
+
+	/**
+	 * Computes the bounding boxes of the first n segments in the layout
+	 * expected by {@link BoundingVolumeHierarchy}.
+	 * @param n number of segments
+	 * @return array of (minX, minY, maxX, maxY) per segment
+	 */
+	protected double[] computeSegmentBounds(int n) {
+		double[] bounds = new double[n*4];
+		for(int i=0; i<n; i++){
+			double x0 = getSegmentX0(i), y0 = getSegmentY0(i);
+			double x1 = getSegmentX1(i), y1 = getSegmentY1(i);
+			bounds[i*4+0] = Math.min(x0, x1);
+			bounds[i*4+1] = Math.min(y0, y1);
+			bounds[i*4+2] = Math.max(x0, x1);
+			bounds[i*4+3] = Math.max(y0, y1);
+		}
+		return bounds;
+	}
+
+	protected boolean segmentIntersects(Rectangle2D rect, int i) {
+		return rect.intersectsLine(getSegmentX0(i), getSegmentY0(i), getSegmentX1(i), getSegmentY1(i));
+	}
+
+	@Override
+	public boolean intersects(Rectangle2D rect) {
+		int n = numSegments();
+		BoundingVolumeHierarchy index = getSpatialIndex();
+		if(Objects.isNull(index)){
+			boolean useParallelStreaming = n > 1000;
+			return Utils.parallelize(IntStream.range(0, n), useParallelStreaming)
+					.anyMatch(i->segmentIntersects(rect, i));
+		}
+		if(index.anyIntersecting(rect, n, i->segmentIntersects(rect, i)))
+			return true;
+		for(int i=index.size(); i<n; i++){
+			if(segmentIntersects(rect, i))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the indices of the segments that intersect the specified rectangle in ascending order.
+	 * Uses the spatial index when enabled (see {@link #enableSpatialIndex(boolean)}).
+	 * @param rect rectangle to test intersection
+	 * @return ascending indices of intersecting segments
+	 */
+	public int[] getIntersectingSegmentIndices(Rectangle2D rect) {
+		int n = numSegments();
+		BoundingVolumeHierarchy index = getSpatialIndex();
+		if(Objects.isNull(index)){
+			boolean useParallelStreaming = n > 1000;
+			return Utils.parallelize(IntStream.range(0, n), useParallelStreaming)
+					.filter(i->segmentIntersects(rect, i))
+					.toArray();
+		}
+		int[] indexed = index.getIntersecting(rect, n, i->segmentIntersects(rect, i));
+		int[] appended = IntStream.range(index.size(), n)
+				.filter(i->segmentIntersects(rect, i))
+				.toArray();
+		if(appended.length == 0)
+			return indexed;
+		int[] all = Arrays.copyOf(indexed, indexed.length+appended.length);
+		System.arraycopy(appended, 0, all, indexed.length, appended.length);
+		return all;
+	}
+
+	/**
+	 * Returns the segments that intersect the specified rectangle.
+	 * Unless the collection stores {@link SegmentDetails} (see {@link Lines#getIntersectingSegments(Rectangle2D)}),
+	 * the returned objects are detached copies of the segments' current attributes.
+	 * Changing them does not affect this collection.
+	 * @param rect rectangle to test intersection
+	 * @return list of intersecting segments
+	 */
+	public List<SegmentDetails> getIntersectingSegments(Rectangle2D rect) {
+		int[] indices = getIntersectingSegmentIndices(rect);
+		ArrayList<SegmentDetails> intersecting = new ArrayList<>(indices.length);
+		for(int i : indices){
+			intersecting.add(new SegmentDetails(
+					new Point2D.Double(getSegmentX0(i), getSegmentY0(i)),
+					new Point2D.Double(getSegmentX1(i), getSegmentY1(i)))
+					.setColor0(getSegmentColor0(i))
+					.setColor1(getSegmentColor1(i))
+					.setThickness(getSegmentThickness0(i), getSegmentThickness1(i))
+					.setPickColor(getSegmentPickColor(i)));
+		}
+		return intersecting;
+	}
+
+	/**
+	 * Whether this collection has a stroke pattern other than 0xffff (completely solid).
+	 * @return true when stroke pattern != 0xffff
+	 */
+	public boolean hasStrokePattern() {
+		return this.strokePattern != (short)0xffff;
+	}
+
+	/**
+	 * Returns this collection's stroke pattern
+	 * @return stroke pattern
+	 */
+	public short getStrokePattern() {
+		return this.strokePattern;
+	}
+
+	/**
+	 * Sets this collection's stroke pattern.
+	 * The stroke pattern is a 16bit number that defines a sequence of solid and empty parts of a stroke.
+	 * <br>
+	 * <b>An error message is printed on System.err when more than the first 16bits are non zero</b> since
+	 * this method only takes an int for convenience to save you the cast to (short).
+	 * <p>
+	 * Here are some examples:
+	 * <ul>
+	 * <li>{@code 0xffff = 0b1111_1111_1111_1111 =} completely solid</li>
+	 * <li>{@code 0x0000 = 0b0000_0000_0000_0000 =} completely empty (invisible)</li>
+	 * <li>{@code 0xff00 = 0b1111_1111_0000_0000 =} first half solid, second half empty </li>
+	 * <li>{@code 0x0f0f = 0b0000_1111_0000_1111 =} first and third quarter empty, second and fourth solid</li>
+	 * <li>{@code 0xaaaa = 0b1010_1010_1010_1010 =} alternating every 16th of the stroke</li>
+	 * </ul>
+	 * @param strokePattern 16bit pattern
+	 * @return this for chaining
+	 */
+	public L setStrokePattern(int strokePattern) {
+		if(strokePattern >> 16 != 0){
+			System.err.println("specified stroke pattern should only be 16 bits but is " + Integer.toBinaryString(strokePattern));
+		}
+		this.strokePattern = (short)strokePattern;
+		this.modificationCount++;
+		if(hasStrokePattern() && !isGLPathLengthContinuous){
+			// path lengths of partially uploaded segments have to be recomputed
+			this.isDirty = true;
+			this.dirtyRange.markAll();
+		}
+		return self();
+	}
+
+	/**
+	 * Returns the stroke length in pixels, which is by default 16 pixels.
+	 * @return stroke length
+	 */
+	public float getStrokeLength() {
+		return strokeLength;
+	}
+
+	/**
+	 * Sets the stroke length in pixels. The specified stroke pattern will repeat every
+	 * strokeLength pixels.
+	 * @param strokeLength length of the stroke
+	 * @return this for chaining
+	 */
+	public L setStrokeLength(double strokeLength) {
+		this.strokeLength = (float) Math.max(0, strokeLength);
+		this.modificationCount++;
+		return self();
+	}
+
+	@Override
+	public boolean isHidden() {
+		return hidden;
+	}
+
+	/**
+	 * Hides or unhides this collection, i.e. sets the {@link #isHidden()} field
+	 * value. When hidden, renderers will not draw it.
+	 * @param hide true when hiding
+	 * @return this for chaining
+	 */
+	public L hide(boolean hide) {
+		this.hidden = hide;
+		return self();
+	}
+
+	/**
+	 * disposes of the GL resources of this lines object,
+	 * i.e deletes the vertex array.
+	 */
+	@Override
+	@GLContextRequired
+	public void close(){
+		if(Objects.nonNull(va)){
+			va.close();
+			va = null;
+			glSnapshot = null;
+			dirtyRange.markAll();
+		}
+	}
+
+	/**
+	 * Allocates GL resources, i.e. creates the vertex array and fills
+	 * it according to the contents of this collection.
+	 * If the vertex array has already been created, nothing happens.
+	 */
+	@Override
+	@GLContextRequired
+	public void initGL(){
+		if(Objects.isNull(va)){
+			va = new VertexArray(5);
+			updateGL(false);
+		}
+	}
+
+	/**
+	 * Updates the vertex array to be in sync with this lines object.
+	 * This sets the {@link #isDirty()} state to false.
+	 * If {@link #initGL()} has not been called yet or this object has
+	 * already been closed, nothing happens
+	 */
+	@Override
+	@GLContextRequired
+	@Deprecated(/* use updateGL(usedouble,scaleX,scaleY) instead */)
+	public void updateGL(boolean useGLDoublePrecision){
+		updateGL(useGLDoublePrecision, 1, 1);
+	}
+
+
+	/**
+	 * Updates the vertex array to be in sync with this lines object.
+	 * This sets the {@link #isDirty()} state to false.
+	 * If {@link #initGL()} has not been called yet or this object has
+	 * already been closed, nothing happens
+	 * @param useGLDoublePrecision true when rendering with double precision
+	 * @param scaleX scaling of the x coordinate of the current view transform
+	 * @param scaleY scaling of the y coordinate of the current view transform
+	 */
+	@GLContextRequired
+	public void updateGL(boolean useGLDoublePrecision, double scaleX, double scaleY){
+		if (useGLDoublePrecision) // SFM
+		{
+			updateGLDouble(scaleX, scaleY);
+		}
+		else
+		{
+			updateGLFloat(scaleX, scaleY);
+		}
+	}
+
+	/**
+	 * Updates the vertex array to be in sync with this lines object.
+	 * This sets the {@link #isDirty()} state to false.
+	 * For calculating the path length of line segments in screen space
+	 * the scaling parameters of the respective view transformation need
+	 * to be specified in order to realize view invariant stroke patterns.
+	 * <p>
+	 * If {@link #initGL()} has not been called yet or this object has
+	 * already been closed, nothing happens.
+	 * @param scaleX scaling of the x coordinate of the current view transform
+	 * @param scaleY scaling of the y coordinate of the current view transform
+	 */
+	@GLContextRequired
+	public void updateGLFloat(double scaleX, double scaleY){
+		if(Objects.nonNull(va)){
+			// read from a consistent state of the segments
+			GenericLines<?> src = snapshot();
+			// upload only the modified segments when possible
+			boolean partial = src == this && !isGLDoublePrecision && !hasStrokePattern()
+					&& dirtyRange.isPartial(va.getNumValues(1)/2);
+			int from = partial ? dirtyRange.getFrom() : 0;
+			int n = partial ? Math.max(0, Math.min(dirtyRange.getTo(), src.numSegments())-from) : src.numSegments();
+			float[] segmentCoordBuffer = new float[n*2*2];
+			int[] colorBuffer = new int[n*2];
+			int[] pickBuffer = new int[n*2];
+			float[] thicknessBuffer = new float[n*2];
+			float[] pathLengthBuffer = new float[n*2];
+
+			double xprev = 0, yprev=0, pathLen = 0;
+			for(int k=0; k<n; k++){
+				int i = from+k;
+				double x0 = src.getSegmentX0(i);
+				double y0 = src.getSegmentY0(i);
+				double x1 = src.getSegmentX1(i);
+				double y1 = src.getSegmentY1(i);
+
+				segmentCoordBuffer[k*4+0] = (float) x0;
+				segmentCoordBuffer[k*4+1] = (float) y0;
+				segmentCoordBuffer[k*4+2] = (float) x1;
+				segmentCoordBuffer[k*4+3] = (float) y1;
+
+				colorBuffer[k*2+0] = src.getSegmentColor0(i);
+				colorBuffer[k*2+1] = src.getSegmentColor1(i);
+
+				pickBuffer[k*2+0] = pickBuffer[k*2+1] = src.getSegmentPickColor(i);
+
+				thicknessBuffer[k*2+0] = (float)src.getSegmentThickness0(i);
+				thicknessBuffer[k*2+1] = (float)src.getSegmentThickness1(i);
+
+				if(xprev != x0 || yprev != y0){
+					pathLen = 0;
+				}
+				double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
+				pathLengthBuffer[k*2+0] = (float)pathLen;
+				pathLengthBuffer[k*2+1] = (float)(pathLen += segLen);
+				pathLen = pathLen % strokeLength;
+				xprev = x1; yprev = y1;
+			}
+			if(partial){
+				va.updateBuffer(0, from*4, segmentCoordBuffer);
+				va.updateBuffer(1, from*2, colorBuffer);
+				va.updateBuffer(2, from*2, pickBuffer);
+				va.updateBuffer(3, from*2, thicknessBuffer);
+				va.updateBuffer(4, from*2, pathLengthBuffer);
+			} else {
+				va.setBuffer(0, 2, segmentCoordBuffer);
+				va.setBuffer(1, 1, false, colorBuffer);
+				va.setBuffer(2, 1, false, pickBuffer);
+				va.setBuffer(3, 1, thicknessBuffer);
+				va.setBuffer(4, 1, pathLengthBuffer);
+			}
+			dirtyRange.clear();
+			isGLPathLengthContinuous = !partial;
+			isDirty = false;
+			glSnapshot = src;
+			isGLDoublePrecision = false;
+		}
+	}
+
+	@GLContextRequired
+	public void updateGLDouble(double scaleX, double scaleY){
+		if(Objects.nonNull(va)){
+			// read from a consistent state of the segments
+			GenericLines<?> src = snapshot();
+			// upload only the modified segments when possible
+			boolean partial = src == this && isGLDoublePrecision && !hasStrokePattern()
+					&& dirtyRange.isPartial(va.getNumValues(1)/2);
+			int from = partial ? dirtyRange.getFrom() : 0;
+			int n = partial ? Math.max(0, Math.min(dirtyRange.getTo(), src.numSegments())-from) : src.numSegments();
+			double[] segmentCoordBuffer = new double[n*2*2];  // SFM key line
+			int[] colorBuffer = new int[n*2];
+			int[] pickBuffer = new int[n*2];
+			float[] thicknessBuffer = new float[n*2];
+			float[] pathLengthBuffer = new float[n*2];
+
+			double xprev = 0, yprev=0, pathLen = 0;
+			for(int k=0; k<n; k++){
+				int i = from+k;
+				double x0 = src.getSegmentX0(i);
+				double y0 = src.getSegmentY0(i);
+				double x1 = src.getSegmentX1(i);
+				double y1 = src.getSegmentY1(i);
+
+				segmentCoordBuffer[k*4+0] = x0;
+				segmentCoordBuffer[k*4+1] = y0;
+				segmentCoordBuffer[k*4+2] = x1;
+				segmentCoordBuffer[k*4+3] = y1;
+
+				colorBuffer[k*2+0] = src.getSegmentColor0(i);
+				colorBuffer[k*2+1] = src.getSegmentColor1(i);
+
+				pickBuffer[k*2+0] = pickBuffer[k*2+1] = src.getSegmentPickColor(i);
+
+				thicknessBuffer[k*2+0] = (float)src.getSegmentThickness0(i);
+				thicknessBuffer[k*2+1] = (float)src.getSegmentThickness1(i);
+
+				if(xprev != x0 || yprev != y0){
+					pathLen = 0;
+				}
+				double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
+				pathLengthBuffer[k*2+0] = (float)pathLen;
+				pathLengthBuffer[k*2+1] = (float)(pathLen += segLen);
+				pathLen = pathLen % strokeLength;
+				xprev = x1; yprev = y1;
+			}
+			if(partial){
+				va.updateBuffer(0, from*4, segmentCoordBuffer);
+				va.updateBuffer(1, from*2, colorBuffer);
+				va.updateBuffer(2, from*2, pickBuffer);
+				va.updateBuffer(3, from*2, thicknessBuffer);
+				va.updateBuffer(4, from*2, pathLengthBuffer);
+			} else {
+				va.setBuffer(0, 2, segmentCoordBuffer);
+				va.setBuffer(1, 1, false, colorBuffer);
+				va.setBuffer(2, 1, false, pickBuffer);
+				va.setBuffer(3, 1, thicknessBuffer);
+				va.setBuffer(4, 1, pathLengthBuffer);
+			}
+			dirtyRange.clear();
+			isGLPathLengthContinuous = !partial;
+			isDirty = false;
+			glSnapshot = src;
+			isGLDoublePrecision = true;
+		}
+	}
+
+
+	/**
+	 * Returns the vertex array of this lines object.
+	 * The vertex array's first attribute contains the 2D point pairs of
+	 * the line segments, the second attribute contains integer packed RGB
+	 * value pairs for the line segments.
+	 * @return the vertex array associated with this lines object or null if
+	 * {@link #initGL()} was not yet called or this object was already closed.
+	 */
+	public VertexArray getVertexArray() {
+		return va;
+	}
+
+	/**
+	 * Returns the number of segments in the vertex array of this lines object, i.e. the
+	 * number of segments of the {@link #snapshot()} that was uploaded by the last
+	 * {@link #updateGL(boolean, double, double)} call.
+	 * This may differ from {@link #numSegments()} when the segments are modified concurrently.
+	 * @return number of segments in the vertex array, 0 when there is none
+	 */
+	public int numSegmentsInVertexArray() {
+		return Objects.isNull(glSnapshot) ? 0 : glSnapshot.numSegments();
+	}
+
+	/**
+	 * Returns the index of the first segment in the vertex array that is drawn.
+	 * The drawn segments are {@link #numSegmentsInVertexArray()} consecutive segments starting at this index.
+	 * This is 0 unless the vertex array holds more segments than are drawn (e.g. the ring of {@link StreamingLines}).
+	 * @return index of the first segment to draw
+	 */
+	public int firstSegmentInVertexArray() {
+		return 0;
+	}
+
+	/**
+	 * Binds this object's vertex array and enables the corresponding attributes
+	 * (first and second attribute).
+	 * @throws NullPointerException unless {@link #initGL()} was called (and this has not yet been closed)
+	 */
+	@GLContextRequired
+	public void bindVertexArray() {
+		va.bindAndEnableAttributes(0,1,2,3,4);
+	}
+
+
+	/**
+	 * Releases this objects vertex array and disables the corresponding attributes
+	 * @throws NullPointerException unless {@link #initGL()} was called (and this has not yet been closed)
+	 */
+	@GLContextRequired
+	public void releaseVertexArray() {
+		va.releaseAndDisableAttributes(0,1,2,3,4);
+	}
+
+	@Override
+	public boolean isGLDoublePrecision() {
+		return isGLDoublePrecision;
+	}
+
+}
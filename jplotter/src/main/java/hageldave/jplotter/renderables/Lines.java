@@ -1,21 +1,15 @@
 package hageldave.jplotter.renderables;
 
 import hageldave.jplotter.gl.FBO;
-import hageldave.jplotter.gl.VertexArray;
-import hageldave.jplotter.renderers.LinesRenderer;
-import hageldave.jplotter.util.Annotations.GLContextRequired;
 import hageldave.jplotter.util.Utils;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
-import java.util.stream.Collectors;
 
 /**
  * The Lines class is a collection of linear line segments.
@@ -30,6 +24,10 @@ import java.util.stream.Collectors;
  * of an {@link FBO}. This color may serve as an identifier of the object that can be queried from a location of the
  * rendering canvas. It may take on a value in range of 0xff000001 to 0xffffffff (16.777.214 possible values) or 0.
  * <p>
+ * The segments are stored as {@link SegmentDetails} objects whose attributes may be suppliers that are
+ * evaluated when the segments are uploaded to GL. For large amounts of segments, e.g. long line strips,
+ * the primitive array based {@link ColumnarLines} avoids the per segment objects.
+ * <p>
  * There is also a global alpha multiplier ({@link #setGlobalAlphaMultiplier(double)}) 
  * which scales every segments color alpha value, which can be used to introduce transparency for all segments of this 
  * collection. This may come in handy to visualize density when plotting a huge amount of lines. <br>
@@ -38,55 +36,71 @@ import java.util.stream.Collectors;
  * <p>
  * The segments of this object can be rendered using a stroke pattern ({@link #setStrokePattern(int)}) to draw
  * dashed or dotted lines.
+ * <p>
+ * For large collections an optional spatial index can be enabled
+ * ({@link #enableSpatialIndex(boolean)}), which lets intersection queries and renderers only visit the
+ * segments in the region of interest instead of all segments.
  * 
  * @author hageldave
  */
-public class Lines implements Renderable {
-
-	protected VertexArray va;
+public class Lines extends GenericLines<Lines> {
 
 	protected ArrayList<SegmentDetails> segments = new ArrayList<>();
 
-	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
+	/**
+	 * @return the number of line segments in this {@link Lines} object
+	 */
+	@Override
+	public int numSegments() {
+		return segments.size();
+	}
 
-	protected DoubleSupplier globalThicknessMultiplier = () -> 1.0;
+	@Override
+	public double getSegmentX0(int i) {
+		return segments.get(i).p0.getX();
+	}
 
-	protected boolean isDirty = true;
+	@Override
+	public double getSegmentY0(int i) {
+		return segments.get(i).p0.getY();
+	}
 
-	protected DoubleSupplier globalAlphaMultiplier = () -> 1.0;
+	@Override
+	public double getSegmentX1(int i) {
+		return segments.get(i).p1.getX();
+	}
 
-	protected boolean useVertexRounding=false;
+	@Override
+	public double getSegmentY1(int i) {
+		return segments.get(i).p1.getY();
+	}
 
-	protected short strokePattern = (short)0xffff;
-	
-	protected float strokeLength = 16;
-	
-	protected boolean hidden = false;
-	
-	protected boolean isGLDoublePrecision = false;
+	@Override
+	public int getSegmentColor0(int i) {
+		return segments.get(i).color0.getAsInt();
+	}
 
-	/**
-	 * Sets the {@link #isDirty()} state of this renderable to true.
-	 * This indicates that an {@link #updateGL(boolean, double, double)} call is necessary to sync GL resources.
-	 * @return this for chaining
-	 */
-	public Lines setDirty() {
-		this.isDirty = true;
-		return this;
+	@Override
+	public int getSegmentColor1(int i) {
+		return segments.get(i).color1.getAsInt();
 	}
 
 	@Override
-	public boolean isDirty() {
-		return isDirty;
+	public double getSegmentThickness0(int i) {
+		return segments.get(i).thickness0.getAsDouble();
 	}
 
-	/**
-	 * @return the number of line segments in this {@link Lines} object
-	 */
-	public int numSegments() {
-		return segments.size();
+	@Override
+	public double getSegmentThickness1(int i) {
+		return segments.get(i).thickness1.getAsDouble();
 	}
 
+	@Override
+	public int getSegmentPickColor(int i) {
+		return segments.get(i).pickColor;
+	}
+
+
 	/**
 	 * Adds a new line segment to this object.
 	 * Sets the {@link #isDirty()} state to true.
@@ -97,7 +111,10 @@ public class Lines implements Renderable {
 	public SegmentDetails addSegment(Point2D p1, Point2D p2){
 		SegmentDetails seg = new SegmentDetails(p1, p2);
 		segments.add(seg);
-		setDirty();
+		// spatial index stays valid, appended segments are scanned linearly until the next rebuild
+		this.isDirty = true;
+		this.modificationCount++;
+		this.dirtyRange.mark(segments.size()-1, segments.size());
 		return seg;
 	}
 
@@ -186,36 +203,6 @@ public class Lines implements Renderable {
 		return segments;
 	}
 
-	/**
-	 * Sets the global alpha multiplier parameter of this {@link Lines} object.
-	 * The value will be multiplied with each segment point's alpha color value when rendering.
-	 * The segment will then be rendered with the opacity {@code alpha = globalAlphaMultiplier * point.alpha}.
-	 * @param globalAlphaMultiplier of the segments in this collection
-	 * @return this for chaining
-	 */
-	public Lines setGlobalAlphaMultiplier(DoubleSupplier globalAlphaMultiplier) {
-		this.globalAlphaMultiplier = globalAlphaMultiplier;
-		return this;
-	}
-	
-	/**
-	 * Sets the global alpha multiplier parameter of this {@link Lines} object.
-	 * The value will be multiplied with each segment point's alpha color value when rendering.
-	 * The segment will then be rendered with the opacity {@code alpha = globalAlphaMultiplier * point.alpha}.
-	 * @param globalAlphaMultiplier of the segments in this collection
-	 * @return this for chaining
-	 */
-	public Lines setGlobalAlphaMultiplier(double globalAlphaMultiplier) {
-		return setGlobalAlphaMultiplier(() -> globalAlphaMultiplier);
-	}
-
-	/**
-	 * @return the global alpha multiplier of the segments in this collection
-	 */
-	public float getGlobalAlphaMultiplier() {
-		return (float)globalAlphaMultiplier.getAsDouble();
-	}
-
 	/**
 	 * Removes all segments of this object.
 	 * Sets the {@link #isDirty()} state to true.
@@ -233,219 +220,24 @@ public class Lines implements Renderable {
 	public ArrayList<SegmentDetails> getSegments() {
 		return segments;
 	}
-	
-	/**
-	 * Sets the line thickness multiplier for this {@link Lines} object in pixels.
-	 * The effective thickness of a segment results from multiplication of its 
-	 * thickness with this value.
-	 * @param thickness of the lines, default is 1.
-	 * @return this for chaining
-	 */
-	public Lines setGlobalThicknessMultiplier(DoubleSupplier thickness) {
-		this.globalThicknessMultiplier = thickness;
-		return this;
-	}
-
-	/**
-	 * Sets the line thickness multiplier for this {@link Lines} object in pixels.
-	 * The effective thickness of a segment results from multiplication of its 
-	 * thickness with this value.
-	 * @param thickness of the lines, default is 1.
-	 * @return this for chaining
-	 */
-	public Lines setGlobalThicknessMultiplier(double thickness) {
-		return setGlobalThicknessMultiplier(() -> thickness); 
-	}
-
-	/**
-	 * @return the line thickness multiplier of this {@link Lines} object
-	 */
-	public float getGlobalThicknessMultiplier() {
-		return (float)globalThicknessMultiplier.getAsDouble();
-	}
 
-	/**
-	 * Sets the saturation multiplier for this Renderable.
-	 * The effective saturation of the colors results form multiplication of
-	 * the respective color's saturation by this value.
-	 * @param saturation change of saturation, default is 1
-	 * @return this for chaining
-	 */
-	public Lines setGlobalSaturationMultiplier(DoubleSupplier saturation) {
-		this.globalSaturationMultiplier = saturation;
-		return this;
-	}
-
-	/**
-	 * Sets the saturation multiplier for this Renderable.
-	 * The effective saturation of the colors results form multiplication of
-	 * the respective color's saturation by this value.
-	 * @param saturation change of saturation, default is 1
-	 * @return this for chaining
-	 */
-	public Lines setGlobalSaturationMultiplier(double saturation) {
-		return setGlobalSaturationMultiplier(() -> saturation);
-	}
-
-	/** @return the saturation multiplier of this renderable */
-	public float getGlobalSaturationMultiplier() {
-		return (float)globalSaturationMultiplier.getAsDouble();
-	}
-
-	/**
-	 * @return whether vertex rounding is enabled. This indicates if
-	 * the {@link LinesRenderer}'s shader will round vertex positions of 
-	 * the quad vertices (that a segment is expanded to) to integer values.
-	 * <p>
-	 * This has the effect of sharpening horizontal and vertical lines, but
-	 * can affect differently oriented lines to shrink in thickness or even vanish. 
-	 */
-	public boolean isVertexRoundingEnabled() {
-		return useVertexRounding;
-	}
-
-	/**
-	 * En/Disables vertex rounding for this Lines object. This indicates if
-	 * the {@link LinesRenderer}'s shader will round vertex positions of 
-	 * the quad vertices (that a segment is expanded to) to integer values.
-	 * <p>
-	 * This has the effect of sharpening horizontal and vertical lines, but
-	 * can affect differently oriented lines to shrink in thickness or even vanish. 
-	 * <p>
-	 * Also this only makes sense when the Lines object is of integer valued thickness.
-	 * @param useVertexRounding will enable if true
-	 * @return this for chaining
-	 */
-	public Lines setVertexRoundingEnabled(boolean useVertexRounding) {
-		this.useVertexRounding = useVertexRounding;
-		return this;
-	}
-
-	/**
-	 * @return the bounding rectangle that encloses all line segments in this {@link Lines} object.
-	 */
-	public Rectangle2D getBounds(){
-		if(numSegments() < 1)
-			return new Rectangle2D.Double();
-		
-		boolean useParallelStreaming = numSegments() > 1000;
-		double minX = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getX)
-				.min().getAsDouble();
-		double maxX = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getX)
-				.max().getAsDouble();
-		double minY = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getY)
-				.min().getAsDouble();
-		double maxY = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getY)
-				.max().getAsDouble();
-		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
-	}
-	
-	@Override
-	public boolean intersects(Rectangle2D rect) {
-		boolean useParallelStreaming = numSegments() > 1000;
-		return Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.filter(seg->rect.intersectsLine(seg.p0.getX(), seg.p0.getY(), seg.p1.getX(), seg.p1.getY()))
-				.findAny()
-				.isPresent();
-	}
-	
 	/**
 	 * Returns the segments that intersect the specified rectangle.
+	 * Unlike other collections, the returned objects are the stored segments, not copies.
 	 * @param rect rectangle to test intersection
 	 * @return list of intersecting segments
 	 */
+	@Override
 	public List<SegmentDetails> getIntersectingSegments(Rectangle2D rect) {
-		boolean useParallelStreaming = numSegments() > 1000;
-		return Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.filter(seg->rect.intersectsLine(seg.p0.getX(), seg.p0.getY(), seg.p1.getX(), seg.p1.getY()))
-				.collect(Collectors.toList());
-	}
-	
-	/**
-	 * Whether this Lines object has a stroke pattern other than 0xffff (completely solid).
-	 * @return true when stroke pattern != 0xffff
-	 */
-	public boolean hasStrokePattern() {
-		return this.strokePattern != (short)0xffff;
-	}
-	
-	/**
-	 * Returns this {@link Lines} object's stroke pattern
-	 * @return stroke pattern
-	 */
-	public short getStrokePattern() {
-		return this.strokePattern;
-	}
-	
-	/**
-	 * Sets this Lines object's stroke pattern.
-	 * The stroke pattern is a 16bit number that defines a sequence of solid and empty parts of a stroke.
-	 * <br>
-	 * <b>An error message is printed on System.err when more than the first 16bits are non zero</b> since
-	 * this method only takes an int for convenience to save you the cast to (short).
-	 * <p>
-	 * Here are some examples:
-	 * <ul>
-	 * <li>{@code 0xffff = 0b1111_1111_1111_1111 =} completely solid</li>
-	 * <li>{@code 0x0000 = 0b0000_0000_0000_0000 =} completely empty (invisible)</li>
-	 * <li>{@code 0xff00 = 0b1111_1111_0000_0000 =} first half solid, second half empty </li>
-	 * <li>{@code 0x0f0f = 0b0000_1111_0000_1111 =} first and third quarter empty, second and fourth solid</li>
-	 * <li>{@code 0xaaaa = 0b1010_1010_1010_1010 =} alternating every 16th of the stroke</li>
-	 * </ul>
-	 * @param strokePattern 16bit pattern
-	 * @return this for chaining
-	 */
-	public Lines setStrokePattern(int strokePattern) {
-		if(strokePattern >> 16 != 0){
-			System.err.println("specified stroke pattern should only be 16 bits but is " + Integer.toBinaryString(strokePattern));
+		int[] indices = getIntersectingSegmentIndices(rect);
+		ArrayList<SegmentDetails> intersecting = new ArrayList<>(indices.length);
+		for(int i : indices){
+			intersecting.add(segments.get(i));
 		}
-		this.strokePattern = (short)strokePattern;
-		return this;
-	}
-	
-	/**
-	 * Returns the stroke length in pixels, which is by default 16 pixels.
-	 * @return stroke length
-	 */
-	public float getStrokeLength() {
-		return strokeLength;
-	}
-	
-	/**
-	 * Sets the stroke length in pixels. The specified stroke pattern will repeat every
-	 * strokeLength pixels.
-	 * @param strokeLength length of the stroke
-	 * @return this for chaining
-	 */
-	public Lines setStrokeLength(double strokeLength) {
-		this.strokeLength = (float) Math.max(0, strokeLength);
-		return this;
-	}
-	
-	@Override
-	public boolean isHidden() {
-		return hidden;
-	}
-	
-	/**
-	 * Hides or unhides this Lines object, i.e. sets the {@link #isHidden()} field
-	 * value. When hidden, renderers will not draw it.
-	 * @param hide true when hiding
-	 * @return this for chaining
-	 */
-	public Lines hide(boolean hide) {
-		this.hidden = hide;
-		return this;
+		return intersecting;
 	}
 
+
 	/**
 	 * Specification of a line segment which comprises vertex locations, colors, picking color, and thicknesses.
 	 * @author hageldave
@@ -615,215 +407,4 @@ public class Lines implements Renderable {
 		
 	}
 
-	/**
-	 * disposes of the GL resources of this lines object,
-	 * i.e deletes the vertex array.
-	 */
-	@Override
-	@GLContextRequired
-	public void close(){
-		if(Objects.nonNull(va)){
-			va.close();
-			va = null;
-		}
-	}
-
-	/**
-	 * Allocates GL resources, i.e. creates the vertex array and fills
-	 * it according to the contents of this {@link Lines} object.
-	 * If the vertex array has already been created, nothing happens.
-	 */
-	@Override
-	@GLContextRequired
-	public void initGL(){
-		if(Objects.isNull(va)){
-			va = new VertexArray(5);
-			updateGL(false);
-		}
-	}
-
-	/**
-	 * Updates the vertex array to be in sync with this lines object.
-	 * This sets the {@link #isDirty()} state to false.
-	 * If {@link #initGL()} has not been called yet or this object has
-	 * already been closed, nothing happens
-	 */
-	@Override
-	@GLContextRequired
-	@Deprecated(/* use updateGL(usedouble,scaleX,scaleY) instead */)
-	public void updateGL(boolean useGLDoublePrecision){
-		updateGL(useGLDoublePrecision, 1, 1);
-	}
-	
-
-	/**
-	 * Updates the vertex array to be in sync with this lines object.
-	 * This sets the {@link #isDirty()} state to false.
-	 * If {@link #initGL()} has not been called yet or this object has
-	 * already been closed, nothing happens
-	 * @param useGLDoublePrecision true when rendering with double precision
-	 * @param scaleX scaling of the x coordinate of the current view transform
-	 * @param scaleY scaling of the y coordinate of the current view transform
-	 */
-	@GLContextRequired
-	public void updateGL(boolean useGLDoublePrecision, double scaleX, double scaleY){
-		if (useGLDoublePrecision) // SFM
-		{
-			updateGLDouble(scaleX, scaleY);	
-		}
-		else
-		{
-			updateGLFloat(scaleX, scaleY);
-		}
-	}
-
-	/**
-	 * Updates the vertex array to be in sync with this lines object.
-	 * This sets the {@link #isDirty()} state to false.
-	 * For calculating the path length of line segments in screen space
-	 * the scaling parameters of the respective view transformation need
-	 * to be specified in order to realize view invariant stroke patterns.
-	 * <p>
-	 * If {@link #initGL()} has not been called yet or this object has
-	 * already been closed, nothing happens.
-	 * @param scaleX scaling of the x coordinate of the current view transform
-	 * @param scaleY scaling of the y coordinate of the current view transform
-	 */
-	@GLContextRequired
-	public void updateGLFloat(double scaleX, double scaleY){
-		if(Objects.nonNull(va)){
-			float[] segmentCoordBuffer = new float[segments.size()*2*2];
-			int[] colorBuffer = new int[segments.size()*2];
-			int[] pickBuffer = new int[segments.size()*2];
-			float[] thicknessBuffer = new float[segments.size()*2];
-			float[] pathLengthBuffer = new float[segments.size()*2];
-	
-			double xprev = 0, yprev=0, pathLen = 0;
-			for(int i=0; i<segments.size(); i++){
-				SegmentDetails seg = segments.get(i);
-				double x0 = seg.p0.getX();
-				double y0 = seg.p0.getY();
-				double x1 = seg.p1.getX();
-				double y1 = seg.p1.getY();
-	
-				segmentCoordBuffer[i*4+0] = (float) x0;
-				segmentCoordBuffer[i*4+1] = (float) y0;
-				segmentCoordBuffer[i*4+2] = (float) x1;
-				segmentCoordBuffer[i*4+3] = (float) y1;
-	
-				colorBuffer[i*2+0] = seg.color0.getAsInt();
-				colorBuffer[i*2+1] = seg.color1.getAsInt();
-	
-				pickBuffer[i*2+0] = pickBuffer[i*2+1] = seg.pickColor;
-	
-				thicknessBuffer[i*2+0] = (float)seg.thickness0.getAsDouble();
-				thicknessBuffer[i*2+1] = (float)seg.thickness1.getAsDouble();
-	
-				if(xprev != x0 || yprev != y0){
-					pathLen = 0;
-				}
-				double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
-				pathLengthBuffer[i*2+0] = (float)pathLen;
-				pathLengthBuffer[i*2+1] = (float)(pathLen += segLen);
-				pathLen = pathLen % strokeLength;
-				xprev = x1; yprev = y1;
-			}
-			va.setBuffer(0, 2, segmentCoordBuffer);
-			va.setBuffer(1, 1, false, colorBuffer);
-			va.setBuffer(2, 1, false, pickBuffer);
-			va.setBuffer(3, 1, thicknessBuffer);
-			va.setBuffer(4, 1, pathLengthBuffer);
-			isDirty = false;
-			isGLDoublePrecision = false;
-		}
-	}
-
-	@GLContextRequired
-	public void updateGLDouble(double scaleX, double scaleY){
-		if(Objects.nonNull(va)){
-			double[] segmentCoordBuffer = new double[segments.size()*2*2];  // SFM key line
-			int[] colorBuffer = new int[segments.size()*2];
-			int[] pickBuffer = new int[segments.size()*2];
-			float[] thicknessBuffer = new float[segments.size()*2];
-			float[] pathLengthBuffer = new float[segments.size()*2];
-			
-			double xprev = 0, yprev=0, pathLen = 0;
-			for(int i=0; i<segments.size(); i++){
-				SegmentDetails seg = segments.get(i);
-				double x0 = seg.p0.getX();
-				double y0 = seg.p0.getY();
-				double x1 = seg.p1.getX();
-				double y1 = seg.p1.getY();
-				
-				segmentCoordBuffer[i*4+0] = x0;
-				segmentCoordBuffer[i*4+1] = y0;
-				segmentCoordBuffer[i*4+2] = x1;
-				segmentCoordBuffer[i*4+3] = y1;
-
-				colorBuffer[i*2+0] = seg.color0.getAsInt();
-				colorBuffer[i*2+1] = seg.color1.getAsInt();
-
-				pickBuffer[i*2+0] = pickBuffer[i*2+1] = seg.pickColor;
-				
-				thicknessBuffer[i*2+0] = (float)seg.thickness0.getAsDouble();
-				thicknessBuffer[i*2+1] = (float)seg.thickness1.getAsDouble();
-				
-				if(xprev != x0 || yprev != y0){
-					pathLen = 0;
-				}
-				double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
-				pathLengthBuffer[i*2+0] = (float)pathLen;
-				pathLengthBuffer[i*2+1] = (float)(pathLen += segLen);
-				pathLen = pathLen % strokeLength;
-				xprev = x1; yprev = y1;
-			}
-			va.setBuffer(0, 2, segmentCoordBuffer);
-			va.setBuffer(1, 1, false, colorBuffer);
-			va.setBuffer(2, 1, false, pickBuffer);
-			va.setBuffer(3, 1, thicknessBuffer);
-			va.setBuffer(4, 1, pathLengthBuffer);
-			isDirty = false;
-			isGLDoublePrecision = true;
-		}
-	}
-
-
-	/**
-	 * Returns the vertex array of this lines object.
-	 * The vertex array's first attribute contains the 2D point pairs of
-	 * the line segments, the second attribute contains integer packed RGB
-	 * value pairs for the line segments.
-	 * @return the vertex array associated with this lines object or null if
-	 * {@link #initGL()} was not yet called or this object was already closed.
-	 */
-	public VertexArray getVertexArray() {
-		return va;
-	}
-
-
-	/**
-	 * Binds this object's vertex array and enables the corresponding attributes 
-	 * (first and second attribute).
-	 * @throws NullPointerException unless {@link #initGL()} was called (and this has not yet been closed)
-	 */
-	@GLContextRequired
-	public void bindVertexArray() {
-		va.bindAndEnableAttributes(0,1,2,3,4);
-	}
-
-
-	/**
-	 * Releases this objects vertex array and disables the corresponding attributes
-	 * @throws NullPointerException unless {@link #initGL()} was called (and this has not yet been closed)
-	 */
-	@GLContextRequired
-	public void releaseVertexArray() {
-		va.releaseAndDisableAttributes(0,1,2,3,4);
-	}
-
-	@Override
-	public boolean isGLDoublePrecision() {
-		return isGLDoublePrecision;
-	}
-
 }
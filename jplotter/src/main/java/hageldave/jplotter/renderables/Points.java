@@ -6,6 +6,8 @@ import hageldave.jplotter.misc.DefaultGlyph;
 import hageldave.jplotter.misc.Glyph;
 import hageldave.jplotter.renderers.PointsRenderer;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.DirtyRange;
+import hageldave.jplotter.util.PointGridIndex;
 import hageldave.jplotter.util.Utils;
 import org.lwjgl.opengl.GL33;
 
@@ -16,8 +18,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
 import java.util.function.IntSupplier;
-import java.util.stream.Collectors;
 
 /**
  * The Points class is a collection of 2D points that are to be represented
@@ -37,6 +39,11 @@ import java.util.stream.Collectors;
  * point instances of this collection will be scaled at rendering ({@link #setGlobalScaling(double)}).
  * Also a global alpha multiplier which scales every points color alpha value, which can be used to introduce transparency
  * for all points of this collection, which may come in handy to visualize density when plotting a huge amount of points.
+ * <p>
+ * For large collections a spatial index ({@link PointGridIndex}) is maintained, which allows renderers and queries like
+ * {@link #getIntersectingPoints(Rectangle2D)} to only visit the points in the region of interest instead of all points.
+ * The index is built lazily and rebuilt after {@link #setDirty()}, appended points are covered by a linear scan until
+ * the next rebuild.
  * 
  * @author hageldave
  */
@@ -45,6 +52,8 @@ public class Points implements Renderable {
 	public Glyph glyph;
 	protected VertexArray va;
 	protected boolean isDirty;
+	/** incremented with every modification, see {@link #getModificationCount()} */
+	protected long modificationCount = 0;
 	protected DoubleSupplier globalScaling = ()->1.0;
 	protected DoubleSupplier globalAlphaMultiplier = ()->1.0;
 	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
@@ -52,6 +61,12 @@ public class Points implements Renderable {
 	protected boolean hidden=false;
 	protected boolean useVertexRounding=false;
 	protected boolean isGLDoublePrecision = false;
+	protected PointGridIndex spatialIndex;
+	/** points that were modified since the last GL update */
+	protected final DirtyRange dirtyRange = new DirtyRange();
+
+	/** number of points from which on a spatial index is used for rectangle queries */
+	public static final int SPATIAL_INDEX_THRESHOLD = 1024;
 
 	
 	/**
@@ -78,6 +93,7 @@ public class Points implements Renderable {
 		if(Objects.nonNull(va)){
 			va.close();
 			va = null;
+			dirtyRange.markAll();
 		}
 	}
 
@@ -111,27 +127,41 @@ public class Points implements Renderable {
 	/**
 	 * Updates GL resources, i.e. fills the vertex array (if non null) according to
 	 * the state of this points object.
+	 * Only the points marked by {@link #setDirty(int, int)} (or appended) since the last update
+	 * are uploaded when possible.
 	 * This will set the {@link #isDirty()} state to false.
 	 */
 	@GLContextRequired
 	public void updateGLFloat() {
 		if(Objects.nonNull(va)){
-			final int numPoints = points.size();
-			float[] position = new float[numPoints*2];
-			float[] rotAndScale = new float[numPoints*2];
-			int[] colors = new int[numPoints*2];
-			for(int i=0; i<numPoints; i++){
-				PointDetails pd = points.get(i);
-				position[i*2+0] = (float)pd.location.getX();
-				position[i*2+1] = (float)pd.location.getY();
-				rotAndScale[i*2+0] = (float) pd.rot.getAsDouble();
-				rotAndScale[i*2+1] = (float) pd.scale.getAsDouble();
-				colors[i*2+0] = pd.color.getAsInt();
-				colors[i*2+1] = pd.pickColor;
+			final int numPoints = numPoints();
+			// upload only the modified points when possible
+			boolean partial = !isGLDoublePrecision && dirtyRange.isPartial(va.getNumValues(1)/2);
+			int from = partial ? dirtyRange.getFrom() : 0;
+			int to = partial ? Math.min(dirtyRange.getTo(), numPoints) : numPoints;
+			int n = Math.max(0, to-from);
+			float[] position = new float[n*2];
+			float[] rotAndScale = new float[n*2];
+			int[] colors = new int[n*2];
+			for(int k=0; k<n; k++){
+				int i = from+k;
+				position[k*2+0] = (float)getPointX(i);
+				position[k*2+1] = (float)getPointY(i);
+				rotAndScale[k*2+0] = (float)getPointRotation(i);
+				rotAndScale[k*2+1] = (float)getPointScaling(i);
+				colors[k*2+0] = getPointColor(i);
+				colors[k*2+1] = getPointPickColor(i);
+			}
+			if(partial){
+				va.updateBuffer(1, from*2, position);
+				va.updateBuffer(2, from*2, rotAndScale);
+				va.updateBuffer(3, from*2, colors);
+			} else {
+				va.setBuffer(1, 2, position);
+				va.setBuffer(2, 2, rotAndScale);
+				va.setBuffer(3, 2, false, colors);
 			}
-			va.setBuffer(1, 2, position);
-			va.setBuffer(2, 2, rotAndScale);
-			va.setBuffer(3, 2, false, colors);
+			dirtyRange.clear();
 			isDirty = false;
 			isGLDoublePrecision = false;
 		}
@@ -140,27 +170,41 @@ public class Points implements Renderable {
 	/**
 	 * Updates GL resources, i.e. fills the vertex array (if non null) according to
 	 * the state of this points object.
+	 * Only the points marked by {@link #setDirty(int, int)} (or appended) since the last update
+	 * are uploaded when possible.
 	 * This will set the {@link #isDirty()} state to false.
 	 */
 	@GLContextRequired
 	public void updateGLDouble() {
 		if(Objects.nonNull(va)){
-			final int numPoints = points.size();
-			double[] position = new double[numPoints*2];
-			float[] rotAndScale = new float[numPoints*2];
-			int[] colors = new int[numPoints*2];
-			for(int i=0; i<numPoints; i++){
-				PointDetails pd = points.get(i);
-				position[i*2+0] = pd.location.getX();
-				position[i*2+1] = pd.location.getY();
-				rotAndScale[i*2+0] = (float) pd.rot.getAsDouble();
-				rotAndScale[i*2+1] = (float) pd.scale.getAsDouble();
-				colors[i*2+0] = pd.color.getAsInt();
-				colors[i*2+1] = pd.pickColor;
+			final int numPoints = numPoints();
+			// upload only the modified points when possible
+			boolean partial = isGLDoublePrecision && dirtyRange.isPartial(va.getNumValues(1)/2);
+			int from = partial ? dirtyRange.getFrom() : 0;
+			int to = partial ? Math.min(dirtyRange.getTo(), numPoints) : numPoints;
+			int n = Math.max(0, to-from);
+			double[] position = new double[n*2];
+			float[] rotAndScale = new float[n*2];
+			int[] colors = new int[n*2];
+			for(int k=0; k<n; k++){
+				int i = from+k;
+				position[k*2+0] = getPointX(i);
+				position[k*2+1] = getPointY(i);
+				rotAndScale[k*2+0] = (float)getPointRotation(i);
+				rotAndScale[k*2+1] = (float)getPointScaling(i);
+				colors[k*2+0] = getPointColor(i);
+				colors[k*2+1] = getPointPickColor(i);
 			}
-			va.setBuffer(1, 2, position);
-			va.setBuffer(2, 2, rotAndScale);
-			va.setBuffer(3, 2, false, colors);
+			if(partial){
+				va.updateBuffer(1, from*2, position);
+				va.updateBuffer(2, from*2, rotAndScale);
+				va.updateBuffer(3, from*2, colors);
+			} else {
+				va.setBuffer(1, 2, position);
+				va.setBuffer(2, 2, rotAndScale);
+				va.setBuffer(3, 2, false, colors);
+			}
+			dirtyRange.clear();
 			isDirty = false;
 			isGLDoublePrecision = true;
 		}
@@ -171,14 +215,54 @@ public class Points implements Renderable {
 		return isDirty;
 	}
 
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
 	/**
 	 * Sets the {@link #isDirty()} state to true.
+	 * This also invalidates the spatial index, so that it will be rebuilt on the next query.
+	 * All points are uploaded on the next GL update.
 	 * @return this for chaining
 	 */
 	public Points setDirty() {
 		this.isDirty = true;
+		this.modificationCount++;
+		this.spatialIndex = null;
+		this.dirtyRange.markAll();
+		return this;
+	}
+
+	/**
+	 * Sets the {@link #isDirty()} state to true after the points from (inclusive) to (exclusive)
+	 * were modified, e.g. after changing the color of a single point.
+	 * Unlike {@link #setDirty()}, only the modified points are uploaded on the next GL update.
+	 * Note that attributes of other points are not re-evaluated then, i.e. their suppliers
+	 * (see {@link PointDetails#setColor(IntSupplier)}) are not called.
+	 * The spatial index is kept, use {@link #setDirty()} when the locations of points were changed.
+	 * @param from index of the first modified point
+	 * @param to index after the last modified point
+	 * @return this for chaining
+	 */
+	public Points setDirty(int from, int to) {
+		this.isDirty = true;
+		this.modificationCount++;
+		this.dirtyRange.mark(from, to);
 		return this;
 	}
+
+	/**
+	 * Invalidates the spatial index after the locations of the points from (inclusive) to (exclusive)
+	 * were changed, so that it will be rebuilt on the next query.
+	 * This is called in addition to {@link #setDirty(int, int)} by setters that change locations,
+	 * e.g. {@link ColumnarPoints#setLocation(int, double, double)}.
+	 * @param from index of the first moved point
+	 * @param to index after the last moved point
+	 */
+	protected void locationsChanged(int from, int to) {
+		this.spatialIndex = null;
+	}
 	
 	/**
 	 * Adds a point to this {@link Points} object.
@@ -193,7 +277,10 @@ public class Points implements Renderable {
 	public PointDetails addPoint(Point2D p){
 		PointDetails pd = new PointDetails(p);
 		this.points.add(pd);
-		setDirty();
+		// spatial index stays valid, appended points are scanned linearly until the next rebuild
+		this.isDirty = true;
+		this.modificationCount++;
+		this.dirtyRange.mark(points.size()-1, points.size());
 		return pd;
 	}
 	
@@ -229,6 +316,54 @@ public class Points implements Renderable {
 		return points.size();
 	}
 
+	/**
+	 * @param i index of the point
+	 * @return x coordinate of the i-th point
+	 */
+	public double getPointX(int i){
+		return points.get(i).location.getX();
+	}
+
+	/**
+	 * @param i index of the point
+	 * @return y coordinate of the i-th point
+	 */
+	public double getPointY(int i){
+		return points.get(i).location.getY();
+	}
+
+	/**
+	 * @param i index of the point
+	 * @return glyph rotation of the i-th point in radian
+	 */
+	public double getPointRotation(int i){
+		return points.get(i).rot.getAsDouble();
+	}
+
+	/**
+	 * @param i index of the point
+	 * @return glyph scaling of the i-th point
+	 */
+	public double getPointScaling(int i){
+		return points.get(i).scale.getAsDouble();
+	}
+
+	/**
+	 * @param i index of the point
+	 * @return integer packed ARGB color of the i-th point
+	 */
+	public int getPointColor(int i){
+		return points.get(i).color.getAsInt();
+	}
+
+	/**
+	 * @param i index of the point
+	 * @return picking color of the i-th point
+	 */
+	public int getPointPickColor(int i){
+		return points.get(i).pickColor;
+	}
+
 	/**
 	 * Sets the global scaling parameter of this {@link Points} object.
 	 * The value will be multiplied with each point instance's scaling parameter when rendering.
@@ -344,13 +479,60 @@ public class Points implements Renderable {
 		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
 	}
 	
+	/**
+	 * Returns the spatial index of this {@link Points} object, (re)building it when necessary.
+	 * The index is rebuilt when it was invalidated by {@link #setDirty()} (or {@link #locationsChanged(int, int)}) or when the number of points
+	 * that were appended since the last build exceeds a quarter of the indexed points.
+	 * @return the spatial index or null when there are less than {@link #SPATIAL_INDEX_THRESHOLD} points
+	 */
+	protected synchronized PointGridIndex getSpatialIndex() {
+		int n = numPoints();
+		if(n < SPATIAL_INDEX_THRESHOLD)
+			return null;
+		PointGridIndex index = this.spatialIndex;
+		if(Objects.isNull(index) || index.size() > n || (n-index.size()) > index.size()/4){
+			index = new PointGridIndex(n, this::getPointX, this::getPointY);
+			this.spatialIndex = index;
+		}
+		return index;
+	}
+	
+	/**
+	 * Calls the specified action with the index of every point that is contained in the specified rectangle.
+	 * The indices are visited in ascending order, i.e. in drawing order.
+	 * Uses the spatial index of this object, so that only points in the vicinity of the rectangle are tested.
+	 * @param rect rectangle to test containment
+	 * @param action to be called with the index of each contained point
+	 */
+	public void forEachPointInRect(Rectangle2D rect, IntConsumer action) {
+		int n = numPoints();
+		int start = 0;
+		PointGridIndex index = getSpatialIndex();
+		if(Objects.nonNull(index)){
+			index.forEachInRect(rect, n, this::getPointX, this::getPointY, action);
+			start = index.size();
+		}
+		for(int i=start; i<n; i++){
+			if(rect.contains(getPointX(i), getPointY(i)))
+				action.accept(i);
+		}
+	}
+	
 	@Override
 	public boolean intersects(Rectangle2D rect) {
-		boolean useParallelStreaming = numPoints() > 10000;
-		return Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
-				.filter(p->rect.contains(p.location))
-				.findAny()
-				.isPresent();
+		int n = numPoints();
+		int start = 0;
+		PointGridIndex index = getSpatialIndex();
+		if(Objects.nonNull(index)){
+			if(index.anyInRect(rect, n, this::getPointX, this::getPointY))
+				return true;
+			start = index.size();
+		}
+		for(int i=start; i<n; i++){
+			if(rect.contains(getPointX(i), getPointY(i)))
+				return true;
+		}
+		return false;
 	}
 	
 	/**
@@ -359,10 +541,9 @@ public class Points implements Renderable {
 	 * @return list of contained points
 	 */
 	public List<PointDetails> getIntersectingPoints(Rectangle2D rect) {
-		boolean useParallelStreaming = numPoints() > 10000;
-		return Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
-				.filter(p->rect.contains(p.location))
-				.collect(Collectors.toList());
+		ArrayList<PointDetails> intersecting = new ArrayList<>();
+		forEachPointInRect(rect, i->intersecting.add(points.get(i)));
+		return intersecting;
 	}
 	
 	@Override
@@ -605,6 +786,7 @@ public class Points implements Renderable {
 	 */
 	public Points setGlyph(Glyph glyph) {
 		this.glyph = glyph;
+		this.modificationCount++;
 		return this;
 	}
 
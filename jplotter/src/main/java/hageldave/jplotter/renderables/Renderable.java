@@ -34,6 +34,18 @@ public interface Renderable extends AutoCloseable {
 	 */
 	public boolean isDirty();
 	
+	/**
+	 * Returns the number of modifications of this Renderable, which is incremented whenever 
+	 * its state changes (e.g. along with {@link #isDirty()} becoming true).
+	 * In contrast to the dirty state it is not reset by {@link #updateGL(boolean)}, which allows
+	 * to detect changes without GL, e.g. for caching fallback rendering results 
+	 * (see {@link hageldave.jplotter.util.FallbackLayerCache}).
+	 * @return modification count, or -1 when modifications are not tracked (default)
+	 */
+	public default long getModificationCount() {
+		return -1;
+	}
+	
 	/**
 	 * updates GL resources to match this objects state. 
 	 * If requested precision differs from currently used, GL resources will
@@ -0,0 +1,469 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderers.GenericLinesRenderer;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.Utils;
+
+import java.util.Objects;
+
+/**
+ * The StreamingLines class is a collection of line segments for live data that forms a single line strip
+ * through a sliding window of the most recent samples.
+ * The samples are kept in a ring buffer of fixed capacity, so appending a sample
+ * ({@link #appendSample(double, double)}) takes constant time and does not allocate memory.
+ * When the buffer is full, the oldest sample is dropped. Additionally, samples can expire
+ * based on their x coordinate ({@link #setXWindow(double)}), e.g. to show the last 10 seconds of a signal.
+ * <p>
+ * The vertex array holds two copies of the ring of segments, so that the live segments always form a
+ * contiguous range that can be drawn with a single draw call.
+ * Updating the GL state only uploads the segments appended since the last update
+ * (see {@link VertexArray#updateBuffer(int, int, float...)}), the whole ring is only re-uploaded
+ * after the attributes (color, thickness, picking color) changed, or when the
+ * scaling of the view changed for a line with stroke pattern.
+ * <p>
+ * Index based access (e.g. {@link #getSegmentX0(int)}) refers to the live segments from oldest to newest,
+ * i.e. segment i connects the i-th and (i+1)-th oldest sample.
+ * The line has a single color and thickness.
+ * Like {@link Lines} objects it is not safe for concurrent modification, samples from an ingestion
+ * thread should be appended through an {@link UpdateQueue}.
+ * A StreamingLines object can be rendered by a {@link GenericLinesRenderer} like the other line collections.
+ *
+ * @author hageldave
+ */
+public class StreamingLines extends GenericLines<StreamingLines> {
+
+	protected final int capacity;
+	protected final double[] xs;
+	protected final double[] ys;
+	/** ring index of the oldest sample */
+	protected int head = 0;
+	protected int count = 0;
+	protected double xWindow = Double.POSITIVE_INFINITY;
+	protected int color = ColumnarLines.DEFAULT_COLOR;
+	protected float thickness = 1f;
+	protected int pickColor = 0;
+	/** serial number of the oldest segment, segments are numbered consecutively in the order of appending */
+	protected long firstSegmentSerial = 0;
+
+	/** true when the whole ring has to be uploaded on the next GL update */
+	protected boolean requiresFullUpload = true;
+	/** serial number after the last uploaded segment */
+	protected long uploadedSegmentsEnd = 0;
+	protected long uploadedFirstSegment = 0;
+	protected int uploadedNumSegments = 0;
+	/** path length (for the stroke pattern) at the end of the last uploaded segment */
+	protected double uploadedPathLength = 0;
+	protected double uploadedScaleX = 1, uploadedScaleY = 1;
+
+	/**
+	 * Creates a new StreamingLines object.
+	 * @param capacity maximum number of samples, when exceeded the oldest samples are dropped
+	 * @throws IllegalArgumentException when capacity is less than 2
+	 */
+	public StreamingLines(int capacity) {
+		if(capacity < 2){
+			throw new IllegalArgumentException("Capacity has to be at least 2, but got " + capacity);
+		}
+		this.capacity = capacity;
+		this.xs = new double[capacity];
+		this.ys = new double[capacity];
+	}
+
+	/**
+	 * @return maximum number of samples
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of segment slots of the ring, i.e. the maximum number of segments
+	 */
+	protected int numSegmentSlots() {
+		return capacity-1;
+	}
+
+	/**
+	 * Sets the x-window of the samples.
+	 * When a sample is appended, all samples with an x coordinate smaller than the new sample's x
+	 * coordinate minus the window are dropped.
+	 * This assumes that the samples are appended in order of ascending x coordinate (e.g. time stamps).
+	 * Default is infinity, i.e. samples are only dropped when the capacity is exceeded.
+	 * @param xWindow extent of the window in x direction
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the window is NaN or negative
+	 */
+	public StreamingLines setXWindow(double xWindow) {
+		if(!(xWindow >= 0)){
+			throw new IllegalArgumentException("X-window has to be non negative, but got " + xWindow);
+		}
+		this.xWindow = xWindow;
+		return this;
+	}
+
+	/**
+	 * @return extent of the window in x direction, see {@link #setXWindow(double)}
+	 */
+	public double getXWindow() {
+		return xWindow;
+	}
+
+	/**
+	 * Appends a sample to the end of the strip, dropping the oldest sample when the capacity is
+	 * exceeded and the samples that left the x-window (see {@link #setXWindow(double)}).
+	 * This takes constant (amortized) time and does not allocate memory.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param x x coordinate of the sample
+	 * @param y y coordinate of the sample
+	 * @return this for chaining
+	 */
+	public StreamingLines appendSample(double x, double y) {
+		if(count == capacity){
+			dropOldestSample();
+		}
+		int i = (head+count) % capacity;
+		xs[i] = x;
+		ys[i] = y;
+		count++;
+		double minX = x-xWindow;
+		while(count > 1 && xs[head] < minX){
+			dropOldestSample();
+		}
+		setDirty();
+		return this;
+	}
+
+	/**
+	 * Appends the specified samples to the end of the strip, see {@link #appendSample(double, double)}.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates of the samples
+	 * @param ys y coordinates of the samples
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public StreamingLines appendSamples(double[] xs, double[] ys) {
+		if(xs.length != ys.length){
+			throw new IllegalArgumentException("Provided arrays have different lengths.");
+		}
+		for(int i=0; i<xs.length; i++){
+			appendSample(xs[i], ys[i]);
+		}
+		return this;
+	}
+
+	protected void dropOldestSample() {
+		if(count > 1){
+			// the segment starting at the oldest sample disappears
+			firstSegmentSerial++;
+		}
+		head = (head+1) % capacity;
+		count--;
+	}
+
+	/**
+	 * @return number of samples in the window
+	 */
+	public int numSamples() {
+		return count;
+	}
+
+	/**
+	 * @param i index of the sample, 0 is the oldest
+	 * @return x coordinate of the i-th oldest sample
+	 */
+	public double getSampleX(int i) {
+		if(i < 0 || i >= count)
+			throw new ArrayIndexOutOfBoundsException(i);
+		return xs[(head+i) % capacity];
+	}
+
+	/**
+	 * @param i index of the sample, 0 is the oldest
+	 * @return y coordinate of the i-th oldest sample
+	 */
+	public double getSampleY(int i) {
+		if(i < 0 || i >= count)
+			throw new ArrayIndexOutOfBoundsException(i);
+		return ys[(head+i) % capacity];
+	}
+
+	/**
+	 * Sets the color of the line.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param color integer packed ARGB color
+	 * @return this for chaining
+	 */
+	public StreamingLines setColor(int color) {
+		this.color = color;
+		this.requiresFullUpload = true;
+		setDirty();
+		return this;
+	}
+
+	/**
+	 * @return integer packed ARGB color of the line
+	 */
+	public int getColor() {
+		return color;
+	}
+
+	/**
+	 * Sets the thickness of the line.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param thickness of the line
+	 * @return this for chaining
+	 */
+	public StreamingLines setThickness(double thickness) {
+		this.thickness = (float) thickness;
+		this.requiresFullUpload = true;
+		setDirty();
+		return this;
+	}
+
+	/**
+	 * @return thickness of the line
+	 */
+	public float getThickness() {
+		return thickness;
+	}
+
+	/**
+	 * Sets the picking color of the line.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param pickID picking color of the line (see {@link GenericLines} for details)
+	 * @return this for chaining
+	 */
+	public StreamingLines setPickColor(int pickID) {
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		this.pickColor = pickID;
+		this.requiresFullUpload = true;
+		setDirty();
+		return this;
+	}
+
+	/**
+	 * @return picking color of the line
+	 */
+	public int getPickColor() {
+		return pickColor;
+	}
+
+	@Override
+	public StreamingLines setStrokeLength(double strokeLength) {
+		super.setStrokeLength(strokeLength);
+		this.requiresFullUpload = true;
+		return this;
+	}
+
+	/**
+	 * Removes all samples.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @return this for chaining
+	 */
+	public StreamingLines removeAllSegments() {
+		// keep serial numbers increasing so that new segments are recognized as not uploaded
+		firstSegmentSerial += numSegments();
+		head = 0;
+		count = 0;
+		setDirty();
+		return this;
+	}
+
+	@Override
+	public int numSegments() {
+		return Math.max(0, count-1);
+	}
+
+	protected void checkIndex(int i) {
+		if(i < 0 || i >= count-1)
+			throw new ArrayIndexOutOfBoundsException(i);
+	}
+
+	@Override
+	public double getSegmentX0(int i) {
+		checkIndex(i);
+		return xs[(head+i) % capacity];
+	}
+
+	@Override
+	public double getSegmentY0(int i) {
+		checkIndex(i);
+		return ys[(head+i) % capacity];
+	}
+
+	@Override
+	public double getSegmentX1(int i) {
+		checkIndex(i);
+		return xs[(head+i+1) % capacity];
+	}
+
+	@Override
+	public double getSegmentY1(int i) {
+		checkIndex(i);
+		return ys[(head+i+1) % capacity];
+	}
+
+	@Override
+	public int getSegmentColor0(int i) {
+		checkIndex(i);
+		return color;
+	}
+
+	@Override
+	public int getSegmentColor1(int i) {
+		checkIndex(i);
+		return color;
+	}
+
+	@Override
+	public double getSegmentThickness0(int i) {
+		checkIndex(i);
+		return thickness;
+	}
+
+	@Override
+	public double getSegmentThickness1(int i) {
+		checkIndex(i);
+		return thickness;
+	}
+
+	@Override
+	public int getSegmentPickColor(int i) {
+		checkIndex(i);
+		return pickColor;
+	}
+
+	@Override
+	@GLContextRequired
+	public void close() {
+		super.close();
+		requiresFullUpload = true;
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLFloat(double scaleX, double scaleY) {
+		updateGLRing(false, scaleX, scaleY);
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLDouble(double scaleX, double scaleY) {
+		updateGLRing(true, scaleX, scaleY);
+	}
+
+	/**
+	 * Uploads the segments that were appended since the last update, or the whole ring when necessary.
+	 * If {@link #initGL()} has not been called yet or this object has already been closed, nothing happens.
+	 * @param useGLDoublePrecision true when rendering with double precision
+	 * @param scaleX scaling of the x coordinate of the current view transform
+	 * @param scaleY scaling of the y coordinate of the current view transform
+	 */
+	@GLContextRequired
+	protected void updateGLRing(boolean useGLDoublePrecision, double scaleX, double scaleY) {
+		if(Objects.isNull(va)){
+			return;
+		}
+		int slots = numSegmentSlots();
+		long end = firstSegmentSerial + numSegments();
+		boolean fullUpload = requiresFullUpload
+				|| useGLDoublePrecision != isGLDoublePrecision
+				|| va.getNumValues(1) != slots*4
+				|| (hasStrokePattern() && (scaleX != uploadedScaleX || scaleY != uploadedScaleY));
+		long from;
+		if(fullUpload){
+			// allocate both copies of the ring, every segment has 2 vertices
+			int numVertices = slots*4;
+			if(useGLDoublePrecision)
+				va.setBuffer(0, 2, new double[numVertices*2]);
+			else
+				va.setBuffer(0, 2, new float[numVertices*2]);
+			va.setBuffer(1, 1, false, new int[numVertices]);
+			va.setBuffer(2, 1, false, new int[numVertices]);
+			va.setBuffer(3, 1, new float[numVertices]);
+			va.setBuffer(4, 1, new float[numVertices]);
+			from = firstSegmentSerial;
+			uploadedPathLength = 0;
+		} else {
+			from = Math.max(uploadedSegmentsEnd, firstSegmentSerial);
+		}
+		while(from < end){
+			// upload up to the end of the ring, then continue at its start
+			int slot = (int)(from % slots);
+			int n = (int)Math.min(end-from, slots-slot);
+			uploadSegments(from, slot, n, useGLDoublePrecision, scaleX, scaleY);
+			from += n;
+		}
+		uploadedSegmentsEnd = end;
+		uploadedFirstSegment = firstSegmentSerial;
+		uploadedNumSegments = numSegments();
+		uploadedScaleX = scaleX;
+		uploadedScaleY = scaleY;
+		requiresFullUpload = false;
+		isGLDoublePrecision = useGLDoublePrecision;
+		isDirty = false;
+	}
+
+	/**
+	 * Uploads n consecutive segments into the slots starting at the specified slot of both copies of the ring.
+	 */
+	@GLContextRequired
+	protected void uploadSegments(long serial, int slot, int n, boolean useGLDoublePrecision, double scaleX, double scaleY) {
+		int first = (int)(serial - firstSegmentSerial);
+		double[] coordsD = useGLDoublePrecision ? new double[n*4] : null;
+		float[] coordsF = useGLDoublePrecision ? null : new float[n*4];
+		int[] colors = new int[n*2];
+		int[] picks = new int[n*2];
+		float[] thicknesses = new float[n*2];
+		float[] pathLengths = new float[n*2];
+		double pathLen = uploadedPathLength;
+		for(int k=0; k<n; k++){
+			int i0 = (head+first+k) % capacity;
+			int i1 = (i0+1) % capacity;
+			if(useGLDoublePrecision){
+				coordsD[k*4+0] = xs[i0];
+				coordsD[k*4+1] = ys[i0];
+				coordsD[k*4+2] = xs[i1];
+				coordsD[k*4+3] = ys[i1];
+			} else {
+				coordsF[k*4+0] = (float)xs[i0];
+				coordsF[k*4+1] = (float)ys[i0];
+				coordsF[k*4+2] = (float)xs[i1];
+				coordsF[k*4+3] = (float)ys[i1];
+			}
+			colors[k*2+0] = colors[k*2+1] = color;
+			picks[k*2+0] = picks[k*2+1] = pickColor;
+			thicknesses[k*2+0] = thicknesses[k*2+1] = thickness;
+			double segLen = Utils.hypot((xs[i1]-xs[i0])*scaleX, (ys[i1]-ys[i0])*scaleY);
+			pathLengths[k*2+0] = (float)pathLen;
+			pathLengths[k*2+1] = (float)(pathLen += segLen);
+			pathLen = pathLen % strokeLength;
+		}
+		uploadedPathLength = pathLen;
+		int slots = numSegmentSlots();
+		for(int copy : new int[]{slot, slot+slots}){
+			if(useGLDoublePrecision)
+				va.updateBuffer(0, copy*4, coordsD);
+			else
+				va.updateBuffer(0, copy*4, coordsF);
+			va.updateBuffer(1, copy*2, colors);
+			va.updateBuffer(2, copy*2, picks);
+			va.updateBuffer(3, copy*2, thicknesses);
+			va.updateBuffer(4, copy*2, pathLengths);
+		}
+	}
+
+	@Override
+	public int numSegmentsInVertexArray() {
+		return Objects.isNull(va) ? 0 : uploadedNumSegments;
+	}
+
+	@Override
+	public int firstSegmentInVertexArray() {
+		return (int)(uploadedFirstSegment % numSegmentSlots());
+	}
+
+}
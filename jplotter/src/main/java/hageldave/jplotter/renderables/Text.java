@@ -44,6 +44,8 @@ public class Text implements Renderable {
 	protected float angle=0;
 	protected String txtStr;
 	protected boolean isDirty=true;
+	/** incremented with every modification, see {@link #getModificationCount()} */
+	protected long modificationCount = 0;
 	protected boolean hidden=false;
 	
 	/**
@@ -93,6 +95,7 @@ public class Text implements Renderable {
 	 */
 	public Text setColor(Color color) {
 		this.color = color;
+		this.modificationCount++;
 		return this;
 	}
 
@@ -120,6 +123,7 @@ public class Text implements Renderable {
 	 */
 	public void setBackground(Color background) {
 		this.background = background;
+		this.modificationCount++;
 	}
 
 	/**
@@ -129,6 +133,7 @@ public class Text implements Renderable {
 	 */
 	public void setBackground(int argb) {
 		this.background = new Color(argb, true);
+		this.modificationCount++;
 	}
 	
 	public Color getBackground() {
@@ -175,6 +180,7 @@ public class Text implements Renderable {
 	 */
 	public Text setPickColor(int pickColor) {
 		this.pickColor = pickColor;
+		this.modificationCount++;
 		// can only use opaque colors cause transparent colors will not work on overlaps
 		if(pickColor != 0)
 			this.pickColor = pickColor | 0xff000000;
@@ -257,6 +263,7 @@ public class Text implements Renderable {
 	 */
 	public Text setOrigin(Point2D origin) {
 		this.origin = origin;
+		this.modificationCount++;
 		return this;
 	}
 
@@ -285,6 +292,7 @@ public class Text implements Renderable {
 	 */
 	public Text setAngle(double angle) {
 		this.angle = (float)angle;
+		this.modificationCount++;
 		return this;
 	}
 	
@@ -354,6 +362,11 @@ public class Text implements Renderable {
 	public boolean isDirty() {
 		return isDirty;
 	}
+
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
 	
 	/**
 	 * Sets the {@link #isDirty()} state of this renderable to true.
@@ -362,6 +375,7 @@ public class Text implements Renderable {
 	 */
 	public Text setDirty() {
 		this.isDirty = true;
+		this.modificationCount++;
 		return this;
 	}
 	
@@ -0,0 +1,500 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.renderers.CoordSysRenderer;
+import hageldave.jplotter.renderers.GenericLinesRenderer;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The TimeSeriesLines class is a collection of line segments that forms a single line strip through
+ * samples with ascending x coordinates (e.g. a time series with millions of samples).
+ * Instead of all segments, it renders a level of detail for the current view:
+ * every pixel column of the viewport gets at most 4 vertices, the first and last sample
+ * as well as the minimum and maximum of the samples that fall into the column.
+ * This draws the same pixels as the full strip while the cost of a frame (vertex upload,
+ * fallback, SVG and PDF rendering) is bounded by the width of the viewport instead of the number of samples.
+ * <p>
+ * The minimum and maximum of a column are looked up in a pyramid of per bucket minima and maxima
+ * (buckets of {@link #LEAF_SIZE} samples on the finest level, doubling per level) in logarithmic time.
+ * Appending samples only updates the buckets at the end of the pyramid, which happens lazily
+ * on the next rendering.
+ * <p>
+ * The renderer obtains the level of detail through {@link #snapshot(Rectangle2D, int, int)}
+ * (with the view of e.g. a {@link CoordSysRenderer}), so a TimeSeriesLines object can be rendered
+ * by a {@link GenericLinesRenderer} like the other line collections.
+ * Index based access (e.g. {@link #getSegmentX0(int)}) refers to the full resolution strip, i.e.
+ * segment i connects sample i and i+1.
+ * The line has a single color and thickness.
+ *
+ * @author hageldave
+ */
+public class TimeSeriesLines extends GenericLines<TimeSeriesLines> {
+
+	/** number of samples per bucket of the finest pyramid level */
+	public static final int LEAF_SIZE = 64;
+	/** number of pixel columns for the level of detail of {@link #snapshot()} when no view was set */
+	public static final int DEFAULT_NUM_COLUMNS = 1024;
+
+	protected int size = 0;
+	protected double[] xs = new double[0];
+	protected double[] ys = new double[0];
+	protected int color = ColumnarLines.DEFAULT_COLOR;
+	protected float thickness = 1f;
+	protected int pickColor = 0;
+
+	/** minima and maxima of the buckets per level, level 0 has buckets of LEAF_SIZE samples, guarded by this */
+	protected double[][] levelMins = new double[0][];
+	protected double[][] levelMaxs = new double[0][];
+	/** number of samples that the pyramid covers, guarded by this */
+	protected int pyramidSize = 0;
+
+	/** view and viewport size of the level of detail that is uploaded to GL */
+	protected Rectangle2D glView;
+	protected int glViewportW = DEFAULT_NUM_COLUMNS;
+	protected int glViewportH = 1;
+
+	/**
+	 * Appends the specified samples to the end of the time series.
+	 * The x coordinates have to be ascending (equal values are allowed) and must not be
+	 * smaller than the x coordinate of the last sample.
+	 * The specified arrays are copied, so they can be reused by the caller.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates (e.g. time stamps) of the samples
+	 * @param ys y coordinates (values) of the samples
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length or the x coordinates are not ascending
+	 */
+	public TimeSeriesLines appendSamples(double[] xs, double[] ys) {
+		int n = xs.length;
+		if(ys.length != n){
+			throw new IllegalArgumentException("Provided arrays have different lengths.");
+		}
+		double prev = size > 0 ? this.xs[size-1] : Double.NEGATIVE_INFINITY;
+		for(int i=0; i<n; i++){
+			if(!(xs[i] >= prev) || Double.isInfinite(xs[i])){
+				throw new IllegalArgumentException("X coordinates have to be finite and ascending, but got " + xs[i] + " after " + prev + " at index " + i);
+			}
+			prev = xs[i];
+		}
+		if(n == 0)
+			return this;
+		ensureCapacity(size+n);
+		System.arraycopy(xs, 0, this.xs, size, n);
+		System.arraycopy(ys, 0, this.ys, size, n);
+		size += n;
+		return setDirty();
+	}
+
+	/**
+	 * Appends a single sample to the end of the time series.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param x x coordinate (e.g. time stamp) of the sample, not smaller than the x coordinate of the last sample
+	 * @param y y coordinate (value) of the sample
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when x is smaller than the x coordinate of the last sample
+	 */
+	public TimeSeriesLines appendSample(double x, double y) {
+		return appendSamples(new double[]{x}, new double[]{y});
+	}
+
+	/**
+	 * Makes sure that the sample arrays can hold at least the specified number of samples.
+	 * Arrays grow at least by a factor of 1.5 to amortize repeated appends.
+	 * @param capacity number of samples
+	 * @return this for chaining
+	 */
+	public TimeSeriesLines ensureCapacity(int capacity) {
+		if(capacity <= xs.length)
+			return this;
+		int newCapacity = Math.max(capacity, xs.length + (xs.length >> 1));
+		xs = Arrays.copyOf(xs, newCapacity);
+		ys = Arrays.copyOf(ys, newCapacity);
+		return this;
+	}
+
+	/**
+	 * @return number of samples of the time series
+	 */
+	public int numSamples() {
+		return size;
+	}
+
+	/**
+	 * @param i index of the sample
+	 * @return x coordinate of the i-th sample
+	 */
+	public double getSampleX(int i) {
+		if(i < 0 || i >= size)
+			throw new ArrayIndexOutOfBoundsException(i);
+		return xs[i];
+	}
+
+	/**
+	 * @param i index of the sample
+	 * @return y coordinate of the i-th sample
+	 */
+	public double getSampleY(int i) {
+		if(i < 0 || i >= size)
+			throw new ArrayIndexOutOfBoundsException(i);
+		return ys[i];
+	}
+
+	/**
+	 * Sets the color of the line.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param color integer packed ARGB color
+	 * @return this for chaining
+	 */
+	public TimeSeriesLines setColor(int color) {
+		this.color = color;
+		return setDirty();
+	}
+
+	/**
+	 * @return integer packed ARGB color of the line
+	 */
+	public int getColor() {
+		return color;
+	}
+
+	/**
+	 * Sets the thickness of the line.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param thickness of the line
+	 * @return this for chaining
+	 */
+	public TimeSeriesLines setThickness(double thickness) {
+		this.thickness = (float) thickness;
+		return setDirty();
+	}
+
+	/**
+	 * @return thickness of the line
+	 */
+	public float getThickness() {
+		return thickness;
+	}
+
+	/**
+	 * Sets the picking color of the line.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param pickID picking color of the line (see {@link GenericLines} for details)
+	 * @return this for chaining
+	 */
+	public TimeSeriesLines setPickColor(int pickID) {
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		this.pickColor = pickID;
+		return setDirty();
+	}
+
+	/**
+	 * @return picking color of the line
+	 */
+	public int getPickColor() {
+		return pickColor;
+	}
+
+	/**
+	 * Sets the view for which the level of detail is computed when uploading to GL.
+	 * Marks this object dirty when the view or the viewport width changed.
+	 */
+	@Override
+	public void setGLView(Rectangle2D view, int w, int h) {
+		if(!Objects.equals(view, glView) || w != glViewportW || h != glViewportH){
+			this.glView = Objects.isNull(view) ? null : (Rectangle2D) view.clone();
+			this.glViewportW = w;
+			this.glViewportH = h;
+			this.isDirty = true;
+		}
+	}
+
+	/**
+	 * Returns the level of detail for the view of the last {@link #setGLView(Rectangle2D, int, int)} call,
+	 * or of the whole time series with {@link #DEFAULT_NUM_COLUMNS} columns when no view was set.
+	 */
+	@Override
+	public ColumnarLines snapshot() {
+		return snapshot(glView, glViewportW, glViewportH);
+	}
+
+	/**
+	 * Returns the level of detail of this time series for the specified view, i.e. a strip with at most
+	 * 4 vertices per pixel column (first, minimum, maximum and last sample of the column)
+	 * plus the samples adjacent to the view so that the strip reaches its edges.
+	 * When there are not more than 4 samples per column in view, the samples are returned as is.
+	 * @param view the view, null for a view of the whole time series
+	 * @param w width of the viewport in pixels
+	 * @param h height of the viewport in pixels
+	 * @return lines object with the level of detail
+	 */
+	@Override
+	public ColumnarLines snapshot(Rectangle2D view, int w, int h) {
+		ColumnarLines lod = new ColumnarLines().copyGlobalAttributes(this);
+		int n = size;
+		if(n < 2 || w < 1){
+			lod.modificationCount = this.modificationCount;
+			return lod;
+		}
+		double viewX = Objects.isNull(view) ? xs[0] : view.getMinX();
+		double viewW = Objects.isNull(view) ? xs[n-1]-xs[0] : view.getWidth();
+		int start = lowerBound(viewX);
+		int end = upperBound(viewX+viewW);
+		boolean allSamples = end-start <= w*4 || !(viewW > 0);
+		double[] px = new double[(allSamples ? end-start : w*4)+2];
+		double[] py = new double[px.length];
+		int numVertices = 0;
+		// sample before the view connects the strip to the left edge
+		if(start > 0){
+			px[numVertices] = xs[start-1]; py[numVertices++] = ys[start-1];
+		}
+		if(allSamples){
+			for(int i=start; i<end; i++){
+				px[numVertices] = xs[i]; py[numVertices++] = ys[i];
+			}
+		} else {
+			double[] minmax = new double[2];
+			updatePyramid();
+			int a = start;
+			for(int c=0; c<w; c++){
+				int b = c == w-1 ? end : Math.max(a, lowerBound(viewX+viewW*(c+1)/w));
+				if(b-a <= 4){
+					for(int i=a; i<b; i++){
+						px[numVertices] = xs[i]; py[numVertices++] = ys[i];
+					}
+				} else if(b > a){
+					double first = ys[a], last = ys[b-1];
+					double mid = (xs[a]+xs[b-1])*0.5;
+					rangeMinMax(a, b, minmax);
+					// visit the extreme closer to the first sample first
+					boolean minFirst = Math.abs(first-minmax[0]) <= Math.abs(first-minmax[1]);
+					px[numVertices] = xs[a]; py[numVertices++] = first;
+					// columns of only NaN values have no extremes
+					if(minmax[0] <= minmax[1]){
+						px[numVertices] = mid; py[numVertices++] = minmax[minFirst ? 0:1];
+						px[numVertices] = mid; py[numVertices++] = minmax[minFirst ? 1:0];
+					}
+					px[numVertices] = xs[b-1]; py[numVertices++] = last;
+				}
+				a = b;
+			}
+		}
+		// sample after the view connects the strip to the right edge
+		if(end < n){
+			px[numVertices] = xs[end]; py[numVertices++] = ys[end];
+		}
+		lod.appendLineStrip(Arrays.copyOf(px, numVertices), Arrays.copyOf(py, numVertices), null, null, pickColor);
+		Arrays.fill(lod.colors0, 0, lod.size, color);
+		Arrays.fill(lod.colors1, 0, lod.size, color);
+		Arrays.fill(lod.thicknesses0, 0, lod.size, thickness);
+		Arrays.fill(lod.thicknesses1, 0, lod.size, thickness);
+		lod.modificationCount = this.modificationCount;
+		lod.isDirty = false;
+		return lod;
+	}
+
+	/**
+	 * @param x coordinate to search
+	 * @return index of the first sample with x coordinate not smaller than x
+	 */
+	protected int lowerBound(double x) {
+		int lo = 0, hi = size;
+		while(lo < hi){
+			int mid = (lo+hi) >>> 1;
+			if(xs[mid] < x) lo = mid+1; else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * @param x coordinate to search
+	 * @return index of the first sample with x coordinate larger than x
+	 */
+	protected int upperBound(double x) {
+		int lo = 0, hi = size;
+		while(lo < hi){
+			int mid = (lo+hi) >>> 1;
+			if(xs[mid] <= x) lo = mid+1; else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Brings the min/max pyramid up to date with the samples.
+	 * Only the buckets containing samples that were appended since the last update are recomputed.
+	 */
+	protected synchronized void updatePyramid() {
+		int n = size;
+		if(n == pyramidSize)
+			return;
+		if(n < pyramidSize)
+			pyramidSize = 0;
+		int numLevels = 1;
+		for(int buckets=(n+LEAF_SIZE-1)/LEAF_SIZE; buckets > 1; buckets=(buckets+1)/2)
+			numLevels++;
+		double[][] mins = Arrays.copyOf(levelMins, numLevels);
+		double[][] maxs = Arrays.copyOf(levelMaxs, numLevels);
+		// first bucket of the current level that contains new samples
+		int firstBucket = pyramidSize/LEAF_SIZE;
+		for(int l=0; l<numLevels; l++){
+			int bucketSize = LEAF_SIZE << l;
+			int numBuckets = (int)(((long)n+bucketSize-1)/bucketSize);
+			if(Objects.isNull(mins[l]) || mins[l].length < numBuckets){
+				int capacity = Math.max(numBuckets, Objects.isNull(mins[l]) ? 0 : mins[l].length*3/2);
+				mins[l] = Objects.isNull(mins[l]) ? new double[capacity] : Arrays.copyOf(mins[l], capacity);
+				maxs[l] = Objects.isNull(maxs[l]) ? new double[capacity] : Arrays.copyOf(maxs[l], capacity);
+			}
+			for(int b=firstBucket; b<numBuckets; b++){
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				if(l == 0){
+					for(int i=b*LEAF_SIZE; i<Math.min(n, (b+1)*LEAF_SIZE); i++){
+						// NaN values are ignored
+						if(ys[i] < min) min = ys[i];
+						if(ys[i] > max) max = ys[i];
+					}
+				} else {
+					int finerBuckets = (int)(((long)n+(bucketSize>>1)-1)/(bucketSize>>1));
+					for(int f=b*2; f<Math.min(finerBuckets, b*2+2); f++){
+						min = Math.min(min, mins[l-1][f]);
+						max = Math.max(max, maxs[l-1][f]);
+					}
+				}
+				mins[l][b] = min;
+				maxs[l][b] = max;
+			}
+			firstBucket /= 2;
+		}
+		levelMins = mins;
+		levelMaxs = maxs;
+		pyramidSize = n;
+	}
+
+	/**
+	 * Computes the minimum and maximum y coordinate of the samples a to b-1 using the pyramid,
+	 * which has to be up to date (see {@link #updatePyramid()}).
+	 * @param a index of first sample
+	 * @param b index after last sample
+	 * @param minmax array to store minimum and maximum in
+	 */
+	protected void rangeMinMax(int a, int b, double[] minmax) {
+		double[][] mins, maxs;
+		synchronized (this) {
+			mins = levelMins;
+			maxs = levelMaxs;
+		}
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		int i = a;
+		while(i < b){
+			if(i % LEAF_SIZE != 0 || i+LEAF_SIZE > b){
+				if(ys[i] < min) min = ys[i];
+				if(ys[i] > max) max = ys[i];
+				i++;
+				continue;
+			}
+			// largest aligned bucket starting at i that fits into the range
+			int l = 0;
+			while(l+1 < mins.length && i % (LEAF_SIZE << (l+1)) == 0 && i+(LEAF_SIZE << (l+1)) <= b)
+				l++;
+			int bucket = i/(LEAF_SIZE << l);
+			min = Math.min(min, mins[l][bucket]);
+			max = Math.max(max, maxs[l][bucket]);
+			i += LEAF_SIZE << l;
+		}
+		minmax[0] = min;
+		minmax[1] = max;
+	}
+
+	/**
+	 * Removes all samples.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @return this for chaining
+	 */
+	public TimeSeriesLines removeAllSegments() {
+		size = 0;
+		synchronized (this) {
+			pyramidSize = 0;
+		}
+		return setDirty();
+	}
+
+	@Override
+	public int numSegments() {
+		return Math.max(0, size-1);
+	}
+
+	protected void checkIndex(int i) {
+		if(i < 0 || i >= size-1)
+			throw new ArrayIndexOutOfBoundsException(i);
+	}
+
+	@Override
+	public double getSegmentX0(int i) {
+		checkIndex(i);
+		return xs[i];
+	}
+
+	@Override
+	public double getSegmentY0(int i) {
+		checkIndex(i);
+		return ys[i];
+	}
+
+	@Override
+	public double getSegmentX1(int i) {
+		checkIndex(i);
+		return xs[i+1];
+	}
+
+	@Override
+	public double getSegmentY1(int i) {
+		checkIndex(i);
+		return ys[i+1];
+	}
+
+	@Override
+	public int getSegmentColor0(int i) {
+		checkIndex(i);
+		return color;
+	}
+
+	@Override
+	public int getSegmentColor1(int i) {
+		checkIndex(i);
+		return color;
+	}
+
+	@Override
+	public double getSegmentThickness0(int i) {
+		checkIndex(i);
+		return thickness;
+	}
+
+	@Override
+	public double getSegmentThickness1(int i) {
+		checkIndex(i);
+		return thickness;
+	}
+
+	@Override
+	public int getSegmentPickColor(int i) {
+		checkIndex(i);
+		return pickColor;
+	}
+
+	/**
+	 * Returns the bounds of the samples, the y extent is taken from the pyramid.
+	 */
+	@Override
+	public Rectangle2D getBounds() {
+		if(size < 2)
+			return new Rectangle2D.Double();
+		updatePyramid();
+		double[] minmax = new double[2];
+		rangeMinMax(0, size, minmax);
+		return new Rectangle2D.Double(xs[0], minmax[0], xs[size-1]-xs[0], minmax[1]-minmax[0]);
+	}
+
+}
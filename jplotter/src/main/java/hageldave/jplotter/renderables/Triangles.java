@@ -3,6 +3,8 @@ package hageldave.jplotter.renderables;
 import hageldave.jplotter.gl.FBO;
 import hageldave.jplotter.gl.VertexArray;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.BoundingVolumeHierarchy;
+import hageldave.jplotter.util.DirtyRange;
 import hageldave.jplotter.util.Utils;
 
 import java.awt.*;
@@ -14,7 +16,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The Triangles class is a collection of 2D triangles.
@@ -31,6 +33,10 @@ import java.util.stream.Collectors;
  * There is also a global alpha multiplier parameter which scales every triangle's color alpha value,
  * which can be used to introduce transparency for all triangles of this collection.
  * This may come in handy to let other rendered content under a triangle 'shine through'.
+ * <p>
+ * For large meshes an optional spatial index ({@link BoundingVolumeHierarchy}) can be enabled
+ * ({@link #enableSpatialIndex(boolean)}), which lets intersection queries and the fallback renderer only visit
+ * the triangles in the region of interest instead of all triangles.
  * 
  * @author hageldave
  */
@@ -38,6 +44,8 @@ public class Triangles implements Renderable {
 
 	protected VertexArray va;
 	protected boolean isDirty = true;
+	/** incremented with every modification, see {@link #getModificationCount()} */
+	protected long modificationCount = 0;
 	protected DoubleSupplier globalAlphaMultiplier = ()->1.0;
 	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
 	protected ArrayList<TriangleDetails> triangles = new ArrayList<>();
@@ -45,6 +53,14 @@ public class Triangles implements Renderable {
 	protected boolean useAAinFallback = false;
 	protected boolean hidden=false;
 	protected boolean isGLDoublePrecision = false;
+	protected boolean useSpatialIndex = false;
+	protected BoundingVolumeHierarchy spatialIndex;
+	protected boolean isSpatialIndexOutdated = false;
+	/** triangles that were modified since the last GL update */
+	protected final DirtyRange dirtyRange = new DirtyRange();
+	
+	/** number of triangles from which on the spatial index is used (when enabled) */
+	public static final int SPATIAL_INDEX_THRESHOLD = 1024;
 	
 	/**
 	 * @return the number of triangles in this collection.
@@ -71,7 +87,10 @@ public class Triangles implements Renderable {
 	){
 		TriangleDetails tri = new TriangleDetails(x0, y0, x1, y1, x2, y2);
 		this.triangles.add(tri);
-		setDirty();
+		// spatial index stays valid, appended triangles are scanned linearly until the next rebuild
+		this.isDirty = true;
+		this.modificationCount++;
+		this.dirtyRange.mark(triangles.size()-1, triangles.size());
 		return tri;
 	}
 	
@@ -86,7 +105,10 @@ public class Triangles implements Renderable {
 	public TriangleDetails addTriangle(Point2D p0, Point2D p1, Point2D p2){
 		TriangleDetails tri = new TriangleDetails(p0,p1,p2);
 		this.triangles.add(tri);
-		setDirty();
+		// spatial index stays valid, appended triangles are scanned linearly until the next rebuild
+		this.isDirty = true;
+		this.modificationCount++;
+		this.dirtyRange.mark(triangles.size()-1, triangles.size());
 		return tri;
 	}
 	
@@ -288,6 +310,7 @@ public class Triangles implements Renderable {
 		if(Objects.nonNull(va))
 			va.close();
 		va = null;
+		dirtyRange.markAll();
 	}
 
 	/**
@@ -319,11 +342,14 @@ public class Triangles implements Renderable {
 	
 	protected void updateGLFloat() {
 		if(Objects.nonNull(va)){
-			final int numTris = triangles.size();
+			// upload only the modified triangles when possible
+			boolean partial = isGLDoublePrecision == false && dirtyRange.isPartial(va.getNumValues(1)/6);
+			final int from = partial ? dirtyRange.getFrom() : 0;
+			final int numTris = partial ? Math.max(0, Math.min(dirtyRange.getTo(), triangles.size())-from) : triangles.size();
 			float[] vertices = new float[numTris*2*3];
 			int[] vColors = new int[numTris*2*3];
 			for(int i=0; i<numTris; i++){
-				TriangleDetails tri = triangles.get(i);
+				TriangleDetails tri = triangles.get(from+i);
 
 				vertices[i*6+0] = (float) tri.p0.getX();
 				vertices[i*6+1] = (float) tri.p0.getY();
@@ -339,8 +365,14 @@ public class Triangles implements Renderable {
 				vColors[i*6+4] = tri.c2.getAsInt();
 				vColors[i*6+5] = tri.pickColor;
 			}
-			va.setBuffer(0, 2, vertices);
-			va.setBuffer(1, 2, false, vColors);
+			if(partial){
+				va.updateBuffer(0, from*6, vertices);
+				va.updateBuffer(1, from*6, vColors);
+			} else {
+				va.setBuffer(0, 2, vertices);
+				va.setBuffer(1, 2, false, vColors);
+			}
+			dirtyRange.clear();
 			isDirty = false;
 			isGLDoublePrecision = false;
 		}
@@ -348,11 +380,14 @@ public class Triangles implements Renderable {
 	
 	protected void updateGLDouble() {
 		if(Objects.nonNull(va)){
-			final int numTris = triangles.size();
+			// upload only the modified triangles when possible
+			boolean partial = isGLDoublePrecision == true && dirtyRange.isPartial(va.getNumValues(1)/6);
+			final int from = partial ? dirtyRange.getFrom() : 0;
+			final int numTris = partial ? Math.max(0, Math.min(dirtyRange.getTo(), triangles.size())-from) : triangles.size();
 			double[] vertices = new double[numTris*2*3];
 			int[] vColors = new int[numTris*2*3];
 			for(int i=0; i<numTris; i++){
-				TriangleDetails tri = triangles.get(i);
+				TriangleDetails tri = triangles.get(from+i);
 
 				vertices[i*6+0] = tri.p0.getX();
 				vertices[i*6+1] = tri.p0.getY();
@@ -368,8 +403,14 @@ public class Triangles implements Renderable {
 				vColors[i*6+4] = tri.c2.getAsInt();
 				vColors[i*6+5] = tri.pickColor;
 			}
-			va.setBuffer(0, 2, vertices);
-			va.setBuffer(1, 2, false, vColors);
+			if(partial){
+				va.updateBuffer(0, from*6, vertices);
+				va.updateBuffer(1, from*6, vColors);
+			} else {
+				va.setBuffer(0, 2, vertices);
+				va.setBuffer(1, 2, false, vColors);
+			}
+			dirtyRange.clear();
 			isDirty = false;
 			isGLDoublePrecision = true;
 		}
@@ -379,6 +420,11 @@ public class Triangles implements Renderable {
 	public boolean isDirty() {
 		return isDirty;
 	}
+
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
 	
 	@Override
 	public boolean isGLDoublePrecision() {
@@ -387,10 +433,33 @@ public class Triangles implements Renderable {
 	
 	/**
 	 * Sets the {@link #isDirty()} state of this {@link Triangles} object to true.
+	 * This also marks the spatial index as outdated, so that it is updated on the next query.
 	 * @return this for chaining
 	 */
 	public Triangles setDirty() {
 		this.isDirty = true;
+		this.modificationCount++;
+		this.isSpatialIndexOutdated = true;
+		this.dirtyRange.markAll();
+		return this;
+	}
+	
+	/**
+	 * Sets the {@link #isDirty()} state of this {@link Triangles} object to true after the triangles
+	 * from (inclusive) to (exclusive) were modified, e.g. after changing the color of a single triangle.
+	 * Unlike {@link #setDirty()}, only the modified triangles are uploaded on the next GL update.
+	 * Note that the colors of other triangles are not re-evaluated then, i.e. their suppliers
+	 * (see {@link TriangleDetails#setColor(IntSupplier)}) are not called.
+	 * This also marks the spatial index as outdated, so that it is updated on the next query.
+	 * @param from index of the first modified triangle
+	 * @param to index after the last modified triangle
+	 * @return this for chaining
+	 */
+	public Triangles setDirty(int from, int to) {
+		this.isDirty = true;
+		this.modificationCount++;
+		this.isSpatialIndexOutdated = true;
+		this.dirtyRange.mark(from, to);
 		return this;
 	}
 	
@@ -422,18 +491,122 @@ public class Triangles implements Renderable {
 	}
 	
 	
+	/**
+	 * Enables or disables the spatial index of this {@link Triangles} object.
+	 * When enabled, a {@link BoundingVolumeHierarchy} over the triangles is maintained
+	 * (once there are at least {@link #SPATIAL_INDEX_THRESHOLD} triangles) which makes
+	 * {@link #getIntersectingTriangles(Rectangle2D)} and {@link #intersects(Rectangle2D)}, and thereby
+	 * fallback rendering of a zoomed in view, cost proportional to the visible triangles.
+	 * <p>
+	 * The index is updated lazily on the next query. After {@link #setDirty()} its boxes are refitted,
+	 * appended triangles are scanned linearly until they exceed a quarter of the indexed triangles,
+	 * then the index is rebuilt.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public Triangles enableSpatialIndex(boolean enable) {
+		this.useSpatialIndex = enable;
+		if(!enable)
+			this.spatialIndex = null;
+		return this;
+	}
+	
+	/**
+	 * @return true when the spatial index is enabled, see {@link #enableSpatialIndex(boolean)}
+	 */
+	public boolean isSpatialIndexEnabled() {
+		return useSpatialIndex;
+	}
+	
+	/**
+	 * Returns the spatial index of this {@link Triangles} object, updating it when necessary.
+	 * @return the spatial index or null when disabled or there are less than {@link #SPATIAL_INDEX_THRESHOLD} triangles
+	 */
+	protected synchronized BoundingVolumeHierarchy getSpatialIndex() {
+		int n = numTriangles();
+		if(!useSpatialIndex || n < SPATIAL_INDEX_THRESHOLD)
+			return null;
+		BoundingVolumeHierarchy index = this.spatialIndex;
+		if(Objects.isNull(index) || index.size() > n || (n-index.size()) > index.size()/4){
+			index = new BoundingVolumeHierarchy(computeTriangleBounds(n), n);
+			this.spatialIndex = index;
+		} else if(isSpatialIndexOutdated){
+			index.refit(computeTriangleBounds(index.size()));
+		}
+		isSpatialIndexOutdated = false;
+		return index;
+	}
+	
+	/**
+	 * Computes the bounding boxes of the first n triangles in the layout
+	 * expected by {@link BoundingVolumeHierarchy}.
+	 * @param n number of triangles
+	 * @return array of (minX, minY, maxX, maxY) per triangle
+	 */
+	protected double[] computeTriangleBounds(int n) {
+		double[] bounds = new double[n*4];
+		for(int i=0; i<n; i++){
+			TriangleDetails tri = triangles.get(i);
+			bounds[i*4+0] = Utils.min3(tri.p0.getX(), tri.p1.getX(), tri.p2.getX());
+			bounds[i*4+1] = Utils.min3(tri.p0.getY(), tri.p1.getY(), tri.p2.getY());
+			bounds[i*4+2] = Utils.max3(tri.p0.getX(), tri.p1.getX(), tri.p2.getX());
+			bounds[i*4+3] = Utils.max3(tri.p0.getY(), tri.p1.getY(), tri.p2.getY());
+		}
+		return bounds;
+	}
+	
+	protected boolean triangleIntersects(Rectangle2D rect, int i) {
+		TriangleDetails tri = triangles.get(i);
+		return Utils.rectIntersectsOrIsContainedInTri(
+				rect, 
+				tri.p0.getX(), tri.p0.getY(), 
+				tri.p1.getX(), tri.p1.getY(), 
+				tri.p2.getX(), tri.p2.getY()
+				);
+	}
+	
 	@Override
 	public boolean intersects(Rectangle2D rect) {
-		boolean useParallelStreaming = numTriangles() > 1000;
-		return Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
-				.filter(tri->Utils.rectIntersectsOrIsContainedInTri(
-						rect, 
-						tri.p0.getX(), tri.p0.getY(), 
-						tri.p1.getX(), tri.p1.getY(), 
-						tri.p2.getX(), tri.p2.getY()
-						))
-				.findAny()
-				.isPresent();
+		int n = numTriangles();
+		BoundingVolumeHierarchy index = getSpatialIndex();
+		if(Objects.isNull(index)){
+			boolean useParallelStreaming = n > 1000;
+			return Utils.parallelize(IntStream.range(0, n), useParallelStreaming)
+					.anyMatch(i->triangleIntersects(rect, i));
+		}
+		if(index.anyIntersecting(rect, n, i->triangleIntersects(rect, i)))
+			return true;
+		for(int i=index.size(); i<n; i++){
+			if(triangleIntersects(rect, i))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the indices of the triangles that intersect or contain the specified rectangle in ascending order.
+	 * Uses the spatial index when enabled (see {@link #enableSpatialIndex(boolean)}).
+	 * @param rect rectangle to test intersection
+	 * @return ascending indices of intersecting triangles
+	 */
+	public int[] getIntersectingTriangleIndices(Rectangle2D rect) {
+		int n = numTriangles();
+		BoundingVolumeHierarchy index = getSpatialIndex();
+		if(Objects.isNull(index)){
+			boolean useParallelStreaming = n > 1000;
+			return Utils.parallelize(IntStream.range(0, n), useParallelStreaming)
+					.filter(i->triangleIntersects(rect, i))
+					.toArray();
+		}
+		int[] indexed = index.getIntersecting(rect, n, i->triangleIntersects(rect, i));
+		int[] appended = IntStream.range(index.size(), n)
+				.filter(i->triangleIntersects(rect, i))
+				.toArray();
+		if(appended.length == 0)
+			return indexed;
+		int[] all = Arrays.copyOf(indexed, indexed.length+appended.length);
+		System.arraycopy(appended, 0, all, indexed.length, appended.length);
+		return all;
 	}
 	
 	/**
@@ -442,15 +615,12 @@ public class Triangles implements Renderable {
 	 * @return list of intersecting triangles
 	 */
 	public List<TriangleDetails> getIntersectingTriangles(Rectangle2D rect){
-		boolean useParallelStreaming = numTriangles() > 1000;
-		return Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
-				.filter(tri->Utils.rectIntersectsOrIsContainedInTri(
-						rect, 
-						tri.p0.getX(), tri.p0.getY(), 
-						tri.p1.getX(), tri.p1.getY(), 
-						tri.p2.getX(), tri.p2.getY()
-						))
-				.collect(Collectors.toList());
+		int[] indices = getIntersectingTriangleIndices(rect);
+		ArrayList<TriangleDetails> intersecting = new ArrayList<>(indices.length);
+		for(int i : indices){
+			intersecting.add(triangles.get(i));
+		}
+		return intersecting;
 	}
 	
 
@@ -709,6 +879,7 @@ public class Triangles implements Renderable {
 	 */
 	public Triangles enableAAinFallback(boolean enable) {
 		this.useAAinFallback = enable;
+		this.modificationCount++;
 		return this;
 	}
 	
@@ -0,0 +1,141 @@
+package hageldave.jplotter.renderables;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import hageldave.jplotter.canvas.JPlotterCanvas;
+
+/**
+ * The UpdateQueue is a lock-free multi producer single consumer queue of updates to {@link Renderable}s.
+ * It allows threads other than the rendering thread (e.g. data ingestion threads) to modify the scene
+ * without synchronizing with rendering.
+ * <p>
+ * Producers enqueue updates ({@link #enqueue(Object, Consumer)}) which are batches of modifications
+ * (e.g. appending points, removing segments or changing colors) to a renderable.
+ * The canvas drains the queue at the start of each frame on its rendering thread ({@link #drain()}),
+ * i.e. updates are applied in the order they were enqueued while no frame is rendered.
+ * Enqueuing never blocks (it is a single compare and set in the common case) and draining only applies
+ * the updates that were enqueued before the drain started, so producers cannot stall a frame.
+ * <p>
+ * The queue of a canvas is obtained through {@link JPlotterCanvas#getUpdateQueue()}, which also
+ * schedules a repaint whenever an update is enqueued.
+ * <pre>
+ * // on ingestion thread
+ * canvas.getUpdateQueue().enqueue(points, p-&gt;{
+ *    for(Point2D sample : batch)
+ *       p.addPoint(sample);
+ * });
+ * </pre>
+ * Updates must not access the renderables of the scene outside of the update itself.
+ *
+ * @author hageldave
+ */
+public class UpdateQueue {
+
+	/** node of the stack of enqueued updates (newest first) */
+	protected static class Node {
+		protected final Runnable update;
+		protected Node next;
+
+		protected Node(Runnable update) {
+			this.update = update;
+		}
+	}
+
+	protected final AtomicReference<Node> head = new AtomicReference<>();
+	protected final Runnable onEnqueue;
+
+	/**
+	 * Creates a new queue.
+	 * @param onEnqueue called after each enqueued update (e.g. to schedule a repaint), may be null
+	 */
+	public UpdateQueue(Runnable onEnqueue) {
+		this.onEnqueue = onEnqueue;
+	}
+
+	/**
+	 * Creates a new queue without enqueue callback.
+	 */
+	public UpdateQueue() {
+		this(null);
+	}
+
+	/**
+	 * Enqueues an update of the specified renderable.
+	 * Can be called from any thread.
+	 * @param renderable to be updated
+	 * @param update modifications to be applied to the renderable when the queue is drained
+	 * @param <T> type of the renderable
+	 * @return this for chaining
+	 */
+	public <T> UpdateQueue enqueue(T renderable, Consumer<? super T> update) {
+		Objects.requireNonNull(renderable);
+		Objects.requireNonNull(update);
+		return enqueue(()->update.accept(renderable));
+	}
+
+	/**
+	 * Enqueues an update.
+	 * Can be called from any thread.
+	 * @param update modifications to be applied when the queue is drained
+	 * @return this for chaining
+	 */
+	public UpdateQueue enqueue(Runnable update) {
+		Node node = new Node(Objects.requireNonNull(update));
+		Node current;
+		do {
+			current = head.get();
+			node.next = current;
+		} while(!head.compareAndSet(current, node));
+		if(Objects.nonNull(onEnqueue)){
+			onEnqueue.run();
+		}
+		return this;
+	}
+
+	/**
+	 * @return true when updates are waiting to be applied
+	 */
+	public boolean hasPendingUpdates() {
+		return Objects.nonNull(head.get());
+	}
+
+	/**
+	 * Applies all updates that were enqueued so far in the order they were enqueued.
+	 * Updates enqueued while draining are applied by the next call.
+	 * This is supposed to be called by the rendering thread at the start of a frame.
+	 * When an update throws an exception, the remaining updates are still applied and
+	 * the first exception is rethrown afterwards.
+	 * @return number of applied updates
+	 */
+	public int drain() {
+		Node node = head.getAndSet(null);
+		// reverse stack to apply in FIFO order
+		Node fifo = null;
+		int count = 0;
+		while(Objects.nonNull(node)){
+			Node next = node.next;
+			node.next = fifo;
+			fifo = node;
+			node = next;
+			count++;
+		}
+		RuntimeException exception = null;
+		for(; fifo != null; fifo = fifo.next){
+			try {
+				fifo.update.run();
+			} catch (RuntimeException e) {
+				if(exception == null)
+					exception = e;
+				else
+					exception.addSuppressed(e);
+			}
+		}
+		if(exception != null){
+			throw exception;
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,713 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.renderables.Lines.SegmentDetails;
+import hageldave.jplotter.renderers.GenericLinesRenderer;
+import hageldave.jplotter.util.BoundingVolumeHierarchy;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * The VersionedLines class is a collection of line segments that can be modified by other threads
+ * while it is rendered, without locks on the rendering side.
+ * Its segments are stored in immutable versions and every modification publishes a new version.
+ * Renderers read the segments of a frame from a {@link #snapshot()}, which is pinned to the version
+ * that was current at the time, so a frame never observes a partially applied modification
+ * (e.g. a line strip of which only a part of the segments has been appended).
+ * <p>
+ * Segment attributes are stored column wise (like {@link ColumnarLines}) in chunks of {@link #CHUNK_SIZE} segments.
+ * Versions share their chunks (structure sharing), a new version only allocates the chunks that changed:
+ * <ul>
+ * <li>appending writes into the unused tail of the last chunk and into new chunks, segments of previous
+ * versions are not copied</li>
+ * <li>changing a segment copies the chunk that contains it (once per {@link #update(Consumer)})</li>
+ * <li>{@link #removeAllSegments()} starts over with an empty version</li>
+ * </ul>
+ * A snapshot keeps the chunks of its version alive for as long as it is referenced.
+ * <p>
+ * Several modifications can be published as a single version using {@link #update(Consumer)}, e.g.
+ * <pre>
+ * lines.update(editor -&gt; {
+ *    editor.appendLineStrip(xs, ys, 0xff00ff00);
+ *    editor.setColor(0, 0xffff0000);
+ * });
+ * </pre>
+ * Modifications are serialized among each other (writers block writers, never readers).
+ * The global attributes inherited from {@link GenericLines} (e.g. {@link #setGlobalAlphaMultiplier(double)}
+ * or {@link #setStrokePattern(int)}) are not versioned and should be changed from the rendering thread.
+ * <p>
+ * Since versions are immutable, the spatial index ({@link #enableSpatialIndex(boolean)}) is built once
+ * for the version that is queried and rebuilt when a newer version is queried (instead of being refitted).
+ * The index based getters (e.g. {@link #getSegmentX0(int)}) read the current version on every call,
+ * use a {@link #snapshot()} for consistent reads across several calls.
+ * <p>
+ * A VersionedLines object can be rendered by a {@link GenericLinesRenderer}.
+ *
+ * @author hageldave
+ */
+public class VersionedLines extends GenericLines<VersionedLines> {
+
+	/** number of bits of a segment index that address a segment within a chunk */
+	protected static final int CHUNK_BITS = 10;
+	/** number of segments per chunk */
+	public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	protected static final int CHUNK_MASK = CHUNK_SIZE-1;
+
+	/** color of segments for which no color was specified (same as default of {@link SegmentDetails}) */
+	public static final int DEFAULT_COLOR = ColumnarLines.DEFAULT_COLOR;
+
+	/**
+	 * Column wise attributes of {@link #CHUNK_SIZE} consecutive segments.
+	 * The segments of a chunk that are part of a published version are never changed,
+	 * modifications copy the chunk.
+	 */
+	protected static final class Chunk {
+		protected final double[] x0s, y0s, x1s, y1s;
+		protected final int[] colors0, colors1, pickColors;
+		protected final float[] thicknesses0, thicknesses1;
+
+		protected Chunk() {
+			x0s = new double[CHUNK_SIZE];
+			y0s = new double[CHUNK_SIZE];
+			x1s = new double[CHUNK_SIZE];
+			y1s = new double[CHUNK_SIZE];
+			colors0 = new int[CHUNK_SIZE];
+			colors1 = new int[CHUNK_SIZE];
+			pickColors = new int[CHUNK_SIZE];
+			thicknesses0 = new float[CHUNK_SIZE];
+			thicknesses1 = new float[CHUNK_SIZE];
+		}
+
+		protected Chunk(Chunk toCopy) {
+			x0s = toCopy.x0s.clone();
+			y0s = toCopy.y0s.clone();
+			x1s = toCopy.x1s.clone();
+			y1s = toCopy.y1s.clone();
+			colors0 = toCopy.colors0.clone();
+			colors1 = toCopy.colors1.clone();
+			pickColors = toCopy.pickColors.clone();
+			thicknesses0 = toCopy.thicknesses0.clone();
+			thicknesses1 = toCopy.thicknesses1.clone();
+		}
+	}
+
+	/**
+	 * Immutable state of the segments.
+	 * Only the first {@link #size} segments of the chunks belong to a version,
+	 * later versions may append to the chunks (and the chunk directory) beyond that.
+	 */
+	protected static final class Version {
+		protected static final Version EMPTY = new Version(0, 0, new Chunk[0]);
+
+		protected final long number;
+		protected final int size;
+		protected final Chunk[] chunks;
+
+		protected Version(long number, int size, Chunk[] chunks) {
+			this.number = number;
+			this.size = size;
+			this.chunks = chunks;
+		}
+	}
+
+	protected final Object writeLock = new Object();
+
+	protected volatile Version current = Version.EMPTY;
+
+	/** version that the spatial index was built for, guarded by this */
+	protected Version indexedVersion;
+
+	/**
+	 * Applies the modifications of the specified edit and publishes them as a single new version.
+	 * Concurrent calls are serialized, rendering is not blocked.
+	 * When the edit throws an exception, none of its modifications are published.
+	 * This sets the {@link #isDirty()} state to true (if the edit modified anything).
+	 * @param edit modifications to apply through the provided {@link Editor}
+	 * @return this for chaining
+	 */
+	public VersionedLines update(Consumer<? super Editor> edit) {
+		Objects.requireNonNull(edit);
+		synchronized (writeLock) {
+			Editor editor = new Editor(current);
+			edit.accept(editor);
+			if(editor.modified){
+				current = new Version(current.number+1, editor.size, editor.chunks);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends a strip of line segments that connect the specified points as a new version.
+	 * See {@link Editor#appendLineStrip(double[], double[], int[], float[], int)} for details.
+	 * @param xs x coordinates of the points on the line
+	 * @param ys y coordinates of the points on the line
+	 * @param colors integer packed ARGB colors of the points (may be null)
+	 * @param thicknesses thicknesses at the points (may be null)
+	 * @param pickColor picking color of all appended segments, see {@link GenericLines} for details
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the non null arrays differ in length
+	 */
+	public VersionedLines appendLineStrip(double[] xs, double[] ys, int[] colors, float[] thicknesses, int pickColor) {
+		return update(editor->editor.appendLineStrip(xs, ys, colors, thicknesses, pickColor));
+	}
+
+	/**
+	 * Appends a strip of line segments that connect the specified points using
+	 * the specified color for all of them as a new version.
+	 * @param xs x coordinates of the points on the line
+	 * @param ys y coordinates of the points on the line
+	 * @param color integer packed ARGB color of the line
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public VersionedLines appendLineStrip(double[] xs, double[] ys, int color) {
+		return update(editor->editor.appendLineStrip(xs, ys, color));
+	}
+
+	/**
+	 * Appends a strip of line segments that connect the specified points using default attributes
+	 * as a new version.
+	 * @param xs x coordinates of the points on the line
+	 * @param ys y coordinates of the points on the line
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public VersionedLines appendLineStrip(double[] xs, double[] ys) {
+		return update(editor->editor.appendLineStrip(xs, ys));
+	}
+
+	/**
+	 * Appends independent line segments using default attributes as a new version.
+	 * Segment i goes from (x0s[i],y0s[i]) to (x1s[i],y1s[i]).
+	 * @param x0s x coordinates of the start points
+	 * @param y0s y coordinates of the start points
+	 * @param x1s x coordinates of the end points
+	 * @param y1s y coordinates of the end points
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the arrays differ in length
+	 */
+	public VersionedLines appendSegments(double[] x0s, double[] y0s, double[] x1s, double[] y1s) {
+		return update(editor->editor.appendSegments(x0s, y0s, x1s, y1s));
+	}
+
+	/**
+	 * Removes all segments by publishing an empty version.
+	 * Snapshots of previous versions are not affected.
+	 * @return this for chaining
+	 */
+	public VersionedLines removeAllSegments() {
+		return update(Editor::removeAllSegments);
+	}
+
+	/**
+	 * @return number of the current version, incremented with every published modification
+	 */
+	public long getVersion() {
+		return current.number;
+	}
+
+	/**
+	 * Returns an immutable snapshot of the current version of the segments together
+	 * with the current global attributes (multipliers, stroke pattern, etc.).
+	 * The snapshot is not affected by subsequent modifications of this object.
+	 * @return snapshot of the current version
+	 */
+	@Override
+	public Snapshot snapshot() {
+		return new Snapshot(this, current);
+	}
+
+	@Override
+	public boolean isDirty() {
+		return super.isDirty() || Objects.isNull(glSnapshot) || ((Snapshot)glSnapshot).state != current;
+	}
+
+	@Override
+	public long getModificationCount() {
+		// both counts only increase
+		return modificationCount + current.number;
+	}
+
+	@Override
+	public int numSegments() {
+		return current.size;
+	}
+
+	@Override
+	public double getSegmentX0(int i) {
+		return chunkOf(current, i).x0s[i & CHUNK_MASK];
+	}
+
+	@Override
+	public double getSegmentY0(int i) {
+		return chunkOf(current, i).y0s[i & CHUNK_MASK];
+	}
+
+	@Override
+	public double getSegmentX1(int i) {
+		return chunkOf(current, i).x1s[i & CHUNK_MASK];
+	}
+
+	@Override
+	public double getSegmentY1(int i) {
+		return chunkOf(current, i).y1s[i & CHUNK_MASK];
+	}
+
+	@Override
+	public int getSegmentColor0(int i) {
+		return chunkOf(current, i).colors0[i & CHUNK_MASK];
+	}
+
+	@Override
+	public int getSegmentColor1(int i) {
+		return chunkOf(current, i).colors1[i & CHUNK_MASK];
+	}
+
+	@Override
+	public double getSegmentThickness0(int i) {
+		return chunkOf(current, i).thicknesses0[i & CHUNK_MASK];
+	}
+
+	@Override
+	public double getSegmentThickness1(int i) {
+		return chunkOf(current, i).thicknesses1[i & CHUNK_MASK];
+	}
+
+	@Override
+	public int getSegmentPickColor(int i) {
+		return chunkOf(current, i).pickColors[i & CHUNK_MASK];
+	}
+
+	@Override
+	public Rectangle2D getBounds() {
+		return snapshot().getBounds();
+	}
+
+	@Override
+	public boolean intersects(Rectangle2D rect) {
+		return snapshot().intersects(rect);
+	}
+
+	@Override
+	public int[] getIntersectingSegmentIndices(Rectangle2D rect) {
+		return snapshot().getIntersectingSegmentIndices(rect);
+	}
+
+	@Override
+	public List<SegmentDetails> getIntersectingSegments(Rectangle2D rect) {
+		return snapshot().getIntersectingSegments(rect);
+	}
+
+	@Override
+	public VersionedLines enableSpatialIndex(boolean enable) {
+		synchronized (this) {
+			if(!enable)
+				indexedVersion = null;
+		}
+		return super.enableSpatialIndex(enable);
+	}
+
+	@Override
+	protected BoundingVolumeHierarchy getSpatialIndex() {
+		return snapshot().getSpatialIndex();
+	}
+
+	/**
+	 * Returns the spatial index for the version of the specified snapshot,
+	 * building it when the index was built for a different version.
+	 * @param snapshot snapshot of this object
+	 * @return the spatial index of the snapshot's version
+	 */
+	protected synchronized BoundingVolumeHierarchy getSpatialIndexOf(Snapshot snapshot) {
+		if(Objects.isNull(spatialIndex) || indexedVersion != snapshot.state){
+			int n = snapshot.numSegments();
+			spatialIndex = new BoundingVolumeHierarchy(snapshot.computeSegmentBounds(n), n);
+			indexedVersion = snapshot.state;
+		}
+		return spatialIndex;
+	}
+
+	protected static Chunk chunkOf(Version version, int i) {
+		if(i < 0 || i >= version.size)
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+version.size);
+		return version.chunks[i >>> CHUNK_BITS];
+	}
+
+	/**
+	 * The Editor collects the modifications of a {@link VersionedLines#update(Consumer)} call.
+	 * It is only valid during that call.
+	 * Segments that belong to previously published versions are never written, chunks containing
+	 * them are copied on the first modification (copy on write).
+	 */
+	public static class Editor {
+		protected Chunk[] chunks;
+		protected int size;
+		/** number of segments that are part of published versions sharing the chunks */
+		protected int publishedSize;
+		/** true when the chunk directory is not shared with published versions */
+		protected boolean isDirectoryCopied = false;
+		/** chunks that were copied by this editor */
+		protected final BitSet copiedChunks = new BitSet();
+		protected boolean modified = false;
+
+		protected Editor(Version base) {
+			this.chunks = base.chunks;
+			this.size = base.size;
+			this.publishedSize = base.size;
+		}
+
+		/**
+		 * @return the number of segments including the modifications of this editor
+		 */
+		public int numSegments() {
+			return size;
+		}
+
+		/**
+		 * Returns the chunk containing the i-th segment for writing.
+		 * Appended segments are written into the shared chunks since no published version contains them.
+		 * @param i index of the segment
+		 * @return writable chunk
+		 */
+		protected Chunk chunkForWrite(int i) {
+			int c = i >>> CHUNK_BITS;
+			if(c >= chunks.length){
+				chunks = Arrays.copyOf(chunks, Math.max(c+1, chunks.length*2));
+				isDirectoryCopied = true;
+			}
+			Chunk chunk = chunks[c];
+			if(Objects.isNull(chunk)){
+				chunk = chunks[c] = new Chunk();
+				copiedChunks.set(c);
+			} else if(i < publishedSize && !copiedChunks.get(c)){
+				if(!isDirectoryCopied){
+					chunks = chunks.clone();
+					isDirectoryCopied = true;
+				}
+				chunk = chunks[c] = new Chunk(chunk);
+				copiedChunks.set(c);
+			}
+			modified = true;
+			return chunk;
+		}
+
+		protected void checkIndex(int i) {
+			if(i < 0 || i >= size)
+				throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+		}
+
+		/**
+		 * Appends a strip of line segments that connect the specified points.
+		 * The attribute arrays (except for the coordinates) are per point and may be null in which case
+		 * the default value is used (color {@link VersionedLines#DEFAULT_COLOR}, thickness 1).
+		 * Colors and thicknesses are interpolated along each segment between its two points.
+		 * The specified arrays are copied, so they can be reused by the caller.
+		 *
+		 * @param xs x coordinates of the points on the line
+		 * @param ys y coordinates of the points on the line
+		 * @param colors integer packed ARGB colors of the points (may be null)
+		 * @param thicknesses thicknesses at the points (may be null)
+		 * @param pickColor picking color of all appended segments, see {@link GenericLines} for details
+		 * @return this for chaining
+		 * @throws IllegalArgumentException when the non null arrays differ in length
+		 */
+		public Editor appendLineStrip(double[] xs, double[] ys, int[] colors, float[] thicknesses, int pickColor) {
+			return appendLineStrip(xs, ys, colors, DEFAULT_COLOR, thicknesses, pickColor);
+		}
+
+		/**
+		 * Appends a strip of line segments that connect the specified points using
+		 * the specified color for all of them.
+		 * @param xs x coordinates of the points on the line
+		 * @param ys y coordinates of the points on the line
+		 * @param color integer packed ARGB color of the line
+		 * @return this for chaining
+		 * @throws IllegalArgumentException when the arrays differ in length
+		 */
+		public Editor appendLineStrip(double[] xs, double[] ys, int color) {
+			return appendLineStrip(xs, ys, null, color, null, 0);
+		}
+
+		/**
+		 * Appends a strip of line segments that connect the specified points using default attributes.
+		 * @param xs x coordinates of the points on the line
+		 * @param ys y coordinates of the points on the line
+		 * @return this for chaining
+		 * @throws IllegalArgumentException when the arrays differ in length
+		 */
+		public Editor appendLineStrip(double[] xs, double[] ys) {
+			return appendLineStrip(xs, ys, null, DEFAULT_COLOR, null, 0);
+		}
+
+		protected Editor appendLineStrip(double[] xs, double[] ys, int[] colors, int color, float[] thicknesses, int pickColor) {
+			int n = xs.length;
+			if(ys.length != n
+					|| (colors != null && colors.length != n)
+					|| (thicknesses != null && thicknesses.length != n))
+			{
+				throw new IllegalArgumentException("Provided arrays have different lengths.");
+			}
+			if(n < 2)
+				return this;
+			if(pickColor != 0)
+				pickColor = pickColor | 0xff000000;
+			int numSegs = n-1;
+			// copy chunk wise
+			for(int k=0; k<numSegs; ){
+				Chunk chunk = chunkForWrite(size+k);
+				int offset = (size+k) & CHUNK_MASK;
+				int len = Math.min(numSegs-k, CHUNK_SIZE-offset);
+				System.arraycopy(xs, k, chunk.x0s, offset, len);
+				System.arraycopy(ys, k, chunk.y0s, offset, len);
+				System.arraycopy(xs, k+1, chunk.x1s, offset, len);
+				System.arraycopy(ys, k+1, chunk.y1s, offset, len);
+				if(colors != null){
+					System.arraycopy(colors, k, chunk.colors0, offset, len);
+					System.arraycopy(colors, k+1, chunk.colors1, offset, len);
+				} else {
+					Arrays.fill(chunk.colors0, offset, offset+len, color);
+					Arrays.fill(chunk.colors1, offset, offset+len, color);
+				}
+				if(thicknesses != null){
+					System.arraycopy(thicknesses, k, chunk.thicknesses0, offset, len);
+					System.arraycopy(thicknesses, k+1, chunk.thicknesses1, offset, len);
+				} else {
+					Arrays.fill(chunk.thicknesses0, offset, offset+len, 1f);
+					Arrays.fill(chunk.thicknesses1, offset, offset+len, 1f);
+				}
+				Arrays.fill(chunk.pickColors, offset, offset+len, pickColor);
+				k += len;
+			}
+			size += numSegs;
+			return this;
+		}
+
+		/**
+		 * Appends independent line segments using default attributes.
+		 * Segment i goes from (x0s[i],y0s[i]) to (x1s[i],y1s[i]).
+		 * @param x0s x coordinates of the start points
+		 * @param y0s y coordinates of the start points
+		 * @param x1s x coordinates of the end points
+		 * @param y1s y coordinates of the end points
+		 * @return this for chaining
+		 * @throws IllegalArgumentException when the arrays differ in length
+		 */
+		public Editor appendSegments(double[] x0s, double[] y0s, double[] x1s, double[] y1s) {
+			int n = x0s.length;
+			if(y0s.length != n || x1s.length != n || y1s.length != n){
+				throw new IllegalArgumentException("Provided arrays have different lengths.");
+			}
+			// copy chunk wise
+			for(int k=0; k<n; ){
+				Chunk chunk = chunkForWrite(size+k);
+				int offset = (size+k) & CHUNK_MASK;
+				int len = Math.min(n-k, CHUNK_SIZE-offset);
+				System.arraycopy(x0s, k, chunk.x0s, offset, len);
+				System.arraycopy(y0s, k, chunk.y0s, offset, len);
+				System.arraycopy(x1s, k, chunk.x1s, offset, len);
+				System.arraycopy(y1s, k, chunk.y1s, offset, len);
+				Arrays.fill(chunk.colors0, offset, offset+len, DEFAULT_COLOR);
+				Arrays.fill(chunk.colors1, offset, offset+len, DEFAULT_COLOR);
+				Arrays.fill(chunk.thicknesses0, offset, offset+len, 1f);
+				Arrays.fill(chunk.thicknesses1, offset, offset+len, 1f);
+				Arrays.fill(chunk.pickColors, offset, offset+len, 0);
+				k += len;
+			}
+			size += n;
+			return this;
+		}
+
+		/**
+		 * Removes all segments.
+		 * @return this for chaining
+		 */
+		public Editor removeAllSegments() {
+			chunks = new Chunk[0];
+			size = 0;
+			publishedSize = 0;
+			isDirectoryCopied = true;
+			copiedChunks.clear();
+			modified = true;
+			return this;
+		}
+
+		/**
+		 * Sets the start and end point of the i-th segment.
+		 * @param i index of the segment
+		 * @param x0 x coordinate of start point
+		 * @param y0 y coordinate of start point
+		 * @param x1 x coordinate of end point
+		 * @param y1 y coordinate of end point
+		 * @return this for chaining
+		 */
+		public Editor setSegment(int i, double x0, double y0, double x1, double y1) {
+			checkIndex(i);
+			Chunk chunk = chunkForWrite(i);
+			int j = i & CHUNK_MASK;
+			chunk.x0s[j] = x0;
+			chunk.y0s[j] = y0;
+			chunk.x1s[j] = x1;
+			chunk.y1s[j] = y1;
+			return this;
+		}
+
+		/**
+		 * Sets the color of the i-th segment (start and end point).
+		 * @param i index of the segment
+		 * @param color integer packed ARGB color value (e.g. 0xff00ff00 = opaque green)
+		 * @return this for chaining
+		 */
+		public Editor setColor(int i, int color) {
+			return setColor(i, color, color);
+		}
+
+		/**
+		 * Sets the colors at start and end point of the i-th segment.
+		 * @param i index of the segment
+		 * @param color0 integer packed ARGB color value at the start point
+		 * @param color1 integer packed ARGB color value at the end point
+		 * @return this for chaining
+		 */
+		public Editor setColor(int i, int color0, int color1) {
+			checkIndex(i);
+			Chunk chunk = chunkForWrite(i);
+			chunk.colors0[i & CHUNK_MASK] = color0;
+			chunk.colors1[i & CHUNK_MASK] = color1;
+			return this;
+		}
+
+		/**
+		 * Sets the thickness of the i-th segment (start and end point).
+		 * @param i index of the segment
+		 * @param t thickness
+		 * @return this for chaining
+		 */
+		public Editor setThickness(int i, double t) {
+			return setThickness(i, t, t);
+		}
+
+		/**
+		 * Sets the thicknesses at start and end point of the i-th segment.
+		 * @param i index of the segment
+		 * @param t0 thickness at the start point
+		 * @param t1 thickness at the end point
+		 * @return this for chaining
+		 */
+		public Editor setThickness(int i, double t0, double t1) {
+			checkIndex(i);
+			Chunk chunk = chunkForWrite(i);
+			chunk.thicknesses0[i & CHUNK_MASK] = (float)t0;
+			chunk.thicknesses1[i & CHUNK_MASK] = (float)t1;
+			return this;
+		}
+
+		/**
+		 * Sets the picking color of the i-th segment.
+		 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+		 * @param i index of the segment
+		 * @param pickID picking color of the segment (see {@link GenericLines} for details)
+		 * @return this for chaining
+		 */
+		public Editor setPickColor(int i, int pickID) {
+			checkIndex(i);
+			if(pickID != 0)
+				pickID = pickID | 0xff000000;
+			chunkForWrite(i).pickColors[i & CHUNK_MASK] = pickID;
+			return this;
+		}
+	}
+
+	/**
+	 * Immutable state of a {@link VersionedLines} object, see {@link VersionedLines#snapshot()}.
+	 * The segments cannot be modified.
+	 * The global attributes are copies of the ones of the {@link VersionedLines} object
+	 * at the time the snapshot was taken, changing them on the snapshot does not affect the object.
+	 */
+	public static class Snapshot extends GenericLines<Snapshot> {
+		protected final VersionedLines lines;
+		protected final Version state;
+
+		protected Snapshot(VersionedLines lines, Version state) {
+			this.lines = lines;
+			this.state = state;
+			copyGlobalAttributes(lines);
+			this.modificationCount = lines.modificationCount + state.number;
+			this.isDirty = false;
+		}
+
+		/**
+		 * @return number of the version of this snapshot, see {@link VersionedLines#getVersion()}
+		 */
+		public long getVersion() {
+			return state.number;
+		}
+
+		@Override
+		public Snapshot snapshot() {
+			return this;
+		}
+
+		@Override
+		public int numSegments() {
+			return state.size;
+		}
+
+		@Override
+		protected BoundingVolumeHierarchy getSpatialIndex() {
+			if(!lines.isSpatialIndexEnabled() || state.size < SPATIAL_INDEX_THRESHOLD)
+				return null;
+			return lines.getSpatialIndexOf(this);
+		}
+
+		@Override
+		public double getSegmentX0(int i) {
+			return chunkOf(state, i).x0s[i & CHUNK_MASK];
+		}
+
+		@Override
+		public double getSegmentY0(int i) {
+			return chunkOf(state, i).y0s[i & CHUNK_MASK];
+		}
+
+		@Override
+		public double getSegmentX1(int i) {
+			return chunkOf(state, i).x1s[i & CHUNK_MASK];
+		}
+
+		@Override
+		public double getSegmentY1(int i) {
+			return chunkOf(state, i).y1s[i & CHUNK_MASK];
+		}
+
+		@Override
+		public int getSegmentColor0(int i) {
+			return chunkOf(state, i).colors0[i & CHUNK_MASK];
+		}
+
+		@Override
+		public int getSegmentColor1(int i) {
+			return chunkOf(state, i).colors1[i & CHUNK_MASK];
+		}
+
+		@Override
+		public double getSegmentThickness0(int i) {
+			return chunkOf(state, i).thicknesses0[i & CHUNK_MASK];
+		}
+
+		@Override
+		public double getSegmentThickness1(int i) {
+			return chunkOf(state, i).thicknesses1[i & CHUNK_MASK];
+		}
+
+		@Override
+		public int getSegmentPickColor(int i) {
+			return chunkOf(state, i).pickColors[i & CHUNK_MASK];
+		}
+	}
+
+}
@@ -1,5 +1,6 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.jplotter.canvas.BlankCanvasFallback;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -58,6 +59,10 @@ public class ChainedRenderer implements Renderer, AdaptableView, GLDoublePrecisi
 			return;
 		}
 		r1.renderFallback(g,p, w, h);
+		// skip second renderer of an outdated frame
+		if(BlankCanvasFallback.isCancelled(g)){
+			return;
+		}
 		r2.renderFallback(g,p, w, h);
 	}
 
@@ -1,6 +1,8 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.jplotter.canvas.BlankCanvasFallback;
 import hageldave.jplotter.renderables.*;
+import hageldave.jplotter.util.FallbackLayerCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.w3c.dom.Document;
@@ -44,10 +46,13 @@ public class CompleteRenderer implements Renderer, AdaptableView, GLDoublePrecis
 	public final TrianglesRenderer triangles = new TrianglesRenderer();
 	public final CurvesRenderer curves = new CurvesRenderer();
 	
-	private final Renderer[] rendererLUT = {triangles,lines,curves,points,text};
+	private final GenericRenderer<?>[] rendererLUT = {triangles,lines,curves,points,text};
 	public static final int TRI = 0, LIN = 1, PNT = 2, TXT = 3, CRV = 4;
 	private final int[] renderOrder = {TRI,LIN,CRV,PNT,TXT};
 	boolean isEnabled = true;
+	protected boolean isFallbackLayerCachingEnabled = false;
+	/** raster layers of the renderers in fallback mode (same indices as the renderers) */
+	protected FallbackLayerCache[] fallbackLayers = createFallbackLayers();
 	
 	/**
 	 * Sets the order of the renderers. 
@@ -120,11 +125,64 @@ public class CompleteRenderer implements Renderer, AdaptableView, GLDoublePrecis
 		if(!isEnabled()){
 			return;
 		}
-		rendererLUT[renderOrder[0]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[1]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[2]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[3]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[4]].renderFallback(g, p, w, h);
+		for(int r : renderOrder){
+			// skip remaining renderers of an outdated frame
+			if(BlankCanvasFallback.isCancelled(g)){
+				return;
+			}
+			renderFallbackLayer(r, g, p, w, h);
+		}
+	}
+	
+	/**
+	 * Renders the specified renderer in fallback mode, using its cached raster layer 
+	 * when fallback layer caching is enabled.
+	 * @param r index of the renderer, one of {TRI,LIN,PNT,TXT,CRV}
+	 * @param g main graphics
+	 * @param p picking graphics
+	 * @param w width of the viewport
+	 * @param h height of the viewport
+	 */
+	protected void renderFallbackLayer(int r, Graphics2D g, Graphics2D p, int w, int h) {
+		GenericRenderer<?> renderer = rendererLUT[r];
+		if(!isFallbackLayerCachingEnabled() || renderer.getItemsToRender().isEmpty()){
+			renderer.renderFallback(g, p, w, h);
+		} else {
+			fallbackLayers[r].draw(g, p, w, h, renderer.getFallbackStateKey(), renderer::renderFallback);
+		}
+	}
+	
+	/**
+	 * En/Disables caching of the results of each renderer as raster layers in fallback mode (default is disabled).
+	 * When enabled, a renderer is only redrawn when the view changed or one of its items was modified 
+	 * (see {@link GenericRenderer#getFallbackStateKey()}), otherwise its layer is composited.
+	 * This is beneficial when only some of the renderers' items change between frames, e.g. when
+	 * streaming into a single {@link Points} object, but requires memory for a raster of viewport size per renderer.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public CompleteRenderer enableFallbackLayerCaching(boolean enable) {
+		this.isFallbackLayerCachingEnabled = enable;
+		if(!enable){
+			// free rasters
+			this.fallbackLayers = createFallbackLayers();
+		}
+		return this;
+	}
+	
+	/**
+	 * @return true when fallback layer caching is enabled, see {@link #enableFallbackLayerCaching(boolean)}
+	 */
+	public boolean isFallbackLayerCachingEnabled() {
+		return isFallbackLayerCachingEnabled;
+	}
+	
+	private FallbackLayerCache[] createFallbackLayers() {
+		FallbackLayerCache[] layers = new FallbackLayerCache[rendererLUT.length];
+		for(int i=0; i<layers.length; i++){
+			layers[i] = new FallbackLayerCache();
+		}
+		return layers;
 	}
 
 	/**
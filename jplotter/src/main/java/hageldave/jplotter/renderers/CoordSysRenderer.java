@@ -1,5 +1,7 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.canvas.BlankCanvasFallback.LayerTranslation;
 import hageldave.jplotter.color.ColorScheme;
 import hageldave.jplotter.color.DefaultColorScheme;
 import hageldave.jplotter.coordsys.ExtendedWilkinson;
@@ -13,6 +15,7 @@ import hageldave.jplotter.renderables.Lines;
 import hageldave.jplotter.renderables.Text;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLCoordinates;
+import hageldave.jplotter.util.FallbackLayerCache;
 import hageldave.jplotter.util.Pair;
 import hageldave.jplotter.util.PointeredPoint2D;
 import hageldave.jplotter.util.TranslatedPoint2D;
@@ -27,9 +30,12 @@ import org.w3c.dom.Node;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.IntSupplier;
 
@@ -65,6 +71,8 @@ import java.util.function.IntSupplier;
  * <p>
  * The overlay renderer ({@link #setOverlay(Renderer)}) can be used to finally draw over all
  * of the renderer viewport.
+ * When only the overlay changed, use {@link hageldave.jplotter.canvas.JPlotterCanvas#scheduleOverlayRepaint()} so that
+ * the fallback canvas can reuse everything below the overlay from the previous frame.
  * <p>
  * For interacting with this {@link CoordSysRenderer} there already exist implementations of MouseListeners
  * for panning and zooming (see {@link CoordSysPanning} and {@link CoordSysScrollZoom}).
@@ -136,6 +144,16 @@ public class CoordSysRenderer implements Renderer {
 
 	protected ColorScheme colorScheme;
 
+	/** incremented with every layout, see {@link #setupAndLayout()} */
+	protected int layoutCount = 0;
+	protected boolean isFallbackLayerCachingEnabled = true;
+	/** rasters of guides, ticks and tick labels (drawn below content) in fallback mode */
+	protected FallbackLayerCache preContentLayer = new FallbackLayerCache();
+	/** rasters of axes and axis labels (drawn above content) in fallback mode */
+	protected FallbackLayerCache postContentLayer = new FallbackLayerCache();
+	/** raster of everything below the overlay in fallback mode, reused for overlay repaints */
+	protected FallbackLayerCache belowOverlayLayer = new FallbackLayerCache();
+
 	/**
 	 * Sets up a CoordSysRenderer with the default color scheme
 	 */
@@ -444,6 +462,7 @@ public class CoordSysRenderer implements Renderer {
 	 * </ul>
 	 */
 	protected void setupAndLayout() {
+		layoutCount++;
 		Pair<double[],String[]> xticksAndLabels = tickMarkGenerator.genTicksAndLabels(
 				coordinateView.getMinX(), 
 				coordinateView.getMaxX(), 
@@ -699,8 +718,81 @@ public class CoordSysRenderer implements Renderer {
 			setupAndLayout();
 			isDirty = false;
 		}
-		preContentLinesR.renderFallback(g, p, w, h);
-		preContentTextR.renderFallback(g, p, w, h);
+		if(Objects.nonNull(overlay) && isFallbackLayerCachingEnabled()){
+			// everything below the overlay only changes with the scene (not for overlay repaints)
+			long sceneVersion = BlankCanvasFallback.getSceneVersion(g);
+			Object layerKey = sceneVersion < 0 ? null : Arrays.asList(sceneVersion, layoutCount);
+			LayerTranslation translation = BlankCanvasFallback.getLayerTranslation(g);
+			if(Objects.nonNull(layerKey) && Objects.nonNull(translation)){
+				translateBelowOverlayLayer(g, h, translation, layerKey);
+			}
+			belowOverlayLayer.draw(g, p, w, h, layerKey, this::renderFallbackBelowOverlay);
+		} else {
+			renderFallbackBelowOverlay(g, p, w, h);
+		}
+		
+		// draw overlay
+		if(Objects.nonNull(overlay)){
+			overlay.renderFallback(g, p, w, h);
+		}
+	}
+	
+	/**
+	 * Translates the content area of the cached layer below the overlay when the content area is the
+	 * translated area of the frame (panning with pan acceleration, see {@link BlankCanvasFallback#KEY_LAYER_TRANSLATION}).
+	 * Only the newly exposed parts of the content area are then drawn, while the overlay is drawn on top as usual.
+	 * @param g main graphics
+	 * @param h height of the viewport
+	 * @param translation of the frame
+	 * @param layerKey key of the layer for the current frame
+	 */
+	protected void translateBelowOverlayLayer(Graphics2D g, int h, LayerTranslation translation, Object layerKey) {
+		// content area in image coordinates of the layer (from top)
+		int viewPortW = (int)coordsysAreaLB.distance(coordsysAreaRB);
+		int viewPortH = (int)coordsysAreaLB.distance(coordsysAreaLT);
+		Rectangle contentArea = new Rectangle(
+				(int)coordsysAreaLB.getX(), h-(int)coordsysAreaLB.getY()-viewPortH, viewPortW, viewPortH);
+		// layer images are offset from the canvas by the translation of the graphics (y-axis flipped)
+		AffineTransform xform = g.getTransform();
+		int offsetX = (int)Math.round(xform.getTranslateX());
+		int offsetY = (int)Math.round(xform.getTranslateY())-h;
+		Rectangle canvasArea = new Rectangle(contentArea.x+offsetX, contentArea.y+offsetY, contentArea.width, contentArea.height);
+		if(!canvasArea.equals(translation.area)){
+			// translated area belongs to something else
+			return;
+		}
+		// the layout changes with every view change, the cached layer has to be of the previous frame
+		Object previousKey = belowOverlayLayer.getKey();
+		if(!(previousKey instanceof List) || !((List<?>)previousKey).get(0).equals(translation.previousSceneVersion)){
+			return;
+		}
+		// pixels on the border of the area (e.g. axes lines) are drawn again
+		belowOverlayLayer.translate(previousKey, layerKey, contentArea, translation.border, translation.dx, translation.dy);
+	}
+	
+	/**
+	 * Draws everything except for the overlay in fallback mode (after layout).
+	 * @param g main graphics
+	 * @param p picking graphics
+	 * @param w width of the viewport
+	 * @param h height of the viewport
+	 */
+	protected void renderFallbackBelowOverlay(Graphics2D g, Graphics2D p, int w, int h) {
+		if(isFallbackLayerCachingEnabled()){
+			// guides, ticks and axes only change with the layout or color scheme
+			Object layerKey = Arrays.asList(layoutCount, Utils.copy(coordinateView), colorScheme);
+			preContentLayer.draw(g, p, w, h, layerKey, (lg,lp,lw,lh)->{
+				preContentLinesR.renderFallback(lg, lp, lw, lh);
+				preContentTextR.renderFallback(lg, lp, lw, lh);
+			});
+		} else {
+			preContentLinesR.renderFallback(g, p, w, h);
+			preContentTextR.renderFallback(g, p, w, h);
+		}
+		// skip remaining renderers of an outdated frame
+		if(BlankCanvasFallback.isCancelled(g)){
+			return;
+		}
 		if(content != null){
 			int viewPortX = (int)coordsysAreaLB.getX();
 			int viewPortY = (int)coordsysAreaLB.getY();
@@ -714,8 +806,19 @@ public class CoordSysRenderer implements Renderer {
 			Graphics2D p_ = (Graphics2D)p.create(viewPortX, viewPortY, viewPortW, viewPortH);
 			content.renderFallback(g_, p_, viewPortW, viewPortH);
 		}
-		postContentLinesR.renderFallback(g, p, w, h);
-		postContentTextR.renderFallback(g, p, w, h);
+		if(BlankCanvasFallback.isCancelled(g)){
+			return;
+		}
+		if(isFallbackLayerCachingEnabled()){
+			Object layerKey = Arrays.asList(layoutCount, Utils.copy(coordinateView), colorScheme);
+			postContentLayer.draw(g, p, w, h, layerKey, (lg,lp,lw,lh)->{
+				postContentLinesR.renderFallback(lg, lp, lw, lh);
+				postContentTextR.renderFallback(lg, lp, lw, lh);
+			});
+		} else {
+			postContentLinesR.renderFallback(g, p, w, h);
+			postContentTextR.renderFallback(g, p, w, h);
+		}
 		// draw legends
 		if(Objects.nonNull(legendRight)){
 			// create viewport graphics
@@ -729,11 +832,6 @@ public class CoordSysRenderer implements Renderer {
 			Graphics2D p_ = (Graphics2D)p.create(legendBottomViewPort.x, legendBottomViewPort.y, legendBottomViewPort.width, legendBottomViewPort.height);
 			legendBottom.renderFallback(g_, p_, legendBottomViewPort.width, legendBottomViewPort.height);
 		}
-		
-		// draw overlay
-		if(Objects.nonNull(overlay)){
-			overlay.renderFallback(g, p, w, h);
-		}
 	}
 	
 	@Override
@@ -757,7 +855,7 @@ public class CoordSysRenderer implements Renderer {
 			// define the clipping rectangle for the content (rect of vieport size)
 			Node defs = SVGUtils.getDefs(doc);
 			Element clip = SVGUtils.createSVGElement(doc, "clipPath");
-			String clipDefID = SVGUtils.newDefId();
+			String clipDefID = SVGUtils.newDefId(doc);
 			clip.setAttributeNS(null, "id", clipDefID);
 			clip.appendChild(SVGUtils.createSVGRect(doc, 0, 0, viewPortW, viewPortH));
 			defs.appendChild(clip);
@@ -777,7 +875,7 @@ public class CoordSysRenderer implements Renderer {
 			// define the clipping rectangle for the content (rect of vieport size)
 			Node defs = SVGUtils.getDefs(doc);
 			Element clip = SVGUtils.createSVGElement(doc, "clipPath");
-			String clipDefID = SVGUtils.newDefId();
+			String clipDefID = SVGUtils.newDefId(doc);
 			clip.setAttributeNS(null, "id", clipDefID);
 			clip.appendChild(SVGUtils.createSVGRect(doc, 0, 0, legendRightViewPort.width, legendRightViewPort.height));
 			defs.appendChild(clip);
@@ -794,7 +892,7 @@ public class CoordSysRenderer implements Renderer {
 			// define the clipping rectangle for the content (rect of vieport size)
 			Node defs = SVGUtils.getDefs(doc);
 			Element clip = SVGUtils.createSVGElement(doc, "clipPath");
-			String clipDefID = SVGUtils.newDefId();
+			String clipDefID = SVGUtils.newDefId(doc);
 			clip.setAttributeNS(null, "id", clipDefID);
 			clip.appendChild(SVGUtils.createSVGRect(doc, 0, 0, legendBottomViewPort.width, legendBottomViewPort.height));
 			defs.appendChild(clip);
@@ -1029,6 +1127,36 @@ public class CoordSysRenderer implements Renderer {
 		if(Objects.nonNull(overlay))
 			overlay.close();
 	}
+	/**
+	 * En/Disables caching of the coordinate system's guides, ticks, labels and axes
+	 * as raster layers in fallback mode (default is enabled).
+	 * The layers are then only redrawn when the layout, coordinate view or color scheme changed
+	 * and are otherwise composited below and above the content.
+	 * When an overlay is set, everything below it is cached as well and reused when the scene version
+	 * did not change (overlay repaints, see {@link BlankCanvasFallback#KEY_SCENE_VERSION}).
+	 * Its content area is translated when the content is panned (see {@link BlankCanvasFallback#KEY_LAYER_TRANSLATION}),
+	 * so that only the newly exposed parts are drawn below the overlay.
+	 * Use {@link #setDirty()} to force redrawing the layers.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public CoordSysRenderer enableFallbackLayerCaching(boolean enable) {
+		this.isFallbackLayerCachingEnabled = enable;
+		if(!enable){
+			preContentLayer = new FallbackLayerCache();
+			postContentLayer = new FallbackLayerCache();
+			belowOverlayLayer = new FallbackLayerCache();
+		}
+		return this;
+	}
+	
+	/**
+	 * @return true when fallback layer caching is enabled, see {@link #enableFallbackLayerCaching(boolean)}
+	 */
+	public boolean isFallbackLayerCachingEnabled() {
+		return isFallbackLayerCachingEnabled;
+	}
+	
 	@Override
 	public void setEnabled(boolean enable) {
 		this.isEnabled = enable;
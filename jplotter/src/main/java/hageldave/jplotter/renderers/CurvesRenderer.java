@@ -29,6 +29,7 @@ import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -539,6 +540,13 @@ public class CurvesRenderer extends GenericRenderer<Curves> {
 	}
 	
 
+    @Override
+    protected void addFallbackStateOf(Curves curves, List<Object> key) {
+        key.add(curves.getGlobalThicknessMultiplier());
+        key.add(curves.getGlobalAlphaMultiplier());
+        key.add(curves.getGlobalSaturationMultiplier());
+    }
+
     @Override
     public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
         if (!isEnabled()) {
@@ -1,12 +1,18 @@
 package hageldave.jplotter.renderers;
 
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 
+import hageldave.jplotter.canvas.BlankCanvasFallback;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.renderables.Renderable;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.FallbackLayerCache;
 import hageldave.jplotter.util.GLUtils;
 import hageldave.jplotter.util.Utils;
 
@@ -211,4 +217,86 @@ public abstract class GenericRenderer<T extends Renderable> implements Renderer,
 		this.view = Objects.isNull(view) ? null:Utils.copy(view);
 	}
 	
+	/**
+	 * Returns a key object for the current state of this renderer's fallback rendering.
+	 * Keys of two states are equal when fallback rendering would produce the same result for both,
+	 * which allows to cache the result (see {@link FallbackLayerCache}).
+	 * The key consists of the view, the enabled state and for each item its identity, 
+	 * {@link Renderable#getModificationCount()}, hidden state and item specific values 
+	 * (see {@link #addFallbackStateOf(Renderable, List)}).
+	 * @return key of the current state, or null when the state cannot be tracked 
+	 * (when an item does not track its modifications)
+	 */
+	public Object getFallbackStateKey() {
+		List<Object> key = new ArrayList<>();
+		key.add(isEnabled());
+		key.add(Objects.isNull(view) ? null:Utils.copy(view));
+		for(T item : getItemsToRender()){
+			long modificationCount = item.getModificationCount();
+			if(modificationCount < 0){
+				return null;
+			}
+			key.add(item);
+			key.add(modificationCount);
+			key.add(item.isHidden());
+			addFallbackStateOf(item, key);
+		}
+		return key;
+	}
+	
+	/**
+	 * Adds values to the fallback state key that affect the appearance of the specified item but
+	 * are not covered by its modification count (e.g. values of global multiplier suppliers).
+	 * See {@link #getFallbackStateKey()}.
+	 * @param item to add the state of
+	 * @param key to add to
+	 */
+	protected void addFallbackStateOf(T item, List<Object> key) {
+		// nothing in addition by default
+	}
+	
+	/**
+	 * Returns the part of the viewport {@code (0,0,w,h)} that lies inside the clip of the specified graphics.
+	 * During fallback rendering, elements outside of this area do not need to be drawn, 
+	 * e.g. when only a tile of the canvas is rendered (see {@link BlankCanvasFallback#enableTiledRendering(boolean)}).
+	 * @param g graphics to be drawn with
+	 * @param w width of the viewport
+	 * @param h height of the viewport
+	 * @return area of the viewport that can be drawn to (may be empty)
+	 */
+	protected static Rectangle2D getFallbackDrawArea(Graphics2D g, int w, int h) {
+		Rectangle2D viewportRect = new Rectangle2D.Double(0, 0, w, h);
+		Rectangle clip = g.getClipBounds();
+		if(Objects.isNull(clip)){
+			return viewportRect;
+		}
+		if(!clip.intersects(viewportRect)){
+			return new Rectangle2D.Double();
+		}
+		Rectangle2D.intersect(viewportRect, clip, viewportRect);
+		return viewportRect;
+	}
+	
+	/**
+	 * Maps the specified rectangle of the viewport to coordinate space (inverse of the view transformation)
+	 * and extends it by the specified margin.
+	 * This is used to query only the potentially visible elements from a renderable.
+	 * @param viewportRect rectangle in viewport (pixel) space
+	 * @param translateX x coordinate of the view
+	 * @param translateY y coordinate of the view
+	 * @param scaleX horizontal scaling from coordinate space to viewport
+	 * @param scaleY vertical scaling from coordinate space to viewport
+	 * @param margin in pixels by which the rectangle is extended on each side
+	 * @return rectangle in coordinate space
+	 */
+	protected static Rectangle2D viewportToCoordinateRect(Rectangle2D viewportRect, double translateX, double translateY, double scaleX, double scaleY, double margin) {
+		double x0 = translateX+(viewportRect.getMinX()-margin)/scaleX;
+		double x1 = translateX+(viewportRect.getMaxX()+margin)/scaleX;
+		double y0 = translateY+(viewportRect.getMinY()-margin)/scaleY;
+		double y1 = translateY+(viewportRect.getMaxY()+margin)/scaleY;
+		return new Rectangle2D.Double(
+				Math.min(x0, x1), Math.min(y0, y1), 
+				Math.abs(x1-x0), Math.abs(y1-y0));
+	}
+	
 }
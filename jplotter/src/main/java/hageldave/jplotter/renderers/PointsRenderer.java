@@ -1,15 +1,24 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.imagingkit.core.Img;
 import hageldave.imagingkit.core.Pixel;
+import hageldave.jplotter.canvas.RenderQuality;
+import hageldave.jplotter.color.ColorMap;
 import hageldave.jplotter.color.ColorOperations;
+import hageldave.jplotter.color.DefaultColorMap;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.misc.GlyphSpriteCache;
 import hageldave.jplotter.renderables.Points;
-import hageldave.jplotter.renderables.Points.PointDetails;
 import hageldave.jplotter.renderables.Renderable;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.DensityImage;
+import hageldave.jplotter.util.DensityPyramid;
+import hageldave.jplotter.util.DirectRaster;
+import hageldave.jplotter.util.Pair;
 import hageldave.jplotter.util.ShaderRegistry;
+import hageldave.jplotter.util.Utils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -26,7 +35,12 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
 
 /**
  * The PointsRenderer is an implementation of the {@link GenericRenderer}
@@ -40,6 +54,19 @@ import java.util.Objects;
  * <br>
  * Its fragment shader draws the picking color into the second render buffer
  * alongside the 'visible' color that is drawn into the first render buffer.
+ * <p>
+ * For very large numbers of points, where glyphs mostly overdraw each other, the renderer
+ * can be switched to a binning mode ({@link #enableBinning(boolean)}).
+ * Instead of glyphs, the number of points per pixel is computed and mapped to a color
+ * through the binning color map ({@link #setBinningColorMap(ColorMap)}), pixels without
+ * points stay transparent.
+ * The counts are taken from a {@link DensityPyramid} per {@link Points} object that is built once
+ * (and rebuilt after the points were modified), so the cost of a frame is proportional to the number of pixels
+ * instead of the number of points.
+ * When zoomed in so far that the bins of the pyramid are larger than a pixel, the points in view are
+ * counted directly per pixel using the spatial index of the points instead, so that the binned image
+ * keeps the screen resolution.
+ * In binning mode, glyphs, point colors, global multipliers and picking colors are not used.
  * 
  * @author hageldave
  */
@@ -184,6 +211,18 @@ public class PointsRenderer extends GenericRenderer<Points> {
 
 	protected float glyphScaling = 1f;
 
+	protected boolean isBinningEnabled = false;
+	protected ColorMap binningColorMap = DefaultColorMap.S_VIRIDIS;
+	protected boolean isLogBinScaleEnabled = true;
+	protected int binningResolution = DensityPyramid.DEFAULT_RESOLUTION;
+	/** density pyramids of the rendered points with the modification count they were built for, guarded by this */
+	protected final Map<Points, Pair<Long, DensityPyramid>> densityPyramids = new WeakHashMap<>();
+	/** binned image of the last frame (rows bottom up) and its state key, guarded by this */
+	protected Img binnedImage;
+	protected Object binnedImageKey;
+	/** GL resources for drawing the binned image */
+	protected final DensityImage binnedImageGL = new DensityImage();
+
 	/**
 	 * Sets the renderers glyph scaling value. 
 	 * Default is 1.0.
@@ -201,6 +240,98 @@ public class PointsRenderer extends GenericRenderer<Points> {
 	public float getGlyphScaling() {
 		return glyphScaling;
 	}
+
+	/**
+	 * Enables or disables the binning mode of this renderer.
+	 * When enabled, the points are not drawn as glyphs but counted per pixel and the counts are
+	 * mapped to colors using the binning color map (see {@link PointsRenderer}).
+	 * Disabling releases the density pyramids of the points.
+	 * Default is false.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public PointsRenderer enableBinning(boolean enable) {
+		this.isBinningEnabled = enable;
+		if(!enable){
+			synchronized (this) {
+				densityPyramids.clear();
+				binnedImage = null;
+				binnedImageKey = null;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return true when binning mode is enabled, see {@link #enableBinning(boolean)}
+	 */
+	public boolean isBinningEnabled() {
+		return isBinningEnabled;
+	}
+
+	/**
+	 * Sets the color map to which the point counts are mapped in binning mode.
+	 * The highest count in view maps to the end of the color map, see {@link DensityImage#toneMap(float[], int, int, ColorMap, boolean)}.
+	 * Default is {@link DefaultColorMap#S_VIRIDIS}.
+	 * @param colormap color map for the counts
+	 * @return this for chaining
+	 */
+	public PointsRenderer setBinningColorMap(ColorMap colormap) {
+		this.binningColorMap = Objects.requireNonNull(colormap);
+		return this;
+	}
+
+	/**
+	 * @return the color map of the binning mode, see {@link #setBinningColorMap(ColorMap)}
+	 */
+	public ColorMap getBinningColorMap() {
+		return binningColorMap;
+	}
+
+	/**
+	 * Enables or disables logarithmic scaling of the point counts in binning mode.
+	 * Point densities typically span several orders of magnitude, with linear scaling
+	 * only the densest pixels would be distinguishable.
+	 * Default is true.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public PointsRenderer enableLogarithmicBinScale(boolean enable) {
+		this.isLogBinScaleEnabled = enable;
+		return this;
+	}
+
+	/**
+	 * @return true when point counts are scaled logarithmically in binning mode,
+	 * see {@link #enableLogarithmicBinScale(boolean)}
+	 */
+	public boolean isLogarithmicBinScaleEnabled() {
+		return isLogBinScaleEnabled;
+	}
+
+	/**
+	 * Sets the number of bins per dimension of the finest level of the density pyramids used in binning mode.
+	 * Zooming in beyond this resolution shows the bins as blocks of pixels.
+	 * A pyramid takes about 5.3 bytes per bin of the finest level (5.6 MB for the default resolution of
+	 * {@link DensityPyramid#DEFAULT_RESOLUTION}).
+	 * @param resolution number of bins per dimension
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when resolution is less than 1
+	 */
+	public PointsRenderer setBinningResolution(int resolution) {
+		if(resolution < 1){
+			throw new IllegalArgumentException("Resolution has to be positive, but got " + resolution);
+		}
+		this.binningResolution = resolution;
+		return this;
+	}
+
+	/**
+	 * @return number of bins per dimension of the finest pyramid level, see {@link #setBinningResolution(int)}
+	 */
+	public int getBinningResolution() {
+		return binningResolution;
+	}
 	
 	/**
 	 * Creates the shader if not already created and 
@@ -234,9 +365,27 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		if(Objects.nonNull(shaderD))
 			ShaderRegistry.handbackShader(shaderD);
 		shaderD = null;
+		binnedImageGL.close();
 		closeAllItems();
 	}
 
+	/**
+	 * Renders the points as glyphs (see {@link GenericRenderer#render(int, int, int, int)}),
+	 * or in binning mode as a single textured quad showing the binned image.
+	 */
+	@Override
+	@GLContextRequired
+	public void render(int vpx, int vpy, int w, int h) {
+		if(!isBinningEnabled()){
+			super.render(vpx, vpy, w, h);
+			return;
+		}
+		if(!isEnabled() || w < 1 || h < 1 || itemsToRender.isEmpty()){
+			return;
+		}
+		binnedImageGL.renderGL(getBinnedImage(w, h));
+	}
+
 	/**
 	 * Disables {@link GL11#GL_DEPTH_TEST},
 	 * enables {@link GL11#GL_BLEND}
@@ -309,17 +458,118 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		GL11.glEnable(GL11.GL_DEPTH_TEST);
 	}
 	
+	@Override
+	protected void addFallbackStateOf(Points points, List<Object> key) {
+		key.add(glyphScaling);
+		key.add(points.getGlobalScaling());
+		key.add(points.getGlobalAlphaMultiplier());
+		key.add(points.getGlobalSaturationMultiplier());
+		key.add(isBinningEnabled);
+		if(isBinningEnabled){
+			key.add(binningColorMap);
+			key.add(isLogBinScaleEnabled);
+			key.add(binningResolution);
+		}
+	}
+
+	/**
+	 * Returns the density pyramid of the specified points, (re)building it when
+	 * the points were modified or the binning resolution changed.
+	 * @param points to get the pyramid for
+	 * @return density pyramid of the points
+	 */
+	protected synchronized DensityPyramid getDensityPyramid(Points points) {
+		long modificationCount = points.getModificationCount();
+		Pair<Long, DensityPyramid> entry = densityPyramids.get(points);
+		if(Objects.isNull(entry) || modificationCount < 0 || entry.first != modificationCount
+				|| entry.second.getResolution() != binningResolution)
+		{
+			DensityPyramid pyramid = new DensityPyramid(points.numPoints(), points::getPointX, points::getPointY, null, binningResolution);
+			entry = new Pair<>(modificationCount, pyramid);
+			densityPyramids.put(points, entry);
+		}
+		return entry.second;
+	}
+
+	/**
+	 * Computes the image of the binning mode, i.e. the color mapped point counts per pixel
+	 * of all non hidden points.
+	 * The image of the previous call is reused when neither the view, the size, the points
+	 * nor the binning settings changed (e.g. for the tiles of a frame).
+	 * @param w width of the viewport
+	 * @param h height of the viewport
+	 * @return image of w x h pixels with rows from bottom to top (row 0 at y=0), must not be modified
+	 */
+	protected synchronized Img getBinnedImage(int w, int h) {
+		Object stateKey = getFallbackStateKey();
+		Object key = Objects.isNull(stateKey) ? null : Arrays.asList(stateKey, w, h);
+		if(Objects.nonNull(key) && Objects.nonNull(binnedImage) && key.equals(binnedImageKey)){
+			return binnedImage;
+		}
+		double x = Objects.isNull(view) ? 0:view.getX();
+		double y = Objects.isNull(view) ? 0:view.getY();
+		double width = Objects.isNull(view) ? w:view.getWidth();
+		double height = Objects.isNull(view) ? h:view.getHeight();
+		float[] counts = new float[w*h];
+		for(Points points : getItemsToRender()){
+			if(points.isHidden() || points.numPoints() < 1){
+				continue;
+			}
+			DensityPyramid pyramid = getDensityPyramid(points);
+			if(pyramid.isCoarserThanPixel(width/w, height/h)){
+				binPointsInView(points, x, y, width, height, w, h, counts);
+			} else {
+				pyramid.aggregate(x, y, width, height, w, h, counts);
+			}
+		}
+		Img img = DensityImage.toneMap(counts, w, h, binningColorMap, isLogBinScaleEnabled);
+		binnedImage = img;
+		binnedImageKey = key;
+		return img;
+	}
+
+	/**
+	 * Counts the points inside the specified rectangle per pixel of a w x h grid covering the rectangle.
+	 * This is used instead of the density pyramid when its bins are larger than a pixel,
+	 * the spatial index of the points limits the cost to the points in view.
+	 * @param points to count
+	 * @param x left of the rectangle
+	 * @param y bottom of the rectangle
+	 * @param width of the rectangle
+	 * @param height of the rectangle
+	 * @param w number of pixel columns
+	 * @param h number of pixel rows
+	 * @param counts row major array of w*h pixels to add to, row 0 is at the bottom (y)
+	 */
+	protected static void binPointsInView(Points points, double x, double y, double width, double height, int w, int h, float[] counts) {
+		double scaleX = w/width, scaleY = h/height;
+		points.forEachPointInRect(new Rectangle2D.Double(x, y, width, height), i->{
+			int col = Utils.clamp(0, (int)((points.getPointX(i)-x)*scaleX), w-1);
+			int row = Utils.clamp(0, (int)((points.getPointY(i)-y)*scaleY), h-1);
+			counts[row*w+col] += 1f;
+		});
+	}
+
 	@Override
 	public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
 		if(!isEnabled()){
 			return;
 		}
+		if(isBinningEnabled()){
+			if(w > 0 && h > 0 && !getFallbackDrawArea(g, w, h).isEmpty()){
+				// rows of the binned image are bottom up like the y-axis of g
+				g.drawImage(getBinnedImage(w, h).getRemoteBufferedImage(), 0, 0, null);
+			}
+			return;
+		}
 		double translateX = Objects.isNull(view) ? 0:view.getX();
 		double translateY = Objects.isNull(view) ? 0:view.getY();
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 
-		Rectangle2D viewportRect = new Rectangle2D.Double(0, 0, w, h);
+		// only the part of the viewport inside the clip needs to be drawn (e.g. when rendering tiles)
+		Rectangle2D viewportRect = getFallbackDrawArea(g, w, h);
+		RenderQuality quality = RenderQuality.of(g);
 	
 		g.setStroke(new BasicStroke());
 		p.setStroke(new BasicStroke());
@@ -329,10 +579,21 @@ public class PointsRenderer extends GenericRenderer<Points> {
 				continue;
 			}
 			Glyph glyph = points.getGlyph();
+			Rectangle2D queryRect = viewportToCoordinateRect(viewportRect, translateX, translateY, scaleX, scaleY, glyph.pixelSize()/2.0+1);
+			// glyphs are stamped from cached sprites when drawing directly into the render buffers is possible
+			DirectRaster gRaster = DirectRaster.of(g);
+			DirectRaster pRaster = DirectRaster.of(p);
+			boolean useSprites = Objects.nonNull(gRaster) && Objects.nonNull(pRaster);
+			// frames of reduced quality only draw every n-th point
+			int stride = quality.getDecimationStride(points.numPoints());
 			
-			for(PointDetails point : points.getPointDetails()){
+			// only visit points in the vicinity of the view (uses spatial index of points)
+			points.forEachPointInRect(queryRect, i->{
+				if(stride > 1 && i%stride != 0){
+					return;
+				}
 				double x1,y1;
-				x1=point.location.getX(); y1=point.location.getY();
+				x1=points.getPointX(i); y1=points.getPointY(i);
 				
 				x1-=translateX;
 				y1-=translateY;
@@ -345,30 +606,43 @@ public class PointsRenderer extends GenericRenderer<Points> {
 						glyph.pixelSize(), 
 						glyph.pixelSize()))
 				{
-					continue;
+					return;
 				}
 				
 				
+				double rot = points.getPointRotation(i);
+				double scale = points.getPointScaling(i);
+				int pickColor = points.getPointPickColor(i);
+				float glyphScale = (float)(glyphScaling*points.getGlobalScaling()*scale);
+				int color = ColorOperations.changeSaturation(points.getPointColor(i), points.getGlobalSaturationMultiplier());
+				color = ColorOperations.scaleColorAlpha(color,points.getGlobalAlphaMultiplier());
+				
+				if(useSprites && GlyphSpriteCache.supports(glyph, glyphScale)){
+					GlyphSpriteCache.stamp(gRaster, glyph, x1, y1, glyphScale, rot, color);
+					if(pickColor != 0){
+						GlyphSpriteCache.stamp(pRaster, glyph, x1, y1, glyphScale, rot, pickColor | 0xff000000);
+					}
+					return;
+				}
+				
 				Graphics2D g_ = (Graphics2D) g.create();
 				AffineTransform xform = new AffineTransform();
 				xform.translate(x1, y1);
-				if(point.rot.getAsDouble() != 0.0){
-					xform.rotate(point.rot.getAsDouble());
+				if(rot != 0.0){
+					xform.rotate(rot);
 				}
 				g_.transform(xform);
-				int color = ColorOperations.changeSaturation(point.color.getAsInt(), points.getGlobalSaturationMultiplier());
-				color = ColorOperations.scaleColorAlpha(color,points.getGlobalAlphaMultiplier());
 
 				g_.setColor(new Color(color, true));
-				glyph.drawFallback(g_, (float)(glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()));
+				glyph.drawFallback(g_, glyphScale);
 				
-				if(point.pickColor != 0) {
+				if(pickColor != 0) {
 					Graphics2D p_ = (Graphics2D) p.create();
 					p_.transform(xform);
-					p_.setColor(new Color(point.pickColor));
-					glyph.drawFallback(p_, (float)(glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()));
+					p_.setColor(new Color(pickColor));
+					glyph.drawFallback(p_, glyphScale);
 				}
-			}
+			});
 		}
 		
 	}
@@ -378,6 +652,12 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		if(!isEnabled()){
 			return;
 		}
+		if(isBinningEnabled()){
+			if(w > 0 && h > 0){
+				DensityImage.renderSVG(doc, parent, getBinnedImage(w, h));
+			}
+			return;
+		}
 		Element mainGroup = SVGUtils.createSVGElement(doc, "g");
 		parent.appendChild(mainGroup);
 		
@@ -396,9 +676,10 @@ public class PointsRenderer extends GenericRenderer<Points> {
 			mainGroup.appendChild(pointsGroup);
 			Glyph glyph = points.getGlyph();
 			String symbolID = SVGUtils.createGlyphSymbolDef(doc, glyph, "glyph_"+glyph.glyphName());
-			for(PointDetails point : points.getPointDetails()){
+			Rectangle2D queryRect = viewportToCoordinateRect(viewportRect, translateX, translateY, scaleX, scaleY, glyph.pixelSize()/2.0+1);
+			points.forEachPointInRect(queryRect, i->{
 				double x1,y1;
-				x1=point.location.getX(); y1=point.location.getY();
+				x1=points.getPointX(i); y1=points.getPointY(i);
 				
 				x1-=translateX;
 				y1-=translateY;
@@ -411,10 +692,12 @@ public class PointsRenderer extends GenericRenderer<Points> {
 						glyph.pixelSize(), 
 						glyph.pixelSize()))
 				{
-					continue;
+					return;
 				}
 
-				int color = ColorOperations.changeSaturation(point.color.getAsInt(), points.getGlobalSaturationMultiplier());
+				double rot = points.getPointRotation(i);
+				double scale = points.getPointScaling(i);
+				int color = ColorOperations.changeSaturation(points.getPointColor(i), points.getGlobalSaturationMultiplier());
 
 				Element pointElement = SVGUtils.createSVGElement(doc, "use");
 				pointsGroup.appendChild(pointElement);
@@ -431,15 +714,15 @@ public class PointsRenderer extends GenericRenderer<Points> {
 				}
 				String transform = "";
 				transform += "translate("+SVGUtils.svgNumber(x1)+","+SVGUtils.svgNumber(y1)+")";
-				if(point.rot.getAsDouble() != 0){
-					transform += " rotate("+SVGUtils.svgNumber(point.rot.getAsDouble()*180/Math.PI)+")";
+				if(rot != 0){
+					transform += " rotate("+SVGUtils.svgNumber(rot*180/Math.PI)+")";
 				}
-				if(glyphScaling*point.scale.getAsDouble() != 1){
-					transform += " scale("+SVGUtils.svgPoints(points.getGlobalScaling()*glyphScaling*point.scale.getAsDouble(), points.getGlobalScaling()*glyphScaling*point.scale.getAsDouble())+")";
+				if(glyphScaling*scale != 1){
+					transform += " scale("+SVGUtils.svgPoints(points.getGlobalScaling()*glyphScaling*scale, points.getGlobalScaling()*glyphScaling*scale)+")";
 				}
 				
 				pointElement.setAttributeNS(null, "transform", transform);
-			}
+			});
 		}
 	}
 
@@ -448,6 +731,12 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		if(!isEnabled()){
 			return;
 		}
+		if(isBinningEnabled()){
+			if(w > 0 && h > 0){
+				DensityImage.renderPDF(doc, page, getBinnedImage(w, h), x, y);
+			}
+			return;
+		}
 
 		double translateX = Objects.isNull(view) ? 0:view.getX();
 		double translateY = Objects.isNull(view) ? 0:view.getY();
@@ -472,65 +761,73 @@ public class PointsRenderer extends GenericRenderer<Points> {
 
 				Glyph glyph = points.getGlyph();
 
-				for (PointDetails point : points.getPointDetails()) {
-					double x1, y1;
-					x1 = point.location.getX();
-					y1 = point.location.getY();
-
-					x1 -= translateX;
-					y1 -= translateY;
-					x1 *= scaleX;
-					y1 *= scaleY;
-
-					if (!viewportRect.intersects(
-							x1 - glyph.pixelSize() / 2,
-							y1 - glyph.pixelSize() / 2,
-							glyph.pixelSize(),
-							glyph.pixelSize())) {
-						continue;
-					}
+				Rectangle2D queryRect = viewportToCoordinateRect(viewportRect, translateX, translateY, scaleX, scaleY, glyph.pixelSize()/2.0+1);
+				points.forEachPointInRect(queryRect, i->{
+					try {
+						double x1, y1;
+						x1 = points.getPointX(i);
+						y1 = points.getPointY(i);
+
+						x1 -= translateX;
+						y1 -= translateY;
+						x1 *= scaleX;
+						y1 *= scaleY;
+
+						if (!viewportRect.intersects(
+								x1 - glyph.pixelSize() / 2,
+								y1 - glyph.pixelSize() / 2,
+								glyph.pixelSize(),
+								glyph.pixelSize())) {
+							return;
+						}
 
-					// save graphics state
-					contentStream.saveGraphicsState();
-					// transform
-					contentStream.transform(new Matrix(1, 0, 0, 1, (float) x1 + x, (float) y1 + y));
-					if(point.rot.getAsDouble() != 0){
-						// rotation
-						contentStream.transform(new Matrix((float) Math.cos(-point.rot.getAsDouble()),(float) -Math.sin(-point.rot.getAsDouble()),
-								(float) Math.sin(-point.rot.getAsDouble()),(float) Math.cos(-point.rot.getAsDouble()), 0, 0));
-					}
-					// scale
-					contentStream.transform(new Matrix((float) (glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()), 0, 0,
-						(float) (glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()), 0, 0));
-
-					glyph.createPDFElement(contentStream);
-
-					PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
-					int color = ColorOperations.changeSaturation(point.color.getAsInt(), points.getGlobalSaturationMultiplier());
-					Color scaledColor = new Color(ColorOperations.scaleColorAlpha(color, points.getGlobalAlphaMultiplier()), true);
-					graphicsState.setStrokingAlphaConstant(scaledColor.getAlpha()/255F);
-					graphicsState.setNonStrokingAlphaConstant(scaledColor.getAlpha()/255F);
-					contentStream.setGraphicsStateParameters(graphicsState);
-
-					if(glyph.isFilled()){
-						contentStream.setNonStrokingColor(new Color(color));
-						contentStream.fill();
-					} else {
-						contentStream.setLineWidth(0);
-						if ((glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()) != 0) {
-							contentStream.setLineWidth((float) (1/(glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble())));
+						double rot = points.getPointRotation(i);
+						double scale = points.getPointScaling(i);
+
+						// save graphics state
+						contentStream.saveGraphicsState();
+						// transform
+						contentStream.transform(new Matrix(1, 0, 0, 1, (float) x1 + x, (float) y1 + y));
+						if(rot != 0){
+							// rotation
+							contentStream.transform(new Matrix((float) Math.cos(-rot),(float) -Math.sin(-rot),
+									(float) Math.sin(-rot),(float) Math.cos(-rot), 0, 0));
+						}
+						// scale
+						contentStream.transform(new Matrix((float) (glyphScaling*points.getGlobalScaling()*scale), 0, 0,
+							(float) (glyphScaling*points.getGlobalScaling()*scale), 0, 0));
+
+						glyph.createPDFElement(contentStream);
+
+						PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
+						int color = ColorOperations.changeSaturation(points.getPointColor(i), points.getGlobalSaturationMultiplier());
+						Color scaledColor = new Color(ColorOperations.scaleColorAlpha(color, points.getGlobalAlphaMultiplier()), true);
+						graphicsState.setStrokingAlphaConstant(scaledColor.getAlpha()/255F);
+						graphicsState.setNonStrokingAlphaConstant(scaledColor.getAlpha()/255F);
+						contentStream.setGraphicsStateParameters(graphicsState);
+
+						if(glyph.isFilled()){
+							contentStream.setNonStrokingColor(new Color(color));
+							contentStream.fill();
+						} else {
+							contentStream.setLineWidth(0);
+							if ((glyphScaling*points.getGlobalScaling()*scale) != 0) {
+								contentStream.setLineWidth((float) (1/(glyphScaling*points.getGlobalScaling()*scale)));
+							}
+							contentStream.setStrokingColor(new Color(color));
+							contentStream.stroke();
 						}
-						contentStream.setStrokingColor(new Color(color));
-						contentStream.stroke();
+						// restore the graphics state again, after the affine transformation & colors have been applied -> resets content stream transform property
+						contentStream.restoreGraphicsState();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
 					}
-					// restore the graphics state again, after the affine transformation & colors have been applied -> resets content stream transform property
-					contentStream.restoreGraphicsState();
-				}
+				});
 			}
 			// restore graphics
 			contentStream.restoreGraphicsState();
 			contentStream.close();
-		} catch (IOException e) {
+		} catch (IOException | UncheckedIOException e) {
 			throw new RuntimeException("Error occurred!");
 		}
 	}
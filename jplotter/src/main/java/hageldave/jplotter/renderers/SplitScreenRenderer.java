@@ -1,5 +1,6 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.jplotter.canvas.BlankCanvasFallback;
 import hageldave.jplotter.svg.SVGUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -183,6 +184,10 @@ public class SplitScreenRenderer implements Renderer {
 			Graphics2D p_ = (Graphics2D)p.create(x1,y1,w1,h1);
 			r1.renderFallback(g_,p_, w1, h1);
 		}
+		// skip second renderer of an outdated frame
+		if(BlankCanvasFallback.isCancelled(g)){
+			return;
+		}
 		if(r2 != null) {
 			// create translated and clipped graphics for the content
 			Graphics2D g_ = (Graphics2D)g.create(x2,y2,w2,h2);
@@ -212,7 +217,7 @@ public class SplitScreenRenderer implements Renderer {
 			// define the clipping rectangle for the content (rect of vieport size)
 			Node defs = SVGUtils.getDefs(doc);
 			Element clip = SVGUtils.createSVGElement(doc, "clipPath");
-			String clipDefID = SVGUtils.newDefId();
+			String clipDefID = SVGUtils.newDefId(doc);
 			clip.setAttributeNS(null, "id", clipDefID);
 			clip.appendChild(SVGUtils.createSVGRect(doc, 0, 0, w1, h1));
 			defs.appendChild(clip);
@@ -229,7 +234,7 @@ public class SplitScreenRenderer implements Renderer {
 			// define the clipping rectangle for the content (rect of vieport size)
 			Node defs = SVGUtils.getDefs(doc);
 			Element clip = SVGUtils.createSVGElement(doc, "clipPath");
-			String clipDefID = SVGUtils.newDefId();
+			String clipDefID = SVGUtils.newDefId(doc);
 			clip.setAttributeNS(null, "id", clipDefID);
 			clip.appendChild(SVGUtils.createSVGRect(doc, 0, 0, w2, h2));
 			defs.appendChild(clip);
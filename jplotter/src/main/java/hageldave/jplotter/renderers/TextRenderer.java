@@ -29,6 +29,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -301,6 +302,13 @@ public class TextRenderer extends GenericRenderer<Text> {
 		closeAllItems();
 	}
 	
+	@Override
+	protected void addFallbackStateOf(Text txt, List<Object> key) {
+		// origin may be modified without notice
+		key.add(txt.getOrigin().getX());
+		key.add(txt.getOrigin().getY());
+	}
+
 	@Override
 	public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
 		if(!isEnabled()){
@@ -1,5 +1,6 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.jplotter.canvas.RenderQuality;
 import hageldave.jplotter.color.ColorOperations;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.pdf.PDFUtils;
@@ -10,7 +11,9 @@ import hageldave.jplotter.svg.SVGTriangleRendering;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
 import hageldave.jplotter.util.BarycentricGradientPaint;
+import hageldave.jplotter.util.DirectRaster;
 import hageldave.jplotter.util.ShaderRegistry;
+import hageldave.jplotter.util.TriangleRasterizer;
 import hageldave.jplotter.util.Utils;
 import org.apache.pdfbox.cos.*;
 import org.apache.pdfbox.multipdf.LayerUtility;
@@ -37,6 +40,7 @@ import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -237,30 +241,44 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 		GL11.glEnable(GL11.GL_DEPTH_TEST);
 	}
 
+	@Override
+	protected void addFallbackStateOf(Triangles tris, List<Object> key) {
+		key.add(tris.getGlobalAlphaMultiplier());
+		key.add(tris.getGlobalSaturationMultiplier());
+	}
+
 	@Override
 	public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
 		if(!isEnabled()){
 			return;
 		}
 		
-		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		Object antialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+		// frames of reduced quality are drawn without anti-aliasing
+		boolean allowAA = RenderQuality.of(g).isAntialiasingEnabled();
 		
 		double translateX = Objects.isNull(view) ? 0:view.getX();
 		double translateY = Objects.isNull(view) ? 0:view.getY();
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 		
-		Rectangle2D viewportRect = new Rectangle2D.Double(0, 0, w, h);
+		// only the part of the viewport inside the clip needs to be drawn (e.g. when rendering tiles)
+		Rectangle2D viewportRect = getFallbackDrawArea(g, w, h);
+		Rectangle2D queryRect = viewportToCoordinateRect(viewportRect, translateX, translateY, scaleX, scaleY, 1);
 		
 		float[][] tricoords = new float[2][3];
 		for(Triangles tris : getItemsToRender()){
 			if(tris.isHidden()){
 				continue;
 			}
-			if(tris.isAAinFallbackEnabled()) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			if(tris.isAAinFallbackEnabled() && allowAA) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 			else g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+			// triangles are rasterized directly into the render buffers when possible
+			DirectRaster gRaster = DirectRaster.of(g);
+			DirectRaster pRaster = DirectRaster.of(p);
+			boolean rasterizeDirectly = Objects.nonNull(gRaster) && Objects.nonNull(pRaster);
 			
-			for(TriangleDetails tri : tris.getIntersectingTriangles(view != null ? view:viewportRect)){
+			for(TriangleDetails tri : tris.getIntersectingTriangles(queryRect)){
 				double x0,y0, x1,y1, x2,y2;
 				x0=tri.p0.getX(); y0=tri.p0.getY(); x1=tri.p1.getX(); y1=tri.p1.getY(); x2=tri.p2.getX(); y2=tri.p2.getY();
 				
@@ -279,6 +297,13 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 				int c2 = ColorOperations.changeSaturation(tri.c2.getAsInt(), tris.getGlobalSaturationMultiplier());
 				c2 = ColorOperations.scaleColorAlpha(c2, tris.getGlobalAlphaMultiplier());
 				
+				if(rasterizeDirectly){
+					TriangleRasterizer.fillTriangle(gRaster, pRaster, 
+							tricoords[0][0], tricoords[1][0], tricoords[0][1], tricoords[1][1], tricoords[0][2], tricoords[1][2], 
+							c0, c1, c2, tri.pickColor);
+					continue;
+				}
+				
 				g.setPaint(new BarycentricGradientPaint(tricoords[0], tricoords[1], new Color(c0, true), new Color(c1, true), new Color(c2, true)));
 
 				int minx = (int)Utils.min3(x0, x1, x2);
@@ -294,7 +319,9 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 			}
 		}
 		
-		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		if(Objects.nonNull(antialiasing)){
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+		}
 	}
 
 	@Override
@@ -42,6 +42,8 @@ import hageldave.jplotter.misc.Glyph;
 public class SVGUtils {
 
 	private static final AtomicLong defIdCounter = new AtomicLong();
+	
+	private static final String DEF_ID_COUNTER_KEY = "hageldave.jplotter.svg.defIdCounter";
 
 	/**
 	 * Creates a new SVG element of the SVG namespace for the specified document.
@@ -201,12 +203,34 @@ public class SVGUtils {
 	 * unique number and an id string of the form "def_2dh" is returned 
 	 * where the part after the underscore is the unique number formatted
 	 * as 32-system number.
+	 * <p>
+	 * Since the counter is shared by all documents, the ids of a document depend on
+	 * the documents that were created before (or concurrently on other threads).
+	 * Use {@link #newDefId(Document)} for ids that only depend on the document itself.
 	 * @return new unique definitions id string
 	 */
 	public static String newDefId(){
 		return "def_"+Long.toString(defIdCounter.incrementAndGet(), 32);
 	}
 
+	/**
+	 * A new id string for use within the definitions section of the specified document.
+	 * A counter stored with the document (as user data) is incremented to retrieve a
+	 * number that is unique within the document and an id string of the form "def-2dh" is returned
+	 * where the part after the hyphen is the number formatted as 32-system number.
+	 * The ids are thus reproducible for the same document contents and do not collide with
+	 * the ids of {@link #newDefId()}.
+	 * Like the document itself, this is not thread-safe for the same document.
+	 * @param doc document the id is used in
+	 * @return new definitions id string unique within the document
+	 */
+	public static String newDefId(Document doc){
+		Object counter = doc.getUserData(DEF_ID_COUNTER_KEY);
+		long id = counter instanceof Long ? (Long)counter+1 : 1;
+		doc.setUserData(DEF_ID_COUNTER_KEY, id, null);
+		return "def-"+Long.toString(id, 32);
+	}
+
 	/**
 	 * Returns a CSS font styling definition from
 	 * a {@link Font} style bit field.
@@ -391,7 +391,7 @@ public class BarycentricGradientPaint implements Paint {
 			return ((DataBufferInt)wr.getDataBuffer()).getData();
 		}
 		
-		private static int mixColor3(int c1, int c2, int c3, float m1, float m2, float m3) {
+		protected static int mixColor3(int c1, int c2, int c3, float m1, float m2, float m3) {
 			float normalize = 1f/(m1+m2+m3);
 			float a = (a(c1)*m1 + a(c2)*m2 + a(c3)*m3)*normalize;
 			float r = (r(c1)*m1 + r(c2)*m2 + r(c3)*m3)*normalize;
@@ -400,7 +400,7 @@ public class BarycentricGradientPaint implements Paint {
 			return argb((int)a, (int)r, (int)g, (int)b);
 		}
 		
-		private static int mixColor4(int c1, int c2, int c3, int c4, float m1, float m2, float m3, float m4) {
+		protected static int mixColor4(int c1, int c2, int c3, int c4, float m1, float m2, float m3, float m4) {
 			float normalize = 1f/(m1+m2+m3+m4);
 			float a = (a(c1)*m1 + a(c2)*m2 + a(c3)*m3 + a(c4)*m4)*normalize;
 			float r = (r(c1)*m1 + r(c2)*m2 + r(c3)*m3 + r(c4)*m4)*normalize;
@@ -429,7 +429,7 @@ public class BarycentricGradientPaint implements Paint {
 			return (a<<24)|(r<<16)|(g<<8)|b;
 		}
 		
-		private static int scaleColorAlpha(int color, float m) {
+		protected static int scaleColorAlpha(int color, float m) {
 			float normalize = 1f/255f;
 			float af = a(color)*normalize*m;
 			int a = (((int)(af*255f)) & 0xff) << 24;
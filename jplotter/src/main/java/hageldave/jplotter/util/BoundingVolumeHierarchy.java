@@ -0,0 +1,304 @@
+package hageldave.jplotter.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The BoundingVolumeHierarchy is a spatial index for a set of 2D elements
+ * (e.g. line segments or triangles) that are represented by their axis aligned bounding boxes.
+ * It allows to find the elements intersecting a rectangle without testing every single element.
+ * <p>
+ * The hierarchy is a binary tree of bounding boxes stored in flat arrays.
+ * It is built top down by splitting the elements at the median of their box centers
+ * along the longer axis until a node contains at most {@link #LEAF_SIZE} elements.
+ * <p>
+ * When elements are changed but their number stays the same, the hierarchy
+ * can be updated by {@link #refit(double[])} which recomputes the node boxes
+ * while keeping the tree topology. This is much cheaper than a rebuild but
+ * degrades query performance when elements move far.
+ * Elements that were appended after building can be handled by the caller
+ * through a linear scan of the indices from {@link #size()} onwards.
+ * <p>
+ * Element bounds are specified as array of {@code 4*n} values, where the i-th
+ * element's box is {@code (minX, minY, maxX, maxY) = (b[i*4+0], b[i*4+1], b[i*4+2], b[i*4+3])}.
+ * Elements with non finite bounds are indexed with an empty box, i.e. they are not reported by queries
+ * until they become finite and the hierarchy is refit (e.g. placeholders for gaps that are filled later).
+ *
+ * @author hageldave
+ */
+public class BoundingVolumeHierarchy {
+
+	/** maximum number of elements in a leaf node */
+	public static final int LEAF_SIZE = 8;
+
+	protected final int size;
+	/** element indices, each leaf node references a contiguous range */
+	protected final int[] elements;
+	/** node boxes (minX, minY, maxX, maxY) */
+	protected double[] nodeBounds;
+	/** index of left child node or -1 for leaf nodes, right child is always at left+1 */
+	protected int[] nodeLeft;
+	/** start of the node's range in {@link #elements} */
+	protected int[] nodeStart;
+	/** length of the node's range in {@link #elements} */
+	protected int[] nodeCount;
+	protected int numNodes;
+
+	/**
+	 * Builds a bounding volume hierarchy for the elements 0 to n-1.
+	 * @param elementBounds bounding boxes of the elements (4 values per element, see class description)
+	 * @param n number of elements
+	 * @throws IllegalArgumentException when the bounds array is shorter than 4*n
+	 */
+	public BoundingVolumeHierarchy(double[] elementBounds, int n) {
+		if(elementBounds.length < n*4){
+			throw new IllegalArgumentException("Bounds array too short for " + n + " elements.");
+		}
+		this.size = n;
+		this.elements = new int[n];
+		for(int i=0; i<n; i++){
+			elements[i] = i;
+		}
+		int maxNodes = Math.max(1, 2*((n+LEAF_SIZE-1)/LEAF_SIZE)*2);
+		this.nodeBounds = new double[maxNodes*4];
+		this.nodeLeft = new int[maxNodes];
+		this.nodeStart = new int[maxNodes];
+		this.nodeCount = new int[maxNodes];
+		this.numNodes = 1;
+		nodeStart[0] = 0;
+		nodeCount[0] = n;
+		double[] centers = new double[n*2];
+		double sumX = 0, sumY = 0;
+		int numFinite = 0;
+		for(int i=0; i<n; i++){
+			if(!isFinite(elementBounds, i))
+				continue;
+			centers[i*2+0] = (elementBounds[i*4+0]+elementBounds[i*4+2])*0.5;
+			centers[i*2+1] = (elementBounds[i*4+1]+elementBounds[i*4+3])*0.5;
+			sumX += centers[i*2+0]; sumY += centers[i*2+1];
+			numFinite++;
+		}
+		// non finite elements are placed at the mean center, they have an empty box until they become finite
+		double meanX = numFinite > 0 ? sumX/numFinite : 0, meanY = numFinite > 0 ? sumY/numFinite : 0;
+		for(int i=0; i<n; i++){
+			if(!isFinite(elementBounds, i)){
+				centers[i*2+0] = meanX;
+				centers[i*2+1] = meanY;
+			}
+		}
+		// top down construction, children are always created after their parent
+		int[] stack = new int[64];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		while(stackSize > 0){
+			int node = stack[--stackSize];
+			int start = nodeStart[node], count = nodeCount[node];
+			nodeLeft[node] = -1;
+			if(count <= LEAF_SIZE)
+				continue;
+			// split along longer axis of the center bounds
+			double minX=Double.POSITIVE_INFINITY, minY=Double.POSITIVE_INFINITY;
+			double maxX=Double.NEGATIVE_INFINITY, maxY=Double.NEGATIVE_INFINITY;
+			for(int k=start; k<start+count; k++){
+				int i = this.elements[k];
+				minX = Math.min(minX, centers[i*2+0]); maxX = Math.max(maxX, centers[i*2+0]);
+				minY = Math.min(minY, centers[i*2+1]); maxY = Math.max(maxY, centers[i*2+1]);
+			}
+			int axis = (maxX-minX) >= (maxY-minY) ? 0:1;
+			int mid = start+count/2;
+			select(this.elements, centers, axis, start, start+count-1, mid);
+			ensureNodeCapacity(numNodes+2);
+			int left = numNodes;
+			numNodes += 2;
+			nodeLeft[node] = left;
+			nodeStart[left] = start;
+			nodeCount[left] = mid-start;
+			nodeStart[left+1] = mid;
+			nodeCount[left+1] = start+count-mid;
+			if(stackSize+2 > stack.length)
+				stack = Arrays.copyOf(stack, stack.length*2);
+			stack[stackSize++] = left;
+			stack[stackSize++] = left+1;
+		}
+		// sort element ranges of leaves so that leaves report elements in ascending order
+		for(int node=0; node<numNodes; node++){
+			if(nodeLeft[node] < 0)
+				Arrays.sort(this.elements, nodeStart[node], nodeStart[node]+nodeCount[node]);
+		}
+		refit(elementBounds);
+	}
+
+	protected void ensureNodeCapacity(int capacity) {
+		if(capacity <= nodeLeft.length)
+			return;
+		int newCapacity = Math.max(capacity, nodeLeft.length*2);
+		nodeBounds = Arrays.copyOf(nodeBounds, newCapacity*4);
+		nodeLeft = Arrays.copyOf(nodeLeft, newCapacity);
+		nodeStart = Arrays.copyOf(nodeStart, newCapacity);
+		nodeCount = Arrays.copyOf(nodeCount, newCapacity);
+	}
+
+	/**
+	 * Partially sorts the specified range of element indices by their center coordinate on the specified
+	 * axis so that the k-th position holds the element it would hold if the range was sorted (quickselect).
+	 */
+	protected static void select(int[] elements, double[] centers, int axis, int lo, int hi, int k) {
+		while(hi > lo){
+			double pivot = centers[elements[(lo+hi)>>>1]*2+axis];
+			int i=lo, j=hi;
+			while(i <= j){
+				while(centers[elements[i]*2+axis] < pivot) i++;
+				while(centers[elements[j]*2+axis] > pivot) j--;
+				if(i <= j){
+					int tmp = elements[i]; elements[i] = elements[j]; elements[j] = tmp;
+					i++; j--;
+				}
+			}
+			if(k <= j) hi = j;
+			else if(k >= i) lo = i;
+			else return;
+		}
+	}
+
+	protected static boolean isFinite(double[] bounds, int i) {
+		for(int c=0; c<4; c++){
+			double v = bounds[i*4+c];
+			if(Double.isNaN(v) || Double.isInfinite(v))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Recomputes the boxes of all nodes from the specified element bounds while
+	 * keeping the structure of the hierarchy.
+	 * This is used to update the hierarchy after elements were modified.
+	 * Elements with non finite bounds have an empty box and are not reported by queries,
+	 * elements that changed from non finite to finite bounds are reported again.
+	 * @param elementBounds bounding boxes of the elements (4 values per element, see class description)
+	 * @throws IllegalArgumentException when the bounds array is shorter than 4*{@link #size()}
+	 */
+	public void refit(double[] elementBounds) {
+		if(elementBounds.length < size*4){
+			throw new IllegalArgumentException("Bounds array too short for " + size + " elements.");
+		}
+		// children have greater node indices than parents, so reverse iteration goes bottom up
+		for(int node=numNodes-1; node>=0; node--){
+			double minX=Double.POSITIVE_INFINITY, minY=Double.POSITIVE_INFINITY;
+			double maxX=Double.NEGATIVE_INFINITY, maxY=Double.NEGATIVE_INFINITY;
+			int left = nodeLeft[node];
+			if(left < 0){
+				for(int k=nodeStart[node]; k<nodeStart[node]+nodeCount[node]; k++){
+					int i = elements[k];
+					if(!isFinite(elementBounds, i))
+						continue;
+					minX = Math.min(minX, elementBounds[i*4+0]); minY = Math.min(minY, elementBounds[i*4+1]);
+					maxX = Math.max(maxX, elementBounds[i*4+2]); maxY = Math.max(maxY, elementBounds[i*4+3]);
+				}
+			} else {
+				for(int child=left; child<=left+1; child++){
+					minX = Math.min(minX, nodeBounds[child*4+0]); minY = Math.min(minY, nodeBounds[child*4+1]);
+					maxX = Math.max(maxX, nodeBounds[child*4+2]); maxY = Math.max(maxY, nodeBounds[child*4+3]);
+				}
+			}
+			nodeBounds[node*4+0] = minX; nodeBounds[node*4+1] = minY;
+			nodeBounds[node*4+2] = maxX; nodeBounds[node*4+3] = maxY;
+		}
+	}
+
+	/**
+	 * @return the number of elements this hierarchy was built for.
+	 */
+	public int size() {
+		return size;
+	}
+
+	protected boolean nodeIntersects(int node, Rectangle2D rect) {
+		return nodeBounds[node*4+0] <= rect.getMaxX() && nodeBounds[node*4+2] >= rect.getMinX()
+				&& nodeBounds[node*4+1] <= rect.getMaxY() && nodeBounds[node*4+3] >= rect.getMinY();
+	}
+
+	/**
+	 * Returns the indices of the elements whose bounding box intersects the specified rectangle
+	 * and that pass the specified exact intersection test.
+	 * The indices are returned in ascending order, which preserves the drawing order of the elements.
+	 * Indices that are not smaller than the specified limit are skipped, which allows
+	 * to safely query a hierarchy that is outdated because elements have been removed.
+	 *
+	 * @param rect query rectangle
+	 * @param limit exclusive upper bound for the returned indices (i.e. current number of elements)
+	 * @param exactTest exact intersection test for a candidate element (e.g. segment intersects rectangle)
+	 * @return ascending indices of intersecting elements
+	 */
+	public int[] getIntersecting(Rectangle2D rect, int limit, IntPredicate exactTest) {
+		int[] result = new int[16];
+		int numResults = 0;
+		if(elements.length == 0 || !nodeIntersects(0, rect))
+			return new int[0];
+		int[] stack = new int[64];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		while(stackSize > 0){
+			int node = stack[--stackSize];
+			if(!nodeIntersects(node, rect))
+				continue;
+			int left = nodeLeft[node];
+			if(left >= 0){
+				if(stackSize+2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length*2);
+				stack[stackSize++] = left+1;
+				stack[stackSize++] = left;
+				continue;
+			}
+			for(int k=nodeStart[node]; k<nodeStart[node]+nodeCount[node]; k++){
+				int i = elements[k];
+				if(i < limit && exactTest.test(i)){
+					if(numResults == result.length)
+						result = Arrays.copyOf(result, numResults*2);
+					result[numResults++] = i;
+				}
+			}
+		}
+		// leaves are visited in spatial order, restore the element order
+		Arrays.sort(result, 0, numResults);
+		return Arrays.copyOf(result, numResults);
+	}
+
+	/**
+	 * Tests whether any element's bounding box intersects the specified rectangle
+	 * while the element also passes the specified exact intersection test.
+	 *
+	 * @param rect query rectangle
+	 * @param limit exclusive upper bound for the considered indices (i.e. current number of elements)
+	 * @param exactTest exact intersection test for a candidate element (e.g. segment intersects rectangle)
+	 * @return true when an intersecting element exists
+	 */
+	public boolean anyIntersecting(Rectangle2D rect, int limit, IntPredicate exactTest) {
+		if(elements.length == 0 || !nodeIntersects(0, rect))
+			return false;
+		int[] stack = new int[64];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		while(stackSize > 0){
+			int node = stack[--stackSize];
+			if(!nodeIntersects(node, rect))
+				continue;
+			int left = nodeLeft[node];
+			if(left >= 0){
+				if(stackSize+2 > stack.length)
+					stack = Arrays.copyOf(stack, stack.length*2);
+				stack[stackSize++] = left+1;
+				stack[stackSize++] = left;
+				continue;
+			}
+			for(int k=nodeStart[node]; k<nodeStart[node]+nodeCount[node]; k++){
+				int i = elements[k];
+				if(i < limit && exactTest.test(i))
+					return true;
+			}
+		}
+		return false;
+	}
+
+}
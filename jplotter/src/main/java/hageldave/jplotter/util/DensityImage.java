@@ -0,0 +1,225 @@
+package hageldave.jplotter.util;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.color.ColorMap;
+import hageldave.jplotter.gl.Shader;
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.svg.SVGUtils;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL20;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * The DensityImage class handles images that result from aggregating renderables into a per pixel
+ * density (e.g. point counts or line coverage) which is mapped to colors through a {@link ColorMap}.
+ * The images cover the whole viewport and have their rows from bottom to top (row 0 at y=0)
+ * like the coordinate system of renderers.
+ * <p>
+ * The static methods map densities to colors ({@link #toneMap(float[], int, int, ColorMap, boolean)})
+ * and draw an image into SVG and PDF documents.
+ * An instance holds the GL resources (texture, shader and a quad) to draw an image
+ * into the current viewport ({@link #renderGL(Img)}) and has to be closed when no longer needed.
+ *
+ * @author hageldave
+ */
+public class DensityImage implements AutoCloseable {
+
+	protected static final char NL = '\n';
+	protected static final String vertexShaderSrc = ""
+			+ "" + "#version 330"
+			+ NL + "layout(location = 0) in vec2 in_position;"
+			+ NL + "out vec2 tex_Coords;"
+			+ NL + "void main() {"
+			+ NL + "   gl_Position = vec4(in_position*2.0-1.0, 0, 1);"
+			+ NL + "   tex_Coords = in_position;"
+			+ NL + "}"
+			+ NL
+			;
+	protected static final String fragmentShaderSrc = ""
+			+ "" + "#version 330"
+			+ NL + "layout(location = 0) out vec4 frag_color;"
+			+ NL + "layout(location = 1) out vec4 pick_color;"
+			+ NL + "uniform sampler2D tex;"
+			+ NL + "in vec2 tex_Coords;"
+			+ NL + "void main() {"
+			+ NL + "   vec4 color = texture(tex, tex_Coords);"
+			+ NL + "   if(color.a == 0.0){discard;}"
+			+ NL + "   frag_color = color;"
+			+ NL + "   pick_color = vec4(0);"
+			+ NL + "}"
+			+ NL
+			;
+
+	protected Shader shader;
+	protected VertexArray vaQuad;
+	protected int textureID = 0;
+	/** image that was uploaded to the texture */
+	protected Img textureImage;
+
+	/**
+	 * Maps the specified densities to colors.
+	 * The highest density maps to the end of the color map, pixels with a density of 0 (or less) stay transparent.
+	 * @param densities row major array of w*h densities
+	 * @param w width of the image
+	 * @param h height of the image
+	 * @param colormap to map normalized densities to
+	 * @param logarithmic true for normalizing log(1+density)/log(1+max), false for density/max
+	 * @return image of the color mapped densities
+	 */
+	public static Img toneMap(float[] densities, int w, int h, ColorMap colormap, boolean logarithmic) {
+		Img img = new Img(w, h);
+		float maxDensity = 0;
+		for(int i=0; i<w*h; i++){
+			maxDensity = Math.max(maxDensity, densities[i]);
+		}
+		if(!(maxDensity > 0)){
+			return img;
+		}
+		double max = logarithmic ? Math.log1p(maxDensity) : maxDensity;
+		int[] pixels = img.getData();
+		Utils.parallelize(IntStream.range(0, w*h), w*h > 100_000).forEach(i->{
+			double density = densities[i];
+			if(!(density > 0)){
+				return;
+			}
+			double m = (logarithmic ? Math.log1p(density) : density)/max;
+			pixels[i] = colormap.interpolate(Utils.clamp(0, m, 1));
+		});
+		return img;
+	}
+
+	/**
+	 * Appends the specified image as PNG image element to the specified SVG element.
+	 * The image is not flipped since the y-axis of the parent is flipped already.
+	 * @param doc document to create elements with
+	 * @param parent element to append to
+	 * @param img image with rows from bottom to top
+	 */
+	public static void renderSVG(Document doc, Element parent, Img img) {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(img.getRemoteBufferedImage(), "png", png);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		Element image = SVGUtils.createSVGElement(doc, "image");
+		parent.appendChild(image);
+		image.setAttributeNS(null, "x", "0");
+		image.setAttributeNS(null, "y", "0");
+		image.setAttributeNS(null, "width", SVGUtils.svgNumber(img.getWidth()));
+		image.setAttributeNS(null, "height", SVGUtils.svgNumber(img.getHeight()));
+		image.setAttributeNS(null, "preserveAspectRatio", "none");
+		image.setAttributeNS(null, "image-rendering", "optimizeSpeed");
+		image.setAttributeNS(null, "xlink:href", "data:image/png;base64,"+Base64.getEncoder().encodeToString(png.toByteArray()));
+	}
+
+	/**
+	 * Draws the specified image as image XObject onto the specified page.
+	 * @param doc document to create the image with
+	 * @param page page to draw on
+	 * @param img image with rows from bottom to top
+	 * @param x x-position of the viewport on the page
+	 * @param y y-position of the viewport on the page
+	 */
+	public static void renderPDF(PDDocument doc, PDPage page, Img img, int x, int y) {
+		int w = img.getWidth(), h = img.getHeight();
+		// PDF images are top down
+		Img flipped = new Img(w, h);
+		for(int row=0; row<h; row++){
+			System.arraycopy(img.getData(), row*w, flipped.getData(), (h-1-row)*w, w);
+		}
+		try(PDPageContentStream contentStream = new PDPageContentStream(doc, page, PDPageContentStream.AppendMode.APPEND, false)){
+			PDImageXObject image = LosslessFactory.createFromImage(doc, flipped.getRemoteBufferedImage());
+			contentStream.drawImage(image, x, y, w, h);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Draws the specified image into the current viewport using alpha blending.
+	 * The image is uploaded to the texture unless it is the same image as in the previous call.
+	 * Picking colors are not drawn.
+	 * @param img image with rows from bottom to top
+	 */
+	@GLContextRequired
+	public void renderGL(Img img) {
+		int w = img.getWidth(), h = img.getHeight();
+		if(w < 1 || h < 1){
+			return;
+		}
+		if(Objects.isNull(shader)){
+			shader = ShaderRegistry.getOrCreateShader(this.getClass().getName(),()->new Shader(vertexShaderSrc, fragmentShaderSrc));
+		}
+		if(Objects.isNull(vaQuad)){
+			vaQuad = new VertexArray(1);
+			vaQuad.setBuffer(0, 2, 0f,0f, 1f,0f, 1f,1f, 0f,1f);
+			vaQuad.setIndices(0,1,2, 0,2,3);
+		}
+		if(img != textureImage){
+			if(textureID == 0 || Objects.isNull(textureImage)
+					|| textureImage.getWidth() != w || textureImage.getHeight() != h)
+			{
+				if(textureID != 0)
+					GL11.glDeleteTextures(textureID);
+				textureID = GLUtils.create2DTexture(w, h, GL11.GL_RGBA8, GL12.GL_BGRA, GL11.GL_NEAREST, GL12.GL_CLAMP_TO_EDGE);
+			}
+			// upload integer packed ARGB values independent of byte order
+			GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
+			GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, w, h, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, img.getData());
+			GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+			textureImage = img;
+		}
+		shader.bind();
+		GL11.glDisable(GL11.GL_DEPTH_TEST);
+		GL11.glEnable(GL11.GL_BLEND);
+		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+		GL13.glActiveTexture(GL13.GL_TEXTURE0);
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
+		int loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "tex");
+		GL20.glUniform1i(loc, 0);
+		vaQuad.bindAndEnableAttributes(0);
+		GL11.glDrawElements(GL11.GL_TRIANGLES, vaQuad.getNumIndices(), GL11.GL_UNSIGNED_INT, 0);
+		vaQuad.releaseAndDisableAttributes(0);
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		GL11.glDisable(GL11.GL_BLEND);
+		GL11.glEnable(GL11.GL_DEPTH_TEST);
+		shader.release();
+	}
+
+	/**
+	 * Disposes of the GL resources of this object.
+	 */
+	@Override
+	@GLContextRequired
+	public void close() {
+		if(Objects.nonNull(shader))
+			ShaderRegistry.handbackShader(shader);
+		shader = null;
+		if(Objects.nonNull(vaQuad))
+			vaQuad.close();
+		vaQuad = null;
+		if(textureID != 0)
+			GL11.glDeleteTextures(textureID);
+		textureID = 0;
+		textureImage = null;
+	}
+
+}
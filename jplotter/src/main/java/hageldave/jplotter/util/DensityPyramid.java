@@ -0,0 +1,262 @@
+package hageldave.jplotter.util;
+
+import java.util.Objects;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The DensityPyramid is a multi-resolution grid of bins over a set of 2D points,
+ * where each bin holds the number of points (or sum of point weights) that fall into it.
+ * It is used to aggregate huge numbers of points into a screen resolution grid
+ * (see {@link #aggregate(double, double, double, double, int, int, float[])})
+ * in time proportional to the number of pixels instead of the number of points.
+ * <p>
+ * The finest level subdivides the bounding box of the points into resolution x resolution bins,
+ * every coarser level halves the resolution by summing up 2x2 bins of the previous level
+ * (the last bin of a coarser level may extend beyond the bounding box for odd resolutions).
+ * Building the pyramid visits every point once (in parallel for large point sets),
+ * a query picks the coarsest level whose bins are not larger than a pixel and
+ * accumulates the bins in view into the pixels containing their centers.
+ * When zoomed in beyond the finest level, every pixel would take the value of the bin below its center,
+ * which shows the bins as blocks. In that case the visible points should be binned directly at pixel
+ * resolution instead (see {@link #isCoarserThanPixel(double, double)}), which is cheap since only
+ * a small fraction of the points is in view.
+ * <p>
+ * The pyramid does not keep a reference to the points, it is immutable and has to be rebuilt
+ * when the points change.
+ * Points with non finite coordinates are ignored.
+ *
+ * @author hageldave
+ */
+public class DensityPyramid {
+
+	/** default number of bins per dimension of the finest level */
+	public static final int DEFAULT_RESOLUTION = 1024;
+	/** number of points from which on the pyramid is built in parallel */
+	protected static final int PARALLEL_THRESHOLD = 1<<16;
+
+	protected final int size;
+	protected final double minX, minY, binW, binH;
+	/** number of bins per dimension for each level, level 0 is the finest */
+	protected final int[] resolutions;
+	/** row major bins for each level, row 0 at minY */
+	protected final float[][] levels;
+
+	/**
+	 * Builds a pyramid for the points 0 to n-1.
+	 * @param n number of points
+	 * @param xs function returning the x coordinate of the i-th point
+	 * @param ys function returning the y coordinate of the i-th point
+	 * @param weights function returning the weight of the i-th point, null for counting points
+	 * @param resolution number of bins per dimension of the finest level
+	 * @throws IllegalArgumentException when resolution is less than 1
+	 */
+	public DensityPyramid(int n, IntToDoubleFunction xs, IntToDoubleFunction ys, IntToDoubleFunction weights, int resolution) {
+		if(resolution < 1){
+			throw new IllegalArgumentException("Resolution has to be positive, but got " + resolution);
+		}
+		this.size = n;
+		double minX=Double.POSITIVE_INFINITY, minY=Double.POSITIVE_INFINITY;
+		double maxX=Double.NEGATIVE_INFINITY, maxY=Double.NEGATIVE_INFINITY;
+		for(int i=0; i<n; i++){
+			double x = xs.applyAsDouble(i);
+			double y = ys.applyAsDouble(i);
+			if(!PointGridIndex.isFinite(x) || !PointGridIndex.isFinite(y))
+				continue;
+			minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+		}
+		if(minX > maxX){
+			minX=minY=maxX=maxY=0;
+		}
+		// degenerate extents get a unit extent around the points
+		if(maxX-minX <= 0){
+			minX -= 0.5; maxX += 0.5;
+		}
+		if(maxY-minY <= 0){
+			minY -= 0.5; maxY += 0.5;
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.binW = (maxX-minX)/resolution;
+		this.binH = (maxY-minY)/resolution;
+
+		int numLevels = 1;
+		for(int r=resolution; r > 1; r=(r+1)/2)
+			numLevels++;
+		this.resolutions = new int[numLevels];
+		this.levels = new float[numLevels][];
+		resolutions[0] = resolution;
+		levels[0] = binPoints(n, xs, ys, weights, resolution);
+		for(int l=1; l<numLevels; l++){
+			resolutions[l] = (resolutions[l-1]+1)/2;
+			levels[l] = downsample(levels[l-1], resolutions[l-1], resolutions[l]);
+		}
+	}
+
+	/**
+	 * Builds a pyramid that counts the points 0 to n-1 with {@link #DEFAULT_RESOLUTION}.
+	 * @param n number of points
+	 * @param xs function returning the x coordinate of the i-th point
+	 * @param ys function returning the y coordinate of the i-th point
+	 */
+	public DensityPyramid(int n, IntToDoubleFunction xs, IntToDoubleFunction ys) {
+		this(n, xs, ys, null, DEFAULT_RESOLUTION);
+	}
+
+	protected float[] binPoints(int n, IntToDoubleFunction xs, IntToDoubleFunction ys, IntToDoubleFunction weights, int res) {
+		// every task bins its range of points into its own grid, grids are summed up afterwards
+		int numTasks = n < PARALLEL_THRESHOLD ? 1 : Math.min(Runtime.getRuntime().availableProcessors(), n/PARALLEL_THRESHOLD+1);
+		float[][] grids = new float[numTasks][];
+		Utils.parallelize(IntStream.range(0, numTasks), numTasks > 1).forEach(t->{
+			float[] grid = new float[res*res];
+			int end = (int)((long)n*(t+1)/numTasks);
+			for(int i=(int)((long)n*t/numTasks); i<end; i++){
+				double x = xs.applyAsDouble(i);
+				double y = ys.applyAsDouble(i);
+				if(!PointGridIndex.isFinite(x) || !PointGridIndex.isFinite(y))
+					continue;
+				int col = Utils.clamp(0, (int)((x-minX)/binW), res-1);
+				int row = Utils.clamp(0, (int)((y-minY)/binH), res-1);
+				grid[row*res+col] += Objects.isNull(weights) ? 1f : (float)weights.applyAsDouble(i);
+			}
+			grids[t] = grid;
+		});
+		float[] grid = grids[0];
+		Utils.parallelize(IntStream.range(0, res), numTasks > 1).forEach(row->{
+			for(int t=1; t<numTasks; t++){
+				float[] other = grids[t];
+				for(int i=row*res; i<(row+1)*res; i++)
+					grid[i] += other[i];
+			}
+		});
+		return grid;
+	}
+
+	protected static float[] downsample(float[] fine, int fineRes, int res) {
+		float[] coarse = new float[res*res];
+		Utils.parallelize(IntStream.range(0, fineRes), fineRes > 256).forEach(row->{
+			// fine rows 2k and 2k+1 are handled by the task of row 2k to avoid concurrent writes
+			if((row & 1) != 0)
+				return;
+			for(int r=row; r<Math.min(row+2, fineRes); r++){
+				for(int c=0; c<fineRes; c++){
+					coarse[(r/2)*res+c/2] += fine[r*fineRes+c];
+				}
+			}
+		});
+		return coarse;
+	}
+
+	/**
+	 * @return number of points the pyramid was built for
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of bins per dimension of the finest level
+	 */
+	public int getResolution() {
+		return resolutions[0];
+	}
+
+	/**
+	 * @return number of levels, level 0 is the finest
+	 */
+	public int numLevels() {
+		return levels.length;
+	}
+
+	/**
+	 * Returns the level that is used for a pixel of the specified size,
+	 * i.e. the coarsest level whose bins are not larger than the pixel
+	 * (level 0 when its bins are larger than the pixel).
+	 * @param pixelW width of a pixel in point coordinates
+	 * @param pixelH height of a pixel in point coordinates
+	 * @return level index
+	 */
+	public int levelForPixelSize(double pixelW, double pixelH) {
+		for(int l=levels.length-1; l>0; l--){
+			// a bin of level l covers 2^l x 2^l bins of level 0
+			if(binW*(1<<l) <= pixelW && binH*(1<<l) <= pixelH)
+				return l;
+		}
+		return 0;
+	}
+
+	/**
+	 * Tells whether the bins of the finest level are larger than a pixel of the specified size,
+	 * i.e. whether {@link #aggregate(double, double, double, double, int, int, float[])} would
+	 * show the bins as blocks of several pixels.
+	 * @param pixelW width of a pixel in point coordinates
+	 * @param pixelH height of a pixel in point coordinates
+	 * @return true when a bin of level 0 is wider or higher than the pixel
+	 */
+	public boolean isCoarserThanPixel(double pixelW, double pixelH) {
+		return binW > pixelW || binH > pixelH;
+	}
+
+	/**
+	 * Accumulates the bins of this pyramid into a grid of w x h pixels covering the specified
+	 * rectangle in point coordinates, i.e. computes the number of points (or sum of weights) per pixel.
+	 * Pixels are added to the values already contained in the grid, which allows to
+	 * accumulate several pyramids into one grid.
+	 * When zoomed in beyond the finest level, pixels take the value of the bin below their center
+	 * (the value per bin, not per pixel), see {@link #isCoarserThanPixel(double, double)} to detect this.
+	 * The cost is proportional to the number of pixels.
+	 * @param x left of the rectangle
+	 * @param y bottom of the rectangle
+	 * @param width of the rectangle
+	 * @param height of the rectangle
+	 * @param w number of pixel columns
+	 * @param h number of pixel rows
+	 * @param grid row major array of w*h pixels to add to, row 0 is at the bottom (y)
+	 * @return the grid for chaining
+	 * @throws IllegalArgumentException when the grid is smaller than w*h
+	 */
+	public float[] aggregate(double x, double y, double width, double height, int w, int h, float[] grid) {
+		if(grid.length < w*h){
+			throw new IllegalArgumentException("Grid is too small for " + w + "x" + h + " pixels, got length " + grid.length);
+		}
+		if(w < 1 || h < 1 || !(width > 0) || !(height > 0))
+			return grid;
+		double pixelW = width/w, pixelH = height/h;
+		int level = levelForPixelSize(pixelW, pixelH);
+		int res = resolutions[level];
+		float[] bins = levels[level];
+		double lbinW = binW*(1<<level), lbinH = binH*(1<<level);
+		if(lbinW > pixelW || lbinH > pixelH){
+			// bins are larger than pixels: sample bin below pixel center
+			Utils.parallelize(IntStream.range(0, h), w*h > PARALLEL_THRESHOLD).forEach(row->{
+				int binRow = (int)Math.floor((y+(row+0.5)*pixelH-minY)/lbinH);
+				if(binRow < 0 || binRow >= res)
+					return;
+				for(int col=0; col<w; col++){
+					int binCol = (int)Math.floor((x+(col+0.5)*pixelW-minX)/lbinW);
+					if(binCol < 0 || binCol >= res)
+						continue;
+					grid[row*w+col] += bins[binRow*res+binCol];
+				}
+			});
+		} else {
+			// bins are not larger than pixels: accumulate bins into pixel containing bin center
+			int colStart = Math.max(0, (int)Math.ceil((x-minX)/lbinW-0.5));
+			int colEnd = Math.min(res, (int)Math.ceil((x+width-minX)/lbinW-0.5));
+			Utils.parallelize(IntStream.range(0, h), w*h > PARALLEL_THRESHOLD).forEach(row->{
+				double y0 = y+row*pixelH;
+				int rowStart = Math.max(0, (int)Math.ceil((y0-minY)/lbinH-0.5));
+				int rowEnd = Math.min(res, (int)Math.ceil((y0+pixelH-minY)/lbinH-0.5));
+				for(int binRow=rowStart; binRow<rowEnd; binRow++){
+					for(int binCol=colStart; binCol<colEnd; binCol++){
+						int col = Utils.clamp(0, (int)((minX+(binCol+0.5)*lbinW-x)/pixelW), w-1);
+						grid[row*w+col] += bins[binRow*res+binCol];
+					}
+				}
+			});
+		}
+		return grid;
+	}
+
+}
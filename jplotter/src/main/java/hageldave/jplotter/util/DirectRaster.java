@@ -0,0 +1,208 @@
+package hageldave.jplotter.util;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Objects;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+
+/**
+ * The DirectRaster class provides direct access to the pixels of the {@link Img}
+ * that a {@link Graphics2D} object draws into.
+ * This allows fallback renderers to bypass Java2D for drawing primitives that
+ * can be rasterized much faster by hand (e.g. stamping pre-rasterized glyphs),
+ * while producing the same result as drawing through the graphics object.
+ * <p>
+ * The target image is attached to the graphics object as rendering hint ({@link #KEY_TARGET_IMG}),
+ * which is carried over to graphics objects derived by {@link Graphics2D#create()}.
+ * {@link BlankCanvasFallback} attaches its render buffers this way.
+ * A direct raster can only be obtained ({@link #of(Graphics2D)}) when the graphics object has a target image,
+ * a transformation that only translates and possibly flips axes, a rectangular clip and
+ * the default source over composite. Otherwise renderers have to use the graphics object.
+ * <p>
+ * Pixels are blended like Java2D does for an ARGB image with source over composite (non premultiplied alpha).
+ * Only pixels inside the clip are written.
+ *
+ * @author hageldave
+ */
+public class DirectRaster {
+
+	/** rendering hint key for the {@link Img} that a {@link Graphics2D} draws into */
+	public static final RenderingHints.Key KEY_TARGET_IMG = new TargetImgKey();
+
+	/** pixel data of the target image */
+	public final int[] data;
+	/** width of the target image */
+	public final int width;
+	/** height of the target image */
+	public final int height;
+	/** horizontal scaling from user to device space (either 1 or -1) */
+	public final double scaleX;
+	/** vertical scaling from user to device space (either 1 or -1) */
+	public final double scaleY;
+	/** horizontal translation from user to device space */
+	public final double translateX;
+	/** vertical translation from user to device space */
+	public final double translateY;
+	/** left bound of the clip in device space (inclusive) */
+	public final int clipX0;
+	/** top bound of the clip in device space (inclusive) */
+	public final int clipY0;
+	/** right bound of the clip in device space (exclusive) */
+	public final int clipX1;
+	/** bottom bound of the clip in device space (exclusive) */
+	public final int clipY1;
+	/** whether the graphics object had anti-aliasing enabled */
+	public final boolean antialiasing;
+	/** whether the graphics object had pure stroke control (no stroke normalization) */
+	public final boolean strokePure;
+
+	protected DirectRaster(Img img, AffineTransform xform, Rectangle2D deviceClip, boolean antialiasing, boolean strokePure) {
+		this.data = img.getData();
+		this.width = img.getWidth();
+		this.height = img.getHeight();
+		this.scaleX = xform.getScaleX();
+		this.scaleY = xform.getScaleY();
+		this.translateX = xform.getTranslateX();
+		this.translateY = xform.getTranslateY();
+		this.clipX0 = Math.max(0, (int)Math.ceil(deviceClip.getMinX()-0.5));
+		this.clipY0 = Math.max(0, (int)Math.ceil(deviceClip.getMinY()-0.5));
+		this.clipX1 = Math.min(width, (int)Math.ceil(deviceClip.getMaxX()-0.5));
+		this.clipY1 = Math.min(height, (int)Math.ceil(deviceClip.getMaxY()-0.5));
+		this.antialiasing = antialiasing;
+		this.strokePure = strokePure;
+	}
+
+	/**
+	 * Sets the specified image as target image of the specified graphics object.
+	 * The graphics object has to draw into that image.
+	 * @param g graphics object drawing into img
+	 * @param img the image g draws into
+	 */
+	public static void attach(Graphics2D g, Img img) {
+		g.setRenderingHint(KEY_TARGET_IMG, img);
+	}
+
+	/**
+	 * Returns the direct raster of the specified graphics object, or null when
+	 * it does not have a target image or its state is not supported (see class description).
+	 * The returned raster reflects the current transform and clip of the graphics object.
+	 * @param g graphics object
+	 * @return direct raster or null
+	 */
+	public static DirectRaster of(Graphics2D g) {
+		Object img = g.getRenderingHint(KEY_TARGET_IMG);
+		if(!(img instanceof Img)){
+			return null;
+		}
+		Composite composite = g.getComposite();
+		if(!AlphaComposite.SrcOver.equals(composite)){
+			return null;
+		}
+		AffineTransform xform = g.getTransform();
+		if(xform.getShearX() != 0 || xform.getShearY() != 0
+				|| Math.abs(xform.getScaleX()) != 1 || Math.abs(xform.getScaleY()) != 1)
+		{
+			return null;
+		}
+		Rectangle2D deviceClip;
+		Shape clip = g.getClip();
+		if(Objects.isNull(clip)){
+			deviceClip = new Rectangle2D.Double(0, 0, ((Img)img).getWidth(), ((Img)img).getHeight());
+		} else if(clip instanceof Rectangle2D){
+			deviceClip = xform.createTransformedShape(clip).getBounds2D();
+		} else {
+			return null;
+		}
+		boolean antialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON;
+		boolean strokePure = g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL) == RenderingHints.VALUE_STROKE_PURE;
+		return new DirectRaster((Img)img, xform, deviceClip, antialiasing, strokePure);
+	}
+
+	/**
+	 * @return true when the clip is empty, i.e. no pixel can be written
+	 */
+	public boolean isClipEmpty() {
+		return clipX0 >= clipX1 || clipY0 >= clipY1;
+	}
+
+	/**
+	 * @param x user space x coordinate
+	 * @return device space x coordinate
+	 */
+	public double toDeviceX(double x) {
+		return x*scaleX + translateX;
+	}
+
+	/**
+	 * @param y user space y coordinate
+	 * @return device space y coordinate
+	 */
+	public double toDeviceY(double y) {
+		return y*scaleY + translateY;
+	}
+
+	/**
+	 * Blends the specified color onto the pixel at the specified device location
+	 * using the source over composite.
+	 * The color's alpha is multiplied by the specified coverage.
+	 * Nothing happens when the location is outside of the clip.
+	 * @param x device x coordinate
+	 * @param y device y coordinate
+	 * @param argb integer packed ARGB color (non premultiplied)
+	 * @param coverage in range [0,255] (e.g. anti-aliasing coverage)
+	 */
+	public void blend(int x, int y, int argb, int coverage) {
+		if(x < clipX0 || x >= clipX1 || y < clipY0 || y >= clipY1){
+			return;
+		}
+		blendAt(y*width+x, argb, coverage);
+	}
+
+	/**
+	 * Blends the specified color onto the pixel at the specified index of {@link #data}
+	 * using the source over composite, without clip test.
+	 * The color's alpha is multiplied by the specified coverage.
+	 * @param idx index into data array ({@code y*width+x})
+	 * @param argb integer packed ARGB color (non premultiplied)
+	 * @param coverage in range [0,255] (e.g. anti-aliasing coverage)
+	 */
+	public void blendAt(int idx, int argb, int coverage) {
+		int sa = ((argb>>>24)*coverage + 127)/255;
+		if(sa == 0){
+			return;
+		}
+		if(sa == 255){
+			data[idx] = argb | 0xff000000;
+			return;
+		}
+		int d = data[idx];
+		// weights scaled by 255*255
+		int sw = sa*255;
+		int dw = (d>>>24)*(255-sa);
+		int ow = sw+dw;
+		int r = (((argb>>16)&0xff)*sw + ((d>>16)&0xff)*dw + ow/2)/ow;
+		int g = (((argb>> 8)&0xff)*sw + ((d>> 8)&0xff)*dw + ow/2)/ow;
+		int b = (((argb    )&0xff)*sw + ((d    )&0xff)*dw + ow/2)/ow;
+		int a = (ow + 127)/255;
+		data[idx] = (a<<24)|(r<<16)|(g<<8)|b;
+	}
+
+	private static class TargetImgKey extends RenderingHints.Key {
+		TargetImgKey() {
+			super(0x6a706c74);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object val) {
+			return val == null || val instanceof Img;
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package hageldave.jplotter.util;
+
+import hageldave.jplotter.gl.VertexArray;
+
+/**
+ * The DirtyRange class keeps track of the elements of a renderable (e.g. points, segments or triangles)
+ * that were modified since its GL resources were last updated, so that only these elements
+ * have to be uploaded (see {@link VertexArray#updateBuffer(int, int, float...)}).
+ * Modified index ranges are merged into a single covering range, which is exact for the common cases
+ * of appending elements and editing a single element between two updates.
+ * When the modified elements are unknown, the whole renderable is marked ({@link #markAll()}).
+ *
+ * @author hageldave
+ */
+public class DirtyRange {
+
+	protected boolean all = true;
+	protected int from = 0;
+	protected int to = 0;
+
+	/**
+	 * Marks all elements as modified.
+	 * @return this for chaining
+	 */
+	public DirtyRange markAll() {
+		this.all = true;
+		return this;
+	}
+
+	/**
+	 * Marks the elements from (inclusive) to (exclusive) as modified.
+	 * The range is merged with the previously marked range.
+	 * @param from index of first modified element
+	 * @param to index after last modified element
+	 * @return this for chaining
+	 */
+	public DirtyRange mark(int from, int to) {
+		if(from >= to)
+			return this;
+		if(this.from >= this.to){
+			this.from = from;
+			this.to = to;
+		} else {
+			this.from = Math.min(this.from, from);
+			this.to = Math.max(this.to, to);
+		}
+		return this;
+	}
+
+	/**
+	 * Clears the marked elements, this is called after the GL resources were updated.
+	 * @return this for chaining
+	 */
+	public DirtyRange clear() {
+		this.all = false;
+		this.from = this.to = 0;
+		return this;
+	}
+
+	/**
+	 * @return true when all elements are marked as modified
+	 */
+	public boolean isAll() {
+		return all;
+	}
+
+	/**
+	 * @return true when no element is marked as modified
+	 */
+	public boolean isEmpty() {
+		return !all && from >= to;
+	}
+
+	/**
+	 * @return index of first modified element
+	 */
+	public int getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return index after last modified element
+	 */
+	public int getTo() {
+		return to;
+	}
+
+	/**
+	 * Returns whether uploading only the marked elements is sufficient, i.e. not all elements
+	 * are marked and the range continues the elements that were uploaded before (no gap).
+	 * An empty range is not partial since renderables may become dirty without marking
+	 * elements, in which case everything has to be uploaded.
+	 * @param numUploaded number of elements that are currently uploaded
+	 * @return true when a partial update is possible
+	 */
+	public boolean isPartial(int numUploaded) {
+		return !all && from < to && from <= numUploaded;
+	}
+
+}
@@ -0,0 +1,318 @@
+package hageldave.jplotter.util;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.canvas.RenderQuality;
+import hageldave.jplotter.renderers.Renderer;
+
+/**
+ * The FallbackLayerCache keeps the result of drawing a part of a scene in fallback mode
+ * (a layer) as raster images, so that the layer can be composited into subsequent frames instead of
+ * being drawn again as long as it does not change.
+ * <p>
+ * Whether a layer changed is decided by a key object that is provided by the owner of the cache
+ * when drawing the layer ({@link #draw(Graphics2D, Graphics2D, int, int, Object, LayerPainter)}).
+ * The layer is redrawn when the key is not equal to the key of the cached layer
+ * or when the viewport size or rendering hints (e.g. anti-aliasing, {@link RenderQuality}) differ.
+ * The key therefore has to capture everything the appearance of the layer depends on.
+ * A null key indicates an untracked state, the layer is then drawn directly without caching.
+ * <p>
+ * Layers are drawn into images of viewport size with the same rendering hints as the target graphics
+ * and are composited with source over composite.
+ * Caching is only possible when the target graphics only translate (and flip) the viewport,
+ * otherwise the layer is drawn directly.
+ * Only the clipped part of a layer is drawn and the cache keeps track of the area of the layer that is
+ * up to date, so that the concurrently rendered tiles of a frame (see {@link BlankCanvasFallback#enableTiledRendering(boolean)})
+ * each draw their own part of the layer in parallel and subsequent frames composite the drawn parts.
+ * Concurrent calls therefore need to use disjoint clip regions, as the tiles of a frame do.
+ * A part drawn for a cancelled frame (see {@link BlankCanvasFallback#isCancelled(Graphics2D)}) is not kept.
+ *
+ * @author hageldave
+ */
+public class FallbackLayerCache {
+
+	/**
+	 * Draws the contents of a layer, e.g. by calling {@link Renderer#renderFallback(Graphics2D, Graphics2D, int, int)}.
+	 */
+	@FunctionalInterface
+	public static interface LayerPainter {
+		/**
+		 * Draws the layer.
+		 * @param g main graphics
+		 * @param p picking graphics
+		 * @param w width of the viewport
+		 * @param h height of the viewport
+		 */
+		public void paint(Graphics2D g, Graphics2D p, int w, int h);
+	}
+
+	protected Img mainLayer = new Img(0,0);
+	protected Img pickingLayer = new Img(0,0);
+	protected Object key;
+	protected List<Object> hints;
+	/** area of the layer images that is up to date (in image coordinates, i.e. from top) */
+	protected Area validArea = new Area();
+	protected boolean isPickingLayerValid = false;
+	protected boolean hasPickingColors = false;
+
+	/**
+	 * Draws the layer to the specified graphics.
+	 * The cached layer is composited when it is up to date in the clipped area, otherwise the missing
+	 * part of the clipped area is drawn and cached first.
+	 * @param g main graphics
+	 * @param p picking graphics
+	 * @param w width of the viewport
+	 * @param h height of the viewport
+	 * @param key object identifying the state of the layer (is compared using {@link Object#equals(Object)}),
+	 * null when the state is not known (no caching)
+	 * @param painter draws the layer
+	 */
+	public void draw(Graphics2D g, Graphics2D p, int w, int h, Object key, LayerPainter painter) {
+		if(Objects.isNull(key) || w <= 0 || h <= 0 || !isCacheable(g) || !isCacheable(p)){
+			painter.paint(g, p, w, h);
+			return;
+		}
+		Rectangle region = clipRegion(g, w, h);
+		if(region.isEmpty()){
+			return;
+		}
+		boolean drawPicking = !isClipEmpty(p);
+		Img main, picking;
+		Rectangle missing;
+		synchronized (this) {
+			List<Object> currentHints = hintsOf(g);
+			boolean isValid = Objects.equals(this.key, key) && currentHints.equals(this.hints)
+					&& mainLayer.getWidth() == w && mainLayer.getHeight() == h
+					&& (isPickingLayerValid || !drawPicking);
+			if(!isValid){
+				resetLayer(w, h, drawPicking);
+				this.key = key;
+				this.hints = currentHints;
+			}
+			Area missingArea = new Area(region);
+			missingArea.subtract(validArea);
+			missing = missingArea.getBounds();
+			// claim the missing part, tiles of a frame draw disjoint parts concurrently
+			validArea.add(new Area(missing));
+			main = mainLayer;
+			picking = pickingLayer;
+		}
+		boolean hasPicking = !missing.isEmpty() && paintLayer(g, p, w, h, main, picking, missing, drawPicking, painter);
+		boolean compositePicking;
+		synchronized (this) {
+			if(!missing.isEmpty() && Objects.equals(this.key, key)){
+				hasPickingColors |= hasPicking;
+				// part of a cancelled frame may be incomplete
+				if(BlankCanvasFallback.isCancelled(g)){
+					validArea.subtract(new Area(missing));
+				}
+			}
+			compositePicking = drawPicking && hasPickingColors;
+		}
+		composite(g, main, h);
+		if(compositePicking){
+			composite(p, picking, h);
+		}
+	}
+
+	/**
+	 * Translates the pixels of the specified area of the cached layer and assigns a new key to the layer,
+	 * e.g. when the contents of the area were panned and everything else of the layer stayed the same.
+	 * Only the translated pixels that were up to date stay valid, all other parts of the area are drawn
+	 * on the next call to {@link #draw(Graphics2D, Graphics2D, int, int, Object, LayerPainter)}.
+	 * Nothing happens when the key of the cached layer is not the specified previous key, 
+	 * e.g. when the layer was already translated by another tile of the frame.
+	 * @param previousKey key of the layer that is translated
+	 * @param key new key of the layer
+	 * @param area translated area (in image coordinates, i.e. from top)
+	 * @param border width of the border of the area that is drawn again instead of translated
+	 * @param dx translation along x-axis
+	 * @param dy translation along y-axis (downwards)
+	 */
+	public synchronized void translate(Object previousKey, Object key, Rectangle area, int border, int dx, int dy) {
+		if(Objects.isNull(previousKey) || !previousKey.equals(this.key)){
+			return;
+		}
+		Rectangle inner = new Rectangle(area);
+		inner.grow(-border, -border);
+		inner = inner.intersection(new Rectangle(0, 0, mainLayer.getWidth(), mainLayer.getHeight()));
+		Rectangle target = inner.intersection(new Rectangle(inner.x+dx, inner.y+dy, inner.width, inner.height));
+		Area translated = validArea.createTransformedArea(AffineTransform.getTranslateInstance(dx, dy));
+		translated.intersect(new Area(target));
+		// only the translated part of the area is kept
+		Area outside = new Area(new Rectangle(0, 0, mainLayer.getWidth(), mainLayer.getHeight()));
+		outside.subtract(new Area(area));
+		validArea.intersect(outside);
+		if(!translated.isEmpty()){
+			copyTranslated(mainLayer, target, dx, dy);
+			if(isPickingLayerValid){
+				copyTranslated(pickingLayer, target, dx, dy);
+			}
+			validArea.add(translated);
+		}
+		this.key = key;
+	}
+
+	/**
+	 * Copies the pixels of an image that end up in the target rectangle when the image is translated.
+	 */
+	protected static void copyTranslated(Img img, Rectangle target, int dx, int dy) {
+		int[] data = img.getData();
+		int w = img.getWidth();
+		// copy rows in an order that does not overwrite source rows before they are copied
+		for(int r=0; r<target.height; r++){
+			int y = dy > 0 ? target.y+target.height-1-r : target.y+r;
+			System.arraycopy(data, (y-dy)*w+target.x-dx, data, y*w+target.x, target.width);
+		}
+	}
+
+	/**
+	 * @return the key of the cached layer, null when no layer is cached
+	 */
+	public synchronized Object getKey() {
+		return key;
+	}
+
+	/**
+	 * Discards the cached layer, so that it is drawn again on the next call to
+	 * {@link #draw(Graphics2D, Graphics2D, int, int, Object, LayerPainter)}.
+	 */
+	public synchronized void invalidate() {
+		this.key = null;
+		this.hints = null;
+		this.validArea = new Area();
+		this.isPickingLayerValid = false;
+	}
+
+	/**
+	 * Discards the cached layer and makes sure the layer images have the specified size.
+	 * The images are not cleared, each part is cleared when it is drawn.
+	 */
+	protected void resetLayer(int w, int h, boolean drawPicking) {
+		if(mainLayer.getWidth() != w || mainLayer.getHeight() != h){
+			mainLayer = new Img(w, h);
+			pickingLayer = new Img(w, h);
+		}
+		validArea = new Area();
+		isPickingLayerValid = drawPicking;
+		hasPickingColors = false;
+	}
+
+	/**
+	 * Draws the specified region of the layer into the layer images.
+	 * @return true when picking colors were drawn in the region
+	 */
+	protected static boolean paintLayer(Graphics2D g, Graphics2D p, int w, int h, Img mainLayer, Img pickingLayer, Rectangle region, boolean drawPicking, LayerPainter painter) {
+		clearRect(mainLayer, region);
+		clearRect(pickingLayer, region);
+		Graphics2D lg=null, lp=null;
+		try {
+			lg = createLayerGraphics(g, mainLayer, region, h);
+			lp = createLayerGraphics(p, pickingLayer, drawPicking ? region:new Rectangle(), h);
+			painter.paint(lg, lp, w, h);
+		} finally {
+			if(lg!=null)lg.dispose();
+			if(lp!=null)lp.dispose();
+		}
+		if(!drawPicking){
+			return false;
+		}
+		int[] data = pickingLayer.getData();
+		for(int y=region.y; y<region.y+region.height; y++){
+			for(int i=y*w+region.x; i<y*w+region.x+region.width; i++){
+				if(data[i] != 0){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the clip bounds of the graphics object in layer image coordinates (from top), within the viewport
+	 */
+	protected static Rectangle clipRegion(Graphics2D g, int w, int h) {
+		Rectangle viewport = new Rectangle(0, 0, w, h);
+		Rectangle clip = g.getClipBounds();
+		if(Objects.isNull(clip)){
+			return viewport;
+		}
+		// undo y-axis flip
+		return viewport.intersection(new Rectangle(clip.x, h-clip.y-clip.height, clip.width, clip.height));
+	}
+
+	protected static void clearRect(Img img, Rectangle rect) {
+		int[] data = img.getData();
+		int w = img.getWidth();
+		for(int y=rect.y; y<rect.y+rect.height; y++){
+			Arrays.fill(data, y*w+rect.x, y*w+rect.x+rect.width, 0x00000000);
+		}
+	}
+
+	/**
+	 * Creates graphics for drawing into a layer image that behave like the target graphics
+	 * (same rendering hints, y-axis flipped like in fallback rendering) and are clipped to the specified region.
+	 */
+	protected static Graphics2D createLayerGraphics(Graphics2D target, Img layer, Rectangle region, int h) {
+		Graphics2D lg = layer.createGraphics();
+		lg.clipRect(region.x, region.y, region.width, region.height);
+		lg.setRenderingHints(target.getRenderingHints());
+		// draw directly into the layer, not into the target's image
+		DirectRaster.attach(lg, layer);
+		lg.translate(0, h);
+		lg.scale(1.0, -1.0);
+		return lg;
+	}
+
+	protected static void composite(Graphics2D g, Img layer, int h) {
+		Graphics2D g_ = (Graphics2D)g.create();
+		try {
+			// undo y-axis flip
+			g_.translate(0, h);
+			g_.scale(1.0, -1.0);
+			g_.drawImage(layer.getRemoteBufferedImage(), 0, 0, null);
+		} finally {
+			g_.dispose();
+		}
+	}
+
+	/**
+	 * @return rendering hints of the graphics that affect the appearance of a layer
+	 */
+	protected static List<Object> hintsOf(Graphics2D g) {
+		return Arrays.asList(
+				g.getRenderingHint(RenderingHints.KEY_ANTIALIASING),
+				g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING),
+				g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL),
+				RenderQuality.of(g));
+	}
+
+	/**
+	 * @return true when the graphics object maps the flipped viewport to whole device pixels
+	 * (translation and y-axis flip only) and uses source over composite.
+	 */
+	protected static boolean isCacheable(Graphics2D g) {
+		AffineTransform xform = g.getTransform();
+		return xform.getScaleX() == 1 && xform.getScaleY() == -1
+				&& xform.getShearX() == 0 && xform.getShearY() == 0
+				&& xform.getTranslateX() == Math.rint(xform.getTranslateX())
+				&& xform.getTranslateY() == Math.rint(xform.getTranslateY())
+				&& AlphaComposite.SrcOver.equals(g.getComposite());
+	}
+
+	protected static boolean isClipEmpty(Graphics2D g) {
+		Rectangle clip = g.getClipBounds();
+		return Objects.nonNull(clip) && clip.isEmpty();
+	}
+
+}
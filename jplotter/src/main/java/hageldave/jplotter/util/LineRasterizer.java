@@ -0,0 +1,296 @@
+package hageldave.jplotter.util;
+
+/**
+ * The LineRasterizer draws thin straight line segments directly into the pixels of a {@link DirectRaster}.
+ * It is used by the fallback rendering of thin lines (up to {@value #MAX_THICKNESS} pixels)
+ * where setting up Java2D strokes, shapes and paints for every single segment is much more
+ * expensive than the rasterization itself.
+ * <p>
+ * The rasterizer walks along the major axis of a segment (similar to Wu's algorithm) and computes
+ * the coverage of each nearby pixel as the overlap of the pixel with the segment's rectangle
+ * (butt caps) separately across and along the segment.
+ * This gives anti-aliased results close to Java2D's pure stroke rendering.
+ * The color is linearly interpolated between the segment's end points like a {@link java.awt.GradientPaint}
+ * and dash patterns are applied the same way as by {@link java.awt.BasicStroke}.
+ * <p>
+ * Picking colors are written in the same pass without anti-aliasing, i.e. a pixel
+ * receives the picking color when its center is covered by the segment
+ * (after normalizing the end points like Java2D's {@link java.awt.RenderingHints#VALUE_STROKE_NORMALIZE}).
+ * <p>
+ * For density rendering, {@link #accumulateLine(float[], int, int, double, double, double, double, float, float)}
+ * adds the coverage of a segment to a float accumulation buffer instead of blending a color.
+ *
+ * @author hageldave
+ */
+public class LineRasterizer {
+
+	/** maximum line thickness in pixels that the rasterizer is meant for */
+	public static final float MAX_THICKNESS = 2f;
+
+	private LineRasterizer() {/* static utility */}
+
+	/**
+	 * Draws a line segment with butt caps.
+	 * Coordinates are in user space of the rasters (which need to have the same transform).
+	 *
+	 * @param raster to draw the line on
+	 * @param pickRaster to draw the picking color on (may be null)
+	 * @param x1 x coordinate of start point
+	 * @param y1 y coordinate of start point
+	 * @param x2 x coordinate of end point
+	 * @param y2 y coordinate of end point
+	 * @param thickness of the line in pixels
+	 * @param color1 integer packed ARGB color at the start point
+	 * @param color2 integer packed ARGB color at the end point
+	 * @param pickColor integer packed RGB picking color, 0 for none
+	 * @param dash dash pattern of alternating opaque and transparent lengths as in {@link java.awt.BasicStroke},
+	 * or null for a solid line
+	 * @param dashPhase offset into the dash pattern at the start point
+	 */
+	public static void drawLine(
+			DirectRaster raster,
+			DirectRaster pickRaster,
+			double x1, double y1,
+			double x2, double y2,
+			float thickness,
+			int color1, int color2,
+			int pickColor,
+			float[] dash, double dashPhase)
+	{
+		// to device space
+		double ax = raster.toDeviceX(x1), ay = raster.toDeviceY(y1);
+		double bx = raster.toDeviceX(x2), by = raster.toDeviceY(y2);
+		double dx = bx-ax, dy = by-ay;
+		double len = Math.sqrt(dx*dx+dy*dy);
+		if(!(len > 0) || Double.isInfinite(len) || !(thickness > 0)){
+			// nothing to draw for degenerate segments (butt caps)
+			return;
+		}
+		double ux = dx/len, uy = dy/len;
+		double half = thickness*0.5;
+		double dashPeriod = 0, dashOn = 0;
+		if(dash != null){
+			for(int k=0; k<dash.length; k++){
+				dashPeriod += dash[k];
+				if(k%2==0) dashOn += dash[k];
+			}
+			if(!(dashPeriod > 0)){
+				dash = null;
+			}
+		}
+		boolean drawPick = pickColor != 0 && pickRaster != null && !pickRaster.isClipEmpty();
+		boolean drawAliased = drawPick || !raster.antialiasing;
+		if(raster.isClipEmpty() && !drawPick){
+			return;
+		}
+		// area to visit is the union of both clips (an empty clip does not contribute)
+		int clipX0 = raster.clipX0, clipY0 = raster.clipY0, clipX1 = raster.clipX1, clipY1 = raster.clipY1;
+		if(drawPick && raster.isClipEmpty()){
+			clipX0 = pickRaster.clipX0; clipY0 = pickRaster.clipY0;
+			clipX1 = pickRaster.clipX1; clipY1 = pickRaster.clipY1;
+		} else if(drawPick){
+			clipX0 = Math.min(clipX0, pickRaster.clipX0); clipY0 = Math.min(clipY0, pickRaster.clipY0);
+			clipX1 = Math.max(clipX1, pickRaster.clipX1); clipY1 = Math.max(clipY1, pickRaster.clipY1);
+		}
+		boolean xMajor = Math.abs(dx) >= Math.abs(dy);
+		// pixels within this distance from the line's center may be covered
+		double reach = half + 0.71;
+		// extent across the minor axis per major axis step
+		double minorExtent = reach / (xMajor ? Math.abs(ux):Math.abs(uy));
+		double slope = xMajor ? dy/dx : dx/dy;
+		double majorStart = xMajor ? Math.min(ax, bx) : Math.min(ay, by);
+		double majorEnd   = xMajor ? Math.max(ax, bx) : Math.max(ay, by);
+
+		/* Without anti-aliasing the end points are normalized like Java2D does (stroke control normalize).
+		 * Thin solid lines are drawn with one pixel per major axis step between the centers of
+		 * the end point pixels, other lines cover the pixels whose centers are inside the line. */
+		boolean thinAliased = thickness <= 1 && dash == null;
+		double qOffset = thinAliased ? 0:0.25, qCenter = thinAliased ? 0.5:0.25;
+		double qax = Math.floor(ax+qOffset)+qCenter, qay = Math.floor(ay+qOffset)+qCenter;
+		double qbx = Math.floor(bx+qOffset)+qCenter, qby = Math.floor(by+qOffset)+qCenter;
+		double qlen = Math.sqrt((qbx-qax)*(qbx-qax)+(qby-qay)*(qby-qay));
+		double qux = (qbx-qax)/qlen, quy = (qby-qay)/qlen;
+		double qMajorDelta = xMajor ? qbx-qax : qby-qay;
+		double qSlope = qMajorDelta == 0 ? 0 : (xMajor ? qby-qay : qbx-qax)/qMajorDelta;
+		double qMajorStart = xMajor ? Math.min(qax, qbx) : Math.min(qay, qby);
+		double qMajorEnd   = xMajor ? Math.max(qax, qbx) : Math.max(qay, qby);
+
+		int m0 = (int)Math.floor(majorStart-reach);
+		int m1 = (int)Math.ceil(majorEnd+reach);
+		if(xMajor){
+			m0 = Math.max(m0, clipX0); m1 = Math.min(m1, clipX1);
+		} else {
+			m0 = Math.max(m0, clipY0); m1 = Math.min(m1, clipY1);
+		}
+		int minorClip0 = xMajor ? clipY0:clipX0;
+		int minorClip1 = xMajor ? clipY1:clipX1;
+		for(int m=m0; m<m1; m++){
+			double mc = m+0.5;
+			double minorCenter = xMajor ? ay+(mc-ax)*slope : ax+(mc-ay)*slope;
+			int qMinor = (int)Math.floor(xMajor ? qay+(mc-qax)*qSlope : qax+(mc-qay)*qSlope);
+			boolean qMajorInside = mc >= qMajorStart && mc <= qMajorEnd;
+			int n0 = Math.max(minorClip0, (int)Math.floor(minorCenter-minorExtent));
+			int n1 = Math.min(minorClip1, (int)Math.ceil(minorCenter+minorExtent)+1);
+			for(int n=n0; n<n1; n++){
+				int px = xMajor ? m:n;
+				int py = xMajor ? n:m;
+				double rx = px+0.5-ax, ry = py+0.5-ay;
+				// position along and distance across the segment
+				double s = rx*ux + ry*uy;
+				double d = ry*ux - rx*uy;
+				boolean aliasedHit = false;
+				if(drawAliased){
+					if(thinAliased){
+						aliasedHit = qMajorInside && n == qMinor;
+					} else {
+						double qrx = px+0.5-qax, qry = py+0.5-qay;
+						double qs = qrx*qux + qry*quy;
+						double qd = qry*qux - qrx*quy;
+						aliasedHit = qd >= -half && qd < half && qs >= 0 && qs < qlen
+								&& (dash == null || isDashOn(dash, dashPeriod, dashPhase+qs));
+					}
+				}
+				if(drawPick && aliasedHit
+						&& px >= pickRaster.clipX0 && px < pickRaster.clipX1 && py >= pickRaster.clipY0 && py < pickRaster.clipY1)
+				{
+					pickRaster.data[py*pickRaster.width+px] = pickColor | 0xff000000;
+				}
+				if(px < raster.clipX0 || px >= raster.clipX1 || py < raster.clipY0 || py >= raster.clipY1){
+					continue;
+				}
+				int coverage;
+				if(raster.antialiasing){
+					// overlap of pixel extent with the segment across and along the segment
+					double across = Math.min(d+0.5, half) - Math.max(d-0.5, -half);
+					if(!(across > 0)){
+						continue;
+					}
+					double lo = Math.max(s-0.5, 0), hi = Math.min(s+0.5, len);
+					if(!(hi > lo)){
+						continue;
+					}
+					double along = dash == null ? hi-lo :
+						dashCoverage(dash, dashPeriod, dashOn, dashPhase+hi) - dashCoverage(dash, dashPeriod, dashOn, dashPhase+lo);
+					coverage = (int)(Math.min(1, across)*Math.min(1, along)*255+0.5);
+				} else {
+					coverage = aliasedHit ? 255:0;
+				}
+				if(coverage <= 0){
+					continue;
+				}
+				int color = color1 == color2 ? color1 : interpolateColor(color1, color2, s/len);
+				raster.blendAt(py*raster.width+px, color, coverage);
+			}
+		}
+	}
+
+	/**
+	 * Adds the anti-aliased coverage of a line segment with butt caps to an accumulation buffer,
+	 * i.e. every pixel receives weight times the area of the pixel that is covered by the segment.
+	 * Unlike blending, accumulation does not saturate and is independent of the order of segments.
+	 * Coordinates are in pixels of the buffer, pixel (x,y) is at index y*w+x.
+	 *
+	 * @param buffer row major accumulation buffer of w*h pixels
+	 * @param w width of the buffer
+	 * @param h height of the buffer
+	 * @param ax x coordinate of start point
+	 * @param ay y coordinate of start point
+	 * @param bx x coordinate of end point
+	 * @param by y coordinate of end point
+	 * @param thickness of the line in pixels
+	 * @param weight of the segment
+	 */
+	public static void accumulateLine(
+			float[] buffer, int w, int h,
+			double ax, double ay,
+			double bx, double by,
+			float thickness, float weight)
+	{
+		double dx = bx-ax, dy = by-ay;
+		double len = Math.sqrt(dx*dx+dy*dy);
+		if(!(len > 0) || Double.isInfinite(len) || !(thickness > 0)){
+			return;
+		}
+		double ux = dx/len, uy = dy/len;
+		double half = thickness*0.5;
+		boolean xMajor = Math.abs(dx) >= Math.abs(dy);
+		// pixels within this distance from the line's center may be covered
+		double reach = half + 0.71;
+		// extent across the minor axis per major axis step
+		double minorExtent = reach / (xMajor ? Math.abs(ux):Math.abs(uy));
+		double slope = xMajor ? dy/dx : dx/dy;
+		double majorStart = xMajor ? Math.min(ax, bx) : Math.min(ay, by);
+		double majorEnd   = xMajor ? Math.max(ax, bx) : Math.max(ay, by);
+		int m0 = Math.max((int)Math.floor(majorStart-reach), 0);
+		int m1 = Math.min((int)Math.ceil(majorEnd+reach), xMajor ? w:h);
+		int minorEnd = xMajor ? h:w;
+		for(int m=m0; m<m1; m++){
+			double mc = m+0.5;
+			double minorCenter = xMajor ? ay+(mc-ax)*slope : ax+(mc-ay)*slope;
+			int n0 = Math.max(0, (int)Math.floor(minorCenter-minorExtent));
+			int n1 = Math.min(minorEnd, (int)Math.ceil(minorCenter+minorExtent)+1);
+			for(int n=n0; n<n1; n++){
+				int px = xMajor ? m:n;
+				int py = xMajor ? n:m;
+				double rx = px+0.5-ax, ry = py+0.5-ay;
+				// position along and distance across the segment
+				double s = rx*ux + ry*uy;
+				double d = ry*ux - rx*uy;
+				double across = Math.min(d+0.5, half) - Math.max(d-0.5, -half);
+				double along = Math.min(s+0.5, len) - Math.max(s-0.5, 0);
+				if(across > 0 && along > 0){
+					buffer[py*w+px] += weight*(float)(Math.min(1, across)*Math.min(1, along));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Linearly interpolates each channel of two ARGB colors like {@link java.awt.GradientPaint} does.
+	 * @param c1 first color
+	 * @param c2 second color
+	 * @param t interpolation parameter (clamped to [0,1])
+	 * @return interpolated color
+	 */
+	protected static int interpolateColor(int c1, int c2, double t) {
+		int w = (int)(Math.max(0, Math.min(1, t))*256);
+		int iw = 256-w;
+		int a = (((c1>>>24)     )*iw + ((c2>>>24)     )*w) >> 8;
+		int r = (((c1>>16)&0xff)*iw + ((c2>>16)&0xff)*w) >> 8;
+		int g = (((c1>> 8)&0xff)*iw + ((c2>> 8)&0xff)*w) >> 8;
+		int b = (((c1    )&0xff)*iw + ((c2    )&0xff)*w) >> 8;
+		return (a<<24)|(r<<16)|(g<<8)|b;
+	}
+
+	/**
+	 * @return true when the dash pattern is opaque at the specified position
+	 */
+	protected static boolean isDashOn(float[] dash, double period, double pos) {
+		double r = pos - Math.floor(pos/period)*period;
+		for(int k=0; k<dash.length; k++){
+			if(r < dash[k]){
+				return k%2==0;
+			}
+			r -= dash[k];
+		}
+		return (dash.length-1)%2==0;
+	}
+
+	/**
+	 * @return the accumulated opaque length of the dash pattern from 0 to the specified position
+	 */
+	protected static double dashCoverage(float[] dash, double period, double onPerPeriod, double pos) {
+		double numPeriods = Math.floor(pos/period);
+		double r = pos - numPeriods*period;
+		double on = numPeriods*onPerPeriod;
+		for(int k=0; k<dash.length && r > 0; k++){
+			double l = Math.min(r, dash[k]);
+			if(k%2==0){
+				on += l;
+			}
+			r -= l;
+		}
+		return on;
+	}
+
+}
@@ -0,0 +1,218 @@
+package hageldave.jplotter.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * The PointGridIndex is a spatial index for a set of 2D points that allows to
+ * find the points inside of a rectangle without testing every single point.
+ * <p>
+ * The bounding box of the points is subdivided into a uniform grid of cells
+ * and the point indices are sorted by cell (counting sort).
+ * A rectangle query only visits the cells overlapping the rectangle, so its cost
+ * is proportional to the number of points in the vicinity of the rectangle
+ * instead of the total number of points.
+ * <p>
+ * The index does not store coordinates itself, it refers to points by their index
+ * and accesses their coordinates through the functions provided on construction and query.
+ * Points with non finite coordinates are not indexed since they cannot be contained in
+ * any rectangle.
+ * The index is immutable, when points are moved a new index has to be built.
+ * Points that were appended after building can be handled by the caller
+ * through a linear scan of the indices from {@link #size()} onwards.
+ *
+ * @author hageldave
+ */
+public class PointGridIndex {
+
+	/** targeted average number of points per grid cell */
+	public static final int POINTS_PER_CELL = 8;
+	/** maximum number of cells per grid dimension */
+	public static final int MAX_CELLS_PER_DIM = 4096;
+
+	protected final int size;
+	protected final double minX, minY, maxX, maxY;
+	protected final int cols, rows;
+	protected final double cellsPerUnitX, cellsPerUnitY;
+	/** start offset into {@link #pointIndices} for each cell, has one extra element for the end of the last cell */
+	protected final int[] cellStarts;
+	/** point indices sorted by cell, ascending within each cell */
+	protected final int[] pointIndices;
+
+	/**
+	 * Builds a grid index for the points 0 to n-1.
+	 * @param n number of points
+	 * @param xs function returning the x coordinate of the i-th point
+	 * @param ys function returning the y coordinate of the i-th point
+	 */
+	public PointGridIndex(int n, IntToDoubleFunction xs, IntToDoubleFunction ys) {
+		this.size = n;
+		double minX=Double.POSITIVE_INFINITY, minY=Double.POSITIVE_INFINITY;
+		double maxX=Double.NEGATIVE_INFINITY, maxY=Double.NEGATIVE_INFINITY;
+		int numFinite = 0;
+		for(int i=0; i<n; i++){
+			double x = xs.applyAsDouble(i);
+			double y = ys.applyAsDouble(i);
+			if(!isFinite(x) || !isFinite(y))
+				continue;
+			minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+			numFinite++;
+		}
+		if(numFinite == 0){
+			minX=minY=maxX=maxY=0;
+		}
+		this.minX = minX; this.minY = minY;
+		this.maxX = maxX; this.maxY = maxY;
+
+		int cellsPerDim = (int)Math.ceil(Math.sqrt(numFinite/(double)POINTS_PER_CELL));
+		cellsPerDim = Math.max(1, Math.min(MAX_CELLS_PER_DIM, cellsPerDim));
+		double w = maxX-minX, h = maxY-minY;
+		this.cols = w > 0 ? cellsPerDim:1;
+		this.rows = h > 0 ? cellsPerDim:1;
+		this.cellsPerUnitX = w > 0 ? cols/w:0;
+		this.cellsPerUnitY = h > 0 ? rows/h:0;
+
+		// counting sort of point indices by cell
+		int[] pointCells = new int[n];
+		this.cellStarts = new int[cols*rows+1];
+		for(int i=0; i<n; i++){
+			double x = xs.applyAsDouble(i);
+			double y = ys.applyAsDouble(i);
+			if(!isFinite(x) || !isFinite(y)){
+				pointCells[i] = -1;
+				continue;
+			}
+			int cell = row(y)*cols+col(x);
+			pointCells[i] = cell;
+			cellStarts[cell+1]++;
+		}
+		for(int c=0; c<cols*rows; c++){
+			cellStarts[c+1] += cellStarts[c];
+		}
+		this.pointIndices = new int[numFinite];
+		int[] fill = Arrays.copyOf(cellStarts, cols*rows);
+		for(int i=0; i<n; i++){
+			int cell = pointCells[i];
+			if(cell >= 0)
+				pointIndices[fill[cell]++] = i;
+		}
+	}
+
+	/**
+	 * @return the number of points this index was built for.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the bounding rectangle of the indexed points (with finite coordinates)
+	 */
+	public Rectangle2D getBounds() {
+		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+	}
+
+	protected int col(double x) {
+		return Math.max(0, Math.min(cols-1, (int)((x-minX)*cellsPerUnitX)));
+	}
+
+	protected int row(double y) {
+		return Math.max(0, Math.min(rows-1, (int)((y-minY)*cellsPerUnitY)));
+	}
+
+	protected static boolean isFinite(double v) {
+		return !Double.isNaN(v) && !Double.isInfinite(v);
+	}
+
+	/**
+	 * Calls the specified action with the index of every indexed point that is contained in
+	 * the specified rectangle (in terms of {@link Rectangle2D#contains(double, double)}).
+	 * The indices are visited in ascending order, which preserves the drawing order of the points.
+	 * Indices that are not smaller than the specified limit are skipped, which allows
+	 * to safely query an index that is outdated because points have been removed.
+	 *
+	 * @param rect query rectangle
+	 * @param limit exclusive upper bound for the visited indices (i.e. current number of points)
+	 * @param xs function returning the x coordinate of the i-th point
+	 * @param ys function returning the y coordinate of the i-th point
+	 * @param action to be called with the index of each contained point
+	 */
+	public void forEachInRect(Rectangle2D rect, int limit, IntToDoubleFunction xs, IntToDoubleFunction ys, IntConsumer action) {
+		if(pointIndices.length == 0 || rect.isEmpty()
+				|| rect.getMaxX() < minX || rect.getMinX() > maxX
+				|| rect.getMaxY() < minY || rect.getMinY() > maxY)
+		{
+			return;
+		}
+		int c0 = col(rect.getMinX()), c1 = col(rect.getMaxX());
+		int r0 = row(rect.getMinY()), r1 = row(rect.getMaxY());
+		int numCells = (c1-c0+1)*(r1-r0+1);
+		int n = Math.min(size, limit);
+		if(numCells*4 > cols*rows){
+			// large part of the grid is covered, scanning in index order is cheaper than sorting
+			for(int i=0; i<n; i++){
+				if(rect.contains(xs.applyAsDouble(i), ys.applyAsDouble(i)))
+					action.accept(i);
+			}
+			return;
+		}
+		int[] candidates = new int[64];
+		int numCandidates = 0;
+		for(int r=r0; r<=r1; r++){
+			for(int c=c0; c<=c1; c++){
+				int cell = r*cols+c;
+				for(int k=cellStarts[cell]; k<cellStarts[cell+1]; k++){
+					int i = pointIndices[k];
+					if(i < n && rect.contains(xs.applyAsDouble(i), ys.applyAsDouble(i))){
+						if(numCandidates == candidates.length)
+							candidates = Arrays.copyOf(candidates, numCandidates*2);
+						candidates[numCandidates++] = i;
+					}
+				}
+			}
+		}
+		// within a cell indices are ascending, across cells they have to be sorted
+		if(numCells > 1)
+			Arrays.sort(candidates, 0, numCandidates);
+		for(int k=0; k<numCandidates; k++){
+			action.accept(candidates[k]);
+		}
+	}
+
+	/**
+	 * Tests whether any of the indexed points is contained in the specified rectangle
+	 * (in terms of {@link Rectangle2D#contains(double, double)}).
+	 *
+	 * @param rect query rectangle
+	 * @param limit exclusive upper bound for the considered indices (i.e. current number of points)
+	 * @param xs function returning the x coordinate of the i-th point
+	 * @param ys function returning the y coordinate of the i-th point
+	 * @return true when a contained point exists
+	 */
+	public boolean anyInRect(Rectangle2D rect, int limit, IntToDoubleFunction xs, IntToDoubleFunction ys) {
+		if(pointIndices.length == 0 || rect.isEmpty()
+				|| rect.getMaxX() < minX || rect.getMinX() > maxX
+				|| rect.getMaxY() < minY || rect.getMinY() > maxY)
+		{
+			return false;
+		}
+		int c0 = col(rect.getMinX()), c1 = col(rect.getMaxX());
+		int r0 = row(rect.getMinY()), r1 = row(rect.getMaxY());
+		int n = Math.min(size, limit);
+		for(int r=r0; r<=r1; r++){
+			for(int c=c0; c<=c1; c++){
+				int cell = r*cols+c;
+				for(int k=cellStarts[cell]; k<cellStarts[cell+1]; k++){
+					int i = pointIndices[k];
+					if(i < n && rect.contains(xs.applyAsDouble(i), ys.applyAsDouble(i)))
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,167 @@
+package hageldave.jplotter.util;
+
+import static hageldave.jplotter.util.BarycentricGradientPaint.BarycentricGradientPaintContext.MSAA_SAMPLES;
+import static hageldave.jplotter.util.BarycentricGradientPaint.BarycentricGradientPaintContext.mixColor3;
+import static hageldave.jplotter.util.BarycentricGradientPaint.BarycentricGradientPaintContext.mixColor4;
+import static hageldave.jplotter.util.BarycentricGradientPaint.BarycentricGradientPaintContext.scaleColorAlpha;
+
+/**
+ * The TriangleRasterizer fills triangles with barycentric color gradients directly into the
+ * pixels of a {@link DirectRaster}.
+ * It produces the same result as filling the bounding box of a triangle with a
+ * {@link BarycentricGradientPaint} but avoids creating a paint, paint context and
+ * raster for every triangle and only visits the pixels that are (partially) covered by the triangle.
+ * <p>
+ * Each pixel row is intersected with the triangle (scanline) and the pixels of the resulting
+ * span are tested using the barycentric coordinates of their samples.
+ * When the raster has anti-aliasing enabled, the same 4x multisampling as in
+ * {@link BarycentricGradientPaint.BarycentricGradientPaintContext} is used, otherwise the pixel centers are sampled.
+ * <p>
+ * Picking colors are written in the same pass without anti-aliasing.
+ *
+ * @author hageldave
+ */
+public class TriangleRasterizer {
+
+	private TriangleRasterizer() {/* static utility */}
+
+	/**
+	 * Fills the specified triangle.
+	 * Coordinates are in user space of the rasters (which need to have the same transform).
+	 *
+	 * @param raster to draw the triangle on
+	 * @param pickRaster to draw the picking color on (may be null)
+	 * @param x1 x-coord of triangle vertex
+	 * @param y1 y-coord of triangle vertex
+	 * @param x2 x-coord of triangle vertex
+	 * @param y2 y-coord of triangle vertex
+	 * @param x3 x-coord of triangle vertex
+	 * @param y3 y-coord of triangle vertex
+	 * @param c1 integer packed ARGB color of vertex
+	 * @param c2 integer packed ARGB color of vertex
+	 * @param c3 integer packed ARGB color of vertex
+	 * @param pickColor integer packed RGB picking color, 0 for none
+	 */
+	public static void fillTriangle(
+			DirectRaster raster,
+			DirectRaster pickRaster,
+			float x1, float y1,
+			float x2, float y2,
+			float x3, float y3,
+			int c1, int c2, int c3,
+			int pickColor)
+	{
+		// to device space (same precision as the paint context)
+		x1 = (float)raster.toDeviceX(x1); y1 = (float)raster.toDeviceY(y1);
+		x2 = (float)raster.toDeviceX(x2); y2 = (float)raster.toDeviceY(y2);
+		x3 = (float)raster.toDeviceX(x3); y3 = (float)raster.toDeviceY(y3);
+		// constants for barycentric coords
+		final float x23=x2-x3, x13=x1-x3, y23=y2-y3, y13=y1-y3;
+		final float denom=1f/((y23*x13)-(x23*y13));
+		if(Float.isNaN(denom) || Float.isInfinite(denom)){
+			// degenerate triangle does not cover any samples
+			return;
+		}
+		final boolean monochrome = c1==c2&&c2==c3;
+		final boolean antialiasing = raster.antialiasing;
+		final boolean drawPick = pickColor != 0 && pickRaster != null && !pickRaster.isClipEmpty();
+		final int pick = pickColor | 0xff000000;
+
+		if(raster.isClipEmpty() && !drawPick){
+			return;
+		}
+		// area to visit is the union of both clips (an empty clip does not contribute)
+		int clipX0 = raster.clipX0, clipY0 = raster.clipY0, clipX1 = raster.clipX1, clipY1 = raster.clipY1;
+		if(drawPick && raster.isClipEmpty()){
+			clipX0 = pickRaster.clipX0; clipY0 = pickRaster.clipY0;
+			clipX1 = pickRaster.clipX1; clipY1 = pickRaster.clipY1;
+		} else if(drawPick){
+			clipX0 = Math.min(clipX0, pickRaster.clipX0); clipY0 = Math.min(clipY0, pickRaster.clipY0);
+			clipX1 = Math.max(clipX1, pickRaster.clipX1); clipY1 = Math.max(clipY1, pickRaster.clipY1);
+		}
+		double minY = Utils.min3(y1, y2, y3), maxY = Utils.max3(y1, y2, y3);
+		int row0 = (int)Math.max(clipY0, Math.floor(minY));
+		int row1 = (int)Math.min(clipY1, Math.floor(maxY)+1);
+		float[] xs = {x1,x2,x3}, ys = {y1,y2,y3};
+		int[] mix = new int[4];
+		float[] weights = new float[4];
+		for(int py=row0; py<row1; py++){
+			// horizontal span of the triangle within this pixel row
+			double spanMin = Double.POSITIVE_INFINITY, spanMax = Double.NEGATIVE_INFINITY;
+			for(int v=0; v<3; v++){
+				if(ys[v] >= py && ys[v] <= py+1){
+					spanMin = Math.min(spanMin, xs[v]); spanMax = Math.max(spanMax, xs[v]);
+				}
+				int u = (v+1)%3;
+				for(int yy=py; yy<=py+1; yy++){
+					if((ys[v]-yy)*(ys[u]-yy) < 0){
+						double x = xs[v] + (yy-ys[v])*(xs[u]-xs[v])/(ys[u]-ys[v]);
+						spanMin = Math.min(spanMin, x); spanMax = Math.max(spanMax, x);
+					}
+				}
+			}
+			if(spanMin > spanMax){
+				continue;
+			}
+			int col0 = (int)Math.max(clipX0, Math.floor(spanMin));
+			int col1 = (int)Math.min(clipX1, Math.floor(spanMax)+1);
+			boolean rowInRaster = py >= raster.clipY0 && py < raster.clipY1;
+			boolean rowInPick = drawPick && py >= pickRaster.clipY0 && py < pickRaster.clipY1;
+
+			float y = py+.5f;
+			float ypart1c = -x23*(y-y3);
+			float ypart2c =  x13*(y-y3);
+			for(int px=col0; px<col1; px++){
+				boolean inRaster = rowInRaster && px >= raster.clipX0 && px < raster.clipX1;
+				boolean inPick = rowInPick && px >= pickRaster.clipX0 && px < pickRaster.clipX1;
+				if(!inRaster && !inPick){
+					continue;
+				}
+				// pixel center sample
+				float x = px+.5f;
+				float l1 = ( y23*(x-x3)+ypart1c)*denom;
+				float l2 = (-y13*(x-x3)+ypart2c)*denom;
+				float l3 = 1f-l1-l2;
+				boolean centerInside = !(l1<0||l2<0||l3<0);
+				if(inPick && centerInside){
+					pickRaster.data[py*pickRaster.width+px] = pick;
+				}
+				if(!inRaster){
+					continue;
+				}
+				int color;
+				if(!antialiasing){
+					if(!centerInside){
+						continue;
+					}
+					color = monochrome ? c1:mixColor3(c1, c2, c3, l1, l2, l3);
+				} else {
+					// 4 sub pixel samples (out of triangle samples have 0 weight)
+					float weightSum = 0;
+					for(int s=0; s<4; s++){
+						mix[s] = 0;
+						weights[s] = 0f;
+						float sx = px+MSAA_SAMPLES[s*2+0];
+						float sy = py+MSAA_SAMPLES[s*2+1];
+						float s1 = ( y23*(sx-x3)-x23*(sy-y3))*denom;
+						float s2 = (-y13*(sx-x3)+x13*(sy-y3))*denom;
+						float s3 = 1f-s1-s2;
+						if(s1<0||s2<0||s3<0){
+							continue;
+						}
+						mix[s] = monochrome ? c1:mixColor3(c1, c2, c3, s1, s2, s3);
+						weights[s] = 1f;
+						weightSum += 1f;
+					}
+					if(weightSum == 0){
+						continue;
+					}
+					color = mixColor4(mix[0], mix[1], mix[2], mix[3], weights[0], weights[1], weights[2], weights[3]);
+					color = scaleColorAlpha(color, weightSum*.25f);
+				}
+				raster.blendAt(py*raster.width+px, color, 255);
+			}
+		}
+	}
+
+}
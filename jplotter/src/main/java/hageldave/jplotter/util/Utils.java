@@ -12,6 +12,7 @@ import java.awt.image.WritableRaster;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javax.swing.SwingUtilities;
@@ -130,6 +131,16 @@ public class Utils {
 		return parallel ? stream.parallel():stream;
 	}
 	
+	/**
+	 * Syntactic sugar for conditional stream.parallel().
+	 * @param stream to make parallel
+	 * @param parallel whether to make parallel or not
+	 * @return stream.parallel() if true
+	 */
+	public static IntStream parallelize(IntStream stream, boolean parallel){
+		return parallel ? stream.parallel():stream;
+	}
+	
 	/**
 	 * Clamps value between specified bounds
 	 * @param lower minimum value
@@ -0,0 +1,199 @@
+package hageldave.jplotter;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.geom.Rectangle2D;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import hageldave.jplotter.canvas.BatchRenderService;
+import hageldave.jplotter.canvas.BatchRenderService.OutputFormat;
+import hageldave.jplotter.canvas.BatchRenderService.RenderJob;
+import hageldave.jplotter.font.CharacterAtlas;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Legend;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+import hageldave.jplotter.renderers.Renderer;
+
+/**
+ * Verifies that the {@link BatchRenderService} produces the same outputs
+ * regardless of the number of worker threads.
+ * The same set of jobs is rendered with 1 and with N threads, the PNG and SVG outputs
+ * have to be byte-identical and the SVG definition ids have to be equal.
+ * Additionally the text measurement of the {@link CharacterAtlas} is called concurrently
+ * and compared to sequentially computed results.
+ * Exits with status 1 when a mismatch was found.
+ */
+public class BatchRenderTest {
+
+	static final int NUM_SCENES = 16;
+	static final Pattern DEF_ID = Pattern.compile("\"(def[-_][0-9a-v]+)\"");
+
+	public static void main(String[] args) throws Exception {
+		int numThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		int failures = 0;
+
+		List<RenderJob> jobs = new ArrayList<>();
+		for(int i = 0; i < NUM_SCENES; i++){
+			final int seed = i;
+			jobs.add(new RenderJob(()->createScene(seed), 400, 300, OutputFormat.PNG));
+			jobs.add(new RenderJob(()->createScene(seed), 400, 300, OutputFormat.SVG));
+		}
+
+		List<byte[]> sequential;
+		try(BatchRenderService service = new BatchRenderService(1)){
+			sequential = service.renderAll(jobs);
+		}
+		List<byte[]> parallel;
+		try(BatchRenderService service = new BatchRenderService(numThreads)){
+			parallel = service.renderAll(jobs);
+		}
+
+		for(int i = 0; i < jobs.size(); i++){
+			RenderJob job = jobs.get(i);
+			byte[] expected = sequential.get(i);
+			byte[] actual = parallel.get(i);
+			if(expected.length == 0){
+				System.err.println("job " + i + " (" + job.format + "): empty output");
+				failures++;
+			}
+			if(!Arrays.equals(expected, actual)){
+				System.err.println("job " + i + " (" + job.format + "): output differs between 1 and " + numThreads + " threads");
+				failures++;
+			}
+			if(job.format == OutputFormat.SVG){
+				List<String> expectedIds = defIds(expected);
+				List<String> actualIds = defIds(actual);
+				if(!expectedIds.equals(actualIds)){
+					System.err.println("job " + i + " (SVG): def ids differ " + expectedIds + " vs " + actualIds);
+					failures++;
+				}
+				for(String id : actualIds){
+					if(!id.startsWith("def-")){
+						// ids of the global counter depend on the order in which documents are created
+						System.err.println("job " + i + " (SVG): def id " + id + " is not document local");
+						failures++;
+						break;
+					}
+				}
+			}
+		}
+		System.out.println("compared " + jobs.size() + " outputs of 1 vs " + numThreads + " threads");
+
+		failures += testConcurrentTextBounds(numThreads);
+
+		if(failures > 0){
+			System.err.println(failures + " failure(s)");
+			System.exit(1);
+		}
+		System.out.println("all outputs identical");
+	}
+
+	static Renderer createScene(int seed) {
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		CompleteRenderer content = new CompleteRenderer();
+		coordsys.setContent(content);
+		coordsys.setxAxisLabel("scene " + seed);
+
+		Lines lines = new Lines();
+		Points points = new Points(DefaultGlyph.values()[seed % DefaultGlyph.values().length]);
+		for(int i = 0; i < 200; i++){
+			double x0 = i*0.05;
+			double x1 = (i+1)*0.05;
+			lines.addSegment(x0, Math.sin(x0+seed), x1, Math.sin(x1+seed))
+			.setColor(Color.getHSBColor((seed*0.07f)%1f, 0.8f, 0.7f));
+			if(i % 4 == 0){
+				points.addPoint(x0, Math.cos(x0*(seed+1)*0.3))
+				.setColor(Color.getHSBColor((i*0.005f)%1f, 0.6f, 0.8f))
+				.setScaling(1 + (i % 3));
+			}
+		}
+		lines.setGlobalThicknessMultiplier(1 + seed % 3);
+		content
+		.addItemToRender(lines)
+		.addItemToRender(points)
+		.addItemToRender(new Text("seed " + seed, 12 + seed % 5, seed % 2 == 0 ? Font.PLAIN:Font.BOLD).setOrigin(1, 1));
+
+		Legend legend = new Legend();
+		legend
+		.addLineLabel(2, Color.getHSBColor((seed*0.07f)%1f, 0.8f, 0.7f).getRGB(), "sin")
+		.addGlyphLabel(DefaultGlyph.CIRCLE_F, 0xff888888, "cos");
+		coordsys.setLegendRight(legend);
+		coordsys.setCoordinateView(0, -1.5, 10, 1.5);
+		return coordsys;
+	}
+
+	static List<String> defIds(byte[] svg) {
+		Matcher matcher = DEF_ID.matcher(new String(svg, StandardCharsets.UTF_8));
+		List<String> ids = new ArrayList<>();
+		while(matcher.find()){
+			ids.add(matcher.group(1));
+		}
+		return ids;
+	}
+
+	/*
+	 * CharacterAtlas.get requires an active GL context, the atlas collection is thus not accessible here.
+	 * The text measurement is used by the fallback, SVG and PDF rendering on all worker threads.
+	 */
+	static int testConcurrentTextBounds(int numThreads) throws Exception {
+		int[] styles = {Font.PLAIN, Font.BOLD, Font.ITALIC, Font.BOLD|Font.ITALIC};
+		List<Rectangle2D> expected = new ArrayList<>();
+		for(int size = 8; size <= 24; size++){
+			for(int style : styles){
+				for(int len = 0; len < 32; len++){
+					expected.add(CharacterAtlas.boundsForText(len, size, style));
+				}
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<Integer>> futures = new ArrayList<>();
+		try {
+			for(int t = 0; t < numThreads*4; t++){
+				final int offset = t;
+				Callable<Integer> task = ()->{
+					int mismatches = 0;
+					for(int j = 0; j < expected.size(); j++){
+						// different threads walk through the font sizes in different order
+						int k = (j + offset*97) % expected.size();
+						int size = 8 + k/(styles.length*32);
+						int style = styles[(k/32) % styles.length];
+						int len = k % 32;
+						Rectangle2D bounds = CharacterAtlas.boundsForText(len, size, style);
+						if(!bounds.equals(expected.get(k))){
+							mismatches++;
+						}
+					}
+					return mismatches;
+				};
+				futures.add(executor.submit(task));
+			}
+			int mismatches = 0;
+			for(Future<Integer> future : futures){
+				mismatches += future.get();
+			}
+			System.out.println("measured " + expected.size()*futures.size() + " text bounds on " + numThreads + " threads");
+			if(mismatches > 0){
+				System.err.println(mismatches + " text bounds differ from sequential measurement");
+				return 1;
+			}
+			return 0;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}